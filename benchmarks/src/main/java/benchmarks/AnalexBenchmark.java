@@ -0,0 +1,93 @@
+package benchmarks;
+
+import Tokens.TabelaDeTokens;
+import analyzer.Analex;
+import analyzer.AnalexAutomato;
+import analyzer.AnalexBuffer;
+import analyzer.AnalexParalelo;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Análise léxica isolada: Analex.analisarCodigo() a partir do ficheiro,
+ * AnalexBuffer sobre a fonte já em memória e AnalexAutomato (operadores
+ * por autómato gerado das tabelas de tokens) sobre a mesma fonte.
+ * AnalexParalelo usa troços de 16K chars para que também os corpora
+ * pequenos sejam divididos pelas threads do pool comum.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalexBenchmark {
+
+    static final PrintStream NULA = new PrintStream(OutputStream.nullOutputStream());
+
+    @Param({"STRUCTS", "EXPRESSOES", "FUNCOES"})
+    public Corpus.Forma forma;
+
+    @Param({"1000", "10000", "100000"})
+    public int linhas;
+
+    private Corpus corpus;
+    private String caminho;
+    private char[] fonte;
+
+    @Setup
+    public void preparar() throws IOException {
+        corpus = Corpus.gerar(forma, linhas);
+        caminho = corpus.escrever().toString();
+        fonte = corpus.getCodigo().toCharArray();
+    }
+
+    @Benchmark
+    public TabelaDeTokens analex(Contadores contadores) throws IOException {
+        Analex analex = new Analex(caminho);
+        analex.setSaidaErros(NULA);
+        return contar(analex.analisarCodigo(), contadores);
+    }
+
+    @Benchmark
+    public TabelaDeTokens analexBuffer(Contadores contadores) throws IOException {
+        Analex analex = new AnalexBuffer(fonte, 0, fonte.length);
+        analex.setSaidaErros(NULA);
+        return contar(analex.analisarCodigo(), contadores);
+    }
+
+    @Benchmark
+    public TabelaDeTokens analexAutomato(Contadores contadores) throws IOException {
+        Analex analex = new AnalexAutomato(fonte, 0, fonte.length);
+        analex.setSaidaErros(NULA);
+        return contar(analex.analisarCodigo(), contadores);
+    }
+
+    @Benchmark
+    public TabelaDeTokens analexParalelo(Contadores contadores) throws IOException {
+        AnalexParalelo analex = new AnalexParalelo(fonte, 0, fonte.length);
+        analex.setTamanhoMinimoTroco(1 << 14);
+        analex.setSaidaErros(NULA);
+        return contar(analex.analisarCodigo(), contadores);
+    }
+
+    private TabelaDeTokens contar(TabelaDeTokens tabela, Contadores contadores) {
+        contadores.tokens += tabela.tamanho();
+        contadores.linhas += corpus.getLinhas();
+        return tabela;
+    }
+
+}
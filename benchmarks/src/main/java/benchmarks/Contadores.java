@@ -0,0 +1,26 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Contadores secundários: o JMH reporta-os como tokens/s e linhas/s ao lado
+ * do throughput em operações.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Contadores {
+
+    public long tokens;
+    public long linhas;
+
+    @Setup(Level.Iteration)
+    public void limpar() {
+        tokens = 0;
+        linhas = 0;
+    }
+
+}
@@ -0,0 +1,68 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import utils.GeradorCorpus;
+
+/**
+ * Fontes C sintéticas (ver utils.GeradorCorpus), aceites pelo Parser sem
+ * erros, usadas pelos benchmarks. O tamanho é dado em linhas aproximadas.
+ */
+public final class Corpus {
+
+    public enum Forma {
+        STRUCTS,     // Muitas structs e acessos a campos
+        EXPRESSOES,  // Expressões aritméticas profundamente aninhadas
+        FUNCOES      // Poucas funções muito longas
+    }
+
+    private final String codigo;
+    private final int linhas;
+
+    private Corpus(String codigo) {
+        this.codigo = codigo;
+        int n = 0;
+        for (int i = 0; i < codigo.length(); i++) {
+            if (codigo.charAt(i) == '\n') {
+                n++;
+            }
+        }
+        this.linhas = n;
+    }
+
+    public static Corpus gerar(Forma forma, int linhas) {
+        GeradorCorpus gerador = new GeradorCorpus();
+        gerador.setLinhas(linhas);
+        switch (forma) {
+            case STRUCTS:
+                gerador.setStructs(Math.max(1, linhas / 16));
+                break;
+            case EXPRESSOES:
+                gerador.setProfundidade(8);
+                break;
+            case FUNCOES:
+                gerador.setLinhasPorFuncao(2000);
+                break;
+        }
+        return new Corpus(gerador.gerar());
+    }
+
+    public String getCodigo() {
+        return codigo;
+    }
+
+    public int getLinhas() {
+        return linhas;
+    }
+
+    // O Analex lê de um ficheiro; é escrito com o charset que o FileReader usa
+    public Path escrever() throws IOException {
+        Path ficheiro = Files.createTempFile("corpus", ".c");
+        ficheiro.toFile().deleteOnExit();
+        Files.write(ficheiro, codigo.getBytes(Charset.defaultCharset()));
+        return ficheiro;
+    }
+
+}
@@ -0,0 +1,36 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ponto de entrada do benchmarks.jar: passa as opções ao Main do JMH (pelo
+ * que -l, -h e -lprof funcionam como nele) e junta o profiler "gc", para
+ * que a taxa de alocação (gc.alloc.rate e gc.alloc.rate.norm) apareça ao
+ * lado do throughput.
+ *
+ * Ex: java -jar target/benchmarks.jar Parser -p linhas=100000
+ */
+public class Executar {
+
+    public static void main(String[] args) throws Exception {
+        List<String> argumentos = new ArrayList<>(Arrays.asList(args));
+        if (!pedeProfilerGC(args)) {
+            argumentos.add("-prof");
+            argumentos.add("gc");
+        }
+        org.openjdk.jmh.Main.main(argumentos.toArray(new String[0]));
+    }
+
+    // Se o profiler "gc" já foi pedido (com ou sem parâmetros), não é pedido outra vez
+    private static boolean pedeProfilerGC(String[] args) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals("-prof") && (args[i + 1].equals("gc") || args[i + 1].startsWith("gc:"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,73 @@
+package benchmarks;
+
+import Tokens.FormatoTokens;
+import Tokens.TabelaDeTokens;
+import analyzer.Analex;
+import analyzer.AnalexBuffer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Obter a tabela de tokens de um ficheiro: voltar a analisá-lo com o
+ * AnalexBuffer ou carregar os tokens gravados no formato binário
+ * (FormatoTokens).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatoTokensBenchmark {
+
+    @Param({"STRUCTS", "EXPRESSOES", "FUNCOES"})
+    public Corpus.Forma forma;
+
+    @Param({"1000", "10000", "100000"})
+    public int linhas;
+
+    private Corpus corpus;
+    private String caminho;
+    private Path tokens;
+
+    @Setup
+    public void preparar() throws IOException {
+        corpus = Corpus.gerar(forma, linhas);
+        caminho = corpus.escrever().toString();
+        tokens = Files.createTempFile("corpus", ".tok");
+        tokens.toFile().deleteOnExit();
+        FormatoTokens.escrever(new AnalexBuffer(caminho).analisarCodigo(), tokens);
+    }
+
+    @Benchmark
+    public TabelaDeTokens reanalisar(Contadores contadores) throws IOException {
+        Analex analex = new AnalexBuffer(caminho);
+        analex.setSaidaErros(AnalexBenchmark.NULA);
+        return contar(analex.analisarCodigo(), contadores);
+    }
+
+    @Benchmark
+    public TabelaDeTokens carregar(Contadores contadores) throws IOException {
+        return contar(FormatoTokens.carregar(tokens), contadores);
+    }
+
+    private TabelaDeTokens contar(TabelaDeTokens tabela, Contadores contadores) {
+        contadores.tokens += tabela.tamanho();
+        contadores.linhas += corpus.getLinhas();
+        return tabela;
+    }
+
+}
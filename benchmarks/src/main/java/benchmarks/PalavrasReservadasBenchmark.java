@@ -0,0 +1,97 @@
+package benchmarks;
+
+import Tokens.Identificadores;
+import Tokens.TokenKind;
+import Tokens.TokenPalavrasReservadas;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Distinguir palavras reservadas de identificadores em todas as palavras de
+ * um corpus: registar o nome e consultar o mapa TokenPalavrasReservadas
+ * (como o Analex fazia) ou usar a dispersão perfeita sobre os chars da
+ * fonte, registando só os identificadores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PalavrasReservadasBenchmark {
+
+    @Param({"STRUCTS", "FUNCOES"})
+    public Corpus.Forma forma;
+
+    @Param({"10000"})
+    public int linhas;
+
+    private char[] fonte;
+    // Início e comprimento de cada palavra da fonte
+    private int[] inicios;
+    private int[] comprimentos;
+    private int palavras;
+
+    @Setup
+    public void preparar() {
+        fonte = Corpus.gerar(forma, linhas).getCodigo().toCharArray();
+        inicios = new int[1024];
+        comprimentos = new int[1024];
+        for (int i = 0; i < fonte.length; ) {
+            if (!Character.isLetter(fonte[i]) && fonte[i] != '_') {
+                i++;
+                continue;
+            }
+            int inicio = i;
+            while (i < fonte.length && (Character.isLetterOrDigit(fonte[i]) || fonte[i] == '_')) {
+                i++;
+            }
+            if (palavras == inicios.length) {
+                inicios = Arrays.copyOf(inicios, palavras * 2);
+                comprimentos = Arrays.copyOf(comprimentos, palavras * 2);
+            }
+            inicios[palavras] = inicio;
+            comprimentos[palavras++] = i - inicio;
+        }
+    }
+
+    @Benchmark
+    public int mapa() {
+        Identificadores identificadores = new Identificadores();
+        int reservadas = 0;
+        for (int p = 0; p < palavras; p++) {
+            int simbolo = identificadores.registar(fonte, inicios[p], comprimentos[p]);
+            if (TokenPalavrasReservadas.palavrasReservadas.get(identificadores.texto(simbolo)) != null) {
+                reservadas++;
+            }
+        }
+        return reservadas;
+    }
+
+    @Benchmark
+    public int dispersaoPerfeita() {
+        Identificadores identificadores = new Identificadores();
+        int reservadas = 0;
+        for (int p = 0; p < palavras; p++) {
+            TokenKind kind = TokenPalavrasReservadas.reconhecer(fonte, inicios[p], comprimentos[p]);
+            if (kind != null) {
+                reservadas++;
+            } else {
+                identificadores.registar(fonte, inicios[p], comprimentos[p]);
+            }
+        }
+        return reservadas;
+    }
+
+}
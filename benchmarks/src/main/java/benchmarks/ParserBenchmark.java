@@ -0,0 +1,84 @@
+package benchmarks;
+
+import Tokens.TabelaDeTokens;
+import analyzer.AnalexBuffer;
+import analyzer.Parser;
+import ast.ArvoreSintatica;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Análise sintática e semântica isolada: a tabela de tokens é criada uma vez
+ * no setup e cada operação corre um Parser novo sobre ela. parseComArvore
+ * mede o custo adicional de construir a árvore sintática tipada.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"STRUCTS", "EXPRESSOES", "FUNCOES"})
+    public Corpus.Forma forma;
+
+    @Param({"1000", "10000", "100000"})
+    public int linhas;
+
+    private Corpus corpus;
+    private TabelaDeTokens tabela;
+
+    @Setup
+    public void preparar() throws IOException {
+        corpus = Corpus.gerar(forma, linhas);
+        char[] fonte = corpus.getCodigo().toCharArray();
+        AnalexBuffer analex = new AnalexBuffer(fonte, 0, fonte.length);
+        analex.setSaidaErros(AnalexBenchmark.NULA);
+        tabela = analex.analisarCodigo();
+
+        Parser parser = novoParser();
+        parser.parse();
+        if (parser.getCountErros() != 0) {
+            throw new IllegalStateException("Corpus " + forma + " tem " + parser.getCountErros() + " erros");
+        }
+    }
+
+    private Parser novoParser() {
+        Parser parser = new Parser(tabela);
+        parser.setSaidaErros(AnalexBenchmark.NULA);
+        return parser;
+    }
+
+    @Benchmark
+    public int parse(Contadores contadores) throws IOException {
+        Parser parser = novoParser();
+        parser.parse();
+        contadores.tokens += tabela.tamanho();
+        contadores.linhas += corpus.getLinhas();
+        return parser.getCountErros();
+    }
+
+    @Benchmark
+    public ArvoreSintatica parseComArvore(Contadores contadores) throws IOException {
+        Parser parser = novoParser();
+        ArvoreSintatica arvore = new ArvoreSintatica(tabela.tamanho() * 3 / 5);
+        parser.setArvore(arvore);
+        parser.parse();
+        contadores.tokens += tabela.tamanho();
+        contadores.linhas += corpus.getLinhas();
+        return arvore;
+    }
+
+}
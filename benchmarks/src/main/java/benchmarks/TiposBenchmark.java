@@ -0,0 +1,93 @@
+package benchmarks;
+
+import Tokens.TabelaDeTokens;
+import analyzer.AnalexBuffer;
+import analyzer.Parser;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import models.Tipo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Verificações de tipos usadas em cada expressão: tiposCompativeis e
+ * ehTipoValido, sobre uma mistura fixa de primitivos, ponteiros, arrays e
+ * structs (declaradas e por declarar).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TiposBenchmark {
+
+    private static final String[] NOMES = {
+        "int", "float", "double", "char", "long", "unsigned int", "char*", "char[]",
+        "int*", "double*", "struct S0", "struct S1*", "struct Inexistente", "void", "bool", "unknown"
+    };
+
+    // Dá acesso às verificações protegidas do Parser
+    static class ParserSonda extends Parser {
+
+        ParserSonda(TabelaDeTokens tabela) {
+            super(tabela);
+        }
+
+        boolean compativeis(Tipo tipo1, Tipo tipo2) {
+            return tiposCompativeis(tipo1, tipo2);
+        }
+
+        boolean valido(Tipo tipo) {
+            return ehTipoValido(tipo);
+        }
+    }
+
+    private ParserSonda parser;
+    private Tipo[] tipos;
+
+    @Setup
+    public void preparar() throws IOException {
+        // As structs S0, S1, ... ficam registadas no Escopo do Parser
+        char[] fonte = Corpus.gerar(Corpus.Forma.STRUCTS, 1000).getCodigo().toCharArray();
+        AnalexBuffer analex = new AnalexBuffer(fonte, 0, fonte.length);
+        analex.setSaidaErros(AnalexBenchmark.NULA);
+        parser = new ParserSonda(analex.analisarCodigo());
+        parser.setSaidaErros(AnalexBenchmark.NULA);
+        parser.parse();
+
+        tipos = new Tipo[NOMES.length];
+        for (int i = 0; i < NOMES.length; i++) {
+            tipos[i] = Tipo.de(NOMES[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(256)
+    public void tiposCompativeis(Blackhole bh) {
+        for (Tipo destino : tipos) {
+            for (Tipo origem : tipos) {
+                bh.consume(parser.compativeis(destino, origem));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(16)
+    public void ehTipoValido(Blackhole bh) {
+        for (Tipo tipo : tipos) {
+            bh.consume(parser.valido(tipo));
+        }
+    }
+
+}
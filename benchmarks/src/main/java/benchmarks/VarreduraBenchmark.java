@@ -0,0 +1,77 @@
+package benchmarks;
+
+import Tokens.TabelaDeTokens;
+import analyzer.Analex;
+import analyzer.AnalexBuffer;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AnalexBuffer sobre um "header" dominado por comentários de bloco e de
+ * linha, strings longas e indentação, com a Varredura escalar e com a
+ * vetorial (cada uma na sua JVM, porque a escolha é feita ao carregar a
+ * classe).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class VarreduraBenchmark {
+
+    @Param({"10000", "100000"})
+    public int linhas;
+
+    private char[] fonte;
+    private int linhasFonte;
+
+    @Setup
+    public void preparar() {
+        StringBuilder codigo = new StringBuilder();
+        for (int i = 0; linhasFonte < linhas; i++) {
+            codigo.append("/*\n");
+            codigo.append(" * Função ").append(i).append(": documentação copiada do fornecedor, com uma\n");
+            codigo.append(" * descrição longa dos parâmetros, dos valores devolvidos e dos erros possíveis.\n");
+            codigo.append(" */\n");
+            codigo.append("int funcao").append(i).append("(int a, int b); // devolve a soma, ou -1 se houver overflow\n");
+            codigo.append("        char* mensagem").append(i)
+                    .append(" = \"mensagem de erro bastante comprida para o código ").append(i).append("\";\n");
+            codigo.append("\n");
+            linhasFonte += 7;
+        }
+        fonte = codigo.toString().toCharArray();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dcompilador.varredura=escalar")
+    public TabelaDeTokens escalar(Contadores contadores) throws IOException {
+        return analisar(contadores);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+    public TabelaDeTokens vetorial(Contadores contadores) throws IOException {
+        return analisar(contadores);
+    }
+
+    private TabelaDeTokens analisar(Contadores contadores) throws IOException {
+        Analex analex = new AnalexBuffer(fonte, 0, fonte.length);
+        analex.setSaidaErros(AnalexBenchmark.NULA);
+        TabelaDeTokens tabela = analex.analisarCodigo();
+        contadores.tokens += tabela.tamanho();
+        contadores.linhas += linhasFonte;
+        return tabela;
+    }
+
+}
@@ -0,0 +1,27 @@
+package Tokens;
+
+/**
+ * Onde o analisador léxico escreve os tokens: a TabelaDeTokens completa ou
+ * a JanelaDeTokens do modo streaming.
+ *
+ * @author itsupport
+ */
+public interface DestinoDeTokens {
+
+    void adicionarToken(Token token);
+
+    // Token cujo lexema ocupa fonte[inicio, inicio + comprimento)
+    void adicionarToken(TokenKind kind, int inicio, int comprimento, int linha, int coluna);
+
+    // IDENTIFIER cujo nome ocupa fonte[inicio, inicio + comprimento)
+    void adicionarIdentificador(int inicio, int comprimento, int linha, int coluna);
+
+    // IDENTIFIER com o nome número simbolo de getIdentificadores()
+    void adicionarSimbolo(int simbolo, int linha, int coluna);
+
+    void adicionarPalavraReservada(TokenKind kind, int linha, int coluna);
+
+    // Nomes dos identificadores já registados por este destino
+    Identificadores getIdentificadores();
+
+}
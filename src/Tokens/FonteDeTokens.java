@@ -0,0 +1,13 @@
+package Tokens;
+
+/**
+ * Origem dos tokens lidos pelo Parser, acedidos por índice crescente.
+ *
+ * @author itsupport
+ */
+public interface FonteDeTokens {
+
+    // Token na posição indice, ou null se a fonte terminar antes
+    Token token(int indice);
+
+}
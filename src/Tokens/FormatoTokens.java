@@ -0,0 +1,253 @@
+package Tokens;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Formato binário de uma TabelaDeTokens, para guardar o resultado do Analex
+ * em disco e voltar a carregá-lo sem analisar a fonte outra vez. Todos os
+ * números são varints (7 bits por byte, o bit mais alto indica que há mais)
+ * e as diferenças com sinal usam zigzag:
+ *
+ *   MAGICO        4 bytes
+ *   assinatura    4 bytes, dos nomes do TokenKind (os kinds vão pelo ordinal)
+ *   tokens        varint
+ *   lexemas       varint, tamanho da tabela de lexemas distintos
+ *   por lexema    varint comprimento, um varint por char
+ *   por token     varint kind (ordinal + 1, 0 sem kind)
+ *                 varint diferença de linha para o token anterior
+ *                 varint coluna, em diferença se a linha for a mesma
+ *                 varint lexema (índice + 1, 0 sem valor)
+ *
+ * O carregamento mapeia o ficheiro e descodifica-o diretamente para os
+ * arrays da tabela numa só passagem; os lexemas ficam todos num char[] que
+ * faz de fonte, partilhado pelos tokens com o mesmo lexema, e os nomes dos
+ * identificadores são registados em Identificadores como pelo Analex.
+ *
+ * @author itsupport
+ */
+public final class FormatoTokens {
+
+    private static final int MAGICO = 0x544F4B31; // "TOK1"
+    private static final int ASSINATURA = assinatura();
+
+    private FormatoTokens() {
+    }
+
+    public static void escrever(TabelaDeTokens tabela, Path destino) throws IOException {
+        try (OutputStream saida = Files.newOutputStream(destino)) {
+            escrever(tabela, saida);
+        }
+    }
+
+    public static void escrever(TabelaDeTokens tabela, OutputStream destino) throws IOException {
+        int quantidade = tabela.tamanho();
+        HashMap<String, Integer> indices = new HashMap<>();
+        String[] lexemas = new String[64];
+        int[] lexemaDoToken = new int[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            String valor = tabela.valorEm(i);
+            if (valor == null) {
+                continue;
+            }
+            Integer indice = indices.get(valor);
+            if (indice == null) {
+                indice = indices.size();
+                indices.put(valor, indice);
+                if (indice == lexemas.length) {
+                    lexemas = Arrays.copyOf(lexemas, indice * 2);
+                }
+                lexemas[indice] = valor;
+            }
+            lexemaDoToken[i] = indice + 1;
+        }
+
+        Saida saida = new Saida(destino);
+        saida.inteiro(MAGICO);
+        saida.inteiro(ASSINATURA);
+        saida.varint(quantidade);
+        saida.varint(indices.size());
+        for (int l = 0; l < indices.size(); l++) {
+            String lexema = lexemas[l];
+            saida.varint(lexema.length());
+            for (int c = 0; c < lexema.length(); c++) {
+                saida.varint(lexema.charAt(c));
+            }
+        }
+        int linhaAnterior = 0;
+        int colunaAnterior = 0;
+        for (int i = 0; i < quantidade; i++) {
+            TokenKind kind = tabela.kindEm(i);
+            int linha = tabela.linhaEm(i);
+            int coluna = tabela.colunaEm(i);
+            saida.varint(kind != null ? kind.ordinal() + 1 : 0);
+            saida.varint(zigzag(linha - linhaAnterior));
+            saida.varint(zigzag(linha == linhaAnterior ? coluna - colunaAnterior : coluna));
+            saida.varint(lexemaDoToken[i]);
+            linhaAnterior = linha;
+            colunaAnterior = coluna;
+        }
+        saida.despejar();
+    }
+
+    public static TabelaDeTokens carregar(Path origem) throws IOException {
+        try (FileChannel canal = FileChannel.open(origem, StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            return carregar(bytes);
+        }
+    }
+
+    public static TabelaDeTokens carregar(ByteBuffer bytes) throws IOException {
+        try {
+            if (bytes.getInt() != MAGICO) {
+                throw new IOException("Não é um ficheiro de tokens");
+            }
+            if (bytes.getInt() != ASSINATURA) {
+                throw new IOException("Ficheiro de tokens de outra versão do TokenKind");
+            }
+            int quantidade = varint(bytes);
+            int numeroLexemas = varint(bytes);
+            // Cada token ocupa pelo menos 4 bytes e cada lexema pelo menos 1
+            if (quantidade < 0 || numeroLexemas < 0 || quantidade > bytes.remaining() / 4 || numeroLexemas > bytes.remaining()) {
+                throw new IOException("Ficheiro de tokens corrompido");
+            }
+
+            // Os lexemas são copiados um a seguir ao outro para a fonte da tabela
+            int[] inicioLexema = new int[numeroLexemas + 1];
+            int[] comprimentoLexema = new int[numeroLexemas + 1];
+            comprimentoLexema[0] = -1;
+            char[] fonte = new char[Math.min(bytes.remaining(), 1 << 16) + 16];
+            int tamanhoFonte = 0;
+            for (int l = 1; l <= numeroLexemas; l++) {
+                int comprimento = varint(bytes);
+                if (tamanhoFonte + comprimento > fonte.length) {
+                    fonte = Arrays.copyOf(fonte, Math.max(fonte.length * 2, tamanhoFonte + comprimento));
+                }
+                inicioLexema[l] = tamanhoFonte;
+                comprimentoLexema[l] = comprimento;
+                for (int c = 0; c < comprimento; c++) {
+                    fonte[tamanhoFonte++] = (char) varint(bytes);
+                }
+            }
+
+            TokenKind[] valores = TokenKind.values();
+            byte[] kinds = new byte[quantidade];
+            int[] linhas = new int[quantidade];
+            int[] colunas = new int[quantidade];
+            int[] inicios = new int[quantidade];
+            int[] comprimentos = new int[quantidade];
+            int[] simbolos = new int[quantidade];
+            // Número + 1 de cada lexema já registado como nome de um IDENTIFIER
+            int[] simboloDoLexema = new int[numeroLexemas + 1];
+            Identificadores identificadores = new Identificadores();
+            int identificador = TokenKind.IDENTIFIER.ordinal() + 1;
+            int linha = 0;
+            int coluna = 0;
+            for (int i = 0; i < quantidade; i++) {
+                int kind = varint(bytes);
+                int deltaLinha = desfazerZigzag(varint(bytes));
+                int valorColuna = desfazerZigzag(varint(bytes));
+                int lexema = varint(bytes);
+                if (kind < 0 || kind > valores.length || lexema < 0 || lexema > numeroLexemas) {
+                    throw new IOException("Ficheiro de tokens corrompido no token " + i);
+                }
+                coluna = deltaLinha == 0 ? coluna + valorColuna : valorColuna;
+                linha += deltaLinha;
+                kinds[i] = (byte) (kind - 1);
+                linhas[i] = linha;
+                colunas[i] = coluna;
+                inicios[i] = inicioLexema[lexema];
+                comprimentos[i] = comprimentoLexema[lexema];
+                if (kind == identificador && lexema > 0) {
+                    if (simboloDoLexema[lexema] == 0) {
+                        simboloDoLexema[lexema] = identificadores.registar(fonte, inicioLexema[lexema], comprimentoLexema[lexema]) + 1;
+                    }
+                    simbolos[i] = simboloDoLexema[lexema];
+                }
+            }
+            return new TabelaDeTokens(fonte, quantidade, kinds, linhas, colunas, inicios, comprimentos,
+                    simbolos, identificadores);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Ficheiro de tokens truncado", e);
+        }
+    }
+
+    private static int varint(ByteBuffer bytes) throws IOException {
+        int valor = 0;
+        for (int deslocamento = 0; deslocamento < 35; deslocamento += 7) {
+            byte b = bytes.get();
+            valor |= (b & 0x7F) << deslocamento;
+            if (b >= 0) {
+                return valor;
+            }
+        }
+        throw new IOException("Varint demasiado longo");
+    }
+
+    private static int zigzag(int valor) {
+        return (valor << 1) ^ (valor >> 31);
+    }
+
+    private static int desfazerZigzag(int valor) {
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+
+    // Muda quando um TokenKind é acrescentado, removido ou trocado de ordem
+    private static int assinatura() {
+        int h = 0;
+        for (TokenKind kind : TokenKind.values()) {
+            h = h * 31 + kind.name().hashCode();
+        }
+        return h;
+    }
+
+    // Buffer de escrita dos varints, despejado no destino quando enche
+    private static final class Saida {
+
+        private final OutputStream destino;
+        private final byte[] buffer = new byte[1 << 16];
+        private int tamanho;
+
+        Saida(OutputStream destino) {
+            this.destino = destino;
+        }
+
+        void inteiro(int valor) throws IOException {
+            garantir(4);
+            buffer[tamanho++] = (byte) (valor >>> 24);
+            buffer[tamanho++] = (byte) (valor >>> 16);
+            buffer[tamanho++] = (byte) (valor >>> 8);
+            buffer[tamanho++] = (byte) valor;
+        }
+
+        void varint(int valor) throws IOException {
+            garantir(5);
+            while ((valor & ~0x7F) != 0) {
+                buffer[tamanho++] = (byte) ((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            buffer[tamanho++] = (byte) valor;
+        }
+
+        private void garantir(int bytes) throws IOException {
+            if (tamanho + bytes > buffer.length) {
+                despejar();
+            }
+        }
+
+        void despejar() throws IOException {
+            destino.write(buffer, 0, tamanho);
+            tamanho = 0;
+        }
+    }
+
+}
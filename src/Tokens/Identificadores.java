@@ -0,0 +1,114 @@
+package Tokens;
+
+import java.util.Arrays;
+
+/**
+ * Nomes de uma compilação, cada um guardado uma só vez e identificado por
+ * um número. O Analex regista os identificadores diretamente a partir do
+ * buffer da fonte, sem criar uma String por ocorrência; todos os tokens com
+ * o mesmo nome devolvem a mesma instância, cujo hash é calculado uma vez.
+ * Assim as consultas ao Escopo e aos campos das structs comparam os nomes
+ * por identidade (o HashMap testa == antes de equals).
+ *
+ * Tabela de dispersão com endereçamento aberto; o hash é o de
+ * String.hashCode(), para que um nome registado a partir de chars e a
+ * partir de uma String caiam na mesma posição.
+ *
+ * @author itsupport
+ */
+public final class Identificadores {
+
+    private static final int CAPACIDADE_INICIAL = 64;
+
+    private String[] textos = new String[CAPACIDADE_INICIAL];
+    private int[] hashes = new int[CAPACIDADE_INICIAL];
+    private int quantidade;
+    // Os chars de todos os nomes seguidos, para comparar com a fonte sem passar pela String
+    private char[] chars = new char[CAPACIDADE_INICIAL * 8];
+    private int[] inicios = new int[CAPACIDADE_INICIAL];
+    private int tamanhoChars;
+    // Número + 1 do nome em cada posição; 0 é uma posição livre
+    private int[] posicoes = new int[CAPACIDADE_INICIAL * 2];
+
+    // Número do nome em fonte[inicio, inicio + comprimento), registando-o se for novo
+    public int registar(char[] fonte, int inicio, int comprimento) {
+        int h = 0;
+        for (int i = inicio; i < inicio + comprimento; i++) {
+            h = 31 * h + fonte[i];
+        }
+        int mascara = posicoes.length - 1;
+        for (int p = espalhar(h) & mascara; ; p = (p + 1) & mascara) {
+            int id = posicoes[p] - 1;
+            if (id < 0) {
+                return inserir(p, new String(fonte, inicio, comprimento), h);
+            }
+            if (hashes[id] == h && textos[id].length() == comprimento
+                    && Arrays.equals(chars, inicios[id], inicios[id] + comprimento, fonte, inicio, inicio + comprimento)) {
+                return id;
+            }
+        }
+    }
+
+    public int registar(String texto) {
+        int h = texto.hashCode();
+        int mascara = posicoes.length - 1;
+        for (int p = espalhar(h) & mascara; ; p = (p + 1) & mascara) {
+            int id = posicoes[p] - 1;
+            if (id < 0) {
+                return inserir(p, texto, h);
+            }
+            if (hashes[id] == h && textos[id].equals(texto)) {
+                return id;
+            }
+        }
+    }
+
+    public String texto(int id) {
+        return textos[id];
+    }
+
+    public int tamanho() {
+        return quantidade;
+    }
+
+    private int inserir(int posicao, String texto, int h) {
+        if (quantidade == textos.length) {
+            textos = Arrays.copyOf(textos, quantidade * 2);
+            hashes = Arrays.copyOf(hashes, quantidade * 2);
+            inicios = Arrays.copyOf(inicios, quantidade * 2);
+        }
+        if (tamanhoChars + texto.length() > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(chars.length * 2, tamanhoChars + texto.length()));
+        }
+        int id = quantidade++;
+        textos[id] = texto;
+        hashes[id] = h;
+        inicios[id] = tamanhoChars;
+        texto.getChars(0, texto.length(), chars, tamanhoChars);
+        tamanhoChars += texto.length();
+        posicoes[posicao] = id + 1;
+        // Ocupação máxima de metade, para as sondagens serem curtas
+        if (quantidade * 2 > posicoes.length) {
+            redimensionar();
+        }
+        return id;
+    }
+
+    private void redimensionar() {
+        posicoes = new int[posicoes.length * 2];
+        int mascara = posicoes.length - 1;
+        for (int id = 0; id < quantidade; id++) {
+            int p = espalhar(hashes[id]) & mascara;
+            while (posicoes[p] != 0) {
+                p = (p + 1) & mascara;
+            }
+            posicoes[p] = id + 1;
+        }
+    }
+
+    // Mistura os bits altos nos baixos (o hash das Strings curtas varia pouco nos bits altos)
+    private static int espalhar(int h) {
+        return h ^ (h >>> 16);
+    }
+
+}
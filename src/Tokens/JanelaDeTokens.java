@@ -0,0 +1,187 @@
+package Tokens;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Buffer circular de tokens entre um analisador léxico a correr noutra thread
+ * e o Parser. Só guarda os últimos tokens pedidos (o Parser nunca olha mais
+ * de dois tokens à frente), pelo que a memória usada não depende do tamanho
+ * do ficheiro e a análise léxica sobrepõe-se à sintática.
+ *
+ * O analisador léxico escreve aqui em vez de na tabela normal (ver
+ * Analex.abrirJanela); quando a janela está cheia fica à espera que o Parser
+ * avance. Não é uma TabelaDeTokens: os tokens já descartados deixam de
+ * existir, pelo que só há token(int), para índices crescentes.
+ *
+ * @author itsupport
+ */
+public class JanelaDeTokens implements FonteDeTokens, DestinoDeTokens {
+
+    // Tokens mantidos antes do último pedido (o Parser nunca recua além do atual)
+    private static final int ATRAS = 8;
+
+    private final char[] fonte;
+    private final Token[] janela;
+    private final Identificadores identificadores = new Identificadores();
+
+    private long base;        // Índice global do token mais antigo ainda guardado
+    private int quantidade;   // Tokens guardados a partir de base
+    private boolean terminado;
+    private boolean cancelado;
+    private boolean descartar;  // O Parser terminou; o resto dos tokens é ignorado
+    // As threads só são acordadas com a janela cheia (Parser) ou meio vazia
+    // (Analex), para não haver uma troca de contexto por token
+    private boolean produtorEspera;
+    private boolean consumidorEspera;
+    private Exception erro;
+    private long totalTokens;   // Tokens recebidos, incluindo os já descartados
+
+    public JanelaDeTokens(char[] fonte, int capacidade) {
+        this.fonte = fonte;
+        this.janela = new Token[capacidade];
+    }
+
+    /**
+     * Executa o analisador léxico na thread atual, marcando a janela como
+     * terminada no fim (ou com o erro lançado).
+     */
+    public void produzir(Callable<?> analisador) {
+        Exception falha = null;
+        try {
+            analisador.call();
+        } catch (Exception e) {
+            falha = e;
+        }
+        synchronized (this) {
+            erro = falha;
+            terminado = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Chamado quando o Parser termina (por exemplo num token EOF a meio do
+     * ficheiro): deixa o analisador léxico chegar ao fim, para que reporte
+     * todos os erros léxicos, e espera por ele.
+     */
+    public synchronized void esperarFim() {
+        descartar = true;
+        notifyAll();
+        while (!terminado) {
+            esperar();
+        }
+        if (erro != null) {
+            throw new IllegalStateException("Erro na análise léxica: " + erro.getMessage(), erro);
+        }
+    }
+
+    // Liberta o analisador léxico se o Parser parar antes do fim
+    public synchronized void cancelar() {
+        cancelado = true;
+        notifyAll();
+    }
+
+    @Override
+    public void adicionarToken(Token token) {
+        colocar(token);
+    }
+
+    @Override
+    public void adicionarToken(TokenKind kind, int inicio, int comprimento, int linha, int coluna) {
+        colocar(new Token(kind, new String(fonte, inicio, comprimento), linha, coluna));
+    }
+
+    @Override
+    public void adicionarPalavraReservada(TokenKind kind, int linha, int coluna) {
+        colocar(new Token(kind, TokenPalavrasReservadas.lexema(kind), linha, coluna));
+    }
+
+    @Override
+    public void adicionarIdentificador(int inicio, int comprimento, int linha, int coluna) {
+        adicionarSimbolo(identificadores.registar(fonte, inicio, comprimento), linha, coluna);
+    }
+
+    // Os nomes são registados pela thread do analisador léxico; o Parser só recebe a String partilhada
+    @Override
+    public void adicionarSimbolo(int simbolo, int linha, int coluna) {
+        colocar(new Token(TokenKind.IDENTIFIER, identificadores.texto(simbolo), linha, coluna));
+    }
+
+    @Override
+    public Identificadores getIdentificadores() {
+        return identificadores;
+    }
+
+    private synchronized void colocar(Token token) {
+        while (quantidade == janela.length && !cancelado && !descartar) {
+            produtorEspera = true;
+            esperar();
+            produtorEspera = false;
+        }
+        if (cancelado) {
+            throw new IllegalStateException("Análise cancelada");
+        }
+        totalTokens++;
+        if (descartar) {
+            return;
+        }
+        janela[(int) ((base + quantidade) % janela.length)] = token;
+        quantidade++;
+        if (consumidorEspera && quantidade == janela.length) {
+            notifyAll();
+        }
+    }
+
+    @Override
+    public synchronized Token token(int indice) {
+        if (indice < base) {
+            throw new IllegalStateException("Token " + indice + " já saiu da janela");
+        }
+        while (indice >= base + quantidade) {
+            descartarAntes(indice - ATRAS);
+            if (indice < base + quantidade) {
+                break;
+            }
+            if (terminado) {
+                if (erro != null) {
+                    throw new IllegalStateException("Erro na análise léxica: " + erro.getMessage(), erro);
+                }
+                return null;
+            }
+            consumidorEspera = true;
+            esperar();
+            consumidorEspera = false;
+        }
+        return janela[indice % janela.length];
+    }
+
+    // Liberta os tokens com índice menor que limite
+    private void descartarAntes(long limite) {
+        int descartados = (int) Math.min(quantidade, limite - base);
+        if (descartados <= 0) {
+            return;
+        }
+        for (int i = 0; i < descartados; i++) {
+            janela[(int) ((base + i) % janela.length)] = null;
+        }
+        base += descartados;
+        quantidade -= descartados;
+        if (produtorEspera && quantidade <= janela.length / 2) {
+            notifyAll();
+        }
+    }
+
+    private void esperar() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido à espera de tokens", e);
+        }
+    }
+
+    public synchronized long getTotalTokens() {
+        return totalTokens;
+    }
+
+}
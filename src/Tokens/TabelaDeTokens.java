@@ -4,42 +4,278 @@
  */
 package Tokens;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
+ * Tabela de tokens guardada como arrays paralelos de primitivos (ordinal do
+ * TokenKind, linha, coluna, início e comprimento do lexema). O lexema só é
+ * convertido em String quando getValor() é chamado; o de um IDENTIFIER é o
+ * nome partilhado guardado em Identificadores, indicado pelo seu número.
  *
  * @author itsupport
  */
-public class TabelaDeTokens {
+public class TabelaDeTokens implements FonteDeTokens, DestinoDeTokens {
+
+    private static final int CAPACIDADE_INICIAL = 256;
+
+    private static final byte SEM_KIND = -1;
+    // Início de uma palavra reservada: o lexema é o de TokenPalavrasReservadas.lexema(kind)
+    private static final int PALAVRA_RESERVADA = Integer.MIN_VALUE;
+
+    private int quantidade;
+    private byte[] kinds;
+    private int[] linhas;
+    private int[] colunas;
+    // Início >= 0 aponta para a fonte; início < 0 aponta para ~início na arena
+    private int[] inicios;
+    private int[] comprimentos;
+    // Número + 1 do nome de um IDENTIFIER em identificadores; 0 nos outros tokens
+    private int[] simbolos;
+    private final Identificadores identificadores;
+
+    private final char[] fonte;
+    private char[] arena;
+    private int tamanhoArena;
 
-    private List<Token> tokensEncontrados;
     private int indiceAtual;
 
     public TabelaDeTokens() {
-        this.tokensEncontrados = new ArrayList<>();
+        this(null);
+    }
+
+    /**
+     * @param fonte buffer com o código fonte, partilhado com o analisador
+     * léxico; os lexemas adicionados por posição apontam para ele
+     */
+    public TabelaDeTokens(char[] fonte) {
+        this.fonte = fonte;
+        this.kinds = new byte[CAPACIDADE_INICIAL];
+        this.linhas = new int[CAPACIDADE_INICIAL];
+        this.colunas = new int[CAPACIDADE_INICIAL];
+        this.inicios = new int[CAPACIDADE_INICIAL];
+        this.comprimentos = new int[CAPACIDADE_INICIAL];
+        this.simbolos = new int[CAPACIDADE_INICIAL];
+        this.identificadores = new Identificadores();
+        this.arena = new char[CAPACIDADE_INICIAL];
         this.indiceAtual = 0;
     }
 
+    // Tabela já preenchida, lida de um ficheiro de tokens (ver FormatoTokens)
+    TabelaDeTokens(char[] fonte, int quantidade, byte[] kinds, int[] linhas, int[] colunas, int[] inicios, int[] comprimentos,
+            int[] simbolos, Identificadores identificadores) {
+        this.fonte = fonte;
+        this.quantidade = quantidade;
+        this.kinds = kinds;
+        this.linhas = linhas;
+        this.colunas = colunas;
+        this.inicios = inicios;
+        this.comprimentos = comprimentos;
+        this.simbolos = simbolos;
+        this.identificadores = identificadores;
+        this.arena = new char[CAPACIDADE_INICIAL];
+    }
+
+    @Override
     public void adicionarToken(Token token) {
-        tokensEncontrados.add(token);
+        String valor = token.getValor();
+        if (token.getKind() == TokenKind.IDENTIFIER && valor != null) {
+            adicionarSimbolo(identificadores.registar(valor), token.getLinha(), token.getColuna());
+            return;
+        }
+        int comprimento = valor != null ? valor.length() : -1;
+        int inicio = ~tamanhoArena;
+        if (comprimento > 0) {
+            if (tamanhoArena + comprimento > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arena.length * 2, tamanhoArena + comprimento));
+            }
+            valor.getChars(0, comprimento, arena, tamanhoArena);
+            tamanhoArena += comprimento;
+        }
+        adicionarToken(token.getKind(), inicio, comprimento, token.getLinha(), token.getColuna());
+    }
+
+    // Adiciona um token cujo lexema ocupa fonte[inicio, inicio + comprimento)
+    @Override
+    public void adicionarToken(TokenKind kind, int inicio, int comprimento, int linha, int coluna) {
+        if (quantidade == kinds.length) {
+            int capacidade = Math.max(CAPACIDADE_INICIAL, quantidade * 2);
+            kinds = Arrays.copyOf(kinds, capacidade);
+            linhas = Arrays.copyOf(linhas, capacidade);
+            colunas = Arrays.copyOf(colunas, capacidade);
+            inicios = Arrays.copyOf(inicios, capacidade);
+            comprimentos = Arrays.copyOf(comprimentos, capacidade);
+            simbolos = Arrays.copyOf(simbolos, capacidade);
+        }
+        kinds[quantidade] = kind != null ? (byte) kind.ordinal() : SEM_KIND;
+        linhas[quantidade] = linha;
+        colunas[quantidade] = coluna;
+        inicios[quantidade] = inicio;
+        comprimentos[quantidade] = comprimento;
+        simbolos[quantidade] = 0;
+        quantidade++;
+    }
+
+    // Garante espaço para mais tokens sem a tabela crescer aos poucos
+    public void reservar(int tokens) {
+        if (quantidade + tokens > kinds.length) {
+            int capacidade = quantidade + tokens;
+            kinds = Arrays.copyOf(kinds, capacidade);
+            linhas = Arrays.copyOf(linhas, capacidade);
+            colunas = Arrays.copyOf(colunas, capacidade);
+            inicios = Arrays.copyOf(inicios, capacidade);
+            comprimentos = Arrays.copyOf(comprimentos, capacidade);
+            simbolos = Arrays.copyOf(simbolos, capacidade);
+        }
+    }
+
+    /**
+     * Acrescenta todos os tokens de outra tabela sobre a mesma fonte (os
+     * troços do AnalexParalelo). Os nomes são registados em identificadores
+     * pela ordem em que a outra tabela os viu, pelo que juntar os troços por
+     * ordem dá os mesmos números que uma análise sequencial; os lexemas da
+     * arena da outra tabela são copiados para a desta.
+     */
+    public void acrescentar(TabelaDeTokens outra) {
+        int[] nomes = new int[outra.identificadores.tamanho()];
+        for (int i = 0; i < nomes.length; i++) {
+            nomes[i] = identificadores.registar(outra.identificadores.texto(i)) + 1;
+        }
+        int n = outra.quantidade;
+        if (quantidade + n > kinds.length) {
+            reservar(Math.max(kinds.length, n));
+        }
+        if (tamanhoArena + outra.tamanhoArena > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, tamanhoArena + outra.tamanhoArena));
+        }
+        System.arraycopy(outra.arena, 0, arena, tamanhoArena, outra.tamanhoArena);
+        System.arraycopy(outra.kinds, 0, kinds, quantidade, n);
+        System.arraycopy(outra.linhas, 0, linhas, quantidade, n);
+        System.arraycopy(outra.colunas, 0, colunas, quantidade, n);
+        System.arraycopy(outra.comprimentos, 0, comprimentos, quantidade, n);
+        for (int i = 0; i < n; i++) {
+            int inicio = outra.inicios[i];
+            inicios[quantidade + i] = inicio >= 0 || inicio == PALAVRA_RESERVADA ? inicio : ~(~inicio + tamanhoArena);
+            int simbolo = outra.simbolos[i];
+            simbolos[quantidade + i] = simbolo != 0 ? nomes[simbolo - 1] : 0;
+        }
+        quantidade += n;
+        tamanhoArena += outra.tamanhoArena;
+    }
+
+    // IDENTIFIER cujo nome ocupa fonte[inicio, inicio + comprimento), registado em identificadores
+    @Override
+    public void adicionarIdentificador(int inicio, int comprimento, int linha, int coluna) {
+        adicionarSimbolo(identificadores.registar(fonte, inicio, comprimento), linha, coluna);
+    }
+
+    // IDENTIFIER com o nome número simbolo de getIdentificadores(); o lexema vem de lá
+    @Override
+    public void adicionarSimbolo(int simbolo, int linha, int coluna) {
+        adicionarToken(TokenKind.IDENTIFIER, 0, identificadores.texto(simbolo).length(), linha, coluna);
+        simbolos[quantidade - 1] = simbolo + 1;
+    }
+
+    // Palavra reservada reconhecida pelo analisador léxico; não guarda o lexema
+    @Override
+    public void adicionarPalavraReservada(TokenKind kind, int linha, int coluna) {
+        adicionarToken(kind, PALAVRA_RESERVADA, TokenPalavrasReservadas.lexema(kind).length(), linha, coluna);
+    }
+
+    @Override
+    public Identificadores getIdentificadores() {
+        return identificadores;
+    }
+
+    // Número do nome de um IDENTIFIER (ver getIdentificadores), ou -1 nos outros tokens
+    public int simboloEm(int indice) {
+        return simbolos[indice] - 1;
+    }
+
+    public int tamanho() {
+        return quantidade;
+    }
+
+    public TokenKind kindEm(int indice) {
+        byte kind = kinds[indice];
+        return kind != SEM_KIND ? TokenKind.deOrdinal(kind) : null;
+    }
+
+    public String tipoEm(int indice) {
+        TokenKind kind = kindEm(indice);
+        return kind != null ? kind.name() : null;
+    }
+
+    public String valorEm(int indice) {
+        int simbolo = simbolos[indice];
+        if (simbolo != 0) {
+            return identificadores.texto(simbolo - 1);
+        }
+        int comprimento = comprimentos[indice];
+        if (comprimento < 0) {
+            return null;
+        }
+        int inicio = inicios[indice];
+        if (inicio >= 0) {
+            return new String(fonte, inicio, comprimento);
+        }
+        if (inicio == PALAVRA_RESERVADA) {
+            return TokenPalavrasReservadas.lexema(kindEm(indice));
+        }
+        return new String(arena, ~inicio, comprimento);
+    }
+
+    // Valor de um literal inteiro decimal lido diretamente do lexema, sem criar a String
+    public long inteiroEm(int indice) {
+        int comprimento = comprimentos[indice];
+        int inicio = inicios[indice];
+        char[] origem = inicio >= 0 ? fonte : arena;
+        int i = inicio >= 0 ? inicio : ~inicio;
+        long valor = 0;
+        for (int fim = i + comprimento; i < fim; i++) {
+            int digito = origem[i] - '0';
+            if (digito < 0 || digito > 9) {
+                return 0;
+            }
+            valor = valor * 10 + digito;
+        }
+        return valor;
+    }
+
+    public int linhaEm(int indice) {
+        return linhas[indice];
+    }
+
+    public int colunaEm(int indice) {
+        return colunas[indice];
+    }
+
+    public Token tokenEm(int indice) {
+        return new TokenTabela(this, indice);
+    }
+
+    @Override
+    public Token token(int indice) {
+        return indice < quantidade ? tokenEm(indice) : null;
     }
 
     public Token proximoToken() {
-        if (indiceAtual < tokensEncontrados.size()) {
-            return tokensEncontrados.get(indiceAtual++);
+        if (indiceAtual < quantidade) {
+            return tokenEm(indiceAtual++);
         }
         return new Token("EOF", "FIM_DO_ARQUIVO", -1, -1); // Melhor que null
     }
 
     public void imprimirTokens() {
         System.out.println("Tokens encontrados:");
-        tokensEncontrados.forEach(System.out::println);
+        getTokens().forEach(System.out::println);
     }
 
+    // Vista só de leitura; cada get() cria um Token leve sobre os arrays
     public List<Token> getTokens() {
-        return Collections.unmodifiableList(tokensEncontrados);
+        return new Vista();
     }
 
     public int getPosicao() {
@@ -47,7 +283,7 @@ public class TabelaDeTokens {
     }
 
     public void setPosicao(int posicao) {
-        if (posicao < 0 || posicao > tokensEncontrados.size()) {
+        if (posicao < 0 || posicao > quantidade) {
             throw new IndexOutOfBoundsException("Posição inválida: " + posicao);
         }
         indiceAtual = posicao;
@@ -55,18 +291,34 @@ public class TabelaDeTokens {
 
     // Novo método útil para look ahead
     public Token verProximoToken() {
-        if (indiceAtual < tokensEncontrados.size()) {
-            return tokensEncontrados.get(indiceAtual);
+        if (indiceAtual < quantidade) {
+            return tokenEm(indiceAtual);
         }
         return new Token("EOF", "FIM_DO_ARQUIVO", -1, -1);
     }
 
     public Token lookAhead(int k) {
         int pos = indiceAtual + k - 1;
-        if (pos < tokensEncontrados.size()) {
-            return tokensEncontrados.get(pos);
+        if (pos < quantidade) {
+            return tokenEm(pos);
         }
         return null;
     }
 
+    private class Vista extends AbstractList<Token> implements RandomAccess {
+
+        @Override
+        public Token get(int indice) {
+            if (indice < 0 || indice >= quantidade) {
+                throw new IndexOutOfBoundsException("Índice: " + indice + ", tamanho: " + quantidade);
+            }
+            return tokenEm(indice);
+        }
+
+        @Override
+        public int size() {
+            return quantidade;
+        }
+    }
+
 }
@@ -11,12 +11,22 @@ package Tokens;
 public class Token {
 
     protected String tipo;
+    protected TokenKind kind;
     protected String valor;
     protected int linha;
     protected int coluna;
 
     public Token(String tipo, String valor, int linha, int coluna) {
         this.tipo = tipo;
+        this.kind = TokenKind.deTipo(tipo);
+        this.valor = valor;
+        this.linha = linha;
+        this.coluna = coluna;
+    }
+
+    public Token(TokenKind kind, String valor, int linha, int coluna) {
+        this.tipo = kind != null ? kind.name() : null;
+        this.kind = kind;
         this.valor = valor;
         this.linha = linha;
         this.coluna = coluna;
@@ -30,6 +40,10 @@ public class Token {
         return tipo;
     }
 
+    public TokenKind getKind() {
+        return kind;
+    }
+
     public String getValor() {
         return valor;
     }
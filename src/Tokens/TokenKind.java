@@ -0,0 +1,58 @@
+package Tokens;
+
+import java.util.HashMap;
+
+/**
+ * Tipos de token como constantes, atribuídos uma única vez pelo analisador
+ * léxico. O nome de cada constante é igual à String devolvida por getTipo().
+ *
+ * @author itsupport
+ */
+public enum TokenKind {
+
+    // Palavras reservadas (TokenPalavrasReservadas)
+    IF, ELSE, WHILE, FOR, DO, SWITCH, CASE, DEFAULT, BREAK, CONTINUE, RETURN, GOTO,
+    STRUCT, TYPEDEF, ENUM, UNION,
+    CONST, UNSIGNED, SIGNED, STATIC, EXTERN, VOLATILE, REGISTER, INLINE, SHORT,
+    MAIN, SIZEOF, EOF,
+    INT, FLOAT, CHAR, DOUBLE, VOID, LONG,
+
+    // Identificadores, literais e diretivas
+    IDENTIFIER, NUMBER, NUMBER_FLOAT, STRING, CHARACTER, DIRECTIVE,
+
+    // Operadores aritméticos (TokenOperadoresAritmeticos)
+    PLUS, MINUS, MULTIPLY, DIVIDE, MODULO, INCREMENT, DECREMENT,
+
+    // Operadores de atribuição (TokenOperadoresAtribuicao)
+    ASSIGN, ADD_ASSIGN, SUB_ASSIGN, MUL_ASSIGN, DIV_ASSIGN, MOD_ASSIGN,
+    LEFT_SHIFT_ASSIGN, RIGHT_SHIFT_ASSIGN, AND_ASSIGN, OR_ASSIGN, XOR_ASSIGN,
+
+    // Operadores relacionais e lógicos (TokenOperadoresRelacionais)
+    EQUAL, NOT_EQUAL, GREATER, LESS, GREATER_EQUAL, LESS_EQUAL, AND, OR, NOT,
+
+    // Operadores bitwise (TokenBitwise)
+    BITWISE_AND, BITWISE_OR, BITWISE_XOR, BITWISE_NOT, LEFT_SHIFT, RIGHT_SHIFT,
+
+    // Símbolos (TokenSimbolos)
+    LPAREN, RPAREN, LBRACE, RBRACE, LBRACKET, RBRACKET,
+    SEMICOLON, COMMA, DOT, ARROW, COLON, QUESTION, COMMENT, PREPROCESSOR;
+
+    private static final TokenKind[] valores = values();
+    private static final HashMap<String, TokenKind> porTipo = new HashMap<>();
+
+    static {
+        for (TokenKind kind : valores) {
+            porTipo.put(kind.name(), kind);
+        }
+    }
+
+    // Devolve null para tipos que não correspondem a nenhuma constante
+    public static TokenKind deTipo(String tipo) {
+        return tipo != null ? porTipo.get(tipo) : null;
+    }
+
+    public static TokenKind deOrdinal(int ordinal) {
+        return valores[ordinal];
+    }
+
+}
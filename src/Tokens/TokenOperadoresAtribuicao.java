@@ -21,6 +21,7 @@ public class TokenOperadoresAtribuicao extends Token {
         operadores.put("-=", "SUB_ASSIGN");
         operadores.put("*=", "MUL_ASSIGN");
         operadores.put("/=", "DIV_ASSIGN");
+        operadores.put("%=", "MOD_ASSIGN");
         operadores.put("<<=", "LEFT_SHIFT_ASSIGN");
         operadores.put(">>=", "RIGHT_SHIFT_ASSIGN");
         operadores.put("&=", "AND_ASSIGN");
@@ -1,8 +1,16 @@
 package Tokens;
 
 import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
 
 /**
+ * Palavras reservadas. Além do mapa, usado pelos construtores, há uma
+ * tabela de dispersão perfeita (sem colisões) para reconhecer uma palavra
+ * diretamente sobre os chars da fonte, sem criar Strings: reconhecer()
+ * junta os caracteres num long, multiplica-o por uma constante e usa os bits
+ * altos como posição; basta comparar esse long com o da única palavra que
+ * lá pode estar. O multiplicador é procurado na inicialização da classe.
  *
  * @author itsupport
  */
@@ -55,6 +63,87 @@ public class TokenPalavrasReservadas extends Token {
         palavrasReservadas.put("void", "VOID");
     }
 
+    // Uma palavra de até 8 caracteres ASCII cabe num long, 7 bits por caractere
+    private static final int MAXIMO = 8;
+    private static final long[] CODIGOS;
+    private static final TokenKind[] KINDS;
+    private static final long MULTIPLICADOR;
+    private static final int DESLOCAMENTO;
+    // Lexema de cada kind de palavra reservada, pelo ordinal; null nos outros kinds
+    private static final String[] LEXEMAS = new String[TokenKind.values().length];
+
+    static {
+        long[] codigos = new long[palavrasReservadas.size()];
+        int n = 0;
+        for (Map.Entry<String, String> entrada : palavrasReservadas.entrySet()) {
+            LEXEMAS[TokenKind.deTipo(entrada.getValue()).ordinal()] = entrada.getKey();
+            codigos[n] = codificar(entrada.getKey().toCharArray(), 0, entrada.getKey().length());
+            if (codigos[n++] == 0) {
+                throw new IllegalStateException("Palavra reservada demasiado longa: " + entrada.getKey());
+            }
+        }
+        // Procura um multiplicador que dê a cada palavra uma posição diferente
+        SplittableRandom aleatorio = new SplittableRandom(1);
+        int bits = 32 - Integer.numberOfLeadingZeros(n * 2 - 1);
+        long multiplicador = aleatorio.nextLong() | 1;
+        for (int tentativas = 1; !semColisoes(codigos, multiplicador, 64 - bits); tentativas++) {
+            if (tentativas % 10_000 == 0) {
+                bits++;
+            }
+            multiplicador = aleatorio.nextLong() | 1;
+        }
+        MULTIPLICADOR = multiplicador;
+        DESLOCAMENTO = 64 - bits;
+        CODIGOS = new long[1 << bits];
+        KINDS = new TokenKind[1 << bits];
+        for (Map.Entry<String, String> entrada : palavrasReservadas.entrySet()) {
+            long codigo = codificar(entrada.getKey().toCharArray(), 0, entrada.getKey().length());
+            int posicao = (int) ((codigo * MULTIPLICADOR) >>> DESLOCAMENTO);
+            CODIGOS[posicao] = codigo;
+            KINDS[posicao] = TokenKind.deTipo(entrada.getValue());
+        }
+    }
+
+    private static boolean semColisoes(long[] codigos, long multiplicador, int deslocamento) {
+        boolean[] ocupadas = new boolean[1 << (64 - deslocamento)];
+        for (long codigo : codigos) {
+            int posicao = (int) ((codigo * multiplicador) >>> deslocamento);
+            if (ocupadas[posicao]) {
+                return false;
+            }
+            ocupadas[posicao] = true;
+        }
+        return true;
+    }
+
+    // Os caracteres num long, 7 bits cada; 0 se a palavra não couber (nenhuma reservada dá 0)
+    private static long codificar(char[] texto, int inicio, int comprimento) {
+        if (comprimento > MAXIMO) {
+            return 0;
+        }
+        long codigo = 0;
+        for (int i = inicio; i < inicio + comprimento; i++) {
+            char c = texto[i];
+            if (c >= 128) {
+                return 0;
+            }
+            codigo = (codigo << 7) | c;
+        }
+        return codigo;
+    }
+
+    // Kind da palavra reservada em texto[inicio, inicio + comprimento), ou null se for um identificador
+    public static TokenKind reconhecer(char[] texto, int inicio, int comprimento) {
+        long codigo = codificar(texto, inicio, comprimento);
+        int posicao = (int) ((codigo * MULTIPLICADOR) >>> DESLOCAMENTO);
+        return CODIGOS[posicao] == codigo && codigo != 0 ? KINDS[posicao] : null;
+    }
+
+    // Lexema de uma palavra reservada ("int" para INT), partilhado por todos os seus tokens
+    public static String lexema(TokenKind kind) {
+        return LEXEMAS[kind.ordinal()];
+    }
+
     public TokenPalavrasReservadas(String valor, int linha, int coluna) {
         super(palavrasReservadas.get(valor), valor, linha, coluna);
     }
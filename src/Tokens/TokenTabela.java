@@ -0,0 +1,35 @@
+package Tokens;
+
+/**
+ * Token devolvido pela TabelaDeTokens: lê tipo, linha e coluna dos arrays da
+ * tabela e só materializa o lexema na primeira chamada a getValor().
+ *
+ * @author itsupport
+ */
+class TokenTabela extends Token {
+
+    private final TabelaDeTokens tabela;
+    private final int indice;
+    private boolean valorLido;
+
+    TokenTabela(TabelaDeTokens tabela, int indice) {
+        super(tabela.kindEm(indice), null, tabela.linhaEm(indice), tabela.colunaEm(indice));
+        this.tabela = tabela;
+        this.indice = indice;
+    }
+
+    @Override
+    public String getValor() {
+        if (!valorLido) {
+            valor = tabela.valorEm(indice);
+            valorLido = true;
+        }
+        return valor;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Token(tipo=%s, valor=%s, linha=%d, coluna=%d)", tipo, getValor(), linha, coluna);
+    }
+
+}
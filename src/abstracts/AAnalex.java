@@ -16,7 +16,9 @@ public abstract class AAnalex {
     public abstract TabelaDeTokens analisarCodigo() throws IOException;
 
     // Métodos auxiliares que podem ser úteis para extensão
+    protected abstract void analisarToken() throws IOException;
     protected abstract void advance() throws IOException;
+    protected abstract void saltarEspacos() throws IOException;
     protected abstract void processarDiretiva() throws IOException;
     protected abstract void processarComentario() throws IOException;
     protected abstract void processarIdentificador() throws IOException;
@@ -4,6 +4,7 @@ import Tokens.*;
 import java.io.IOException;
 import java.util.List;
 import models.Parametro;
+import models.Tipo;
 
 /**
  * Interface abstrata para o analisador sintático/semântico
@@ -15,7 +16,7 @@ public abstract class AParser {
 
     // === Controle de Fluxo ===
     protected abstract void avancar();
-    protected abstract boolean consumir(String esperado) throws IOException;
+    protected abstract boolean consumir(TokenKind esperado) throws IOException;
     protected abstract void sincronizar();
     protected abstract void erro(String msg) throws IOException;
     protected abstract void erroSemantico(String mensagem);
@@ -53,23 +54,23 @@ public abstract class AParser {
     protected abstract void argumentos() throws IOException;
 
     // === Métodos de Verificação Semântica ===
-    protected abstract void verificarCompatibilidadeTipos(String tipoEsperado, String tipoRecebido, String contexto);
-    protected abstract void verificarCondicao(String tipo);
-    protected abstract String verificarExpressao() throws IOException;
-    protected abstract String verificarExpressaoTernaria() throws IOException;
-    protected abstract String verificarExpressaoLogica() throws IOException;
-    protected abstract String verificarExpressaoRelacional() throws IOException;
-    protected abstract String verificarExpressaoAritmetica() throws IOException;
-    protected abstract String verificarTermo() throws IOException;
-    protected abstract String verificarFator() throws IOException;
-    protected abstract String verificarElemento() throws IOException;
+    protected abstract void verificarCompatibilidadeTipos(Tipo tipoEsperado, Tipo tipoRecebido, String contexto);
+    protected abstract void verificarCondicao(Tipo tipo);
+    protected abstract Tipo verificarExpressao() throws IOException;
+    protected abstract Tipo verificarExpressaoTernaria() throws IOException;
+    protected abstract Tipo verificarExpressaoLogica() throws IOException;
+    protected abstract Tipo verificarExpressaoRelacional() throws IOException;
+    protected abstract Tipo verificarExpressaoAritmetica() throws IOException;
+    protected abstract Tipo verificarTermo() throws IOException;
+    protected abstract Tipo verificarFator() throws IOException;
+    protected abstract Tipo verificarElemento() throws IOException;
     
     // === Utilitários ===
     protected abstract boolean eOperadorRelacional();
-    protected abstract boolean ehTipoNumerico(String tipo);
-    protected abstract boolean ehTipoValido(String tipo);
-    protected abstract boolean tiposCompativeis(String tipo1, String tipo2);
-    protected abstract String determinarTipoResultante(String tipo1, String tipo2);
-    protected abstract String obterTipoBaseArray(String tipo);
-    protected abstract String obterTipoBasePonteiro(String tipo);
+    protected abstract boolean ehTipoNumerico(Tipo tipo);
+    protected abstract boolean ehTipoValido(Tipo tipo);
+    protected abstract boolean tiposCompativeis(Tipo tipo1, Tipo tipo2);
+    protected abstract Tipo determinarTipoResultante(Tipo tipo1, Tipo tipo2);
+    protected abstract Tipo obterTipoBaseArray(Tipo tipo);
+    protected abstract Tipo obterTipoBasePonteiro(Tipo tipo);
 }
\ No newline at end of file
@@ -12,18 +12,28 @@ public class Analex extends AAnalex {
     protected int linha = 1;
     protected int coluna = 0;
     protected TabelaDeTokens tabela;
+    protected DestinoDeTokens destino; // A tabela, ou a janela do modo streaming
+    protected PrintStream saidaErros = System.err;
+    private char[] identificador = new char[64]; // Reutilizado por processarIdentificador()
 
     public Analex(String filePath) throws IOException {
         reader = new BufferedReader(new FileReader(filePath));
         tabela = new TabelaDeTokens();
+        destino = tabela;
         advance();
     }
 
+    // Usado pelas subclasses que não leem a partir de um Reader
+    protected Analex() {
+        tabela = new TabelaDeTokens();
+        destino = tabela;
+    }
+
     @Override
     protected void advance() throws IOException {
         currentChar = reader.read();
         if (currentChar == '\n') {
-            //tabela.adicionarToken(new Token("NEWLINE", "\\n", linha, coluna));
+            //destino.adicionarToken(new Token("NEWLINE", "\\n", linha, coluna));
             linha++;
             coluna = 0;
         } else {
@@ -31,64 +41,95 @@ public class Analex extends AAnalex {
         }
     }
 
+    // Chamado num espaço em branco; as subclasses com a fonte em memória saltam vários de uma vez
+    @Override
+    protected void saltarEspacos() throws IOException {
+        advance();
+    }
+
+    // Destino das mensagens de erro léxico (por omissão System.err)
+    public void setSaidaErros(PrintStream saidaErros) {
+        this.saidaErros = saidaErros;
+    }
+
+    /**
+     * Modo streaming: os tokens passam a ser escritos numa janela limitada,
+     * lida pelo Parser enquanto analisarCodigo() corre noutra thread.
+     */
+    public JanelaDeTokens abrirJanela(int capacidade) {
+        JanelaDeTokens janela = new JanelaDeTokens(null, capacidade);
+        destino = janela;
+        return janela;
+    }
+
+    // Com a janela aberta (ver abrirJanela) os tokens não ficam na tabela devolvida
     @Override
     public TabelaDeTokens analisarCodigo() throws IOException {
         while (currentChar != -1) {
-            char ch = (char) currentChar;
+            analisarToken();
+        }
+        destino.adicionarToken(new TokenPalavrasReservadas("EOF", linha, coluna));
+        if (reader != null) {
+            reader.close();
+        }
+        return tabela;
+    }
 
-            // Ignorar espaços em branco
-            if (Character.isWhitespace(ch)) {
-                advance();
-                continue;
-            }
+    // Reconhece o token (ou salta o espaço ou comentário) que começa no caractere atual
+    @Override
+    protected void analisarToken() throws IOException {
+        char ch = (char) currentChar;
 
-            // Diretivas de pré-processador (ex: #include <stdio.h>)
-            if (ch == '#') {
-                processarDiretiva();
-                continue;
-            }
+        // Ignorar espaços em branco
+        if (Character.isWhitespace(ch)) {
+            saltarEspacos();
+            return;
+        }
 
-            // Comentários
-            if (ch == '/') {
-                processarComentario();
-                continue;
-            }
+        // Diretivas de pré-processador (ex: #include <stdio.h>)
+        if (ch == '#') {
+            processarDiretiva();
+            return;
+        }
 
-            // Identificadores e palavras reservadas
-            if (Character.isLetter(ch) || ch == '_') {
-                processarIdentificador();
-                continue;
-            }
+        // Comentários
+        if (ch == '/') {
+            processarComentario();
+            return;
+        }
 
-            // Números (inteiros ou floats)
-            if (Character.isDigit(ch)) {
-                processarNumero();
-                continue;
-            }
+        // Identificadores e palavras reservadas
+        if (Character.isLetter(ch) || ch == '_') {
+            processarIdentificador();
+            return;
+        }
 
-            // Strings
-            if (ch == '"') {
-                processarString();
-                continue;
-            }
+        // Números (inteiros ou floats)
+        if (Character.isDigit(ch)) {
+            processarNumero();
+            return;
+        }
 
-            // Caracteres
-            if (ch == '\'') {
-                processarCaractere();
-                continue;
-            }
+        // Strings
+        if (ch == '"') {
+            processarString();
+            return;
+        }
 
-            // Operadores e símbolos
-            if (processarOperadores()) {
-                continue;
-            }
+        // Caracteres
+        if (ch == '\'') {
+            processarCaractere();
+            return;
+        }
 
-            // Se nenhum token foi reconhecido, reportar erro
-            System.err.printf("Erro léxico: Caractere '%c' não reconhecido (Linha %d, Coluna %d)\n", ch, linha, coluna);
-            advance();
+        // Operadores e símbolos
+        if (processarOperadores()) {
+            return;
         }
-        tabela.adicionarToken(new TokenPalavrasReservadas("EOF", linha, coluna));
-        return tabela;
+
+        // Se nenhum token foi reconhecido, reportar erro
+        saidaErros.printf("Erro léxico: Caractere '%c' não reconhecido (Linha %d, Coluna %d)\n", ch, linha, coluna);
+        advance();
     }
 
     // Métodos auxiliares para cada categoria de token
@@ -131,12 +172,12 @@ public class Analex extends AAnalex {
                 lex.append((char) currentChar);
                 advance();
             } else {
-                System.err.println("Erro: Delimitador '" + closing + "' não fechado (Linha " + linha + ")");
+                saidaErros.println("Erro: Delimitador '" + closing + "' não fechado (Linha " + linha + ")");
             }
         }
 
         // Adicionar o token DIRECTIVE completo
-        tabela.adicionarToken(new Token("DIRECTIVE", lex.toString(), linha, startCol));
+        destino.adicionarToken(new Token("DIRECTIVE", lex.toString(), linha, startCol));
     }
 
     @Override
@@ -166,25 +207,29 @@ public class Analex extends AAnalex {
             }
         } else {
             // Operador de divisão
-            tabela.adicionarToken(new TokenOperadoresAritmeticos("/", linha, startCol));
+            destino.adicionarToken(new TokenOperadoresAritmeticos("/", linha, startCol));
         }
     }
 
     @Override
     protected void processarIdentificador() throws IOException {
-        StringBuilder lex = new StringBuilder();
         int startCol = coluna;
+        int comprimento = 0;
 
         do {
-            lex.append((char) currentChar);
+            if (comprimento == identificador.length) {
+                identificador = Arrays.copyOf(identificador, comprimento * 2);
+            }
+            identificador[comprimento++] = (char) currentChar;
             advance();
         } while (Character.isLetterOrDigit(currentChar) || currentChar == '_');
 
-        String palavra = lex.toString();
-        if (TokenPalavrasReservadas.palavrasReservadas.containsKey(palavra)) {
-            tabela.adicionarToken(new TokenPalavrasReservadas(palavra, linha, startCol));
+        // Nem as palavras reservadas nem os nomes repetidos criam Strings
+        TokenKind palavra = TokenPalavrasReservadas.reconhecer(identificador, 0, comprimento);
+        if (palavra != null) {
+            destino.adicionarPalavraReservada(palavra, linha, startCol);
         } else {
-            tabela.adicionarToken(new Token("IDENTIFIER", palavra, linha, startCol));
+            destino.adicionarSimbolo(destino.getIdentificadores().registar(identificador, 0, comprimento), linha, startCol);
         }
     }
 
@@ -207,7 +252,7 @@ public class Analex extends AAnalex {
             advance();
 
             if (!Character.isDigit(currentChar)) {
-                System.err.printf("Erro: Número float inválido (Linha %d, Coluna %d)\n", linha, coluna);
+                saidaErros.printf("Erro: Número float inválido (Linha %d, Coluna %d)\n", linha, coluna);
                 return;
             }
 
@@ -219,12 +264,12 @@ public class Analex extends AAnalex {
 
         // Verificar se há caracteres inválidos após o número (ex: 5a)
         if (Character.isLetter(currentChar)) {
-            System.err.printf("Erro: Número seguido de letra (Linha %d, Coluna %d)\n", linha, coluna);
+            saidaErros.printf("Erro: Número seguido de letra (Linha %d, Coluna %d)\n", linha, coluna);
             return;
         }
 
         String tipo = isFloat ? "NUMBER_FLOAT" : "NUMBER";
-        tabela.adicionarToken(new Token(tipo, lex.toString(), linha, startCol));
+        destino.adicionarToken(new Token(tipo, lex.toString(), linha, startCol));
     }
 
     @Override
@@ -237,29 +282,29 @@ public class Analex extends AAnalex {
             case '+':
                 advance();
                 if (currentChar == '=') {
-                    tabela.adicionarToken(new TokenOperadoresAtribuicao("+=", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresAtribuicao("+=", linha, startCol));
                     advance();
                 } else if (currentChar == '+') {
-                    tabela.adicionarToken(new TokenOperadoresAritmeticos("++", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresAritmeticos("++", linha, startCol));
                     advance();
                 } else {
-                    tabela.adicionarToken(new TokenOperadoresAritmeticos("+", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresAritmeticos("+", linha, startCol));
                 }
                 return true;
 
             case '-':
                 advance();
                 if (currentChar == '=') {
-                    tabela.adicionarToken(new TokenOperadoresAtribuicao("-=", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresAtribuicao("-=", linha, startCol));
                     advance();
                 } else if (currentChar == '>') {
-                    tabela.adicionarToken(new TokenSimbolos("->", linha, startCol));
+                    destino.adicionarToken(new TokenSimbolos("->", linha, startCol));
                     advance();
                 } else if (currentChar == '-') {
-                    tabela.adicionarToken(new TokenOperadoresAritmeticos("--", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresAritmeticos("--", linha, startCol));
                     advance();
                 }else {
-                    tabela.adicionarToken(new TokenOperadoresAritmeticos("-", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresAritmeticos("-", linha, startCol));
                 }
                     return true;
 
@@ -267,30 +312,30 @@ public class Analex extends AAnalex {
         case '*':
                 advance();
                 if (currentChar == '=') {
-                    tabela.adicionarToken(new TokenOperadoresAtribuicao("*=", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresAtribuicao("*=", linha, startCol));
                     advance();
                 } else {
-                    tabela.adicionarToken(new TokenOperadoresAritmeticos("*", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresAritmeticos("*", linha, startCol));
                 }
                 return true;
 
             case '/':
                 advance();
                 if (currentChar == '=') {
-                    tabela.adicionarToken(new TokenOperadoresAtribuicao("/=", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresAtribuicao("/=", linha, startCol));
                     advance();
                 } else {
-                    tabela.adicionarToken(new TokenOperadoresAritmeticos("/", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresAritmeticos("/", linha, startCol));
                 }
                 return true;
 
             case '%':
                 advance();
                 if (currentChar == '=') {
-                    tabela.adicionarToken(new TokenOperadoresAtribuicao("%=", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresAtribuicao("%=", linha, startCol));
                     advance();
                 } else {
-                    tabela.adicionarToken(new TokenOperadoresAritmeticos("%", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresAritmeticos("%", linha, startCol));
                 }
                 return true;
 
@@ -298,20 +343,20 @@ public class Analex extends AAnalex {
             case '=':
                 advance();
                 if (currentChar == '=') {
-                    tabela.adicionarToken(new TokenOperadoresRelacionais("==", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresRelacionais("==", linha, startCol));
                     advance();
                 } else {
-                    tabela.adicionarToken(new TokenOperadoresAtribuicao("=", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresAtribuicao("=", linha, startCol));
                 }
                 return true;
 
             case '!':
                 advance();
                 if (currentChar == '=') {
-                    tabela.adicionarToken(new TokenOperadoresRelacionais("!=", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresRelacionais("!=", linha, startCol));
                     advance();
                 } else {
-                    tabela.adicionarToken(new TokenOperadoresRelacionais("!", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresRelacionais("!", linha, startCol));
                 }
                 return true;
 
@@ -320,16 +365,16 @@ public class Analex extends AAnalex {
                 if (currentChar == '<') {
                     advance();
                     if (currentChar == '=') {
-                        tabela.adicionarToken(new TokenOperadoresAtribuicao("<<=", linha, startCol));
+                        destino.adicionarToken(new TokenOperadoresAtribuicao("<<=", linha, startCol));
                         advance();
                     } else {
-                        tabela.adicionarToken(new TokenBitwise("<<", linha, startCol));
+                        destino.adicionarToken(new TokenBitwise("<<", linha, startCol));
                     }
                 } else if (currentChar == '=') {
-                    tabela.adicionarToken(new TokenOperadoresRelacionais("<=", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresRelacionais("<=", linha, startCol));
                     advance();
                 } else {
-                    tabela.adicionarToken(new TokenOperadoresRelacionais("<", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresRelacionais("<", linha, startCol));
                 }
                 return true;
 
@@ -338,16 +383,16 @@ public class Analex extends AAnalex {
                 if (currentChar == '>') {
                     advance();
                     if (currentChar == '=') {
-                        tabela.adicionarToken(new TokenOperadoresAtribuicao(">>=", linha, startCol));
+                        destino.adicionarToken(new TokenOperadoresAtribuicao(">>=", linha, startCol));
                         advance();
                     } else {
-                        tabela.adicionarToken(new TokenBitwise(">>", linha, startCol));
+                        destino.adicionarToken(new TokenBitwise(">>", linha, startCol));
                     }
                 } else if (currentChar == '=') {
-                    tabela.adicionarToken(new TokenOperadoresRelacionais(">=", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresRelacionais(">=", linha, startCol));
                     advance();
                 } else {
-                    tabela.adicionarToken(new TokenOperadoresRelacionais(">", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresRelacionais(">", linha, startCol));
                 }
                 return true;
 
@@ -355,97 +400,97 @@ public class Analex extends AAnalex {
             case '&':
                 advance();
                 if (currentChar == '&') {
-                    tabela.adicionarToken(new TokenOperadoresRelacionais("&&", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresRelacionais("&&", linha, startCol));
                     advance();
                 } else if (currentChar == '=') {
-                    tabela.adicionarToken(new TokenOperadoresAtribuicao("&=", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresAtribuicao("&=", linha, startCol));
                     advance();
                 } else {
-                    tabela.adicionarToken(new TokenBitwise("&", linha, startCol));
+                    destino.adicionarToken(new TokenBitwise("&", linha, startCol));
                 }
                 return true;
 
             case '|':
                 advance();
                 if (currentChar == '|') {
-                    tabela.adicionarToken(new TokenOperadoresRelacionais("||", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresRelacionais("||", linha, startCol));
                     advance();
                 } else if (currentChar == '=') {
-                    tabela.adicionarToken(new TokenOperadoresAtribuicao("|=", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresAtribuicao("|=", linha, startCol));
                     advance();
                 } else {
-                    tabela.adicionarToken(new TokenBitwise("|", linha, startCol));
+                    destino.adicionarToken(new TokenBitwise("|", linha, startCol));
                 }
                 return true;
 
             case '^':
                 advance();
                 if (currentChar == '=') {
-                    tabela.adicionarToken(new TokenOperadoresAtribuicao("^=", linha, startCol));
+                    destino.adicionarToken(new TokenOperadoresAtribuicao("^=", linha, startCol));
                     advance();
                 } else {
-                    tabela.adicionarToken(new TokenBitwise("^", linha, startCol));
+                    destino.adicionarToken(new TokenBitwise("^", linha, startCol));
                 }
                 return true;
 
             case '~':
-                tabela.adicionarToken(new TokenBitwise("~", linha, startCol));
+                destino.adicionarToken(new TokenBitwise("~", linha, startCol));
                 advance();
                 return true;
 
             // Símbolos diversos
             case ';':
-                tabela.adicionarToken(new TokenSimbolos(";", linha, startCol));
+                destino.adicionarToken(new TokenSimbolos(";", linha, startCol));
                 advance();
                 return true;
 
             case ',':
-                tabela.adicionarToken(new TokenSimbolos(",", linha, startCol));
+                destino.adicionarToken(new TokenSimbolos(",", linha, startCol));
                 advance();
                 return true;
 
             case '(':
-                tabela.adicionarToken(new TokenSimbolos("(", linha, startCol));
+                destino.adicionarToken(new TokenSimbolos("(", linha, startCol));
                 advance();
                 return true;
 
             case ')':
-                tabela.adicionarToken(new TokenSimbolos(")", linha, startCol));
+                destino.adicionarToken(new TokenSimbolos(")", linha, startCol));
                 advance();
                 return true;
 
             case '{':
-                tabela.adicionarToken(new TokenSimbolos("{", linha, startCol));
+                destino.adicionarToken(new TokenSimbolos("{", linha, startCol));
                 advance();
                 return true;
 
             case '}':
-                tabela.adicionarToken(new TokenSimbolos("}", linha, startCol));
+                destino.adicionarToken(new TokenSimbolos("}", linha, startCol));
                 advance();
                 return true;
 
             case '[':
-                tabela.adicionarToken(new TokenSimbolos("[", linha, startCol));
+                destino.adicionarToken(new TokenSimbolos("[", linha, startCol));
                 advance();
                 return true;
 
             case ']':
-                tabela.adicionarToken(new TokenSimbolos("]", linha, startCol));
+                destino.adicionarToken(new TokenSimbolos("]", linha, startCol));
                 advance();
                 return true;
 
             case '.':
-                tabela.adicionarToken(new TokenSimbolos(".", linha, startCol));
+                destino.adicionarToken(new TokenSimbolos(".", linha, startCol));
                 advance();
                 return true;
 
             case '?':
-                tabela.adicionarToken(new TokenSimbolos("?", linha, startCol));
+                destino.adicionarToken(new TokenSimbolos("?", linha, startCol));
                 advance();
                 return true;
 
             case ':':
-                tabela.adicionarToken(new TokenSimbolos(":", linha, startCol));
+                destino.adicionarToken(new TokenSimbolos(":", linha, startCol));
                 advance();
                 return true;
 
@@ -470,9 +515,9 @@ public class Analex extends AAnalex {
         if (currentChar == '"') {
             lex.append((char) currentChar);
             advance();
-            tabela.adicionarToken(new Token("STRING", lex.toString(), linha, startCol));
+            destino.adicionarToken(new Token("STRING", lex.toString(), linha, startCol));
         } else {
-            System.err.printf("Erro: String não fechada (Linha %d)\n", linha);
+            saidaErros.printf("Erro: String não fechada (Linha %d)\n", linha);
         }
     }
 
@@ -492,9 +537,9 @@ public class Analex extends AAnalex {
         if (currentChar == '\'') {
             lex.append((char) currentChar);
             advance();
-            tabela.adicionarToken(new Token("CHAR", lex.toString(), linha, startCol));
+            destino.adicionarToken(new Token("CHAR", lex.toString(), linha, startCol));
         } else {
-            System.err.printf("Erro: Caractere não fechado (Linha %d)\n", linha);
+            saidaErros.printf("Erro: Caractere não fechado (Linha %d)\n", linha);
         }
     }
 
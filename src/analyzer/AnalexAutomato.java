@@ -0,0 +1,140 @@
+package analyzer;
+
+import Tokens.TokenKind;
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+/**
+ * AnalexBuffer guiado por tabelas: o primeiro caractere de cada token é
+ * classificado por consulta a um array (em vez da sequência de testes do
+ * Analex) e os operadores e símbolos são reconhecidos pelo
+ * AutomatoOperadores, gerado a partir das tabelas de tokens, em vez do
+ * switch de processarOperadores(). Produz exatamente a mesma tabela de
+ * tokens e as mesmas mensagens que o {@link Analex}.
+ *
+ * @author itsupport
+ */
+public class AnalexAutomato extends AnalexBuffer {
+
+    private static final byte OUTRO = 0;
+    private static final byte ESPACO = 1;
+    private static final byte DIRETIVA = 2;
+    private static final byte BARRA = 3;
+    private static final byte LETRA = 4;
+    private static final byte DIGITO = 5;
+    private static final byte ASPAS = 6;
+    private static final byte APOSTROFO = 7;
+    private static final byte OPERADOR = 8;
+
+    // Categoria de cada caractere ASCII, pela mesma ordem de testes de Analex.analisarCodigo()
+    private static final byte[] CATEGORIAS = new byte[128];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            CATEGORIAS[c] = Character.isWhitespace(c) ? ESPACO
+                    : c == '#' ? DIRETIVA
+                    : c == '/' ? BARRA
+                    : Character.isLetter(c) || c == '_' ? LETRA
+                    : Character.isDigit(c) ? DIGITO
+                    : c == '"' ? ASPAS
+                    : c == '\'' ? APOSTROFO
+                    : AutomatoOperadores.OPERADORES.proximo(AutomatoOperadores.INICIAL, c) != AutomatoOperadores.MORTO ? OPERADOR
+                    : OUTRO;
+        }
+    }
+
+    private final AutomatoOperadores automato = AutomatoOperadores.OPERADORES;
+
+    public AnalexAutomato(String filePath) throws IOException {
+        super(filePath);
+    }
+
+    public AnalexAutomato(CharBuffer fonte) {
+        super(fonte);
+    }
+
+    public AnalexAutomato(char[] fonte, int inicio, int fim) {
+        super(fonte, inicio, fim);
+    }
+
+    @Override
+    protected void analisarToken() throws IOException {
+        char ch = (char) currentChar;
+        switch (ch < 128 ? CATEGORIAS[ch] : categoriaForaDoAscii(ch)) {
+            case ESPACO:
+                saltarEspacos();
+                break;
+            case DIRETIVA:
+                processarDiretiva();
+                break;
+            case BARRA:
+                processarComentario();
+                break;
+            case LETRA:
+                processarIdentificador();
+                break;
+            case DIGITO:
+                processarNumero();
+                break;
+            case ASPAS:
+                processarString();
+                break;
+            case APOSTROFO:
+                processarCaractere();
+                break;
+            case OPERADOR:
+                processarOperadores();
+                break;
+            default:
+                saidaErros.printf("Erro léxico: Caractere '%c' não reconhecido (Linha %d, Coluna %d)\n", ch, linha, coluna);
+                advance();
+        }
+    }
+
+    // Letras e espaços Unicode seguem as regras do Analex; nenhum operador sai do ASCII
+    private static byte categoriaForaDoAscii(char ch) {
+        if (Character.isWhitespace(ch)) {
+            return ESPACO;
+        }
+        if (Character.isLetter(ch)) {
+            return LETRA;
+        }
+        return Character.isDigit(ch) ? DIGITO : OUTRO;
+    }
+
+    /**
+     * Percorre o autómato a partir do caractere atual e emite o lexema mais
+     * longo que terminou num estado final.
+     */
+    @Override
+    protected boolean processarOperadores() {
+        int inicio = cursor - 1;
+        int estado = AutomatoOperadores.INICIAL;
+        int fimLexema = -1;
+        int estadoFinal = AutomatoOperadores.MORTO;
+        TokenKind kind = null;
+        for (int q = inicio; q < fim; q++) {
+            estado = automato.proximo(estado, fonte[q]);
+            if (estado == AutomatoOperadores.MORTO) {
+                break;
+            }
+            if (automato.aceita(estado) != null) {
+                kind = automato.aceita(estado);
+                estadoFinal = estado;
+                fimLexema = q + 1;
+            }
+        }
+        if (kind == null) {
+            return false;
+        }
+        // Como no Analex: quando o operador podia continuar, o caractere seguinte já foi
+        // lido ao registar o token, e uma quebra de linha nele já conta na linha
+        int linhaInicio = linha;
+        int colunaInicio = coluna;
+        saltarPara(fimLexema);
+        int linhaToken = automato.prolongavel(estadoFinal) ? linha : linhaInicio;
+        destino.adicionarToken(kind, inicio, fimLexema - inicio, linhaToken, colunaInicio);
+        return true;
+    }
+
+}
@@ -0,0 +1,212 @@
+package analyzer;
+
+import Tokens.*;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Analisador léxico que lê o ficheiro uma única vez (mapeado em memória via
+ * NIO) para um char[] e percorre-o com um cursor inteiro, sem o custo de
+ * BufferedReader.read() por caractere. Espaços, comentários e corpos de
+ * strings são saltados de uma vez com a {@link Varredura} (vetorial quando
+ * a JVM tem o módulo jdk.incubator.vector), contando as quebras de linha em
+ * bloco. Produz exatamente a mesma tabela de tokens que o {@link Analex}.
+ */
+public class AnalexBuffer extends Analex {
+
+    private static final Varredura VARREDURA = Varredura.INSTANCIA;
+
+    protected final char[] fonte;
+    protected final int fim;
+    protected int cursor; // Índice do próximo caractere; o atual está em cursor - 1
+
+    public AnalexBuffer(String filePath) throws IOException {
+        this(lerFonte(filePath));
+    }
+
+    public AnalexBuffer(CharBuffer fonte) {
+        this(fonte.array(), fonte.arrayOffset() + fonte.position(), fonte.arrayOffset() + fonte.limit());
+    }
+
+    public AnalexBuffer(char[] fonte, int inicio, int fim) {
+        this(fonte, inicio, fim, 1, 0);
+    }
+
+    /**
+     * Analisa só fonte[inicio, fim), um troço de um ficheiro maior: linha e
+     * coluna são as do Analex imediatamente antes de ler fonte[inicio].
+     */
+    public AnalexBuffer(char[] fonte, int inicio, int fim, int linha, int coluna) {
+        this.fonte = fonte;
+        this.cursor = inicio;
+        this.fim = fim;
+        this.tabela = new TabelaDeTokens(fonte);
+        this.destino = tabela;
+        this.linha = linha;
+        this.coluna = coluna;
+        advance();
+    }
+
+    // Mapeia o ficheiro e descodifica-o com o mesmo charset que o FileReader usa
+    public static CharBuffer lerFonte(String filePath) throws IOException {
+        try (FileChannel canal = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            return Charset.defaultCharset().decode(bytes);
+        }
+    }
+
+    @Override
+    public JanelaDeTokens abrirJanela(int capacidade) {
+        JanelaDeTokens janela = new JanelaDeTokens(fonte, capacidade);
+        destino = janela;
+        return janela;
+    }
+
+    @Override
+    protected void advance() {
+        if (cursor < fim) {
+            currentChar = fonte[cursor++];
+            if (currentChar == '\n') {
+                linha++;
+                coluna = 0;
+            } else {
+                coluna++;
+            }
+        } else {
+            cursor = fim + 1;
+            currentChar = -1;
+            coluna++;
+        }
+    }
+
+    /**
+     * Salta do caractere atual diretamente para o índice q, deixando linha e
+     * coluna como ficariam após as chamadas equivalentes a advance().
+     */
+    protected void saltarPara(int q) {
+        int quebras = q > cursor ? VARREDURA.contarLinhas(fonte, cursor, q) : 0;
+        if (quebras > 0) {
+            linha += quebras;
+            coluna = q - VARREDURA.ultimaQuebra(fonte, cursor, q) - 1;
+        } else {
+            coluna += q - cursor;
+        }
+        cursor = q;
+        advance();
+    }
+
+    @Override
+    protected void saltarEspacos() {
+        // Um espaço isolado entre tokens é o caso comum: não compensa varrer
+        if (cursor < fim && Varredura.espaco(fonte[cursor])) {
+            saltarPara(VARREDURA.saltarEspacos(fonte, cursor, fim));
+        } else {
+            advance();
+        }
+    }
+
+    @Override
+    protected void processarComentario() {
+        int startCol = coluna;
+        advance();
+
+        if (currentChar == '/') {
+            // Comentário de linha
+            advance();
+            if (currentChar != -1 && currentChar != '\n') {
+                saltarPara(VARREDURA.proximo(fonte, cursor, fim, '\n'));
+            }
+        } else if (currentChar == '*') {
+            // Comentário de bloco
+            advance();
+            if (currentChar == -1) {
+                return;
+            }
+            int q = VARREDURA.fimComentario(fonte, cursor - 1, fim);
+            saltarPara(q >= 0 ? q + 2 : fim);
+        } else {
+            // Operador de divisão
+            destino.adicionarToken(new TokenOperadoresAritmeticos("/", linha, startCol));
+        }
+    }
+
+    @Override
+    protected void processarIdentificador() {
+        int inicio = cursor - 1;
+        int startCol = coluna;
+
+        int q = cursor;
+        while (q < fim && (Character.isLetterOrDigit(fonte[q]) || fonte[q] == '_')) {
+            q++;
+        }
+        TokenKind palavra = TokenPalavrasReservadas.reconhecer(fonte, inicio, q - inicio);
+        saltarPara(q);
+
+        if (palavra != null) {
+            destino.adicionarPalavraReservada(palavra, linha, startCol);
+        } else {
+            destino.adicionarIdentificador(inicio, q - inicio, linha, startCol);
+        }
+    }
+
+    @Override
+    protected void processarNumero() {
+        int inicio = cursor - 1;
+        int startCol = coluna;
+        boolean isFloat = false;
+
+        // Parte inteira
+        int q = inicio;
+        while (q < fim && Character.isDigit(fonte[q])) {
+            q++;
+        }
+
+        // Parte decimal (se houver)
+        if (q < fim && fonte[q] == '.') {
+            isFloat = true;
+            q++;
+
+            if (q >= fim || !Character.isDigit(fonte[q])) {
+                saltarPara(q);
+                saidaErros.printf("Erro: Número float inválido (Linha %d, Coluna %d)\n", linha, coluna);
+                return;
+            }
+
+            while (q < fim && Character.isDigit(fonte[q])) {
+                q++;
+            }
+        }
+        saltarPara(q);
+
+        // Verificar se há caracteres inválidos após o número (ex: 5a)
+        if (Character.isLetter(currentChar)) {
+            saidaErros.printf("Erro: Número seguido de letra (Linha %d, Coluna %d)\n", linha, coluna);
+            return;
+        }
+
+        TokenKind kind = isFloat ? TokenKind.NUMBER_FLOAT : TokenKind.NUMBER;
+        destino.adicionarToken(kind, inicio, q - inicio, linha, startCol);
+    }
+
+    @Override
+    protected void processarString() {
+        int inicio = cursor - 1;
+        int startCol = coluna;
+
+        int q = VARREDURA.proximo(fonte, cursor, fim, '"', '\n');
+
+        if (q < fim && fonte[q] == '"') {
+            saltarPara(q + 1);
+            destino.adicionarToken(TokenKind.STRING, inicio, q + 1 - inicio, linha, startCol);
+        } else {
+            saltarPara(q);
+            saidaErros.printf("Erro: String não fechada (Linha %d)\n", linha);
+        }
+    }
+
+}
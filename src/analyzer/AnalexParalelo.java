@@ -0,0 +1,242 @@
+package analyzer;
+
+import Tokens.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Análise léxica de ficheiros grandes em troços paralelos. A fonte é
+ * dividida em quebras de linha escolhidas por uma pré-varredura local (a
+ * linha anterior sem aspas, apóstrofos, "#" nem marcas de comentário de
+ * bloco, e a seguinte sem começar por "*"), e cada troço é analisado por um
+ * AnalexBuffer próprio numa tarefa de um ForkJoinPool. A linha inicial de
+ * cada troço vem de uma contagem de quebras de linha, também paralela, pelo
+ * que as linhas dos tokens e das mensagens de erro já saem certas.
+ *
+ * Um troço analisa os tokens que começam antes do início do seguinte; o
+ * último pode passar desse ponto (um comentário ou string que atravessa a
+ * fronteira). Ao juntar os troços por ordem confirma-se que cada um acabou
+ * onde o seguinte começou, ou só com espaços pelo meio; se não, a fronteira
+ * estava afinal dentro de um token, o resultado do troço seguinte é
+ * descartado e o anterior continua sequencialmente por ele. Assim a tabela
+ * de tokens, os números dos identificadores e as mensagens de erro são
+ * sempre os de AnalexBuffer.analisarCodigo().
+ *
+ * Ficheiros pequenos, e o modo streaming, usam a análise sequencial.
+ *
+ * @author itsupport
+ */
+public class AnalexParalelo extends AnalexBuffer {
+
+    // Troços por thread, para equilibrar troços com densidades de tokens diferentes
+    private static final int TROCOS_POR_TRABALHADOR = 4;
+    // Quantas quebras de linha experimentar antes de aceitar uma fronteira duvidosa
+    private static final int TENTATIVAS_FRONTEIRA = 64;
+
+    private final int inicio;
+    private final ForkJoinPool pool;
+    private int tamanhoMinimoTroco = 1 << 18;
+
+    public AnalexParalelo(String filePath) throws IOException {
+        this(lerFonte(filePath));
+    }
+
+    public AnalexParalelo(CharBuffer fonte) {
+        this(fonte.array(), fonte.arrayOffset() + fonte.position(), fonte.arrayOffset() + fonte.limit());
+    }
+
+    public AnalexParalelo(char[] fonte, int inicio, int fim) {
+        this(fonte, inicio, fim, ForkJoinPool.commonPool());
+    }
+
+    public AnalexParalelo(char[] fonte, int inicio, int fim, ForkJoinPool pool) {
+        super(fonte, inicio, fim);
+        this.inicio = inicio;
+        this.pool = pool;
+    }
+
+    // Chars mínimos por troço (por omissão 256K); abaixo do dobro disto a análise é sequencial
+    public void setTamanhoMinimoTroco(int tamanhoMinimoTroco) {
+        this.tamanhoMinimoTroco = Math.max(1, tamanhoMinimoTroco);
+    }
+
+    @Override
+    public TabelaDeTokens analisarCodigo() throws IOException {
+        int numeroTrocos = Math.min(pool.getParallelism() * TROCOS_POR_TRABALHADOR, (fim - inicio) / tamanhoMinimoTroco);
+        if (numeroTrocos < 2 || destino != tabela) {
+            return super.analisarCodigo();
+        }
+
+        // Fronteiras: limites[k] é o início do troço k; limites[numeroTrocos] é o fim
+        List<Integer> fronteiras = new ArrayList<>();
+        fronteiras.add(inicio);
+        for (int k = 1; k < numeroTrocos; k++) {
+            int fronteira = fronteira(inicio + (int) ((long) (fim - inicio) * k / numeroTrocos));
+            if (fronteira > fronteiras.get(fronteiras.size() - 1) && fronteira < fim) {
+                fronteiras.add(fronteira);
+            }
+        }
+        fronteiras.add(fim);
+        int n = fronteiras.size() - 1;
+        int[] limites = new int[n + 1];
+        for (int k = 0; k <= n; k++) {
+            limites[k] = fronteiras.get(k);
+        }
+
+        // Linha de cada fronteira: quebras de linha contadas em paralelo e somadas por ordem
+        int[] quebras = new int[n];
+        executar(n, k -> quebras[k] = Varredura.INSTANCIA.contarLinhas(fonte, limites[k], limites[k + 1]));
+        Troco[] trocos = new Troco[n];
+        int linhaTroco = 1;
+        for (int k = 0; k < n; k++) {
+            // Cada fronteira vem logo a seguir a uma quebra de linha: coluna 0
+            trocos[k] = new Troco(fonte, limites[k], limites[k + 1], fim, linhaTroco, 0);
+            linhaTroco += quebras[k];
+        }
+        executar(n, k -> trocos[k].analisar());
+
+        // A soma dos troços é o tamanho final, exceto se algum for refeito
+        int tokens = 1;
+        for (Troco troco : trocos) {
+            tokens += troco.tabela.tamanho();
+        }
+        tabela.reservar(tokens);
+        Troco atual = trocos[0];
+        for (int k = 1; k < n; k++) {
+            if (atual.terminaEm(limites[k])) {
+                juntar(atual);
+                atual = trocos[k];
+            } else {
+                // A fronteira k estava dentro de um token: o troço k é refeito a partir do anterior
+                atual.continuar(limites[k + 1]);
+            }
+        }
+        juntar(atual);
+        linha = atual.linha;
+        coluna = atual.coluna;
+        currentChar = -1;
+        tabela.adicionarToken(new TokenPalavrasReservadas("EOF", linha, coluna));
+        return tabela;
+    }
+
+    /**
+     * Início da primeira linha a partir de alvo cuja linha anterior não tem
+     * nada que possa abrir ou fechar um token de várias linhas e que não
+     * começa por "*" (o meio de um comentário de bloco). A pré-varredura é
+     * só uma estimativa: a junção confirma a fronteira.
+     */
+    private int fronteira(int alvo) {
+        int quebra = Varredura.INSTANCIA.proximo(fonte, alvo, fim, '\n');
+        for (int tentativa = 0; quebra < fim && tentativa < TENTATIVAS_FRONTEIRA; tentativa++) {
+            int seguinte = Varredura.INSTANCIA.proximo(fonte, quebra + 1, fim, '\n');
+            if (linhaSimples(inicioDaLinha(quebra), quebra) && !comecaPorAsterisco(quebra + 1, seguinte)) {
+                return quebra + 1;
+            }
+            quebra = seguinte;
+        }
+        return Math.min(quebra + 1, fim);
+    }
+
+    private int inicioDaLinha(int quebra) {
+        int q = quebra;
+        while (q > inicio && fonte[q - 1] != '\n') {
+            q--;
+        }
+        return q;
+    }
+
+    private boolean linhaSimples(int de, int ate) {
+        for (int i = de; i < ate; i++) {
+            char c = fonte[i];
+            if (c == '"' || c == '\'' || c == '#'
+                    || (c == '/' && i + 1 < ate && fonte[i + 1] == '*')
+                    || (c == '*' && i + 1 < ate && fonte[i + 1] == '/')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean comecaPorAsterisco(int de, int ate) {
+        int i = Varredura.INSTANCIA.saltarEspacos(fonte, de, ate);
+        return i < ate && fonte[i] == '*';
+    }
+
+    private void juntar(Troco troco) {
+        tabela.acrescentar(troco.tabela);
+        byte[] erros = troco.erros.toByteArray();
+        saidaErros.write(erros, 0, erros.length);
+        saidaErros.flush();
+    }
+
+    private interface Fase {
+        void executar(int troco) throws IOException;
+    }
+
+    // Corre a fase para cada troço numa tarefa do pool e espera por todas
+    private void executar(int n, Fase fase) {
+        List<RecursiveAction> tarefas = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            int troco = k;
+            tarefas.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    try {
+                        fase.executar(troco);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tarefas);
+            }
+        });
+    }
+
+    // AnalexBuffer sobre toda a fonte que só analisa os tokens que começam antes de limite
+    private static final class Troco extends AnalexBuffer {
+
+        private final ByteArrayOutputStream erros = new ByteArrayOutputStream();
+        private int limite;
+        private int fimAnalise; // Início do primeiro token (ou espaço) que já não foi analisado
+
+        Troco(char[] fonte, int inicio, int limite, int fim, int linha, int coluna) {
+            super(fonte, inicio, fim, linha, coluna);
+            this.limite = limite;
+            setSaidaErros(new PrintStream(erros, true));
+        }
+
+        void analisar() throws IOException {
+            while (currentChar != -1 && cursor - 1 < limite) {
+                analisarToken();
+            }
+            fimAnalise = Math.min(cursor - 1, fim);
+        }
+
+        /**
+         * Se o troço que começou em inicio passou pelo mesmo ponto: ou este
+         * acabou lá, ou só há espaços entre os dois, e os espaços a seguir a
+         * inicio foram saltados pelos dois até ao mesmo caractere.
+         */
+        boolean terminaEm(int inicio) {
+            return fimAnalise >= inicio && Varredura.INSTANCIA.saltarEspacos(fonte, inicio, fimAnalise) == fimAnalise;
+        }
+
+        void continuar(int limite) throws IOException {
+            this.limite = limite;
+            analisar();
+        }
+    }
+
+}
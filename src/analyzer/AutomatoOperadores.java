@@ -0,0 +1,189 @@
+package analyzer;
+
+import Tokens.TokenBitwise;
+import Tokens.TokenKind;
+import Tokens.TokenOperadoresAritmeticos;
+import Tokens.TokenOperadoresAtribuicao;
+import Tokens.TokenOperadoresRelacionais;
+import Tokens.TokenSimbolos;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Autómato finito determinista mínimo dos operadores e símbolos, gerado na
+ * inicialização da classe a partir das tabelas TokenOperadoresAritmeticos,
+ * TokenOperadoresRelacionais, TokenOperadoresAtribuicao, TokenBitwise e
+ * TokenSimbolos. Um operador novo só precisa de entrar numa dessas tabelas.
+ *
+ * A construção parte da árvore de prefixos dos lexemas, minimiza-a
+ * (refinamento de partições de Moore) e junta os caracteres com a mesma
+ * coluna de transições numa classe. O resultado é uma tabela
+ * estado × classe, percorrida por AnalexAutomato com a regra do lexema mais
+ * longo. Os comentários e o "#" ficam de fora: têm rotinas próprias.
+ *
+ * @author itsupport
+ */
+final class AutomatoOperadores {
+
+    static final int MORTO = 0;
+    static final int INICIAL = 1;
+
+    // Classe de cada caractere ASCII; 0 para os que não aparecem em nenhum operador
+    private final byte[] classes = new byte[128];
+    private final int numeroClasses;
+    // Próximo estado: transicoes[estado * numeroClasses + classe]; MORTO termina o lexema
+    private final int[] transicoes;
+    // Kind reconhecido em cada estado, null se não for final
+    private final TokenKind[] aceitacao;
+
+    static final AutomatoOperadores OPERADORES = new AutomatoOperadores(lexemas());
+
+    AutomatoOperadores(Map<String, TokenKind> lexemas) {
+        // 1. Árvore de prefixos, com um caractere por coluna (coluna 0: os restantes)
+        char[] alfabeto = new char[128];
+        int[] coluna = new int[128];
+        int colunas = 1;
+        for (String lexema : lexemas.keySet()) {
+            for (char c : lexema.toCharArray()) {
+                if (c >= 128) {
+                    throw new IllegalArgumentException("Operador fora do ASCII: " + lexema);
+                }
+                if (coluna[c] == 0) {
+                    alfabeto[colunas] = c;
+                    coluna[c] = colunas++;
+                }
+            }
+        }
+        List<int[]> arvore = new ArrayList<>();
+        List<TokenKind> finais = new ArrayList<>();
+        arvore.add(new int[colunas]); // MORTO
+        arvore.add(new int[colunas]); // INICIAL
+        finais.add(null);
+        finais.add(null);
+        for (Map.Entry<String, TokenKind> entrada : lexemas.entrySet()) {
+            int estado = INICIAL;
+            for (char c : entrada.getKey().toCharArray()) {
+                int proximo = arvore.get(estado)[coluna[c]];
+                if (proximo == MORTO) {
+                    proximo = arvore.size();
+                    arvore.add(new int[colunas]);
+                    finais.add(null);
+                    arvore.get(estado)[coluna[c]] = proximo;
+                }
+                estado = proximo;
+            }
+            finais.set(estado, entrada.getValue());
+        }
+
+        // 2. Minimização: estados com o mesmo kind e transições para os mesmos blocos são equivalentes
+        int n = arvore.size();
+        int[] bloco = new int[n];
+        HashMap<Object, Integer> blocos = new HashMap<>();
+        for (int e = 0; e < n; e++) {
+            Object chave = e == MORTO ? "MORTO" : finais.get(e) != null ? finais.get(e) : "";
+            bloco[e] = blocos.computeIfAbsent(chave, k -> blocos.size());
+        }
+        int numeroBlocos = blocos.size();
+        while (true) {
+            HashMap<List<Integer>, Integer> refinados = new HashMap<>();
+            int[] novo = new int[n];
+            for (int e = 0; e < n; e++) {
+                List<Integer> assinatura = new ArrayList<>(colunas + 1);
+                assinatura.add(bloco[e]);
+                for (int c = 0; c < colunas; c++) {
+                    assinatura.add(bloco[arvore.get(e)[c]]);
+                }
+                novo[e] = refinados.computeIfAbsent(assinatura, k -> refinados.size());
+            }
+            bloco = novo;
+            if (refinados.size() == numeroBlocos) {
+                break;
+            }
+            numeroBlocos = refinados.size();
+        }
+
+        // Renumera os blocos para MORTO e INICIAL continuarem a ser 0 e 1
+        int[] numero = new int[numeroBlocos];
+        Arrays.fill(numero, -1);
+        numero[bloco[MORTO]] = MORTO;
+        numero[bloco[INICIAL]] = INICIAL;
+        int estados = 2;
+        for (int e = 0; e < n; e++) {
+            if (numero[bloco[e]] < 0) {
+                numero[bloco[e]] = estados++;
+            }
+        }
+
+        // 3. Caracteres com a mesma coluna em todos os estados partilham uma classe
+        int[][] minimo = new int[estados][colunas];
+        aceitacao = new TokenKind[estados];
+        for (int e = 0; e < n; e++) {
+            int m = numero[bloco[e]];
+            aceitacao[m] = finais.get(e);
+            for (int c = 0; c < colunas; c++) {
+                minimo[m][c] = numero[bloco[arvore.get(e)[c]]];
+            }
+        }
+        HashMap<List<Integer>, Integer> colunasDistintas = new HashMap<>();
+        List<Integer> semTransicoes = new ArrayList<>();
+        for (int e = 0; e < estados; e++) {
+            semTransicoes.add(MORTO);
+        }
+        colunasDistintas.put(semTransicoes, 0);
+        int[] classeDaColuna = new int[colunas];
+        for (int c = 1; c < colunas; c++) {
+            List<Integer> destinos = new ArrayList<>(estados);
+            for (int e = 0; e < estados; e++) {
+                destinos.add(minimo[e][c]);
+            }
+            classeDaColuna[c] = colunasDistintas.computeIfAbsent(destinos, k -> colunasDistintas.size());
+            classes[alfabeto[c]] = (byte) classeDaColuna[c];
+        }
+        numeroClasses = colunasDistintas.size();
+        transicoes = new int[estados * numeroClasses];
+        for (int e = 0; e < estados; e++) {
+            for (int c = 1; c < colunas; c++) {
+                transicoes[e * numeroClasses + classeDaColuna[c]] = minimo[e][c];
+            }
+        }
+    }
+
+    // Lexemas das tabelas de tokens, sem os que abrem comentários e diretivas
+    private static Map<String, TokenKind> lexemas() {
+        Map<String, TokenKind> lexemas = new HashMap<>();
+        List<Map<String, String>> tabelas = List.of(TokenOperadoresAritmeticos.operadores,
+                TokenOperadoresRelacionais.operadores, TokenOperadoresAtribuicao.operadores,
+                TokenBitwise.operadores, TokenSimbolos.simbolos);
+        for (Map<String, String> tabela : tabelas) {
+            for (Map.Entry<String, String> entrada : tabela.entrySet()) {
+                TokenKind kind = TokenKind.deTipo(entrada.getValue());
+                if (kind != TokenKind.COMMENT && kind != TokenKind.PREPROCESSOR) {
+                    lexemas.put(entrada.getKey(), kind);
+                }
+            }
+        }
+        return lexemas;
+    }
+
+    int proximo(int estado, int c) {
+        return transicoes[estado * numeroClasses + (c < 128 ? classes[c] : 0)];
+    }
+
+    TokenKind aceita(int estado) {
+        return aceitacao[estado];
+    }
+
+    // Se o lexema aceite em estado é prefixo de um mais longo ("+" de "+=", "<<" de "<<=")
+    boolean prolongavel(int estado) {
+        for (int classe = 0; classe < numeroClasses; classe++) {
+            if (transicoes[estado * numeroClasses + classe] != MORTO) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
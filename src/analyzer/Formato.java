@@ -0,0 +1,225 @@
+package analyzer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import models.Tipo;
+
+/**
+ * Especificadores de conversão de uma string de formato de printf ou scanf,
+ * lidos numa só passagem: %[flags][largura][.precisão][comprimento]conversão,
+ * com "*" na largura ou na precisão (que no printf consome um argumento int
+ * e no scanf suprime a atribuição), "%%" e os conjuntos "%[...]" do scanf.
+ * Um especificador com uma conversão desconhecida, ou incompleto no fim do
+ * literal, fica em getInvalidos e não corresponde a nenhum argumento.
+ * O Parser guarda o resultado por literal (ver Parser.formato), pelo que
+ * cada formato distinto só é analisado uma vez.
+ *
+ * @author itsupport
+ */
+public final class Formato {
+
+    private static final Tipo SHORT = Tipo.de("short");
+    private static final Tipo PONTEIRO = Tipo.de("void*");
+    private static final String CONVERSOES = "diouxXfFeEgGaAcspn";
+
+    private final List<Especificador> especificadores;
+    private final List<String> invalidos;
+
+    private Formato(List<Especificador> especificadores, List<String> invalidos) {
+        this.especificadores = especificadores;
+        this.invalidos = invalidos;
+    }
+
+    // Um argumento esperado pelo formato e o texto do especificador que o pede
+    public static final class Especificador {
+
+        private final String texto;      // Ex: "%-8.2lf"
+        private final char conversao;    // Ex: 'f'; '*' para a largura ou precisão de printf
+        private final String comprimento; // "", "hh", "h", "l", "ll", "L", "j", "z" ou "t"
+        private final boolean scanf;
+
+        Especificador(String texto, char conversao, String comprimento, boolean scanf) {
+            this.texto = texto;
+            this.conversao = conversao;
+            this.comprimento = comprimento;
+            this.scanf = scanf;
+        }
+
+        public String getTexto() {
+            return texto;
+        }
+
+        public char getConversao() {
+            return conversao;
+        }
+
+        public String getComprimento() {
+            return comprimento;
+        }
+
+        /**
+         * Tipo do argumento esperado: no printf o do valor (char e float são
+         * aceites pelas promoções de Tipo.aceitaNoFormato), no scanf o
+         * ponteiro para a variável lida. UNKNOWN para o %n do printf.
+         */
+        public Tipo getTipo() {
+            Tipo tipo = getTipoValor();
+            return scanf && tipo != Tipo.UNKNOWN && tipo != Tipo.CHAR_PONTEIRO ? tipo.ponteiroPara() : tipo;
+        }
+
+        private Tipo getTipoValor() {
+            boolean longo = !comprimento.isEmpty() && comprimento.charAt(0) != 'h';
+            switch (conversao) {
+                case '*':
+                    return Tipo.INT;
+                case 'd':
+                case 'i':
+                    return longo ? Tipo.LONG : scanf && comprimento.equals("h") ? SHORT : Tipo.INT;
+                case 'u':
+                case 'o':
+                case 'x':
+                case 'X':
+                    return longo ? Tipo.LONG : Tipo.UNSIGNED_INT;
+                case 'f':
+                case 'F':
+                case 'e':
+                case 'E':
+                case 'g':
+                case 'G':
+                case 'a':
+                case 'A':
+                    return scanf && !longo ? Tipo.FLOAT : Tipo.DOUBLE;
+                case 'c':
+                    return Tipo.CHAR;
+                case 's':
+                case '[':
+                    return Tipo.CHAR_PONTEIRO;
+                case 'p':
+                    return PONTEIRO;
+                case 'n':
+                    return scanf ? Tipo.INT : Tipo.UNKNOWN;
+                default:
+                    return Tipo.UNKNOWN;
+            }
+        }
+
+        // Se o argumento do printf, ou o endereço passado ao scanf, serve este especificador
+        public boolean aceita(Tipo recebido) {
+            if (conversao == 'p') {
+                return recebido.terminaEmPonteiro() || recebido.isArray();
+            }
+            Tipo esperado = getTipo();
+            if (!scanf) {
+                return esperado.aceitaNoFormato(recebido);
+            }
+            // &nome de "char nome[20]" é char* (os arrays locais têm o tipo do elemento)
+            if (esperado == Tipo.CHAR_PONTEIRO) {
+                Tipo base = recebido.basePonteiro();
+                return base == Tipo.CHAR || base == Tipo.CHAR_ARRAY || base == Tipo.CHAR_PONTEIRO;
+            }
+            return esperado == recebido;
+        }
+    }
+
+    public List<Especificador> getEspecificadores() {
+        return especificadores;
+    }
+
+    // Texto dos especificadores inválidos ou incompletos, pela ordem do literal
+    public List<String> getInvalidos() {
+        return invalidos;
+    }
+
+    public static Formato printf(String literal) {
+        return analisar(literal, false);
+    }
+
+    public static Formato scanf(String literal) {
+        return analisar(literal, true);
+    }
+
+    private static Formato analisar(String literal, boolean scanf) {
+        List<Especificador> especificadores = new ArrayList<>();
+        List<String> invalidos = new ArrayList<>();
+        // O valor do token STRING inclui as aspas: a de fecho não faz parte do último especificador
+        int n = literal.length() > 1 && literal.endsWith("\"") ? literal.length() - 1 : literal.length();
+        int i = 0;
+        while (i < n) {
+            if (literal.charAt(i) != '%') {
+                i++;
+                continue;
+            }
+            int inicio = i++;
+            if (i < n && literal.charAt(i) == '%') {
+                i++;
+                continue;
+            }
+
+            boolean suprimido = false;
+            if (scanf && i < n && literal.charAt(i) == '*') {
+                suprimido = true;
+                i++;
+            }
+            while (!scanf && i < n && "-+ #0".indexOf(literal.charAt(i)) >= 0) {
+                i++;
+            }
+            // Largura e precisão; no printf cada "*" é um argumento int antes do valor
+            int asteriscos = 0;
+            boolean precisao = false;
+            while (i < n) {
+                char c = literal.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    i++;
+                } else if (c == '*' && !scanf) {
+                    asteriscos++;
+                    i++;
+                } else if (c == '.' && !scanf && !precisao) {
+                    precisao = true;
+                    i++;
+                } else {
+                    break;
+                }
+            }
+            int inicioComprimento = i;
+            while (i < n && "hlLjzt".indexOf(literal.charAt(i)) >= 0 && i - inicioComprimento < 2) {
+                i++;
+            }
+            String comprimento = literal.substring(inicioComprimento, i);
+            if (i >= n) {
+                // Especificador incompleto no fim do literal
+                invalidos.add(literal.substring(inicio, n));
+                break;
+            }
+            char conversao = literal.charAt(i++);
+            if (CONVERSOES.indexOf(conversao) < 0 && !(conversao == '[' && scanf)) {
+                invalidos.add(literal.substring(inicio, i));
+                continue;
+            }
+            if (conversao == '[' && scanf) {
+                // "]" logo a seguir a "[" ou "[^" faz parte do conjunto
+                if (i < n && literal.charAt(i) == '^') {
+                    i++;
+                }
+                if (i < n && literal.charAt(i) == ']') {
+                    i++;
+                }
+                while (i < n && literal.charAt(i) != ']') {
+                    i++;
+                }
+                i = Math.min(i + 1, n);
+            }
+
+            String texto = literal.substring(inicio, i);
+            for (int a = 0; a < asteriscos; a++) {
+                especificadores.add(new Especificador(texto, '*', "", false));
+            }
+            if (!suprimido) {
+                especificadores.add(new Especificador(texto, conversao, comprimento, scanf));
+            }
+        }
+        return new Formato(especificadores.isEmpty() ? Collections.emptyList() : especificadores,
+                invalidos.isEmpty() ? Collections.emptyList() : invalidos);
+    }
+
+}
@@ -2,12 +2,15 @@ package analyzer;
 
 import Tokens.*;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import models.*;
 import abstracts.AParser;
+import ast.ArvoreSintatica;
+import ast.EspecieNo;
+import utils.Estatisticas;
 
 public class Parser extends AParser {
 
@@ -15,38 +18,83 @@ public class Parser extends AParser {
     protected int pos = 0;
     protected TabelaDeTokens tabela;
     protected int countErros = 0;
-    protected List<Token> tokens;
-    private Escopo escopos = new Escopo();
+    protected FonteDeTokens tokens;
+    private Escopo escopos;
     private String funcaoAtual = null; // For return verification
-    private String tipoRetornoAtual = null; // For return verification
+    private Tipo tipoRetornoAtual = null; // For return verification
+    private PrintStream saidaErros = System.err;
+    private Estatisticas estatisticas; // Only set with --stats
+    private boolean emVerificacao;     // Inside a timed verificarExpressao()
+    private ArvoreSintatica arvore;    // Only set when a typed AST was requested
+    private VerificacaoParalela verificacaoParalela; // Only set for its pre-pass: function bodies are skipped
+    private int fimCorpo = -1;         // In a body task, index of the first token after the body
+    private final HashMap<String, Formato> formatosPrintf = new HashMap<>(); // Parsed once per distinct literal
+    private final HashMap<String, Formato> formatosScanf = new HashMap<>();
 
     public Parser(TabelaDeTokens tabela) {
-        if (tabela == null) {
-            throw new IllegalArgumentException("Token table cannot be null");
-        }
+        this((FonteDeTokens) tabela);
+        this.tabela = tabela;
+    }
 
+    // Tokens may come from a complete table or from a JanelaDeTokens fed by a lexer thread
+    public Parser(FonteDeTokens tokens) {
+        this(tokens, new Escopo());
+    }
+
+    // Reads the shared table directly, against an existing scope (used by VerificacaoParalela)
+    Parser(TabelaDeTokens tabela, Escopo escopos) {
+        this((FonteDeTokens) tabela, escopos);
         this.tabela = tabela;
-        this.tokens = tabela.getTokens();
+    }
 
+    // Declarations are checked against an existing global scope (used by VerificacaoIncremental)
+    Parser(FonteDeTokens tokens, Escopo escopos) {
         if (tokens == null) {
-            throw new IllegalArgumentException("Token list cannot be null");
+            throw new IllegalArgumentException("Token source cannot be null");
         }
 
-        if (!tokens.isEmpty()) {
-            this.tokenAtual = tokens.get(0);
+        this.tokens = tokens;
+        this.escopos = escopos;
+
+        Token primeiro = tokens.token(0);
+        if (primeiro != null) {
+            this.tokenAtual = primeiro;
         } else {
             this.tokenAtual = new Token("EOF", "End of File", -1, -1);
         }
     }
 
+    // Destination for diagnostics (System.err by default)
+    public void setSaidaErros(PrintStream saidaErros) {
+        this.saidaErros = saidaErros;
+        escopos.setSaidaErros(saidaErros);
+    }
+
+    public void setEstatisticas(Estatisticas estatisticas) {
+        this.estatisticas = estatisticas;
+    }
+
+    // Builds the typed AST while parsing; without it parse() only counts errors
+    public void setArvore(ArvoreSintatica arvore) {
+        this.arvore = arvore;
+    }
+
+    public ArvoreSintatica getArvore() {
+        return arvore;
+    }
+
+    public int getProfundidadeMaximaEscopos() {
+        return escopos.getProfundidadeMaxima();
+    }
+
     @Override
     public int getCountErros() {
         return countErros;
     }
 
     @Override
-    protected boolean consumir(String esperado) throws IOException {
-        if (tokenAtual.getTipo().equals(esperado)) {
+    protected boolean consumir(TokenKind esperado) throws IOException {
+        if (tokenAtual.getKind() == esperado) {
             avancar();
             return true;
         }
@@ -56,16 +104,26 @@ public class Parser extends AParser {
     @Override
     protected void avancar() {
         pos++;
-        if (pos < tokens.size()) {
-            tokenAtual = tokens.get(pos);
+        Token proximo = tokens.token(pos);
+        if (fimCorpo >= 0 && pos >= fimCorpo) {
+            // The tokens after the body are checked by the pre-pass: they read as the end of the file
+            tokenAtual = new Token("EOF", "End of File", proximo.getLinha(), proximo.getColuna());
+        } else if (proximo != null) {
+            tokenAtual = proximo;
         } else {
             tokenAtual = new Token("EOF", "End of File", -1, -1);
         }
     }
 
+    // Kind of the token k positions after the current one, or null past the end
+    private TokenKind kindAFrente(int k) {
+        Token token = tokens.token(pos + k);
+        return token != null ? token.getKind() : null;
+    }
+
     @Override
     protected void erro(String msg) throws IOException {
-        System.err.println("[Error] " + msg + " found '" + tokenAtual.getValor()
+        saidaErros.println("[Error] " + msg + " found '" + tokenAtual.getValor()
                 + "' at line " + tokenAtual.getLinha()
                 + ", column " + tokenAtual.getColuna());
         countErros++;
@@ -76,18 +134,18 @@ public class Parser extends AParser {
     protected void erroSemantico(String mensagem) {
         int linha = tokenAtual != null ? tokenAtual.getLinha() : -1;
         int coluna = tokenAtual != null ? tokenAtual.getColuna() : -1;
-        System.err.println("[Semantic Error] " + mensagem + " at line " + linha + ", column " + coluna);
+        saidaErros.println("[Semantic Error] " + mensagem + " at line " + linha + ", column " + coluna);
         countErros++;
     }
 
     @Override
     protected void sincronizar() {
-        while (!tokenAtual.getTipo().equals("SEMICOLON")
-                && !tokenAtual.getTipo().equals("RBRACE")
-                && !tokenAtual.getTipo().equals("EOF")) {
+        while (tokenAtual.getKind() != TokenKind.SEMICOLON
+                && tokenAtual.getKind() != TokenKind.RBRACE
+                && tokenAtual.getKind() != TokenKind.EOF) {
             avancar();
         }
-        if (!tokenAtual.getTipo().equals("EOF")) {
+        if (tokenAtual.getKind() != TokenKind.EOF) {
             avancar();
         }
     }
@@ -97,42 +155,115 @@ public class Parser extends AParser {
     public void parse() throws IOException {
         escopos.abrirEscopo(); // Global scope
         programa();
-        if (!tokenAtual.getTipo().equals("EOF")) {
+        if (tokenAtual.getKind() != TokenKind.EOF) {
+            erro("Unexpected tokens remaining");
+        }
+        escopos.fecharEscopo();
+        if (arvore != null) {
+            arvore.concluir();
+        }
+    }
+
+    // Pre-pass of VerificacaoParalela: like parse(), but function bodies are only
+    // skipped and the global scope stays open for the tasks that check them
+    void parseAdiandoCorpos(VerificacaoParalela verificacao) throws IOException {
+        verificacaoParalela = verificacao;
+        escopos.abrirEscopo(); // Global scope
+        programa();
+        if (tokenAtual.getKind() != TokenKind.EOF) {
             erro("Unexpected tokens remaining");
         }
+        if (arvore != null) {
+            arvore.concluir();
+        }
+    }
+
+    // Checks a body skipped by parseAdiandoCorpos() as declaracao_funcao() would have;
+    // the globals come from the read-only table behind this parser's Escopo. The body
+    // ends before fim, even when error recovery consumes its closing '}', unless only
+    // EOF follows it (then the sequential parse would also just run into EOF)
+    void parseCorpo(int inicio, int fim, Funcao funcao, List<Variavel> parametros) throws IOException {
+        pos = inicio;
+        tokenAtual = tokens.token(pos);
+        fimCorpo = tokens.token(fim).getKind() != TokenKind.EOF ? fim : -1;
+        funcaoAtual = funcao.getNome();
+        tipoRetornoAtual = funcao.getTipoRetornoCanonico();
+        escopos.abrirEscopo(); // Global scope
+        escopos.abrirEscopo(); // Parameters
+        for (Variavel parametro : parametros) {
+            escopos.adicionarVariavel(parametro.getNome(), parametro);
+        }
+        bloco();
+        escopos.fecharEscopo();
         escopos.fecharEscopo();
+        funcaoAtual = null;
+        tipoRetornoAtual = null;
+    }
+
+    // Skips a block up to its matching '}' without checking it
+    private void saltarBloco() {
+        if (tabela == null) {
+            int profundidade = 0;
+            do {
+                if (tokenAtual.getKind() == TokenKind.LBRACE) {
+                    profundidade++;
+                } else if (tokenAtual.getKind() == TokenKind.RBRACE) {
+                    profundidade--;
+                }
+                avancar();
+            } while (profundidade > 0 && tokenAtual.getKind() != TokenKind.EOF);
+            return;
+        }
+        // Reads the kinds straight from the table, without creating the tokens in between
+        int profundidade = 0;
+        int fim = tabela.tamanho();
+        int i = pos;
+        do {
+            TokenKind kind = tabela.kindEm(i);
+            if (kind == TokenKind.LBRACE) {
+                profundidade++;
+            } else if (kind == TokenKind.RBRACE) {
+                profundidade--;
+            }
+            i++;
+        } while (profundidade > 0 && i < fim && tabela.kindEm(i) != TokenKind.EOF);
+        pos = i - 1;
+        avancar();
     }
 
     // <programa> ::= { <declaracao_global> }*
     @Override
     public void programa() throws IOException {
-        while (!tokenAtual.getTipo().equals("EOF")) {
-            if (tokenAtual.getTipo().equals("STRUCT")) {
-                declaracao_struct();
-            } else if (tokenAtual.getTipo().equals("DIRECTIVE")) {
-                consumir("DIRECTIVE");
-            } else if (tokenAtual.getTipo().equals("CONST")
-                    || tokenAtual.getTipo().equals("VOID")
-                    || tokenAtual.getTipo().equals("CHAR")
-                    || tokenAtual.getTipo().equals("SHORT")
-                    || tokenAtual.getTipo().equals("INT")
-                    || tokenAtual.getTipo().equals("LONG")
-                    || tokenAtual.getTipo().equals("FLOAT")
-                    || tokenAtual.getTipo().equals("DOUBLE")
-                    || tokenAtual.getTipo().equals("SIGNED")
-                    || tokenAtual.getTipo().equals("UNSIGNED")) {
-
-                if (pos + 2 < tokens.size()
-                        && (tokens.get(pos + 1).getTipo().equals("IDENTIFIER") || tokens.get(pos + 1).getTipo().equals("MAIN"))
-                        && tokens.get(pos + 2).getTipo().equals("LPAREN")) {
-
-                    declaracao_funcao();
-                } else {
-                    declaracao();
-                }
-            } else {
-                erro("Invalid declaration in global scope");
-                avancar();
+        while (tokenAtual.getKind() != TokenKind.EOF) {
+            switch (tokenAtual.getKind()) {
+                case STRUCT:
+                    declaracao_struct();
+                    break;
+                case DIRECTIVE:
+                    consumir(TokenKind.DIRECTIVE);
+                    break;
+                case CONST:
+                case VOID:
+                case CHAR:
+                case SHORT:
+                case INT:
+                case LONG:
+                case FLOAT:
+                case DOUBLE:
+                case SIGNED:
+                case UNSIGNED:
+                    if ((kindAFrente(1) == TokenKind.IDENTIFIER || kindAFrente(1) == TokenKind.MAIN)
+                            && kindAFrente(2) == TokenKind.LPAREN) {
+
+                        declaracao_funcao();
+                    } else {
+                        declaracao();
+                    }
+                    break;
+                default:
+                    erro("Invalid declaration in global scope");
+                    avancar();
+                    break;
             }
         }
     }
@@ -140,8 +271,10 @@ public class Parser extends AParser {
     // <declaracao_struct> ::= STRUCT IDENTIFIER LBRACE { <campo_struct> }* RBRACE [SEMICOLON]
     @Override
     protected void declaracao_struct() throws IOException {
-        consumir("STRUCT");
-        if (!tokenAtual.getTipo().equals("IDENTIFIER")) {
+        Token inicio = tokenAtual;
+        int marca = marcaArvore();
+        consumir(TokenKind.STRUCT);
+        if (tokenAtual.getKind() != TokenKind.IDENTIFIER) {
             erro("Expected struct name");
             sincronizar();
             return;
@@ -157,54 +290,58 @@ public class Parser extends AParser {
 
         Struct struct = new Struct(nomeStruct);
 
-        if (!consumir("LBRACE")) {
+        if (!consumir(TokenKind.LBRACE)) {
             erro("Expected '{' after struct name");
             sincronizar();
             return;
         }
 
-        while (tokenAtual.getTipo().matches("VOID|CHAR|SHORT|INT|LONG|FLOAT|DOUBLE|SIGNED|UNSIGNED|STRUCT")) {
+        while (ehInicioEspecificadorTipo(tokenAtual.getKind())) {
             String tipoCampo = especificador_tipo();
             StringBuilder tipoCompleto = new StringBuilder(tipoCampo);
 
-            while (consumir("MULTIPLY")) {
+            while (consumir(TokenKind.MULTIPLY)) {
                 tipoCompleto.append("*");
             }
 
-            if (!tokenAtual.getTipo().equals("IDENTIFIER")) {
+            if (tokenAtual.getKind() != TokenKind.IDENTIFIER) {
                 erro("Expected field identifier");
                 sincronizar();
                 return;
             }
+            Token tokenCampo = tokenAtual;
             String nomeCampo = tokenAtual.getValor();
             avancar();
 
             boolean isArray = false;
-            if (consumir("LBRACKET")) {
+            int tamanhoArray = -1;
+            if (consumir(TokenKind.LBRACKET)) {
                 isArray = true;
-                if (!tokenAtual.getTipo().equals("RBRACKET")) {
-                    if (tokenAtual.getTipo().equals("NUMBER")) {
+                tamanhoArray = 0;
+                if (tokenAtual.getKind() != TokenKind.RBRACKET) {
+                    if (tokenAtual.getKind() == TokenKind.NUMBER) {
                         String valor = tokenAtual.getValor();
                         try {
                             int tamanho = Integer.parseInt(valor);
                             if (tamanho <= 0) {
                                 erroSemantico("Array size must be positive: " + valor);
                             }
+                            tamanhoArray = tamanho;
                         } catch (NumberFormatException e) {
                             erroSemantico("Invalid array size: " + valor);
                         }
                         avancar();
-                    } else if (tokenAtual.getTipo().equals("IDENTIFIER")) {
+                    } else if (tokenAtual.getKind() == TokenKind.IDENTIFIER) {
                         String nomeConstante = tokenAtual.getValor();
                         Variavel var = escopos.buscarVariavel(nomeConstante);
-                        if (var == null || !var.getTipo().equals("int")) {
+                        if (var == null || var.getTipoCanonico() != Tipo.INT) {
                             erroSemantico("Constant '" + nomeConstante + "' is not a valid integer");
                         }
                         avancar();
                     } else {
                         erro("Expected array size (number or identifier)");
                     }
-                    if (!consumir("RBRACKET")) {
+                    if (!consumir(TokenKind.RBRACKET)) {
                         erro("Expected ']' after array size");
                         sincronizar();
                         return;
@@ -218,44 +355,48 @@ public class Parser extends AParser {
             if (struct.getCampos().containsKey(nomeCampo)) {
                 erroSemantico("Field '" + nomeCampo + "' already defined in struct '" + nomeStruct + "'");
             } else {
-                if (!ehTipoValido(tipoCompleto.toString())) {
+                if (!ehTipoValido(Tipo.de(tipoCompleto.toString()))) {
                     erroSemantico("Invalid type for field '" + nomeCampo + "': " + tipoCompleto);
                 } else {
-                    struct.getCampos().put(nomeCampo, tipoCompleto.toString());
+                    struct.adicionarCampo(nomeCampo, tipoCompleto.toString());
+                    folha(EspecieNo.CAMPO, struct.buscarTipoCampo(nomeCampo), nomeCampo, null, tamanhoArray, tokenCampo);
                 }
             }
 
-            if (!consumir("SEMICOLON")) {
+            if (!consumir(TokenKind.SEMICOLON)) {
                 erro("Expected ';' after struct field");
                 sincronizar();
                 return;
             }
         }
 
-        if (!consumir("RBRACE")) {
+        if (!consumir(TokenKind.RBRACE)) {
             erro("Expected '}' after struct fields");
             sincronizar();
             return;
         }
-        if (!consumir("SEMICOLON")) {
+        if (!consumir(TokenKind.SEMICOLON)) {
             erro("Expected ';' after struct declaration");
             sincronizar();
         }
 
         escopos.adicionarStruct(nomeStruct, struct);
+        reduzir(marca, EspecieNo.STRUCT, Tipo.de("struct " + nomeStruct), nomeStruct, struct, 0, inicio);
     }
 
     // <declaracao_funcao> ::= <especificador_tipo> <ponteiro> (IDENTIFIER | MAIN) LPAREN [ <parametros> ] RPAREN <bloco>
     @Override
     protected void declaracao_funcao() throws IOException {
+        Token inicio = tokenAtual;
+        int marca = marcaArvore();
         String tipoRetorno = especificador_tipo();
         ponteiro();
 
         String nomeFuncao;
-        if (tokenAtual.getTipo().equals("IDENTIFIER")) {
+        if (tokenAtual.getKind() == TokenKind.IDENTIFIER) {
             nomeFuncao = tokenAtual.getValor();
             avancar();
-        } else if (consumir("MAIN")) {
+        } else if (consumir(TokenKind.MAIN)) {
             nomeFuncao = "main";
         } else {
             erro("Expected function name");
@@ -265,9 +406,9 @@ public class Parser extends AParser {
         Funcao funcao = new Funcao(nomeFuncao, tipoRetorno, tokenAtual.getLinha());
 
         funcaoAtual = nomeFuncao;
-        tipoRetornoAtual = tipoRetorno;
+        tipoRetornoAtual = funcao.getTipoRetornoCanonico();
 
-        if (!consumir("LPAREN")) {
+        if (!consumir(TokenKind.LPAREN)) {
             erro("Expected '(' after function name");
             return;
         }
@@ -275,10 +416,10 @@ public class Parser extends AParser {
         escopos.abrirEscopo();
 
         List<Parametro> parametros = new ArrayList<>();
-        if (!tokenAtual.getTipo().equals("RPAREN")) {
+        if (tokenAtual.getKind() != TokenKind.RPAREN) {
             parametros = parametros();
         }
-        if (!consumir("RPAREN")) {
+        if (!consumir(TokenKind.RPAREN)) {
             erro("Expected ')' after parameters");
             escopos.fecharEscopo();
             funcaoAtual = null;
@@ -289,9 +430,20 @@ public class Parser extends AParser {
         funcao.getParametros().addAll(parametros);
         escopos.adicionarFuncao(nomeFuncao, funcao);
 
-        bloco();
+        VerificacaoParalela.Corpo adiado = null;
+        if (verificacaoParalela != null && tokenAtual.getKind() == TokenKind.LBRACE) {
+            int inicioCorpo = pos;
+            saltarBloco();
+            adiado = verificacaoParalela.adiar(inicioCorpo, pos, funcao, escopos.getVariaveisEscopoAtual(), escopos.getOrdem());
+        } else {
+            bloco();
+        }
 
         escopos.fecharEscopo();
+        int no = reduzir(marca, EspecieNo.FUNCAO, funcao.getTipoRetornoCanonico(), nomeFuncao, funcao, 0, inicio);
+        if (adiado != null) {
+            adiado.setNoFuncao(no);
+        }
         funcaoAtual = null;
         tipoRetornoAtual = null;
     }
@@ -305,15 +457,16 @@ public class Parser extends AParser {
             StringBuilder tipoCompleto = new StringBuilder(tipoParam);
             boolean isPonteiro = false;
 
-            while (consumir("MULTIPLY")) {
+            while (consumir(TokenKind.MULTIPLY)) {
                 tipoCompleto.append("*");
                 isPonteiro = true;
             }
 
-            if (!tokenAtual.getTipo().equals("IDENTIFIER")) {
+            if (tokenAtual.getKind() != TokenKind.IDENTIFIER) {
                 erro("Expected parameter identifier");
                 return parametros;
             }
+            Token tokenParam = tokenAtual;
             String nomeParam = tokenAtual.getValor();
             avancar();
 
@@ -322,97 +475,122 @@ public class Parser extends AParser {
 
             Variavel var = new Variavel(nomeParam, tipoCompleto.toString(), false, false, tokenAtual.getLinha());
             escopos.adicionarVariavel(nomeParam, var);
+            folha(EspecieNo.PARAMETRO, var.getTipoCanonico(), nomeParam, var, 0, tokenParam);
 
-        } while (consumir("COMMA"));
+        } while (consumir(TokenKind.COMMA));
         return parametros;
     }
 
     // <comando> ::= <declaracao> | <if_cmd> | <while_cmd> | <for_cmd> | <do_while_cmd> | <switch_cmd> | <printf_cmd> | <scanf_cmd> | <return_cmd> | <atribuicao> | <chamada_funcao_cmd> | BREAK SEMICOLON | CONTINUE SEMICOLON
     @Override
     protected void comando() throws IOException {
-        if (tokenAtual.getTipo().equals("CONST")
-                || tokenAtual.getTipo().equals("VOID")
-                || tokenAtual.getTipo().equals("CHAR")
-                || tokenAtual.getTipo().equals("SHORT")
-                || tokenAtual.getTipo().equals("INT")
-                || tokenAtual.getTipo().equals("LONG")
-                || tokenAtual.getTipo().equals("FLOAT")
-                || tokenAtual.getTipo().equals("DOUBLE")
-                || tokenAtual.getTipo().equals("SIGNED")
-                || tokenAtual.getTipo().equals("UNSIGNED")
-                || tokenAtual.getTipo().equals("STRUCT")) {
-            declaracao();
-        } else if (tokenAtual.getTipo().equals("IF")) {
-            if_cmd();
-        } else if (tokenAtual.getTipo().equals("WHILE")) {
-            while_cmd();
-        } else if (tokenAtual.getTipo().equals("FOR")) {
-            for_cmd();
-        } else if (tokenAtual.getTipo().equals("IDENTIFIER") && tokenAtual.getValor().equals("printf")) {
-            printf_cmd();
-        } else if (tokenAtual.getTipo().equals("IDENTIFIER") && tokenAtual.getValor().equals("scanf")) {
-            scanf_cmd();
-        } else if (tokenAtual.getTipo().equals("DO")) {
-            do_while_cmd();
-        } else if (tokenAtual.getTipo().equals("SWITCH")) {
-            switch_cmd();
-        } else if (tokenAtual.getTipo().equals("RETURN")) {
-            return_cmd();
-        } else if (tokenAtual.getTipo().equals("BREAK")) {
-            consumir("BREAK");
-            if (!consumir("SEMICOLON")) {
-                erro("Expected ';' after 'break'");
-            }
-        } else if (tokenAtual.getTipo().equals("CONTINUE")) {
-            consumir("CONTINUE");
-            if (!consumir("SEMICOLON")) {
-                erro("Expected ';' after 'continue'");
-            }
-        } else if (tokenAtual.getTipo().equals("IDENTIFIER")
-                && tokens.get(pos + 1).getTipo().equals("LPAREN")) {
-            chamada_funcao();
-            if (!consumir("SEMICOLON")) {
-                erro("Expected ';' after function call");
-            }
-        } else if (tokenAtual.getTipo().equals("IDENTIFIER")) {
-            atribuicao();
-        } else {
-            erro("Invalid statement");
+        switch (tokenAtual.getKind()) {
+            case CONST:
+            case VOID:
+            case CHAR:
+            case SHORT:
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+            case SIGNED:
+            case UNSIGNED:
+            case STRUCT:
+                declaracao();
+                break;
+            case IF:
+                if_cmd();
+                break;
+            case WHILE:
+                while_cmd();
+                break;
+            case FOR:
+                for_cmd();
+                break;
+            case DO:
+                do_while_cmd();
+                break;
+            case SWITCH:
+                switch_cmd();
+                break;
+            case RETURN:
+                return_cmd();
+                break;
+            case BREAK:
+                folha(EspecieNo.BREAK, null, null, null, 0, tokenAtual);
+                consumir(TokenKind.BREAK);
+                if (!consumir(TokenKind.SEMICOLON)) {
+                    erro("Expected ';' after 'break'");
+                }
+                break;
+            case CONTINUE:
+                folha(EspecieNo.CONTINUE, null, null, null, 0, tokenAtual);
+                consumir(TokenKind.CONTINUE);
+                if (!consumir(TokenKind.SEMICOLON)) {
+                    erro("Expected ';' after 'continue'");
+                }
+                break;
+            case IDENTIFIER:
+                String nome = tokenAtual.getValor();
+                if (nome.equals("printf")) {
+                    printf_cmd();
+                } else if (nome.equals("scanf")) {
+                    scanf_cmd();
+                } else if (kindAFrente(1) == TokenKind.LPAREN) {
+                    chamada_funcao();
+                    if (!consumir(TokenKind.SEMICOLON)) {
+                        erro("Expected ';' after function call");
+                    }
+                } else {
+                    atribuicao();
+                }
+                break;
+            default:
+                erro("Invalid statement");
+                break;
         }
     }
 
     // <declaracao> ::= [ CONST ] <especificador_tipo> <ponteiro> <lista_identificadores> SEMICOLON
     @Override
     protected void declaracao() throws IOException {
-        boolean isConst = consumir("CONST");
+        Token inicio = tokenAtual;
+        int marca = marcaArvore();
+        boolean isConst = consumir(TokenKind.CONST);
         String tipo = especificador_tipo();
         ponteiro();
         lista_identificadores(tipo);
-        if (!consumir("SEMICOLON")) {
+        if (!consumir(TokenKind.SEMICOLON)) {
             erro("Expected ';' after declaration");
         }
+        reduzir(marca, EspecieNo.DECLARACAO, null, null, null, isConst ? 1 : 0, inicio);
     }
 
     // <lista_identificadores> ::= <identificador_decl> { COMMA <identificador_decl> }*
     @Override
     protected void lista_identificadores(String tipo) throws IOException {
         do {
-            if (!tokenAtual.getTipo().equals("IDENTIFIER")) {
+            if (tokenAtual.getKind() != TokenKind.IDENTIFIER) {
                 erro("Expected identifier");
                 return;
             }
 
+            Token tokenNome = tokenAtual;
+            int marca = marcaArvore();
             String nome = tokenAtual.getValor();
             avancar();
 
             boolean isArray = false;
-            if (consumir("LBRACKET")) {
+            int tamanhoArray = -1;
+            if (consumir(TokenKind.LBRACKET)) {
                 isArray = true;
-                if (!tokenAtual.getTipo().equals("NUMBER") && !tokenAtual.getTipo().equals("IDENTIFIER")) {
+                tamanhoArray = arvore != null && tokenAtual.getKind() == TokenKind.NUMBER
+                        ? valorInteiro(tokenAtual.getValor()) : 0;
+                if (tokenAtual.getKind() != TokenKind.NUMBER && tokenAtual.getKind() != TokenKind.IDENTIFIER) {
                     erro("Expected array size");
                 }
                 avancar();
-                if (!consumir("RBRACKET")) {
+                if (!consumir(TokenKind.RBRACKET)) {
                     erro("Expected ']' after array size");
                 }
             }
@@ -420,11 +598,12 @@ public class Parser extends AParser {
             Variavel var = new Variavel(nome, tipo, false, isArray, tokenAtual.getLinha());
             escopos.adicionarVariavel(nome, var);
 
-            if (consumir("ASSIGN")) {
-                String tipoExpressao = verificarExpressao();
-                verificarCompatibilidadeTipos(tipo, tipoExpressao, "assignment");
+            if (consumir(TokenKind.ASSIGN)) {
+                Tipo tipoExpressao = verificarExpressao();
+                verificarCompatibilidadeTipos(var.getTipoCanonico(), tipoExpressao, "assignment");
             }
-        } while (consumir("COMMA"));
+            reduzir(marca, EspecieNo.VARIAVEL, var.getTipoCanonico(), nome, var, tamanhoArray, tokenNome);
+        } while (consumir(TokenKind.COMMA));
     }
 
     // <expressao> ::= <expressao_ternaria>
@@ -441,104 +620,136 @@ public class Parser extends AParser {
      */
     @Override
     protected void expressao_ternaria() throws IOException {
+        Token inicio = tokenAtual;
+        int marca = marcaArvore();
         expressao_logica();
-        if (consumir("QUESTION")) {
+        if (consumir(TokenKind.QUESTION)) {
             expressao();
-            if (!consumir("COLON")) {
+            if (!consumir(TokenKind.COLON)) {
                 erro("Expected ':' in ternary operator");
             }
             expressao();
+            int no = reduzir(marca, EspecieNo.TERNARIA, null, inicio);
+            definirTipo(no, tipoFilho(no, 1));
         }
     }
 
     // <expressao_logica> ::= <expressao_relacional> { (AND | OR) <expressao_relacional> }*
     @Override
     protected void expressao_logica() throws IOException {
+        int marca = marcaArvore();
         expressao_relacional();
-        while (tokenAtual.getTipo().equals("AND") || tokenAtual.getTipo().equals("OR")) {
+        while (tokenAtual.getKind() == TokenKind.AND || tokenAtual.getKind() == TokenKind.OR) {
+            Token operador = tokenAtual;
             avancar();
             expressao_relacional();
+            reduzirBinaria(marca, operador, Tipo.INT);
         }
     }
 
     // <expressao_relacional> ::= <expressao_aritmetica> [ <op_relacional> <expressao_aritmetica> ]
     @Override
     protected void expressao_relacional() throws IOException {
+        int marca = marcaArvore();
         expressao_aritmetica();
         while (eOperadorRelacional()) {
+            Token operador = tokenAtual;
             avancar();
             expressao_aritmetica();
+            reduzirBinaria(marca, operador, Tipo.INT);
         }
     }
 
     // <expressao_aritmetica> ::= <termo> { (PLUS | MINUS) <termo> }*
     @Override
     protected void expressao_aritmetica() throws IOException {
+        int marca = marcaArvore();
         termo();
-        while (tokenAtual.getTipo().equals("PLUS") || tokenAtual.getTipo().equals("MINUS")) {
+        while (tokenAtual.getKind() == TokenKind.PLUS || tokenAtual.getKind() == TokenKind.MINUS) {
+            Token operador = tokenAtual;
             avancar();
             termo();
+            int no = reduzirBinaria(marca, operador, null);
+            definirTipo(no, determinarTipoResultante(tipoFilho(no, 0), tipoFilho(no, 1)));
         }
     }
 
     // <if_cmd> ::= IF LPAREN <expressao> RPAREN <bloco> [ ELSE <bloco> ]
     @Override
     protected void if_cmd() throws IOException {
-        consumir("IF");
-        if (!consumir("LPAREN")) {
+        Token inicio = tokenAtual;
+        int marca = marcaArvore();
+        consumir(TokenKind.IF);
+        if (!consumir(TokenKind.LPAREN)) {
             erro("Expected '(' after 'if'");
         }
-        String tipoCondicao = verificarExpressao();
+        Tipo tipoCondicao = verificarExpressao();
         verificarCondicao(tipoCondicao);
 
-        if (!consumir("RPAREN")) {
+        if (!consumir(TokenKind.RPAREN)) {
             erro("Expected ')' after expression");
         }
         bloco();
 
-        if (consumir("ELSE")) {
+        if (consumir(TokenKind.ELSE)) {
             bloco();
         }
+        reduzir(marca, EspecieNo.IF, null, inicio);
     }
 
     // <while_cmd> ::= WHILE LPAREN <expressao> RPAREN <bloco>
     @Override
     protected void while_cmd() throws IOException {
-        consumir("WHILE");
-        if (!consumir("LPAREN")) {
+        Token inicio = tokenAtual;
+        int marca = marcaArvore();
+        consumir(TokenKind.WHILE);
+        if (!consumir(TokenKind.LPAREN)) {
             erro("Expected '(' after 'while'");
         }
 
-        String tipoCondicao = verificarExpressao();
+        Tipo tipoCondicao = verificarExpressao();
         verificarCondicao(tipoCondicao);
 
-        if (!consumir("RPAREN")) {
+        if (!consumir(TokenKind.RPAREN)) {
             erro("Expected ')' after expression");
         }
         bloco();
+        reduzir(marca, EspecieNo.WHILE, null, inicio);
     }
 
     // <for_cmd> ::= FOR LPAREN <inicializacao_for> <expressao> SEMICOLON <atribuicao_sem_ponto_e_virgula> RPAREN <bloco>
     @Override
     protected void for_cmd() throws IOException {
-        consumir("FOR");
-        if (!consumir("LPAREN")) {
+        Token inicio = tokenAtual;
+        int marca = marcaArvore();
+        consumir(TokenKind.FOR);
+        if (!consumir(TokenKind.LPAREN)) {
             erro("Expected '(' after 'for'");
         }
-        if (tokenAtual.getTipo().matches("INT|FLOAT|DOUBLE|CHAR|VOID|STRUCT")) {
-            especificador_tipo();
-            ponteiro();
+        switch (tokenAtual.getKind()) {
+            case INT:
+            case FLOAT:
+            case DOUBLE:
+            case CHAR:
+            case VOID:
+            case STRUCT:
+                especificador_tipo();
+                ponteiro();
+                break;
+            default:
+                break;
         }
         atribuicao();
         expressao();
-        if (!consumir("SEMICOLON")) {
+        if (!consumir(TokenKind.SEMICOLON)) {
             erro("Expected ';' after 'for' condition");
         }
         atribuicao_sem_ponto_e_virgula();
-        if (!consumir("RPAREN")) {
+        if (!consumir(TokenKind.RPAREN)) {
             erro("Expected ')' after 'for'");
         }
         bloco();
+        reduzir(marca, EspecieNo.FOR, null, inicio);
     }
 
     // <especificador_tipo> ::= {<tipo_simples>}+ | STRUCT IDENTIFIER
@@ -548,14 +759,14 @@ public class Parser extends AParser {
         boolean hasType = false;
         boolean isStruct = false;
 
-        while (tokenAtual.getTipo().matches("VOID|CHAR|SHORT|INT|LONG|FLOAT|DOUBLE|SIGNED|UNSIGNED|STRUCT")) {
+        while (ehInicioEspecificadorTipo(tokenAtual.getKind())) {
             hasType = true;
 
-            if (tokenAtual.getTipo().equals("STRUCT")) {
+            if (tokenAtual.getKind() == TokenKind.STRUCT) {
                 isStruct = true;
                 tipo.append("struct ");
-                consumir("STRUCT");
-                if (!tokenAtual.getTipo().equals("IDENTIFIER")) {
+                consumir(TokenKind.STRUCT);
+                if (tokenAtual.getKind() != TokenKind.IDENTIFIER) {
                     erro("Expected struct name after 'struct'");
                     return "unknown";
                 }
@@ -579,15 +790,17 @@ public class Parser extends AParser {
     // <printf_cmd> ::= IDENTIFIER LPAREN <expressao> { COMMA <expressao> }* RPAREN SEMICOLON
     @Override
     protected void printf_cmd() throws IOException {
-        consumir("IDENTIFIER"); // "printf"
-        if (!consumir("LPAREN")) {
+        Token inicio = tokenAtual;
+        int marca = marcaArvore();
+        consumir(TokenKind.IDENTIFIER); // "printf"
+        if (!consumir(TokenKind.LPAREN)) {
             erro("Expected '(' after 'printf'");
             sincronizar();
             return;
         }
 
         // Expect a string literal as the first argument
-        if (!tokenAtual.getTipo().equals("STRING")) {
+        if (tokenAtual.getKind() != TokenKind.STRING) {
             erro("Expected format string as first argument of 'printf'");
             sincronizar();
             return;
@@ -595,193 +808,242 @@ public class Parser extends AParser {
 
         // Parse format string and extract specifiers
         String formatString = tokenAtual.getValor();
-        List<String> formatSpecifiers = new ArrayList<>();
-        Pattern pattern = Pattern.compile("%[a-z]");
-        Matcher matcher = pattern.matcher(formatString);
-        while (matcher.find()) {
-            formatSpecifiers.add(matcher.group());
-        }
+        Formato formatoPrintf = formato(formatosPrintf, formatString, false);
+        verificarEspecificadoresInvalidos(formatoPrintf, "printf");
+        List<Formato.Especificador> formatSpecifiers = formatoPrintf.getEspecificadores();
         avancar(); // Consume STRING
 
         // Parse and validate arguments
-        List<String> argTypes = new ArrayList<>();
-        if (tokenAtual.getTipo().equals("COMMA")) {
-            while (consumir("COMMA")) {
-                String tipoArg = verificarExpressao();
+        List<Tipo> argTypes = new ArrayList<>();
+        if (tokenAtual.getKind() == TokenKind.COMMA) {
+            while (consumir(TokenKind.COMMA)) {
+                Tipo tipoArg = verificarExpressao();
                 argTypes.add(tipoArg);
             }
         }
 
-        // Validate argument types against format specifiers
+        // Validate argument types against format specifiers ("*" widths take an int argument of their own)
         for (int i = 0; i < Math.min(formatSpecifiers.size(), argTypes.size()); i++) {
-            String specifier = formatSpecifiers.get(i);
-            String argType = argTypes.get(i);
-            String expectedType = getExpectedTypeForSpecifier(specifier);
+            Formato.Especificador specifier = formatSpecifiers.get(i);
+            Tipo argType = argTypes.get(i);
 
-            if (!isCompatibleType(expectedType, argType)) {
-                erroSemantico("Incompatible type for format specifier '" + specifier +
-                        "': expected " + expectedType + ", got " + argType);
+            if (!specifier.aceita(argType)) {
+                erroSemantico("Incompatible type for format specifier '" + specifier.getTexto() +
+                        "': expected " + specifier.getTipo() + ", got " + argType);
             }
         }
 
-        if (!consumir("RPAREN")) {
+        if (!consumir(TokenKind.RPAREN)) {
             erro("Expected ')' after 'printf' arguments");
             sincronizar();
             return;
         }
-        if (!consumir("SEMICOLON")) {
+        if (!consumir(TokenKind.SEMICOLON)) {
             erro("Expected ';' after 'printf'");
             sincronizar();
             return;
         }
+        reduzir(marca, EspecieNo.PRINTF, null, formatString, null, 0, inicio);
     }
 
     // <scanf_cmd> ::= IDENTIFIER LPAREN STRING { COMMA BITWISE_AND IDENTIFIER }* RPAREN SEMICOLON
     @Override
     protected void scanf_cmd() throws IOException {
-        consumir("IDENTIFIER");
-        if (!consumir("LPAREN")) {
+        Token inicio = tokenAtual;
+        int marca = marcaArvore();
+        consumir(TokenKind.IDENTIFIER);
+        if (!consumir(TokenKind.LPAREN)) {
             erro("Expected '(' after 'scanf'");
         }
-        if (!tokenAtual.getTipo().equals("STRING")) {
+        String formato = null;
+        List<Formato.Especificador> especificadores = List.of();
+        if (tokenAtual.getKind() != TokenKind.STRING) {
             erro("Expected format string in 'scanf'");
+        } else {
+            formato = tokenAtual.getValor();
+            Formato formatoScanf = formato(formatosScanf, formato, true);
+            verificarEspecificadoresInvalidos(formatoScanf, "scanf");
+            especificadores = formatoScanf.getEspecificadores();
         }
         avancar();
 
-        while (consumir("COMMA")) {
-            if (!consumir("BITWISE_AND")) {
+        int argumento = 0;
+        while (consumir(TokenKind.COMMA)) {
+            Token tokenEndereco = tokenAtual;
+            if (!consumir(TokenKind.BITWISE_AND)) {
                 erro("Expected '&' before identifier in 'scanf'");
             }
-            if (!consumir("IDENTIFIER")) {
+            if (tokenAtual.getKind() == TokenKind.IDENTIFIER) {
+                Variavel var = escopos.buscarVariavel(tokenAtual.getValor());
+                Tipo tipo = var != null ? var.getTipoCanonico() : Tipo.UNKNOWN;
+                // Undeclared names are not reported here, as before; only known variables are checked
+                if (var != null && argumento < especificadores.size()) {
+                    Formato.Especificador especificador = especificadores.get(argumento);
+                    if (especificador.getTipo() != Tipo.UNKNOWN && !especificador.aceita(tipo.ponteiroPara())) {
+                        erroSemantico("Incompatible type for format specifier '" + especificador.getTexto()
+                                + "' in 'scanf': expected " + especificador.getTipo() + ", got " + tipo.ponteiroPara());
+                    }
+                }
+                argumento++;
+                if (arvore != null) {
+                    int marcaEndereco = arvore.marca();
+                    folhaIdentificador(tokenAtual, var);
+                    reduzir(marcaEndereco, EspecieNo.UNARIA, tipo.ponteiroPara(), null, null, TokenKind.BITWISE_AND.ordinal(), tokenEndereco);
+                }
+            }
+            if (!consumir(TokenKind.IDENTIFIER)) {
                 erro("Expected identifier after '&'");
             }
         }
 
-        if (!consumir("RPAREN")) {
+        if (!consumir(TokenKind.RPAREN)) {
             erro("Expected ')' after 'scanf'");
         }
-        if (!consumir("SEMICOLON")) {
+        if (!consumir(TokenKind.SEMICOLON)) {
             erro("Expected ';' after 'scanf'");
         }
+        reduzir(marca, EspecieNo.SCANF, null, formato, null, 0, inicio);
     }
 
     // <do_while_cmd> ::= DO <bloco> WHILE LPAREN <expressao> RPAREN SEMICOLON
     @Override
     protected void do_while_cmd() throws IOException {
-        consumir("DO");
+        Token inicio = tokenAtual;
+        int marca = marcaArvore();
+        consumir(TokenKind.DO);
         bloco();
-        if (!consumir("WHILE")) {
+        if (!consumir(TokenKind.WHILE)) {
             erro("Expected 'while' after 'do' block");
         }
-        if (!consumir("LPAREN")) {
+        if (!consumir(TokenKind.LPAREN)) {
             erro("Expected '(' after 'while'");
         }
         expressao();
-        if (!consumir("RPAREN")) {
+        if (!consumir(TokenKind.RPAREN)) {
             erro("Expected ')' after expression");
         }
-        if (!consumir("SEMICOLON")) {
+        if (!consumir(TokenKind.SEMICOLON)) {
             erro("Expected ';' after 'do-while'");
         }
+        reduzir(marca, EspecieNo.DO_WHILE, null, inicio);
     }
 
     // <switch_cmd> ::= SWITCH LPAREN <expressao> RPAREN LBRACE { <case_bloco> }* [ <default_bloco> ] RBRACE
     @Override
     protected void switch_cmd() throws IOException {
-        consumir("SWITCH");
-        if (!consumir("LPAREN")) {
+        Token inicio = tokenAtual;
+        int marca = marcaArvore();
+        consumir(TokenKind.SWITCH);
+        if (!consumir(TokenKind.LPAREN)) {
             erro("Expected '(' after 'switch'");
         }
         expressao();
-        if (!consumir("RPAREN")) {
+        if (!consumir(TokenKind.RPAREN)) {
             erro("Expected ')' after expression");
         }
-        if (!consumir("LBRACE")) {
+        if (!consumir(TokenKind.LBRACE)) {
             erro("Expected '{' after 'switch'");
         }
 
-        while (consumir("CASE")) {
-            if (!tokenAtual.getTipo().equals("NUMBER") && !tokenAtual.getTipo().equals("CHAR")) {
+        while (consumir(TokenKind.CASE)) {
+            Token tokenCaso = tokenAtual;
+            int marcaCaso = marcaArvore();
+            if (tokenAtual.getKind() != TokenKind.NUMBER && tokenAtual.getKind() != TokenKind.CHAR) {
                 erro("Expected constant in 'case'");
             }
             avancar();
-            if (!consumir("COLON")) {
+            if (!consumir(TokenKind.COLON)) {
                 erro("Expected ':' after constant");
             }
-            while (!tokenAtual.getTipo().equals("CASE")
-                    && !tokenAtual.getTipo().equals("DEFAULT")
-                    && !tokenAtual.getTipo().equals("RBRACE")) {
+            while (tokenAtual.getKind() != TokenKind.CASE
+                    && tokenAtual.getKind() != TokenKind.DEFAULT
+                    && tokenAtual.getKind() != TokenKind.RBRACE
+                    && tokenAtual.getKind() != TokenKind.EOF) {
                 comando();
             }
+            if (arvore != null) {
+                String constante = tokenCaso.getValor();
+                int valor = tokenCaso.getKind() == TokenKind.CHAR ? valorCaractere(constante) : valorInteiro(constante);
+                reduzir(marcaCaso, EspecieNo.CASO, null, constante, null, valor, tokenCaso);
+            }
         }
 
-        if (consumir("DEFAULT")) {
-            if (!consumir("COLON")) {
+        Token tokenDefeito = tokenAtual;
+        if (consumir(TokenKind.DEFAULT)) {
+            int marcaDefeito = marcaArvore();
+            if (!consumir(TokenKind.COLON)) {
                 erro("Expected ':' after 'default'");
             }
-            while (!tokenAtual.getTipo().equals("RBRACE")) {
+            while (tokenAtual.getKind() != TokenKind.RBRACE && tokenAtual.getKind() != TokenKind.EOF) {
                 comando();
             }
+            reduzir(marcaDefeito, EspecieNo.DEFEITO, null, tokenDefeito);
         }
 
-        if (!consumir("RBRACE")) {
+        if (!consumir(TokenKind.RBRACE)) {
             erro("Expected '}' after 'switch'");
         }
+        reduzir(marca, EspecieNo.SWITCH, null, inicio);
     }
 
     // <return_cmd> ::= RETURN <expressao> SEMICOLON
     @Override
     protected void return_cmd() throws IOException {
-        consumir("RETURN");
+        Token inicio = tokenAtual;
+        int marca = marcaArvore();
+        consumir(TokenKind.RETURN);
 
-        String tipoExpressao = verificarExpressao();
+        Tipo tipoExpressao = verificarExpressao();
         if (tipoRetornoAtual != null) {
             verificarCompatibilidadeTipos(tipoRetornoAtual, tipoExpressao, "return");
         }
 
-        if (!consumir("SEMICOLON")) {
+        if (!consumir(TokenKind.SEMICOLON)) {
             erro("Expected ';' after 'return'");
         }
+        reduzir(marca, EspecieNo.RETURN, null, inicio);
     }
 
     // <atribuicao> ::= ( (INCREMENT | DECREMENT) <lvalue> | <lvalue> ( <op_atribuicao> <expressao> | INCREMENT | DECREMENT ) ) SEMICOLON
     @Override
     protected void atribuicao() throws IOException {
+        Token inicio = tokenAtual;
+        int marca = marcaArvore();
         boolean isPrefix = false;
-        if (tokenAtual.getTipo().equals("INCREMENT") || tokenAtual.getTipo().equals("DECREMENT")) {
+        if (tokenAtual.getKind() == TokenKind.INCREMENT || tokenAtual.getKind() == TokenKind.DECREMENT) {
             isPrefix = true;
             avancar();
         }
 
-        String tipoLValue = parseLValuePath();
+        Tipo tipoLValue = parseLValuePath();
 
-        if (tipoLValue == null || tipoLValue.equals("unknown")) {
+        if (tipoLValue == null || tipoLValue == Tipo.UNKNOWN) {
             erro("Invalid lvalue for assignment");
             return;
         }
 
         if (isPrefix) {
-            if (!consumir("SEMICOLON")) {
+            reduzir(marca, EspecieNo.INCREMENTO, null, null, null, inicio.getKind().ordinal(), inicio);
+            if (!consumir(TokenKind.SEMICOLON)) {
                 erro("Expected ';' after increment/decrement");
             }
-        } else if (tokenAtual.getTipo().equals("ASSIGN")
-                || tokenAtual.getTipo().equals("ADD_ASSIGN")
-                || tokenAtual.getTipo().equals("SUB_ASSIGN")
-                || tokenAtual.getTipo().equals("MUL_ASSIGN")
-                || tokenAtual.getTipo().equals("DIV_ASSIGN")) {
+        } else if (ehOperadorAtribuicao(tokenAtual.getKind())) {
 
+            TokenKind kindOperador = tokenAtual.getKind();
             String operador = tokenAtual.getTipo();
             avancar();
 
-            String tipoExpressao = verificarExpressao();
+            Tipo tipoExpressao = verificarExpressao();
             verificarCompatibilidadeTipos(tipoLValue, tipoExpressao, "assignment with " + operador);
+            reduzir(marca, EspecieNo.ATRIBUICAO, null, null, null, kindOperador.ordinal(), inicio);
 
-            if (!consumir("SEMICOLON")) {
+            if (!consumir(TokenKind.SEMICOLON)) {
                 erro("Expected ';' after expression");
             }
-        } else if (tokenAtual.getTipo().equals("INCREMENT") || tokenAtual.getTipo().equals("DECREMENT")) {
+        } else if (tokenAtual.getKind() == TokenKind.INCREMENT || tokenAtual.getKind() == TokenKind.DECREMENT) {
+            reduzir(marca, EspecieNo.INCREMENTO, null, null, null, tokenAtual.getKind().ordinal(), inicio);
             avancar();
-            if (!consumir("SEMICOLON")) {
+            if (!consumir(TokenKind.SEMICOLON)) {
                 erro("Expected ';' after increment/decrement");
             }
         } else {
@@ -790,10 +1052,10 @@ public class Parser extends AParser {
     }
 
     // <lvalue> ::= IDENTIFIER [ LBRACKET <expressao> RBRACKET ]
-    private String parseLValuePath() throws IOException {
-        if (!tokenAtual.getTipo().equals("IDENTIFIER")) {
+    private Tipo parseLValuePath() throws IOException {
+        if (tokenAtual.getKind() != TokenKind.IDENTIFIER) {
             erro("Expected identifier for assignment");
-            return "unknown";
+            return Tipo.UNKNOWN;
         }
 
         String nomeBase = tokenAtual.getValor();
@@ -801,48 +1063,56 @@ public class Parser extends AParser {
         if (var == null) {
             erroSemantico("Variable '" + nomeBase + "' undeclared");
         }
-        String tipoAtual = var != null ? var.getTipo() : "unknown";
+        Tipo tipoAtual = var != null ? var.getTipoCanonico() : Tipo.UNKNOWN;
+        int marca = marcaArvore();
+        folhaIdentificador(tokenAtual, var);
         avancar();
 
         OUTER:
         while (tokenAtual != null) {
-            switch (tokenAtual.getTipo()) {
-                case "LBRACKET":
+            Token tokenSufixo = tokenAtual;
+            switch (tokenAtual.getKind()) {
+                case LBRACKET:
                     avancar();
-                    String tipoIndice = verificarExpressao();
-                    if (!tipoIndice.equals("int") && !tipoIndice.equals("number")) {
+                    Tipo tipoIndice = verificarExpressao();
+                    if (tipoIndice != Tipo.INT && tipoIndice != Tipo.NUMBER) {
                         erroSemantico("Array index must be an integer");
-                    }   if (!consumir("RBRACKET")) {
+                    }   if (!consumir(TokenKind.RBRACKET)) {
                         erro("Expected ']' after array index");
-                    }   break;
-                case "DOT":
-                case "ARROW":
-                    String operador = tokenAtual.getTipo().equals("ARROW") ? "->" : ".";
-                    boolean isPointerAccess = tokenAtual.getTipo().equals("ARROW");
+                    }
+                    // Local arrays are declared with their element type, so only T[] and T* change here
+                    reduzir(marca, EspecieNo.INDICE, tipoAtual.terminaEmArray() || tipoAtual.terminaEmPonteiro()
+                            ? tipoIndexado(tipoAtual) : tipoAtual, tokenSufixo);
+                    break;
+                case DOT:
+                case ARROW:
+                    String operador = tokenAtual.getKind() == TokenKind.ARROW ? "->" : ".";
+                    boolean isPointerAccess = tokenAtual.getKind() == TokenKind.ARROW;
                     avancar();
-                    if (!tokenAtual.getTipo().equals("IDENTIFIER")) {
+                    if (tokenAtual.getKind() != TokenKind.IDENTIFIER) {
                         erro("Expected identifier after '" + operador + "'");
-                        return "unknown";
+                        return Tipo.UNKNOWN;
                     }   String campo = tokenAtual.getValor();
                     avancar();
                     if (isPointerAccess) {
-                        if (!tipoAtual.endsWith("*")) {
+                        if (!tipoAtual.terminaEmPonteiro()) {
                             erroSemantico("Invalid use of '->' on non-pointer '" + nomeBase + "' (type: " + tipoAtual + "). Use '.' for struct access");
                         }
-                        tipoAtual = tipoAtual.substring(0, tipoAtual.length() - 1).trim();
-                    }   if (!tipoAtual.startsWith("struct ")) {
+                        tipoAtual = tipoAtual.semUltimoCaractere();
+                    }   if (!tipoAtual.isStruct()) {
                         erroSemantico("Field access on non-struct type: '" + nomeBase + "' (type: " + tipoAtual + ")");
-                        return "unknown";
-                    }   String nomeStruct = tipoAtual.substring(7);
+                        return Tipo.UNKNOWN;
+                    }   String nomeStruct = tipoAtual.getNome().substring(7);
                     Struct struct = escopos.buscarStruct(nomeStruct);
                     if (struct == null) {
                         erroSemantico("Struct '" + nomeStruct + "' not defined");
-                        return "unknown";
-                    }   String tipoCampo = struct.getCampos().get(campo);
+                        return Tipo.UNKNOWN;
+                    }   Tipo tipoCampo = struct.buscarTipoCampo(campo);
                     if (tipoCampo == null) {
                         erroSemantico("Field '" + campo + "' not defined in struct '" + nomeStruct + "' for '" + nomeBase + operador + campo + "'");
-                        return "unknown";
+                        return Tipo.UNKNOWN;
                     }   tipoAtual = tipoCampo;
+                    reduzir(marca, EspecieNo.ACESSO_CAMPO, tipoAtual, campo, null, isPointerAccess ? 1 : 0, tokenSufixo);
                     break;
                 default:
                     break OUTER;
@@ -855,6 +1125,8 @@ public class Parser extends AParser {
     // <chamada_funcao> ::= IDENTIFIER LPAREN [ <argumentos> ] RPAREN
     @Override
     protected void chamada_funcao() throws IOException {
+        Token inicio = tokenAtual;
+        int marca = marcaArvore();
         String nomeFuncao = tokenAtual.getValor();
         avancar();
 
@@ -863,21 +1135,21 @@ public class Parser extends AParser {
             erroSemantico("Function '" + nomeFuncao + "' undeclared");
         }
 
-        if (!consumir("LPAREN")) {
+        if (!consumir(TokenKind.LPAREN)) {
             erro("Expected '(' after function name");
         }
 
         int contadorArgs = 0;
-        if (!tokenAtual.getTipo().equals("RPAREN")) {
+        if (tokenAtual.getKind() != TokenKind.RPAREN) {
             do {
-                String tipoArg = verificarExpressao();
+                Tipo tipoArg = verificarExpressao();
                 contadorArgs++;
 
                 if (funcao != null && contadorArgs <= funcao.getParametros().size()) {
                     Parametro param = funcao.getParametros().get(contadorArgs - 1);
-                    verificarCompatibilidadeTipos(param.getTipo(), tipoArg, "argument");
+                    verificarCompatibilidadeTipos(param.getTipoCanonico(), tipoArg, "argument");
                 }
-            } while (consumir("COMMA"));
+            } while (consumir(TokenKind.COMMA));
         }
 
         if (funcao != null && contadorArgs != funcao.getParametros().size()) {
@@ -886,22 +1158,24 @@ public class Parser extends AParser {
                     + ", provided: " + contadorArgs);
         }
 
-        if (!consumir("RPAREN")) {
+        if (!consumir(TokenKind.RPAREN)) {
             erro("Expected ')' after arguments");
         }
+        reduzir(marca, EspecieNo.CHAMADA, funcao != null ? funcao.getTipoRetornoCanonico() : Tipo.UNKNOWN,
+                nomeFuncao, funcao, 0, inicio);
     }
 
     @Override
-    protected void verificarCompatibilidadeTipos(String tipoEsperado, String tipoRecebido, String contexto) {
-        if (!tipoEsperado.equals(tipoRecebido)) {
+    protected void verificarCompatibilidadeTipos(Tipo tipoEsperado, Tipo tipoRecebido, String contexto) {
+        if (tipoEsperado != tipoRecebido) {
             erroSemantico("Type mismatch in " + contexto
                     + ". Expected: " + tipoEsperado + ", got: " + tipoRecebido);
         }
     }
 
     @Override
-    protected void verificarCondicao(String tipo) {
-        if (!tipo.equals("bool") && !tipo.equals("int")) {
+    protected void verificarCondicao(Tipo tipo) {
+        if (tipo != Tipo.BOOL && tipo != Tipo.INT) {
             erroSemantico("Condition must be boolean or numeric. Got: " + tipo);
         }
     }
@@ -911,56 +1185,145 @@ public class Parser extends AParser {
     protected void argumentos() throws IOException {
         do {
             expressao();
-        } while (consumir("COMMA"));
+        } while (consumir(TokenKind.COMMA));
     }
 
     // <bloco> ::= LBRACE { <comando> }* RBRACE
     @Override
     protected void bloco() throws IOException {
-        if (!consumir("LBRACE")) {
+        Token inicio = tokenAtual;
+        int marca = marcaArvore();
+        if (!consumir(TokenKind.LBRACE)) {
             erro("Expected '{' to start block");
         }
 
         escopos.abrirEscopo();
 
-        while (!tokenAtual.getTipo().equals("RBRACE") && !tokenAtual.getTipo().equals("EOF")) {
+        while (tokenAtual.getKind() != TokenKind.RBRACE && tokenAtual.getKind() != TokenKind.EOF) {
             comando();
         }
 
-        if (!consumir("RBRACE")) {
+        // In a body task, recovery may already have consumed the '}' that closes the body
+        if (!consumir(TokenKind.RBRACE) && !(fimCorpo >= 0 && pos >= fimCorpo)) {
             erro("Expected '}' to close block");
         }
 
         escopos.fecharEscopo();
+        reduzir(marca, EspecieNo.BLOCO, null, inicio);
     }
 
     // <op_relacional> ::= EQUAL | NOT_EQUAL | LESS | GREATER | LESS_EQUAL | GREATER_EQUAL
     @Override
     protected boolean eOperadorRelacional() {
-        return tokenAtual.getTipo().matches("EQUAL|NOT_EQUAL|LESS|GREATER|LESS_EQUAL|GREATER_EQUAL");
+        switch (tokenAtual.getKind()) {
+            case EQUAL:
+            case NOT_EQUAL:
+            case LESS:
+            case GREATER:
+            case LESS_EQUAL:
+            case GREATER_EQUAL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // VOID | CHAR | SHORT | INT | LONG | FLOAT | DOUBLE | SIGNED | UNSIGNED | STRUCT
+    private boolean ehInicioEspecificadorTipo(TokenKind kind) {
+        switch (kind) {
+            case VOID:
+            case CHAR:
+            case SHORT:
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+            case SIGNED:
+            case UNSIGNED:
+            case STRUCT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // <op_atribuicao> ::= ASSIGN | ADD_ASSIGN | SUB_ASSIGN | MUL_ASSIGN | DIV_ASSIGN
+    private boolean ehOperadorAtribuicao(TokenKind kind) {
+        switch (kind) {
+            case ASSIGN:
+            case ADD_ASSIGN:
+            case SUB_ASSIGN:
+            case MUL_ASSIGN:
+            case DIV_ASSIGN:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // MULTIPLY | BITWISE_AND | NOT | MINUS | INCREMENT | DECREMENT
+    private boolean ehOperadorUnario(TokenKind kind) {
+        switch (kind) {
+            case MULTIPLY:
+            case BITWISE_AND:
+            case NOT:
+            case MINUS:
+            case INCREMENT:
+            case DECREMENT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // DOT | ARROW | LBRACKET | INCREMENT | DECREMENT
+    private boolean ehSufixoElemento(TokenKind kind) {
+        switch (kind) {
+            case DOT:
+            case ARROW:
+            case LBRACKET:
+            case INCREMENT:
+            case DECREMENT:
+                return true;
+            default:
+                return false;
+        }
     }
 
     // <termo> ::= <fator> { (MULTIPLY | DIVIDE) <fator> }*
     @Override
     protected void termo() throws IOException {
+        int marca = marcaArvore();
         fator();
-        while (tokenAtual.getTipo().equals("MULTIPLY") || tokenAtual.getTipo().equals("DIVIDE")) {
+        while (tokenAtual.getKind() == TokenKind.MULTIPLY || tokenAtual.getKind() == TokenKind.DIVIDE) {
+            Token operador = tokenAtual;
             avancar();
             fator();
+            int no = reduzirBinaria(marca, operador, null);
+            definirTipo(no, determinarTipoResultante(tipoFilho(no, 0), tipoFilho(no, 1)));
         }
     }
 
     // <atribuicao_sem_ponto_e_virgula> ::= IDENTIFIER ( <op_atribuicao> <expressao> | INCREMENT | DECREMENT )
     @Override
     protected void atribuicao_sem_ponto_e_virgula() throws IOException {
-        consumir("IDENTIFIER");
+        Token inicio = tokenAtual;
+        int marca = marcaArvore();
+        if (arvore != null && tokenAtual.getKind() == TokenKind.IDENTIFIER) {
+            folhaIdentificador(tokenAtual, escopos.buscarVariavel(tokenAtual.getValor()));
+        }
+        consumir(TokenKind.IDENTIFIER);
 
-        if (consumir("ASSIGN")) {
+        TokenKind operador = tokenAtual.getKind();
+        if (consumir(TokenKind.ASSIGN)) {
             expressao();
-        } else if (consumir("INCREMENT") || consumir("DECREMENT")) {
-        } else if (consumir("ADD_ASSIGN") || consumir("SUB_ASSIGN")
-                || consumir("MUL_ASSIGN") || consumir("DIV_ASSIGN")) {
+            reduzir(marca, EspecieNo.ATRIBUICAO, null, null, null, operador.ordinal(), inicio);
+        } else if (consumir(TokenKind.INCREMENT) || consumir(TokenKind.DECREMENT)) {
+            reduzir(marca, EspecieNo.INCREMENTO, null, null, null, operador.ordinal(), inicio);
+        } else if (consumir(TokenKind.ADD_ASSIGN) || consumir(TokenKind.SUB_ASSIGN)
+                || consumir(TokenKind.MUL_ASSIGN) || consumir(TokenKind.DIV_ASSIGN)) {
             expressao();
+            reduzir(marca, EspecieNo.ATRIBUICAO, null, null, null, operador.ordinal(), inicio);
         } else {
             erro("Expected assignment operator after identifier");
         }
@@ -969,65 +1332,84 @@ public class Parser extends AParser {
     // <fator> ::= <elemento> [ LBRACKET <expressao> RBRACKET ]
     @Override
     protected void fator() throws IOException {
+        int marca = marcaArvore();
         elemento();
 
-        if (tokenAtual.getTipo().equals("LBRACKET")) {
-            consumir("LBRACKET");
+        if (tokenAtual.getKind() == TokenKind.LBRACKET) {
+            Token colchete = tokenAtual;
+            consumir(TokenKind.LBRACKET);
             expressao();
-            if (!consumir("RBRACKET")) {
+            if (!consumir(TokenKind.RBRACKET)) {
                 erro("Expected ']' after array index");
             }
+            int no = reduzir(marca, EspecieNo.INDICE, null, colchete);
+            definirTipo(no, obterTipoBaseArray(tipoFilho(no, 0)));
         }
     }
 
     // <elemento> ::= (MULTIPLY | BITWISE_AND | NOT | MINUS) <elemento> | <chamada_funcao> | IDENTIFIER { (DOT | ARROW) IDENTIFIER }* | NUMBER | NUMBER_FLOAT | CHAR | STRING | LPAREN <expressao> RPAREN | (INCREMENT | DECREMENT) IDENTIFIER
     @Override
     protected void elemento() throws IOException {
-        if (consumir("MULTIPLY") || consumir("BITWISE_AND") || consumir("NOT") || consumir("MINUS")
-                || consumir("INCREMENT") || consumir("DECREMENT")) {
+        if (ehOperadorUnario(tokenAtual.getKind())) {
+            Token operador = tokenAtual;
+            int marca = marcaArvore();
+            avancar();
             elemento();
-        } else if (tokenAtual.getTipo().equals("IDENTIFIER")
-                && pos + 1 < tokens.size()
-                && tokens.get(pos + 1).getTipo().equals("LPAREN")) {
+            int no = reduzir(marca, EspecieNo.UNARIA, null, null, null, operador.getKind().ordinal(), operador);
+            definirTipo(no, tipoUnario(operador.getKind(), tipoFilho(no, 0)));
+        } else if (tokenAtual.getKind() == TokenKind.IDENTIFIER
+                && kindAFrente(1) == TokenKind.LPAREN) {
             chamada_funcao();
-        } else if (tokenAtual.getTipo().equals("IDENTIFIER")) {
+        } else if (tokenAtual.getKind() == TokenKind.IDENTIFIER) {
             String nome = tokenAtual.getValor();
+            int marca = marcaArvore();
+            if (arvore != null) {
+                folhaIdentificador(tokenAtual, escopos.buscarVariavel(nome));
+            }
             avancar();
 
-            while (tokenAtual != null && (tokenAtual.getTipo().equals("DOT")
-                    || tokenAtual.getTipo().equals("ARROW")
-                    || tokenAtual.getTipo().equals("LBRACKET")
-                    || tokenAtual.getTipo().equals("INCREMENT")
-                    || tokenAtual.getTipo().equals("DECREMENT"))) {
-                if (tokenAtual.getTipo().equals("LBRACKET")) {
+            while (tokenAtual != null && ehSufixoElemento(tokenAtual.getKind())) {
+                Token sufixo = tokenAtual;
+                if (tokenAtual.getKind() == TokenKind.LBRACKET) {
                     avancar();
                     expressao();
-                    if (!consumir("RBRACKET")) {
+                    if (!consumir(TokenKind.RBRACKET)) {
                         erro("Expected ']' after array index");
                         sincronizar();
                         return;
                     }
-                } else if (tokenAtual.getTipo().equals("DOT") || tokenAtual.getTipo().equals("ARROW")) {
-                    String operador = tokenAtual.getTipo().equals("ARROW") ? "->" : ".";
+                    int no = reduzir(marca, EspecieNo.INDICE, null, sufixo);
+                    definirTipo(no, tipoIndexado(tipoFilho(no, 0)));
+                } else if (tokenAtual.getKind() == TokenKind.DOT || tokenAtual.getKind() == TokenKind.ARROW) {
+                    String operador = tokenAtual.getKind() == TokenKind.ARROW ? "->" : ".";
                     avancar();
-                    if (!tokenAtual.getTipo().equals("IDENTIFIER")) {
+                    if (tokenAtual.getKind() != TokenKind.IDENTIFIER) {
                         erro("Expected identifier after '" + operador + "' in '" + nome + "'");
                         sincronizar();
                         return;
                     }
+                    if (arvore != null) {
+                        String campo = tokenAtual.getValor();
+                        boolean isPointerAccess = sufixo.getKind() == TokenKind.ARROW;
+                        int no = reduzir(marca, EspecieNo.ACESSO_CAMPO, null, campo, null, isPointerAccess ? 1 : 0, sufixo);
+                        definirTipo(no, tipoDoCampo(tipoFilho(no, 0), isPointerAccess, campo));
+                    }
                     avancar();
                 } else {
+                    int no = reduzir(marca, EspecieNo.POSFIXA, null, null, null, sufixo.getKind().ordinal(), sufixo);
+                    definirTipo(no, tipoFilho(no, 0));
                     avancar();
                 }
             }
-        } else if (tokenAtual.getTipo().equals("STRING")
-                || tokenAtual.getTipo().equals("NUMBER")
-                || tokenAtual.getTipo().equals("CHAR")
-                || tokenAtual.getTipo().equals("NUMBER_FLOAT")) {
+        } else if (tokenAtual.getKind() == TokenKind.STRING
+                || tokenAtual.getKind() == TokenKind.NUMBER
+                || tokenAtual.getKind() == TokenKind.CHAR
+                || tokenAtual.getKind() == TokenKind.NUMBER_FLOAT) {
+            folhaLiteral();
             avancar();
-        } else if (consumir("LPAREN")) {
+        } else if (consumir(TokenKind.LPAREN)) {
             expressao();
-            if (!consumir("RPAREN")) {
+            if (!consumir(TokenKind.RPAREN)) {
                 erro("Expected ')' after expression");
                 sincronizar();
                 return;
@@ -1045,279 +1427,316 @@ public class Parser extends AParser {
     // <ponteiro> ::= { MULTIPLY }*
     @Override
     protected void ponteiro() throws IOException {
-        while (consumir("MULTIPLY")) {
+        while (consumir(TokenKind.MULTIPLY)) {
         }
     }
 
     @Override
-    protected String verificarExpressao() throws IOException {
-        return verificarExpressaoTernaria();
+    protected Tipo verificarExpressao() throws IOException {
+        if (estatisticas == null || emVerificacao) {
+            return verificarExpressaoTernaria();
+        }
+        // Only the outermost call is timed; nested expressions are part of it
+        emVerificacao = true;
+        Estatisticas.Marca marca = estatisticas.marcar();
+        try {
+            return verificarExpressaoTernaria();
+        } finally {
+            emVerificacao = false;
+            estatisticas.registar(Estatisticas.ANALISE_SEMANTICA, marca);
+        }
     }
 
     @Override
-    protected String verificarExpressaoTernaria() throws IOException {
-        String tipo = verificarExpressaoLogica();
-
-        if (consumir("QUESTION")) {
-            String tipoVerdadeiro = verificarExpressao();
-            if (!consumir("COLON")) {
+    protected Tipo verificarExpressaoTernaria() throws IOException {
+        Token inicio = tokenAtual;
+        int marca = marcaArvore();
+        Tipo tipo = verificarExpressaoLogica();
+
+        if (consumir(TokenKind.QUESTION)) {
+            Tipo tipoVerdadeiro = verificarExpressao();
+            if (!consumir(TokenKind.COLON)) {
                 erro("Expected ':' in ternary operator");
             }
-            String tipoFalso = verificarExpressao();
+            Tipo tipoFalso = verificarExpressao();
 
             if (!tiposCompativeis(tipoVerdadeiro, tipoFalso)) {
                 erroSemantico("Incompatible types in ternary operator: " + tipoVerdadeiro + " and " + tipoFalso);
             }
+            reduzir(marca, EspecieNo.TERNARIA, tipoVerdadeiro, inicio);
             return tipoVerdadeiro;
         }
         return tipo;
     }
 
     @Override
-    protected String verificarExpressaoLogica() throws IOException {
-        String tipo = verificarExpressaoRelacional();
+    protected Tipo verificarExpressaoLogica() throws IOException {
+        int marca = marcaArvore();
+        Tipo tipo = verificarExpressaoRelacional();
 
-        while (tokenAtual.getTipo().equals("AND") || tokenAtual.getTipo().equals("OR")) {
+        while (tokenAtual.getKind() == TokenKind.AND || tokenAtual.getKind() == TokenKind.OR) {
+            Token operador = tokenAtual;
             avancar();
-            String tipoDir = verificarExpressaoRelacional();
+            Tipo tipoDir = verificarExpressaoRelacional();
 
             if (!ehTipoBooleano(tipo) || !ehTipoBooleano(tipoDir)) {
                 erroSemantico("Logical operands must be boolean");
             }
-            tipo = "int";
+            tipo = Tipo.INT;
+            reduzirBinaria(marca, operador, tipo);
         }
         return tipo;
     }
 
     @Override
-    protected String verificarExpressaoRelacional() throws IOException {
-        String tipo = verificarExpressaoAritmetica();
+    protected Tipo verificarExpressaoRelacional() throws IOException {
+        int marca = marcaArvore();
+        Tipo tipo = verificarExpressaoAritmetica();
 
         if (eOperadorRelacional()) {
+            Token operador = tokenAtual;
             avancar();
-            String tipoDir = verificarExpressaoAritmetica();
+            Tipo tipoDir = verificarExpressaoAritmetica();
 
             if (!ehTipoNumerico(tipo) || !ehTipoNumerico(tipoDir)) {
                 erroSemantico("Relational operands must be numeric");
             }
-            tipo = "int";
+            tipo = Tipo.INT;
+            reduzirBinaria(marca, operador, tipo);
         }
         return tipo;
     }
 
-    private boolean ehTipoBooleano(String tipo) {
-        return tipo.equals("int");
+    private boolean ehTipoBooleano(Tipo tipo) {
+        return tipo == Tipo.INT;
     }
 
     @Override
-    protected String verificarExpressaoAritmetica() throws IOException {
-        String tipo = verificarTermo();
+    protected Tipo verificarExpressaoAritmetica() throws IOException {
+        int marca = marcaArvore();
+        Tipo tipo = verificarTermo();
 
-        while (tokenAtual.getTipo().equals("PLUS") || tokenAtual.getTipo().equals("MINUS")) {
+        while (tokenAtual.getKind() == TokenKind.PLUS || tokenAtual.getKind() == TokenKind.MINUS) {
+            Token operador = tokenAtual;
             avancar();
-            String tipoDir = verificarTermo();
+            Tipo tipoDir = verificarTermo();
 
             if (!ehTipoNumerico(tipo) || !ehTipoNumerico(tipoDir)) {
                 erroSemantico("Arithmetic operands must be numeric");
             }
 
             tipo = determinarTipoResultante(tipo, tipoDir);
+            reduzirBinaria(marca, operador, tipo);
         }
         return tipo;
     }
 
     @Override
-    protected String verificarTermo() throws IOException {
-        String tipo = verificarFator();
+    protected Tipo verificarTermo() throws IOException {
+        int marca = marcaArvore();
+        Tipo tipo = verificarFator();
 
-        while (tokenAtual.getTipo().equals("MULTIPLY") || tokenAtual.getTipo().equals("DIVIDE")) {
+        while (tokenAtual.getKind() == TokenKind.MULTIPLY || tokenAtual.getKind() == TokenKind.DIVIDE) {
+            Token operador = tokenAtual;
             avancar();
-            String tipoDir = verificarFator();
+            Tipo tipoDir = verificarFator();
 
             if (!ehTipoNumerico(tipo) || !ehTipoNumerico(tipoDir)) {
                 erroSemantico("Arithmetic operands must be numeric");
             }
             tipo = determinarTipoResultante(tipo, tipoDir);
+            reduzirBinaria(marca, operador, tipo);
         }
         return tipo;
     }
 
     @Override
-    protected String verificarFator() throws IOException {
-        String tipo = verificarElemento();
+    protected Tipo verificarFator() throws IOException {
+        int marca = marcaArvore();
+        Tipo tipo = verificarElemento();
 
-        if (tokenAtual.getTipo().equals("LBRACKET")) {
-            consumir("LBRACKET");
-            String tipoIndice = verificarExpressao();
+        if (tokenAtual.getKind() == TokenKind.LBRACKET) {
+            Token colchete = tokenAtual;
+            consumir(TokenKind.LBRACKET);
+            Tipo tipoIndice = verificarExpressao();
 
-            if (!tipoIndice.equals("int")) {
+            if (tipoIndice != Tipo.INT) {
                 erroSemantico("Array index must be an integer");
             }
 
-            if (!consumir("RBRACKET")) {
+            if (!consumir(TokenKind.RBRACKET)) {
                 erro("Expected ']' after array index");
             }
 
             tipo = obterTipoBaseArray(tipo);
+            reduzir(marca, EspecieNo.INDICE, tipo, colchete);
         }
         return tipo;
     }
 
     @Override
-    protected String verificarElemento() throws IOException {
-        if (consumir("MULTIPLY") || consumir("BITWISE_AND") || consumir("NOT") || consumir("MINUS")
-                || consumir("INCREMENT") || consumir("DECREMENT")) {
-            String operador = tokens.get(pos - 1).getTipo();
-            String tipoOperando = verificarElemento();
+    protected Tipo verificarElemento() throws IOException {
+        if (ehOperadorUnario(tokenAtual.getKind())) {
+            Token inicio = tokenAtual;
+            int marca = marcaArvore();
+            TokenKind operador = tokenAtual.getKind();
+            avancar();
+            Tipo tipoOperando = verificarElemento();
 
             switch (operador) {
-                case "MULTIPLY":
-                    if (!tipoOperando.endsWith("*")) {
+                case MULTIPLY:
+                    if (!tipoOperando.terminaEmPonteiro()) {
                         erroSemantico("Dereference operator '*' requires a pointer, got: " + tipoOperando);
-                        return "unknown";
                     }
-                    return obterTipoBasePonteiro(tipoOperando);
-                case "BITWISE_AND":
-                    return tipoOperando + "*";
-                case "NOT":
-                case "MINUS":
+                    break;
+                case NOT:
+                case MINUS:
                     if (!ehTipoNumerico(tipoOperando)) {
                         erroSemantico("Invalid unary operand for '" + operador + "': " + tipoOperando);
                     }
-                    return tipoOperando;
-                case "INCREMENT":
-                case "DECREMENT":
+                    break;
+                case INCREMENT:
+                case DECREMENT:
                     if (!ehTipoNumerico(tipoOperando)) {
                         erroSemantico("Increment/decrement operand must be numeric, got: " + tipoOperando);
                     }
-                    return tipoOperando;
+                    break;
                 default:
-                    return tipoOperando;
+                    break;
             }
-        } else if (tokenAtual.getTipo().equals("IDENTIFIER")
-                && pos + 1 < tokens.size()
-                && tokens.get(pos + 1).getTipo().equals("LPAREN")) {
+            Tipo tipo = tipoUnario(operador, tipoOperando);
+            reduzir(marca, EspecieNo.UNARIA, tipo, null, null, operador.ordinal(), inicio);
+            return tipo;
+        } else if (tokenAtual.getKind() == TokenKind.IDENTIFIER
+                && kindAFrente(1) == TokenKind.LPAREN) {
             String nomeFuncao = tokenAtual.getValor();
             Funcao funcao = escopos.buscarFuncao(nomeFuncao);
             chamada_funcao();
             if (funcao == null) {
                 erroSemantico("Function '" + nomeFuncao + "' undeclared");
-                return "unknown";
+                return Tipo.UNKNOWN;
             }
-            return funcao.getTipoRetorno();
-        } else if (tokenAtual.getTipo().equals("IDENTIFIER")) {
+            return funcao.getTipoRetornoCanonico();
+        } else if (tokenAtual.getKind() == TokenKind.IDENTIFIER) {
             String nome = tokenAtual.getValor();
             Variavel var = escopos.buscarVariavel(nome);
+            int marca = marcaArvore();
+            folhaIdentificador(tokenAtual, var);
             if (var == null) {
                 erroSemantico("Variable '" + nome + "' undeclared");
                 avancar();
-                return "unknown";
+                return Tipo.UNKNOWN;
             }
-            String tipoAtual = var.getTipo();
+            Tipo tipoAtual = var.getTipoCanonico();
             avancar();
 
-            while (tokenAtual != null
-                    && (tokenAtual.getTipo().equals("DOT")
-                    || tokenAtual.getTipo().equals("ARROW")
-                    || tokenAtual.getTipo().equals("LBRACKET")
-                    || tokenAtual.getTipo().equals("INCREMENT")
-                    || tokenAtual.getTipo().equals("DECREMENT"))) {
-                if (tokenAtual.getTipo().equals("LBRACKET")) {
+            while (tokenAtual != null && ehSufixoElemento(tokenAtual.getKind())) {
+                Token sufixo = tokenAtual;
+                if (tokenAtual.getKind() == TokenKind.LBRACKET) {
                     avancar();
-                    String tipoIndice = verificarExpressao();
-                    if (!tipoIndice.equals("int")) {
+                    Tipo tipoIndice = verificarExpressao();
+                    if (tipoIndice != Tipo.INT) {
                         erroSemantico("Array index must be an integer, got: " + tipoIndice);
                     }
-                    if (!consumir("RBRACKET")) {
+                    if (!consumir(TokenKind.RBRACKET)) {
                         erro("Expected ']' after array index");
                         sincronizar();
-                        return "unknown";
+                        return Tipo.UNKNOWN;
                     }
-                    if (tipoAtual.endsWith("[]")) {
-                        tipoAtual = tipoAtual.substring(0, tipoAtual.length() - 2).trim();
-                    } else if (tipoAtual.endsWith("*")) {
-                        tipoAtual = tipoAtual.substring(0, tipoAtual.length() - 1).trim();
+                    if (tipoAtual.terminaEmArray()) {
+                        tipoAtual = tipoAtual.semArray();
+                    } else if (tipoAtual.terminaEmPonteiro()) {
+                        tipoAtual = tipoAtual.semUltimoCaractere();
                     } else {
                         erroSemantico("Invalid array indexing on non-array: " + tipoAtual);
-                        tipoAtual = "unknown";
+                        tipoAtual = Tipo.UNKNOWN;
                     }
-                } else if (tokenAtual.getTipo().equals("DOT") || tokenAtual.getTipo().equals("ARROW")) {
-                    boolean isPointerAccess = tokenAtual.getTipo().equals("ARROW");
+                    reduzir(marca, EspecieNo.INDICE, tipoAtual, sufixo);
+                } else if (tokenAtual.getKind() == TokenKind.DOT || tokenAtual.getKind() == TokenKind.ARROW) {
+                    boolean isPointerAccess = tokenAtual.getKind() == TokenKind.ARROW;
                     String operador = isPointerAccess ? "->" : ".";
                     avancar();
 
-                    if (!tokenAtual.getTipo().equals("IDENTIFIER")) {
+                    if (tokenAtual.getKind() != TokenKind.IDENTIFIER) {
                         erroSemantico("Expected identifier after '" + operador + "' in '" + nome + "'");
                         if (tokenAtual != null) {
                             avancar();
                         }
-                        return "unknown";
+                        return Tipo.UNKNOWN;
                     }
                     String campo = tokenAtual.getValor();
                     avancar();
+                    // Typed below once the field is resolved; stays unknown on error
+                    int noCampo = reduzir(marca, EspecieNo.ACESSO_CAMPO, Tipo.UNKNOWN, campo, null, isPointerAccess ? 1 : 0, sufixo);
 
-                    if (isPointerAccess && !tipoAtual.endsWith("*")) {
+                    if (isPointerAccess && !tipoAtual.terminaEmPonteiro()) {
                         erroSemantico("Invalid use of '->' on non-pointer '" + nome + "' (type: " + tipoAtual + "). Use '.' for struct access");
-                        tipoAtual = "unknown";
+                        tipoAtual = Tipo.UNKNOWN;
                         continue;
                     }
-                    if (!isPointerAccess && tipoAtual.endsWith("*")) {
+                    if (!isPointerAccess && tipoAtual.terminaEmPonteiro()) {
                         erroSemantico("Invalid use of '.' on pointer '" + nome + "' (type: " + tipoAtual + "). Use '->' for struct access");
-                        tipoAtual = "unknown";
+                        tipoAtual = Tipo.UNKNOWN;
                         continue;
                     }
 
                     if (isPointerAccess) {
-                        tipoAtual = tipoAtual.substring(0, tipoAtual.length() - 1).trim();
+                        tipoAtual = tipoAtual.semUltimoCaractere();
                     }
 
-                    if (!tipoAtual.startsWith("struct ")) {
+                    if (!tipoAtual.isStruct()) {
                         erroSemantico("Field access on non-struct type: '" + nome + "' (type: " + tipoAtual + ")");
-                        tipoAtual = "unknown";
+                        tipoAtual = Tipo.UNKNOWN;
                         continue;
                     }
-                    String nomeStruct = tipoAtual.substring(7).replaceAll("\\*|\\[\\]", "").trim();
+                    String nomeStruct = tipoAtual.getNomeStruct();
 
                     Struct struct = escopos.buscarStruct(nomeStruct);
                     if (struct == null) {
                         erroSemantico("Struct '" + nomeStruct + "' not defined for '" + nome + operador + campo + "'");
-                        tipoAtual = "unknown";
+                        tipoAtual = Tipo.UNKNOWN;
                         continue;
                     }
 
-                    String tipoCampo = struct.getCampos().get(campo);
+                    Tipo tipoCampo = struct.buscarTipoCampo(campo);
                     if (tipoCampo == null) {
                         erroSemantico("Field '" + campo + "' not defined in struct '" + nomeStruct + "' for '" + nome + operador + campo + "'");
-                        tipoAtual = "unknown";
+                        tipoAtual = Tipo.UNKNOWN;
                     } else {
                         tipoAtual = tipoCampo;
+                        definirTipo(noCampo, tipoAtual);
                     }
                 } else {
                     if (!ehTipoNumerico(tipoAtual)) {
                         erroSemantico("Increment/decrement operand must be numeric, got: " + tipoAtual);
                     }
+                    reduzir(marca, EspecieNo.POSFIXA, tipoAtual, null, null, sufixo.getKind().ordinal(), sufixo);
                     avancar();
                 }
             }
             return tipoAtual;
-        } else if (tokenAtual.getTipo().equals("STRING")) {
+        } else if (tokenAtual.getKind() == TokenKind.STRING) {
+            folhaLiteral();
             avancar();
-            return "char*";
-        } else if (tokenAtual.getTipo().equals("NUMBER")) {
+            return Tipo.CHAR_PONTEIRO;
+        } else if (tokenAtual.getKind() == TokenKind.NUMBER) {
+            folhaLiteral();
             avancar();
-            return "int";
-        } else if (tokenAtual.getTipo().equals("NUMBER_FLOAT")) {
+            return Tipo.INT;
+        } else if (tokenAtual.getKind() == TokenKind.NUMBER_FLOAT) {
+            folhaLiteral();
             avancar();
-            return "float";
-        } else if (tokenAtual.getTipo().equals("CHAR")) {
+            return Tipo.FLOAT;
+        } else if (tokenAtual.getKind() == TokenKind.CHAR) {
+            folhaLiteral();
             avancar();
-            return "char";
-        } else if (consumir("LPAREN")) {
-            String tipo = verificarExpressao();
-            if (!consumir("RPAREN")) {
+            return Tipo.CHAR;
+        } else if (consumir(TokenKind.LPAREN)) {
+            Tipo tipo = verificarExpressao();
+            if (!consumir(TokenKind.RPAREN)) {
                 erro("Expected ')' after expression");
                 sincronizar();
-                return "unknown";
+                return Tipo.UNKNOWN;
             }
             return tipo;
         } else {
@@ -1326,122 +1745,171 @@ public class Parser extends AParser {
                 avancar();
             }
             sincronizar();
-            return "unknown";
+            return Tipo.UNKNOWN;
         }
     }
 
     @Override
-    protected boolean ehTipoNumerico(String tipo) {
-        return tipo.matches("char|short|int|long|float|double");
+    protected boolean ehTipoNumerico(Tipo tipo) {
+        return tipo.isNumerico();
     }
 
     @Override
-    protected boolean ehTipoValido(String tipo) {
-        if (tipo.matches("void|char|short|int|long|float|double|signed|unsigned"
-                + "|unsigned int|unsigned char|unsigned short|unsigned long"
-                + "|signed int|signed char|signed short int|signed long|number")) {
-            return true;
-        }
-        if (tipo.startsWith("struct ")) {
-            String nomeStruct = tipo.substring(7).replaceAll("\\*|\\[\\]", "").trim();
-            return escopos.buscarStruct(nomeStruct) != null;
+    protected boolean ehTipoValido(Tipo tipo) {
+        if (tipo.isStruct()) {
+            return escopos.buscarStruct(tipo.getNomeStruct()) != null;
         }
-        if (tipo.endsWith("*") || tipo.endsWith("[]")) {
-            String baseTipo = tipo.replaceAll("\\*|\\[\\]", "").trim();
-            return ehTipoValido(baseTipo);
-        }
-        return false;
+        return tipo.isValidoSemStruct();
     }
 
     @Override
-    protected boolean tiposCompativeis(String tipo1, String tipo2) {
-        if (tipo1.equals(tipo2)) {
-            return true;
+    protected boolean tiposCompativeis(Tipo tipo1, Tipo tipo2) {
+        return tipo1.aceita(tipo2);
+    }
+
+    @Override
+    protected Tipo determinarTipoResultante(Tipo tipo1, Tipo tipo2) {
+        return Tipo.promover(tipo1, tipo2);
+    }
+
+    @Override
+    protected Tipo obterTipoBaseArray(Tipo tipo) {
+        return tipo.baseArray();
+    }
+
+    @Override
+    protected Tipo obterTipoBasePonteiro(Tipo tipo) {
+        return tipo.basePonteiro();
+    }
+
+    // Specifiers of a printf/scanf format literal, parsed the first time the literal is seen
+    private Formato formato(HashMap<String, Formato> cache, String literal, boolean scanf) {
+        Formato formato = cache.get(literal);
+        if (formato == null) {
+            formato = scanf ? Formato.scanf(literal) : Formato.printf(literal);
+            cache.put(literal, formato);
         }
-        if (tipo1.equals("double") && tipo2.matches("float|int|char")) {
-            return true;
+        return formato;
+    }
+
+    // Reported at the format literal; invalid specifiers take no argument
+    private void verificarEspecificadoresInvalidos(Formato formato, String funcao) {
+        for (String invalido : formato.getInvalidos()) {
+            erroSemantico("Invalid conversion specifier '" + invalido + "' in '" + funcao + "' format string");
         }
-        if (tipo1.equals("float") && tipo2.matches("int|char")) {
-            return true;
+    }
+
+    // === Typed AST building (no-ops unless setArvore was called) ===
+
+    private int marcaArvore() {
+        return arvore != null ? arvore.marca() : 0;
+    }
+
+    private void folha(EspecieNo especie, Tipo tipo, String texto, Object simbolo, int dado, Token token) {
+        if (arvore != null) {
+            arvore.folha(especie, tipo, texto, simbolo, dado, token.getLinha(), token.getColuna());
         }
-        if (tipo1.equals("long") && tipo2.matches("int|char")) {
-            return true;
+    }
+
+    // Makes the nodes built since the mark children of a new node; returns it, or NENHUM without a tree
+    private int reduzir(int marca, EspecieNo especie, Tipo tipo, String texto, Object simbolo, int dado, Token token) {
+        if (arvore == null) {
+            return ArvoreSintatica.NENHUM;
         }
-        if (tipo1.equals("int") && tipo2.equals("char")) {
-            return true;
+        return arvore.reduzir(marca, especie, tipo, texto, simbolo, dado, token.getLinha(), token.getColuna());
+    }
+
+    private int reduzir(int marca, EspecieNo especie, Tipo tipo, Token token) {
+        return reduzir(marca, especie, tipo, null, null, 0, token);
+    }
+
+    private int reduzirBinaria(int marca, Token operador, Tipo tipo) {
+        return reduzir(marca, EspecieNo.BINARIA, tipo, null, null, operador.getKind().ordinal(), operador);
+    }
+
+    private void definirTipo(int no, Tipo tipo) {
+        if (no != ArvoreSintatica.NENHUM) {
+            arvore.setTipo(no, tipo);
         }
-        return false;
     }
 
-    @Override
-    protected String determinarTipoResultante(String tipo1, String tipo2) {
-        if (tipo1.equals("double") || tipo2.equals("double")) {
-            return "double";
+    private Tipo tipoFilho(int no, int indice) {
+        int filho = no != ArvoreSintatica.NENHUM ? arvore.filho(no, indice) : ArvoreSintatica.NENHUM;
+        Tipo tipo = filho != ArvoreSintatica.NENHUM ? arvore.getTipo(filho) : null;
+        return tipo != null ? tipo : Tipo.UNKNOWN;
+    }
+
+    private void folhaIdentificador(Token token, Variavel var) {
+        folha(EspecieNo.IDENTIFICADOR, var != null ? var.getTipoCanonico() : Tipo.UNKNOWN, token.getValor(), var, 0, token);
+    }
+
+    // Leaf for the literal at the current token
+    private void folhaLiteral() {
+        Token token = tokenAtual;
+        if (arvore == null) {
+            return;
         }
-        if (tipo1.equals("float") || tipo2.equals("float")) {
-            return "float";
+        if (token.getKind() == TokenKind.NUMBER) {
+            // Only the value is kept: with the whole table it is read without creating the lexeme
+            int valor = tabela != null ? (int) tabela.inteiroEm(pos) : valorInteiro(token.getValor());
+            folha(EspecieNo.LITERAL_INT, Tipo.INT, null, null, valor, token);
+            return;
         }
-        if (tipo1.equals("long") || tipo2.equals("long")) {
-            return "long";
+        String lexema = token.getValor();
+        switch (token.getKind()) {
+            case NUMBER_FLOAT:
+                folha(EspecieNo.LITERAL_FLOAT, Tipo.FLOAT, lexema, null, 0, token);
+                break;
+            case CHAR:
+                folha(EspecieNo.LITERAL_CHAR, Tipo.CHAR, lexema, null, valorCaractere(lexema), token);
+                break;
+            default:
+                folha(EspecieNo.LITERAL_STRING, Tipo.CHAR_PONTEIRO, lexema, null, 0, token);
+                break;
         }
-        return "int";
     }
 
-    @Override
-    protected String obterTipoBaseArray(String tipo) {
-        if (tipo.contains("[")) {
-            return tipo.substring(0, tipo.indexOf('['));
+    private static int valorInteiro(String lexema) {
+        try {
+            return (int) Long.parseLong(lexema);
+        } catch (NumberFormatException e) {
+            return 0;
         }
-        return tipo;
     }
 
-    @Override
-    protected String obterTipoBasePonteiro(String tipo) {
-        if (tipo.endsWith("*")) {
-            return tipo.substring(0, tipo.length() - 1);
-        }
-        return "unknown";
-    }
-
-    private String getExpectedTypeForSpecifier(String specifier) {
-        switch (specifier) {
-            case "%s":
-                return "char*"; // Also compatible with char[]
-            case "%d":
-            case "%i":
-                return "int";
-            case "%u":
-                return "unsigned int";
-            case "%f":
-                return "float";
-            case "%lf":
-                return "double";
-            case "%c":
-                return "char";
+    // 'x' -> code of x
+    private static int valorCaractere(String lexema) {
+        return lexema.length() > 2 ? lexema.charAt(1) : 0;
+    }
+
+    // The untyped rules (expressao() and friends, used by for, do-while and
+    // switch) report nothing, so their node types are worked out silently
+
+    private Tipo tipoUnario(TokenKind operador, Tipo tipoOperando) {
+        switch (operador) {
+            case MULTIPLY:
+                return tipoOperando.terminaEmPonteiro() ? obterTipoBasePonteiro(tipoOperando) : Tipo.UNKNOWN;
+            case BITWISE_AND:
+                return tipoOperando.ponteiroPara();
             default:
-                return "unknown";
+                return tipoOperando;
         }
     }
 
-    private boolean isCompatibleType(String expectedType, String actualType) {
-        if (expectedType.equals(actualType)) {
-            return true;
+    private Tipo tipoIndexado(Tipo tipo) {
+        if (tipo.terminaEmArray()) {
+            return tipo.semArray();
         }
-        if (expectedType.equals("char*") && actualType.equals("char[]")) {
-            return true;
-        }
-        if (expectedType.equals("double") && actualType.matches("float|int|char")) {
-            return true;
-        }
-        if (expectedType.equals("float") && actualType.matches("int|char")) {
-            return true;
-        }
-        if (expectedType.equals("int") && actualType.matches("char|short|unsigned int")) {
-            return true;
-        }
-        if (expectedType.equals("unsigned int") && actualType.matches("int|char|short")) {
-            return true;
+        return tipo.terminaEmPonteiro() ? tipo.semUltimoCaractere() : Tipo.UNKNOWN;
+    }
+
+    private Tipo tipoDoCampo(Tipo tipo, boolean isPointerAccess, String campo) {
+        if (isPointerAccess != tipo.terminaEmPonteiro()) {
+            return Tipo.UNKNOWN;
         }
-        return false;
+        Tipo tipoStruct = isPointerAccess ? tipo.semUltimoCaractere() : tipo;
+        Struct struct = tipoStruct.isStruct() ? escopos.buscarStruct(tipoStruct.getNomeStruct()) : null;
+        Tipo tipoCampo = struct != null ? struct.buscarTipoCampo(campo) : null;
+        return tipoCampo != null ? tipoCampo : Tipo.UNKNOWN;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,67 @@
+package analyzer;
+
+/**
+ * Procuras sobre a fonte usadas pelo AnalexBuffer para saltar de uma vez
+ * espaços, comentários e corpos de strings: o próximo caractere de um
+ * conjunto, o fim de um comentário de bloco e as quebras de linha de um
+ * troço (contadas em bloco para atualizar a linha e a coluna).
+ *
+ * Há duas implementações: VarreduraEscalar, caractere a caractere, e
+ * VarreduraVetorial, que compara 16 a 64 bytes de cada vez com a API
+ * jdk.incubator.vector. A vetorial só é usada quando a JVM arranca com
+ * "--add-modules jdk.incubator.vector"; sem o módulo, ou com
+ * -Dcompilador.varredura=escalar, usa-se a escalar. As duas dão sempre os
+ * mesmos resultados.
+ *
+ * @author itsupport
+ */
+public abstract class Varredura {
+
+    static final Varredura INSTANCIA = escolher();
+
+    // Índice do primeiro c em fonte[de, ate), ou ate
+    public abstract int proximo(char[] fonte, int de, int ate, char c);
+
+    // Índice do primeiro a ou b em fonte[de, ate), ou ate
+    public abstract int proximo(char[] fonte, int de, int ate, char a, char b);
+
+    // Índice do "*" do primeiro "*/" em fonte[de, ate), ou -1
+    public abstract int fimComentario(char[] fonte, int de, int ate);
+
+    /**
+     * Índice do primeiro caractere em fonte[de, ate) que não seja um espaço
+     * ASCII (os de Character.isWhitespace abaixo de 128), ou ate.
+     */
+    public abstract int saltarEspacos(char[] fonte, int de, int ate);
+
+    // Número de quebras de linha em fonte[de, ate)
+    public abstract int contarLinhas(char[] fonte, int de, int ate);
+
+    // Índice da última quebra de linha em fonte[de, ate), ou -1
+    public abstract int ultimaQuebra(char[] fonte, int de, int ate);
+
+    public abstract String getNome();
+
+    public static Varredura getInstancia() {
+        return INSTANCIA;
+    }
+
+    private static Varredura escolher() {
+        if (!"escalar".equals(System.getProperty("compilador.varredura"))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // Por reflexão, para a classe (e a API incubadora) só ser carregada quando existe
+                return (Varredura) Class.forName("analyzer.VarreduraVetorial").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Segue para a escalar
+            }
+        }
+        return new VarreduraEscalar();
+    }
+
+    // Espaços de Character.isWhitespace no ASCII: \t \n \u000B \f \r, 0x1C a 0x1F e ' '
+    static boolean espaco(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r') || (c >= 0x1C && c <= 0x1F);
+    }
+
+}
@@ -0,0 +1,74 @@
+package analyzer;
+
+/**
+ * Varredura caractere a caractere; também termina os restos que a
+ * VarreduraVetorial não consegue encher num vetor.
+ *
+ * @author itsupport
+ */
+final class VarreduraEscalar extends Varredura {
+
+    @Override
+    public int proximo(char[] fonte, int de, int ate, char c) {
+        int i = de;
+        while (i < ate && fonte[i] != c) {
+            i++;
+        }
+        return i;
+    }
+
+    @Override
+    public int proximo(char[] fonte, int de, int ate, char a, char b) {
+        int i = de;
+        while (i < ate && fonte[i] != a && fonte[i] != b) {
+            i++;
+        }
+        return i;
+    }
+
+    @Override
+    public int fimComentario(char[] fonte, int de, int ate) {
+        for (int i = de; i < ate - 1; i++) {
+            if (fonte[i] == '*' && fonte[i + 1] == '/') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int saltarEspacos(char[] fonte, int de, int ate) {
+        int i = de;
+        while (i < ate && espaco(fonte[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    @Override
+    public int contarLinhas(char[] fonte, int de, int ate) {
+        int linhas = 0;
+        for (int i = de; i < ate; i++) {
+            if (fonte[i] == '\n') {
+                linhas++;
+            }
+        }
+        return linhas;
+    }
+
+    @Override
+    public int ultimaQuebra(char[] fonte, int de, int ate) {
+        for (int i = ate - 1; i >= de; i--) {
+            if (fonte[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String getNome() {
+        return "escalar";
+    }
+
+}
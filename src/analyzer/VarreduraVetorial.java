@@ -0,0 +1,111 @@
+package analyzer;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Varredura com a API jdk.incubator.vector: os chars da fonte são lidos
+ * num ShortVector da largura preferida pela máquina (8 a 32 chars, 16 a 64
+ * bytes) e comparados todos de uma vez; a máscara resultante dá a posição
+ * do primeiro (ou último) caractere encontrado, ou o número de quebras de
+ * linha do bloco. O resto que não enche um vetor vai para a
+ * VarreduraEscalar.
+ *
+ * Só é instanciada por Varredura.escolher(), quando o módulo existe.
+ *
+ * @author itsupport
+ */
+final class VarreduraVetorial extends Varredura {
+
+    private static final VectorSpecies<Short> ESPECIE = ShortVector.SPECIES_PREFERRED;
+    private static final int LARGURA = ESPECIE.length();
+
+    private final VarreduraEscalar escalar = new VarreduraEscalar();
+
+    @Override
+    public int proximo(char[] fonte, int de, int ate, char c) {
+        int i = de;
+        for (; i + LARGURA <= ate; i += LARGURA) {
+            VectorMask<Short> encontrados = ShortVector.fromCharArray(ESPECIE, fonte, i).eq((short) c);
+            if (encontrados.anyTrue()) {
+                return i + encontrados.firstTrue();
+            }
+        }
+        return escalar.proximo(fonte, i, ate, c);
+    }
+
+    @Override
+    public int proximo(char[] fonte, int de, int ate, char a, char b) {
+        int i = de;
+        for (; i + LARGURA <= ate; i += LARGURA) {
+            ShortVector bloco = ShortVector.fromCharArray(ESPECIE, fonte, i);
+            VectorMask<Short> encontrados = bloco.eq((short) a).or(bloco.eq((short) b));
+            if (encontrados.anyTrue()) {
+                return i + encontrados.firstTrue();
+            }
+        }
+        return escalar.proximo(fonte, i, ate, a, b);
+    }
+
+    @Override
+    public int fimComentario(char[] fonte, int de, int ate) {
+        int i = de;
+        // O bloco seguinte, deslocado de um char, dá o caractere depois de cada "*"
+        for (; i + LARGURA + 1 <= ate; i += LARGURA) {
+            VectorMask<Short> asteriscos = ShortVector.fromCharArray(ESPECIE, fonte, i).eq((short) '*');
+            if (asteriscos.anyTrue()) {
+                VectorMask<Short> fins = asteriscos.and(ShortVector.fromCharArray(ESPECIE, fonte, i + 1).eq((short) '/'));
+                if (fins.anyTrue()) {
+                    return i + fins.firstTrue();
+                }
+            }
+        }
+        return escalar.fimComentario(fonte, i, ate);
+    }
+
+    @Override
+    public int saltarEspacos(char[] fonte, int de, int ate) {
+        int i = de;
+        for (; i + LARGURA <= ate; i += LARGURA) {
+            ShortVector bloco = ShortVector.fromCharArray(ESPECIE, fonte, i);
+            // ' ', '\t' a '\r' e 0x1C a 0x1F, com subtrações e comparações sem sinal
+            VectorMask<Short> espacos = bloco.eq((short) ' ')
+                    .or(bloco.sub((short) '\t').compare(VectorOperators.UNSIGNED_LE, (short) ('\r' - '\t')))
+                    .or(bloco.sub((short) 0x1C).compare(VectorOperators.UNSIGNED_LE, (short) 3));
+            if (!espacos.allTrue()) {
+                return i + espacos.not().firstTrue();
+            }
+        }
+        return escalar.saltarEspacos(fonte, i, ate);
+    }
+
+    @Override
+    public int contarLinhas(char[] fonte, int de, int ate) {
+        int linhas = 0;
+        int i = de;
+        for (; i + LARGURA <= ate; i += LARGURA) {
+            linhas += ShortVector.fromCharArray(ESPECIE, fonte, i).eq((short) '\n').trueCount();
+        }
+        return linhas + escalar.contarLinhas(fonte, i, ate);
+    }
+
+    @Override
+    public int ultimaQuebra(char[] fonte, int de, int ate) {
+        int fim = ate;
+        for (; fim - LARGURA >= de; fim -= LARGURA) {
+            VectorMask<Short> quebras = ShortVector.fromCharArray(ESPECIE, fonte, fim - LARGURA).eq((short) '\n');
+            if (quebras.anyTrue()) {
+                return fim - LARGURA + quebras.lastTrue();
+            }
+        }
+        return escalar.ultimaQuebra(fonte, de, fim);
+    }
+
+    @Override
+    public String getNome() {
+        return "vetorial (" + LARGURA * Character.BYTES + " bytes)";
+    }
+
+}
@@ -0,0 +1,709 @@
+package analyzer;
+
+import Tokens.FonteDeTokens;
+import Tokens.TabelaDeTokens;
+import Tokens.Token;
+import Tokens.TokenKind;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import models.Escopo;
+import models.Funcao;
+import models.Struct;
+import models.Variavel;
+
+/**
+ * Verificação incremental de um ficheiro que vai sendo editado (modo
+ * --watch). O texto é dividido em unidades, uma por declaração global
+ * (struct, função, variáveis globais ou diretiva), cada uma com os seus
+ * tokens, diagnósticos e as declarações que fez no Escopo global.
+ *
+ * Numa nova versão do texto só é relexada a zona alterada: as unidades
+ * anteriores mantêm-se e as seguintes são reaproveitadas com as linhas
+ * deslocadas, a partir da primeira fronteira depois da edição que coincide
+ * com uma fronteira antiga. Só são reverificadas as unidades cujos tokens
+ * mudaram e as que referem nomes cuja declaração mudou (uma struct, a
+ * assinatura de uma função ou uma variável global); as restantes apenas
+ * repõem as suas declarações no Escopo e os diagnósticos guardados. Alterar
+ * o corpo de uma função custa assim o tempo de analisar essa função, mais
+ * uma passagem pelas declarações globais de todas as outras.
+ *
+ * Os diagnósticos são os da compilação completa, exceto quando a
+ * recuperação de um erro sintático atravessaria o fim da declaração: cada
+ * unidade é analisada isoladamente até ao seu último token.
+ *
+ * @author itsupport
+ */
+public class VerificacaoIncremental {
+
+    // Números de linha nas mensagens do Analex e do Parser
+    private static final Pattern LINHA_DIAGNOSTICO = Pattern.compile("(at line |\\(Linha )(\\d+)");
+
+    private static final PrintStream DESCARTE = new PrintStream(OutputStream.nullOutputStream());
+
+    /**
+     * Resultado de uma verificação: os diagnósticos pela ordem da compilação
+     * completa (léxicos primeiro) e quanto trabalho foi refeito.
+     */
+    public static class Resultado {
+
+        private final int erros;
+        private final String diagnosticos;
+        private final int unidades;
+        private final int relexadas;
+        private final int reverificadas;
+        private final long tempoNanos;
+
+        Resultado(int erros, String diagnosticos, int unidades, int relexadas, int reverificadas, long tempoNanos) {
+            this.erros = erros;
+            this.diagnosticos = diagnosticos;
+            this.unidades = unidades;
+            this.relexadas = relexadas;
+            this.reverificadas = reverificadas;
+            this.tempoNanos = tempoNanos;
+        }
+
+        // Erros do Parser, como em Compilacao.executar
+        public int getErros() {
+            return erros;
+        }
+
+        public String getDiagnosticos() {
+            return diagnosticos;
+        }
+
+        public int getUnidades() {
+            return unidades;
+        }
+
+        public int getRelexadas() {
+            return relexadas;
+        }
+
+        public int getReverificadas() {
+            return reverificadas;
+        }
+
+        public long getTempoNanos() {
+            return tempoNanos;
+        }
+    }
+
+    // Símbolo declarado no escopo global por uma unidade e como o repor
+    private static final class Declaracao {
+
+        final String nome;
+        final Consumer<Escopo> repor;
+
+        Declaracao(String nome, Consumer<Escopo> repor) {
+            this.nome = nome;
+            this.repor = repor;
+        }
+    }
+
+    // Escopo que regista as declarações globais feitas durante a análise de uma unidade
+    private static final class EscopoGravado extends Escopo {
+
+        private List<Declaracao> destino; // null: repor sem registar
+
+        @Override
+        public void adicionarStruct(String nome, Struct struct) {
+            if (destino != null) {
+                destino.add(new Declaracao(nome, escopo -> escopo.adicionarStruct(nome, struct)));
+            }
+            super.adicionarStruct(nome, struct);
+        }
+
+        @Override
+        public void adicionarFuncao(String nome, Funcao func) {
+            if (destino != null) {
+                destino.add(new Declaracao(nome, escopo -> escopo.adicionarFuncao(nome, func)));
+            }
+            super.adicionarFuncao(nome, func);
+        }
+
+        @Override
+        public void adicionarVariavel(String nome, Variavel var) {
+            if (destino != null && getProfundidade() == 1) {
+                destino.add(new Declaracao(nome, escopo -> escopo.adicionarVariavel(nome, var)));
+            }
+            super.adicionarVariavel(nome, var);
+        }
+
+        void repor(List<Declaracao> declaracoes) {
+            for (Declaracao declaracao : declaracoes) {
+                declaracao.repor.accept(this);
+            }
+        }
+    }
+
+    // Uma declaração global e o texto à sua volta até à declaração seguinte
+    private static final class Unidade {
+
+        int inicio;        // [inicio, fim) no texto atual
+        int fim;
+        int linha;         // Linha e coluna do Analex antes de ler inicio
+        final int coluna;
+
+        // Análise léxica
+        TabelaDeTokens tabela;
+        int quantidade;    // Tokens da unidade; o EOF só conta na última
+        int linhaLexica;   // linha quando foi analisada
+        String diagnosticosLexicos;
+        String assinatura; // Tokens antes do corpo de uma função, ou null
+        Set<String> referencias = new HashSet<>();
+        Set<String> referenciasInterface = new HashSet<>();
+        boolean interfaceAlterada;
+        Unidade anterior;  // Função substituída com a mesma assinatura (só o corpo mudou)
+
+        // Análise sintática e semântica
+        boolean verificada;
+        int linhaVerificacao;
+        String diagnosticos;
+        int erros;
+        List<Declaracao> declaracoes;
+
+        Unidade(int inicio, int fim, int linha, int coluna) {
+            this.inicio = inicio;
+            this.fim = fim;
+            this.linha = linha;
+            this.coluna = coluna;
+        }
+
+        TokenKind kind(int i) {
+            return tabela.kindEm(i);
+        }
+
+        // Impressão dos tokens com as linhas relativas ao início da unidade
+        long impressao() {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < quantidade; i++) {
+                String valor = tabela.valorEm(i);
+                TokenKind kind = tabela.kindEm(i);
+                h = (h ^ (kind != null ? kind.ordinal() : -1)) * 0x100000001b3L;
+                h = (h ^ (valor != null ? valor.hashCode() : 0)) * 0x100000001b3L;
+                h = (h ^ (tabela.linhaEm(i) - linhaLexica)) * 0x100000001b3L;
+                h = (h ^ tabela.colunaEm(i)) * 0x100000001b3L;
+            }
+            return h;
+        }
+
+        boolean mesmosTokens(Unidade outra) {
+            if (quantidade != outra.quantidade) {
+                return false;
+            }
+            for (int i = 0; i < quantidade; i++) {
+                if (tabela.kindEm(i) != outra.tabela.kindEm(i)
+                        || tabela.linhaEm(i) - linhaLexica != outra.tabela.linhaEm(i) - outra.linhaLexica
+                        || tabela.colunaEm(i) != outra.tabela.colunaEm(i)
+                        || !String.valueOf(tabela.valorEm(i)).equals(String.valueOf(outra.tabela.valorEm(i)))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Reaproveita a verificação de outra unidade com os mesmos tokens
+        void copiarVerificacao(Unidade outra) {
+            verificada = outra.verificada;
+            linhaVerificacao = outra.linhaVerificacao;
+            diagnosticos = outra.diagnosticos;
+            erros = outra.erros;
+            declaracoes = outra.declaracoes;
+        }
+    }
+
+    // Os tokens de uma unidade, com as linhas deslocadas se o texto acima mudou
+    private static final class FonteUnidade implements FonteDeTokens {
+
+        private final Unidade unidade;
+        private final int deslocamento;
+
+        FonteUnidade(Unidade unidade) {
+            this.unidade = unidade;
+            this.deslocamento = unidade.linha - unidade.linhaLexica;
+        }
+
+        @Override
+        public Token token(int indice) {
+            if (indice >= unidade.quantidade) {
+                return null;
+            }
+            TabelaDeTokens tabela = unidade.tabela;
+            if (deslocamento == 0) {
+                return tabela.tokenEm(indice);
+            }
+            return new Token(tabela.kindEm(indice), tabela.valorEm(indice), tabela.linhaEm(indice) + deslocamento, tabela.colunaEm(indice));
+        }
+    }
+
+    private char[] texto;
+    private List<Unidade> unidades = new ArrayList<>();
+
+    /**
+     * Verifica uma nova versão do texto, reaproveitando o que não mudou
+     * desde a versão anterior.
+     */
+    public Resultado verificar(char[] novo) throws IOException {
+        long inicioNanos = System.nanoTime();
+        List<Unidade> novas;
+        List<Unidade> analisadas;
+        List<Unidade> substituidas;
+
+        int prefixo = texto == null ? 0 : Arrays.mismatch(texto, novo);
+        if (prefixo < 0) {
+            novas = unidades;
+            analisadas = List.of();
+            substituidas = List.of();
+        } else if (texto == null) {
+            novas = new ArrayList<>();
+            dividir(novo, 0, 1, 0, novo.length, 0, novas);
+            analisadas = novas;
+            substituidas = List.of();
+        } else {
+            int sufixo = 0;
+            int maximoSufixo = Math.min(texto.length, novo.length) - prefixo;
+            while (sufixo < maximoSufixo && texto[texto.length - 1 - sufixo] == novo[novo.length - 1 - sufixo]) {
+                sufixo++;
+            }
+
+            // O fim de uma unidade pode depender do início da seguinte, daí recuar uma
+            int primeira = Math.max(0, unidadeEm(prefixo) - 1);
+            Unidade base = unidades.get(primeira);
+            novas = new ArrayList<>(unidades.subList(0, primeira));
+            int retoma = dividir(novo, base.inicio, base.linha, base.coluna, novo.length - sufixo, novo.length - texto.length, novas);
+            analisadas = new ArrayList<>(novas.subList(primeira, novas.size()));
+            substituidas = unidades.subList(primeira, retoma);
+
+            if (retoma < unidades.size()) {
+                Unidade ultima = novas.get(novas.size() - 1);
+                int deslocamento = novo.length - texto.length;
+                int deslocamentoLinhas = linhaNoFim(novo, ultima) - unidades.get(retoma).linha;
+                for (Unidade unidade : unidades.subList(retoma, unidades.size())) {
+                    unidade.inicio += deslocamento;
+                    unidade.fim += deslocamento;
+                    unidade.linha += deslocamentoLinhas;
+                    novas.add(unidade);
+                }
+            }
+        }
+
+        for (Unidade unidade : analisadas) {
+            analisarLexico(novo, unidade, unidade == novas.get(novas.size() - 1));
+        }
+        reaproveitar(analisadas, substituidas);
+
+        Set<String> alterados = new HashSet<>();
+        for (Unidade removida : substituidas) {
+            if (removida.interfaceAlterada && removida.declaracoes != null) {
+                for (Declaracao declaracao : removida.declaracoes) {
+                    alterados.add(declaracao.nome);
+                }
+            }
+        }
+
+        // Percorre as declarações pela ordem do ficheiro sobre um Escopo global novo
+        EscopoGravado escopo = new EscopoGravado();
+        escopo.setSaidaErros(DESCARTE);
+        escopo.abrirEscopo();
+        int erros = 0;
+        int reverificadas = 0;
+        for (Unidade unidade : novas) {
+            if (!unidade.verificada || contemAlgum(unidade.referencias, alterados)) {
+                boolean interfaceAlterada = unidade.interfaceAlterada || contemAlgum(unidade.referenciasInterface, alterados);
+                List<Declaracao> antes = unidade.verificada ? unidade.declaracoes
+                        : unidade.anterior != null ? unidade.anterior.declaracoes : List.of();
+                analisarSintatico(unidade, escopo);
+                reverificadas++;
+                // Com erros, a recuperação do Parser pode declarar outros nomes ou deixar de os declarar
+                if (interfaceAlterada || !mesmosNomes(antes, unidade.declaracoes)) {
+                    for (Declaracao declaracao : antes) {
+                        alterados.add(declaracao.nome);
+                    }
+                    for (Declaracao declaracao : unidade.declaracoes) {
+                        alterados.add(declaracao.nome);
+                    }
+                }
+            } else {
+                escopo.repor(unidade.declaracoes);
+            }
+            erros += unidade.erros;
+        }
+        for (Unidade unidade : novas) {
+            unidade.interfaceAlterada = false;
+            unidade.anterior = null;
+        }
+
+        texto = novo;
+        unidades = novas;
+        return new Resultado(erros, diagnosticos(), novas.size(), analisadas.size(), reverificadas, System.nanoTime() - inicioNanos);
+    }
+
+    /**
+     * Divide novo em unidades a partir de inicio (uma fronteira), até ao fim
+     * do texto ou até uma fronteira em [fimAlterado, fim) que também o era no
+     * texto anterior, deslocada de deslocamento caracteres.
+     *
+     * @return índice em unidades da primeira unidade antiga a reaproveitar
+     */
+    private int dividir(char[] novo, int inicio, int linha, int coluna, int fimAlterado, int deslocamento, List<Unidade> destino) {
+        int p = inicio;
+        do {
+            int fim = fimDeUnidade(novo, p, novo.length);
+            destino.add(new Unidade(p, fim, linha, coluna));
+            for (int i = p; i < fim; i++) {
+                if (novo[i] == '\n') {
+                    linha++;
+                    coluna = 0;
+                } else {
+                    coluna++;
+                }
+            }
+            p = fim;
+
+            if (p >= fimAlterado && p < novo.length) {
+                int antiga = unidadeQueComecaEm(p - deslocamento);
+                if (antiga >= 0 && unidades.get(antiga).coluna == coluna) {
+                    return antiga;
+                }
+            }
+        } while (p < novo.length);
+        return unidades.size();
+    }
+
+    // Linha onde começa a unidade seguinte a unidade
+    private static int linhaNoFim(char[] novo, Unidade unidade) {
+        int linha = unidade.linha;
+        for (int i = unidade.inicio; i < unidade.fim; i++) {
+            if (novo[i] == '\n') {
+                linha++;
+            }
+        }
+        return linha;
+    }
+
+    // Índice da unidade que contém a posição p do texto anterior
+    private int unidadeEm(int p) {
+        int baixo = 0;
+        int alto = unidades.size() - 1;
+        while (baixo < alto) {
+            int meio = (baixo + alto + 1) >>> 1;
+            if (unidades.get(meio).inicio <= p) {
+                baixo = meio;
+            } else {
+                alto = meio - 1;
+            }
+        }
+        return baixo;
+    }
+
+    // Índice da unidade antiga que começa exatamente em p, ou -1
+    private int unidadeQueComecaEm(int p) {
+        int indice = unidadeEm(p);
+        return unidades.get(indice).inicio == p ? indice : -1;
+    }
+
+    /**
+     * Fim da unidade que começa em p: a seguir ao ';' ou à diretiva que
+     * terminam uma declaração, ou à '}' que fecha o corpo de uma função.
+     * Comentários, strings, caracteres e diretivas são saltados como o
+     * Analex os lê, para que cada fronteira fique fora deles.
+     */
+    static int fimDeUnidade(char[] t, int p, int n) {
+        int profundidade = 0;
+        boolean vazia = true;
+        int i = p;
+        while (i < n) {
+            char c = t[i];
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            if (c == '/' && i + 1 < n && (t[i + 1] == '/' || t[i + 1] == '*')) {
+                i = fimDeComentario(t, i, n);
+                continue;
+            }
+            if (c == '#') {
+                i = fimDeDiretiva(t, i, n);
+                if (vazia && profundidade == 0) {
+                    return i;
+                }
+                vazia = false;
+                continue;
+            }
+            vazia = false;
+            switch (c) {
+                case '"':
+                    i = fimDeString(t, i, n);
+                    continue;
+                case '\'':
+                    i = fimDeCaractere(t, i, n);
+                    continue;
+                case '{':
+                    profundidade++;
+                    break;
+                case '}':
+                    // "struct S { ... };" e "int v[] = { ... };" terminam no ';'
+                    if (profundidade > 0 && --profundidade == 0) {
+                        int seguinte = proximoSignificativo(t, i + 1, n);
+                        if (seguinte >= n || t[seguinte] != ';') {
+                            return i + 1;
+                        }
+                    }
+                    break;
+                case ';':
+                    if (profundidade == 0) {
+                        return i + 1;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            i++;
+        }
+        return n;
+    }
+
+    private static int proximoSignificativo(char[] t, int i, int n) {
+        while (i < n) {
+            if (Character.isWhitespace(t[i])) {
+                i++;
+            } else if (t[i] == '/' && i + 1 < n && (t[i + 1] == '/' || t[i + 1] == '*')) {
+                i = fimDeComentario(t, i, n);
+            } else {
+                return i;
+            }
+        }
+        return n;
+    }
+
+    // t[i] é a '/' inicial; um comentário de linha termina antes do '\n'
+    private static int fimDeComentario(char[] t, int i, int n) {
+        if (t[i + 1] == '/') {
+            i += 2;
+            while (i < n && t[i] != '\n') {
+                i++;
+            }
+            return i;
+        }
+        for (i += 2; i + 1 < n; i++) {
+            if (t[i] == '*' && t[i + 1] == '/') {
+                return i + 2;
+            }
+        }
+        return n;
+    }
+
+    // Como Analex.processarDiretiva: nome, espaços e um <...> ou "..." opcional
+    private static int fimDeDiretiva(char[] t, int i, int n) {
+        i++;
+        while (i < n && Character.isLetter(t[i])) {
+            i++;
+        }
+        while (i < n && Character.isWhitespace(t[i])) {
+            i++;
+        }
+        if (i < n && (t[i] == '<' || t[i] == '"')) {
+            char fecho = t[i] == '<' ? '>' : '"';
+            i++;
+            while (i < n && t[i] != fecho && t[i] != '\n') {
+                i++;
+            }
+            if (i < n && t[i] == fecho) {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    // Uma string não fechada termina antes do '\n'
+    private static int fimDeString(char[] t, int i, int n) {
+        i++;
+        while (i < n && t[i] != '"' && t[i] != '\n') {
+            i++;
+        }
+        return i < n && t[i] == '"' ? i + 1 : i;
+    }
+
+    // Como Analex.processarCaractere: um caractere qualquer e a plica final
+    private static int fimDeCaractere(char[] t, int i, int n) {
+        i++;
+        if (i < n && t[i] != '\'') {
+            i++;
+        }
+        return i < n && t[i] == '\'' ? i + 1 : i;
+    }
+
+    private void analisarLexico(char[] novo, Unidade unidade, boolean ultima) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream saida = new PrintStream(buffer, true);
+        // Cópia do troço, para que os tokens não prendam o texto inteiro desta versão
+        char[] troco = Arrays.copyOfRange(novo, unidade.inicio, unidade.fim);
+        AnalexBuffer analex = new AnalexBuffer(troco, 0, troco.length, unidade.linha, unidade.coluna);
+        analex.setSaidaErros(saida);
+        unidade.tabela = analex.analisarCodigo();
+        unidade.quantidade = ultima ? unidade.tabela.tamanho() : unidade.tabela.tamanho() - 1;
+        unidade.linhaLexica = unidade.linha;
+        saida.flush();
+        unidade.diagnosticosLexicos = buffer.toString(Charset.defaultCharset());
+
+        // Uma função é "tipo nome(...) {": a assinatura são os tokens antes da '{'
+        int corpo = unidade.quantidade;
+        for (int i = 0; i < unidade.quantidade; i++) {
+            if (unidade.kind(i) == TokenKind.LBRACE) {
+                if (i > 0 && unidade.kind(i - 1) == TokenKind.RPAREN) {
+                    corpo = i;
+                    StringBuilder assinatura = new StringBuilder();
+                    for (int j = 0; j < i; j++) {
+                        assinatura.append(unidade.tabela.valorEm(j)).append('\0');
+                    }
+                    unidade.assinatura = assinatura.toString();
+                }
+                break;
+            }
+        }
+        for (int i = 0; i < unidade.quantidade; i++) {
+            if (unidade.kind(i) == TokenKind.IDENTIFIER) {
+                String nome = unidade.tabela.valorEm(i);
+                unidade.referencias.add(nome);
+                if (i < corpo) {
+                    unidade.referenciasInterface.add(nome);
+                }
+            }
+        }
+    }
+
+    /**
+     * Emparelha as unidades relexadas com as substituídas que tinham os
+     * mesmos tokens, herdando a sua verificação. As que sobram mudaram: a
+     * interface só se conta como alterada se não for uma função com a mesma
+     * assinatura de uma das removidas (só o corpo mudou).
+     */
+    private static void reaproveitar(List<Unidade> analisadas, List<Unidade> substituidas) {
+        Map<Long, ArrayDeque<Unidade>> porImpressao = new HashMap<>();
+        for (Unidade antiga : substituidas) {
+            porImpressao.computeIfAbsent(antiga.impressao(), k -> new ArrayDeque<>()).add(antiga);
+        }
+        Set<Unidade> emparelhadas = new HashSet<>();
+        List<Unidade> alteradas = new ArrayList<>();
+        for (Unidade nova : analisadas) {
+            ArrayDeque<Unidade> candidatas = porImpressao.get(nova.impressao());
+            Unidade antiga = null;
+            if (candidatas != null) {
+                for (Unidade candidata : candidatas) {
+                    if (nova.mesmosTokens(candidata)) {
+                        antiga = candidata;
+                        break;
+                    }
+                }
+            }
+            if (antiga != null) {
+                candidatas.remove(antiga);
+                emparelhadas.add(antiga);
+                nova.copiarVerificacao(antiga);
+            } else {
+                alteradas.add(nova);
+            }
+        }
+
+        Map<String, Unidade> removidas = new HashMap<>();
+        Set<String> assinaturasNovas = new HashSet<>();
+        for (Unidade nova : alteradas) {
+            if (nova.assinatura != null) {
+                assinaturasNovas.add(nova.assinatura);
+            }
+        }
+        for (Unidade antiga : substituidas) {
+            if (!emparelhadas.contains(antiga)) {
+                antiga.interfaceAlterada = antiga.assinatura == null || !assinaturasNovas.contains(antiga.assinatura);
+                if (antiga.assinatura != null) {
+                    removidas.put(antiga.assinatura, antiga);
+                }
+            }
+        }
+        for (Unidade nova : alteradas) {
+            nova.anterior = nova.assinatura != null ? removidas.get(nova.assinatura) : null;
+            nova.interfaceAlterada = nova.anterior == null;
+        }
+    }
+
+    private static void analisarSintatico(Unidade unidade, EscopoGravado escopo) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream saida = new PrintStream(buffer, true);
+        List<Declaracao> declaracoes = new ArrayList<>();
+        escopo.destino = declaracoes;
+        try {
+            Parser parser = new Parser(new FonteUnidade(unidade), escopo);
+            parser.setSaidaErros(saida);
+            parser.programa();
+            unidade.erros = parser.getCountErros();
+        } finally {
+            escopo.destino = null;
+            escopo.setSaidaErros(DESCARTE);
+        }
+        saida.flush();
+        unidade.diagnosticos = buffer.toString(Charset.defaultCharset());
+        unidade.declaracoes = declaracoes;
+        unidade.linhaVerificacao = unidade.linha;
+        unidade.verificada = true;
+    }
+
+    private static boolean mesmosNomes(List<Declaracao> a, List<Declaracao> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.get(i).nome.equals(b.get(i).nome)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contemAlgum(Set<String> conjunto, Set<String> nomes) {
+        for (String nome : nomes) {
+            if (conjunto.contains(nome)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Léxicos de todas as unidades e depois os do Parser, como numa compilação completa
+    private String diagnosticos() {
+        StringBuilder todos = new StringBuilder();
+        for (Unidade unidade : unidades) {
+            deslocarLinhas(todos, unidade.diagnosticosLexicos, unidade.linha - unidade.linhaLexica);
+        }
+        for (Unidade unidade : unidades) {
+            deslocarLinhas(todos, unidade.diagnosticos, unidade.linha - unidade.linhaVerificacao);
+        }
+        return todos.toString();
+    }
+
+    private static void deslocarLinhas(StringBuilder destino, String diagnosticos, int deslocamento) {
+        if (deslocamento == 0 || diagnosticos.isEmpty()) {
+            destino.append(diagnosticos);
+            return;
+        }
+        Matcher matcher = LINHA_DIAGNOSTICO.matcher(diagnosticos);
+        while (matcher.find()) {
+            matcher.appendReplacement(destino, matcher.group(1) + (Integer.parseInt(matcher.group(2)) + deslocamento));
+        }
+        matcher.appendTail(destino);
+    }
+
+}
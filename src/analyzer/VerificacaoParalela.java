@@ -0,0 +1,208 @@
+package analyzer;
+
+import Tokens.TabelaDeTokens;
+import ast.ArvoreSintatica;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import models.Escopo;
+import models.Funcao;
+import models.Variavel;
+import utils.Estatisticas;
+
+/**
+ * Análise sintática e semântica com os corpos das funções verificados em
+ * paralelo. Uma pré-passagem sequencial do Parser regista no Escopo global
+ * as structs, as variáveis globais e os cabeçalhos das funções, saltando
+ * cada corpo até à chaveta que o fecha. Depois os corpos são verificados
+ * em tarefas de um ForkJoinPool (lotes de corpos seguidos), cada um com o
+ * seu Parser e um Escopo local por cima da tabela global, que a partir daí
+ * só é lida. Um corpo só vê as declarações
+ * globais feitas antes do fim do cabeçalho da sua função, tal como na
+ * análise sequencial.
+ *
+ * Os diagnósticos de cada tarefa ficam em memória e são escritos pela ordem
+ * do ficheiro, no sítio do corpo entre os da pré-passagem. Com a árvore
+ * pedida, o ramo de cada corpo é enxertado no nó FUNCAO respetivo.
+ *
+ * Num programa sem erros o resultado é o do Parser sequencial. Depois de um
+ * erro de sintaxe num corpo a recuperação não passa da chaveta que o fecha
+ * (a tarefa vê o resto do ficheiro como EOF), pelo que, se o Parser
+ * sequencial a consumir, os diagnósticos seguintes podem diferir, mas
+ * continuam pela ordem do ficheiro e sem repetições. As estatísticas só medem
+ * a parte semântica da pré-passagem.
+ *
+ * @author itsupport
+ */
+public class VerificacaoParalela {
+
+    // Tarefas por thread, para equilibrar corpos de tamanhos diferentes
+    private static final int LOTES_POR_TRABALHADOR = 8;
+
+    private final TabelaDeTokens tabela;
+    private final ForkJoinPool pool;
+    private final Escopo globais = new Escopo();
+    private final ByteArrayOutputStream diagnosticos = new ByteArrayOutputStream();
+    private final List<Corpo> corpos = new ArrayList<>();
+
+    private PrintStream saidaErros = System.err;
+    private Estatisticas estatisticas;
+    private ArvoreSintatica arvore;
+    private int countErros;
+    private int profundidadeMaxima;
+
+    public VerificacaoParalela(TabelaDeTokens tabela) {
+        this(tabela, ForkJoinPool.commonPool());
+    }
+
+    public VerificacaoParalela(TabelaDeTokens tabela, ForkJoinPool pool) {
+        this.tabela = tabela;
+        this.pool = pool;
+    }
+
+    public void setSaidaErros(PrintStream saidaErros) {
+        this.saidaErros = saidaErros;
+    }
+
+    public void setEstatisticas(Estatisticas estatisticas) {
+        this.estatisticas = estatisticas;
+    }
+
+    public void setArvore(ArvoreSintatica arvore) {
+        this.arvore = arvore;
+    }
+
+    public void verificar() throws IOException {
+        Parser parser = new Parser(tabela, globais);
+        parser.setSaidaErros(new PrintStream(diagnosticos, true));
+        parser.setEstatisticas(estatisticas);
+        parser.setArvore(arvore);
+        parser.parseAdiandoCorpos(this);
+
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(lotes());
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        countErros = parser.getCountErros();
+        profundidadeMaxima = parser.getProfundidadeMaximaEscopos();
+        byte[] bytes = diagnosticos.toByteArray();
+        int escritos = 0;
+        for (Corpo corpo : corpos) {
+            saidaErros.write(bytes, escritos, corpo.posicaoDiagnosticos - escritos);
+            escritos = corpo.posicaoDiagnosticos;
+            saidaErros.write(corpo.diagnosticos, 0, corpo.diagnosticos.length);
+            countErros += corpo.erros;
+            profundidadeMaxima = Math.max(profundidadeMaxima, corpo.profundidadeMaxima);
+            if (corpo.ramo != null && corpo.noFuncao != ArvoreSintatica.NENHUM) {
+                arvore.enxertar(corpo.noFuncao, corpo.ramo);
+            }
+        }
+        saidaErros.write(bytes, escritos, bytes.length - escritos);
+        saidaErros.flush();
+    }
+
+    // Corpos repartidos por LOTES_POR_TRABALHADOR tarefas por thread do pool
+    private List<Lote> lotes() {
+        int tamanho = Math.max(1, corpos.size() / (pool.getParallelism() * LOTES_POR_TRABALHADOR));
+        List<Lote> lotes = new ArrayList<>();
+        for (int de = 0; de < corpos.size(); de += tamanho) {
+            lotes.add(new Lote(de, Math.min(de + tamanho, corpos.size())));
+        }
+        return lotes;
+    }
+
+    // Chamado pela pré-passagem depois de saltar o corpo de uma função, de inicio ('{') até antes de fim
+    Corpo adiar(int inicio, int fim, Funcao funcao, List<Variavel> parametros, int limite) {
+        Corpo corpo = new Corpo(inicio, fim, funcao, parametros, limite, diagnosticos.size());
+        corpos.add(corpo);
+        return corpo;
+    }
+
+    public int getCountErros() {
+        return countErros;
+    }
+
+    public int getProfundidadeMaximaEscopos() {
+        return profundidadeMaxima;
+    }
+
+    // Corpo de uma função deixado pela pré-passagem e o resultado da sua verificação
+    static final class Corpo {
+
+        private final int inicio;                // Índice do '{' na tabela
+        private final int fim;                   // Índice do primeiro token depois do '}' que fecha o corpo
+        private final Funcao funcao;
+        private final List<Variavel> parametros;
+        private final int limite;                // Declarações globais visíveis (ver Escopo.getOrdem)
+        private final int posicaoDiagnosticos;   // Onde os diagnósticos entram entre os da pré-passagem
+        private int noFuncao = ArvoreSintatica.NENHUM;
+
+        private byte[] diagnosticos;
+        private int erros;
+        private int profundidadeMaxima;
+        private ArvoreSintatica ramo;
+
+        Corpo(int inicio, int fim, Funcao funcao, List<Variavel> parametros, int limite, int posicaoDiagnosticos) {
+            this.inicio = inicio;
+            this.fim = fim;
+            this.funcao = funcao;
+            this.parametros = parametros;
+            this.limite = limite;
+            this.posicaoDiagnosticos = posicaoDiagnosticos;
+        }
+
+        void setNoFuncao(int noFuncao) {
+            this.noFuncao = noFuncao;
+        }
+    }
+
+    // Tarefa que verifica corpos consecutivos, partilhando o buffer dos diagnósticos
+    private final class Lote extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int de;
+        private final int ate;
+
+        Lote(int de, int ate) {
+            this.de = de;
+            this.ate = ate;
+        }
+
+        @Override
+        protected void compute() {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            PrintStream saida = new PrintStream(buffer, true);
+            for (Corpo corpo : corpos.subList(de, ate)) {
+                Parser parser = new Parser(tabela, new Escopo(globais, corpo.limite));
+                parser.setSaidaErros(saida);
+                if (arvore != null) {
+                    corpo.ramo = new ArvoreSintatica();
+                    parser.setArvore(corpo.ramo);
+                }
+                try {
+                    parser.parseCorpo(corpo.inicio, corpo.fim, corpo.funcao, corpo.parametros);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                corpo.diagnosticos = buffer.toByteArray();
+                buffer.reset();
+                corpo.erros = parser.getCountErros();
+                corpo.profundidadeMaxima = parser.getProfundidadeMaximaEscopos();
+            }
+        }
+    }
+
+}
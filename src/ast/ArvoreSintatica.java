@@ -0,0 +1,325 @@
+package ast;
+
+import Tokens.TokenKind;
+import java.io.PrintStream;
+import java.util.Arrays;
+import models.Tipo;
+
+/**
+ * Árvore sintática tipada construída pelo Parser (ver Parser.setArvore).
+ * Os nós vivem numa arena de arrays paralelos, indexados por um int: espécie,
+ * tipo calculado, texto (nome ou lexema), símbolo resolvido (Variavel, Funcao
+ * ou Struct), um valor inteiro (operador, tamanho do array, valor do
+ * literal), linha, coluna e as ligações primeiro filho / próximo irmão.
+ *
+ * A construção segue a descida recursiva: cada regra empilha o seu nó e as
+ * regras compostas reduzem os nós empilhados desde uma marca para filhos de
+ * um nó novo. Assim o Parser não precisa de devolver nós.
+ *
+ * A árvore só está completa quando o Parser termina sem erros; depois de um
+ * erro de sintaxe pode faltar parte dos filhos.
+ *
+ * @author itsupport
+ */
+public class ArvoreSintatica {
+
+    public static final int NENHUM = -1;
+
+    private static final int CAPACIDADE_INICIAL = 256;
+
+    private int quantidade;
+    private byte[] especies;
+    private Tipo[] tipos;
+    private String[] textos;
+    private Object[] simbolos;
+    private int[] dados;
+    private int[] linhas;
+    private int[] colunas;
+    private int[] primeirosFilhos;
+    private int[] proximosIrmaos;
+
+    // Nós já construídos à espera de serem adotados por um pai
+    private int[] pilha = new int[64];
+    private int topo;
+
+    private int raiz = NENHUM;
+
+    public ArvoreSintatica() {
+        this(CAPACIDADE_INICIAL);
+    }
+
+    /**
+     * @param capacidade número de nós previsto; o Parser cria cerca de 0,6
+     * nós por token, pelo que com a tabela completa se evitam as realocações
+     */
+    public ArvoreSintatica(int capacidade) {
+        capacidade = Math.max(16, capacidade);
+        especies = new byte[capacidade];
+        tipos = new Tipo[capacidade];
+        textos = new String[capacidade];
+        simbolos = new Object[capacidade];
+        dados = new int[capacidade];
+        linhas = new int[capacidade];
+        colunas = new int[capacidade];
+        primeirosFilhos = new int[capacidade];
+        proximosIrmaos = new int[capacidade];
+    }
+
+    // === Construção ===
+
+    // Altura atual da pilha; os nós empilhados a partir daqui são os filhos do próximo reduzir
+    public int marca() {
+        return topo;
+    }
+
+    public int folha(EspecieNo especie, Tipo tipo, String texto, Object simbolo, int dado, int linha, int coluna) {
+        int no = novo(especie, tipo, texto, simbolo, dado, linha, coluna);
+        empilhar(no);
+        return no;
+    }
+
+    // Cria um nó cujos filhos são os nós empilhados desde a marca, por ordem
+    public int reduzir(int marca, EspecieNo especie, Tipo tipo, String texto, Object simbolo, int dado, int linha, int coluna) {
+        int no = novo(especie, tipo, texto, simbolo, dado, linha, coluna);
+        if (marca < topo) {
+            primeirosFilhos[no] = pilha[marca];
+            for (int i = marca; i < topo - 1; i++) {
+                proximosIrmaos[pilha[i]] = pilha[i + 1];
+            }
+        }
+        topo = Math.min(topo, marca);
+        empilhar(no);
+        return no;
+    }
+
+    public int reduzir(int marca, EspecieNo especie, Tipo tipo, int linha, int coluna) {
+        return reduzir(marca, especie, tipo, null, null, 0, linha, coluna);
+    }
+
+    // Nó no topo da pilha (o último construído), ou NENHUM acima da marca
+    public int topo(int marca) {
+        return topo > marca ? pilha[topo - 1] : NENHUM;
+    }
+
+    // Junta tudo o que ficou na pilha num nó PROGRAMA, que passa a ser a raiz
+    public int concluir() {
+        raiz = reduzir(0, EspecieNo.PROGRAMA, null, 1, 1);
+        topo = 0;
+        return raiz;
+    }
+
+    /**
+     * Copia para esta árvore os nós de um ramo construído à parte (o corpo de
+     * uma função verificado por VerificacaoParalela) e liga os que ficaram na
+     * pilha do ramo como últimos filhos de pai, por ordem.
+     */
+    public void enxertar(int pai, ArvoreSintatica ramo) {
+        int deslocamento = quantidade;
+        garantirCapacidade(quantidade + ramo.quantidade);
+        int n = ramo.quantidade;
+        System.arraycopy(ramo.especies, 0, especies, deslocamento, n);
+        System.arraycopy(ramo.tipos, 0, tipos, deslocamento, n);
+        System.arraycopy(ramo.textos, 0, textos, deslocamento, n);
+        System.arraycopy(ramo.simbolos, 0, simbolos, deslocamento, n);
+        System.arraycopy(ramo.dados, 0, dados, deslocamento, n);
+        System.arraycopy(ramo.linhas, 0, linhas, deslocamento, n);
+        System.arraycopy(ramo.colunas, 0, colunas, deslocamento, n);
+        for (int i = 0; i < n; i++) {
+            int filho = ramo.primeirosFilhos[i];
+            int irmao = ramo.proximosIrmaos[i];
+            primeirosFilhos[deslocamento + i] = filho != NENHUM ? filho + deslocamento : NENHUM;
+            proximosIrmaos[deslocamento + i] = irmao != NENHUM ? irmao + deslocamento : NENHUM;
+        }
+        quantidade += n;
+
+        int ultimo = primeirosFilhos[pai];
+        while (ultimo != NENHUM && proximosIrmaos[ultimo] != NENHUM) {
+            ultimo = proximosIrmaos[ultimo];
+        }
+        for (int i = 0; i < ramo.topo; i++) {
+            int no = ramo.pilha[i] + deslocamento;
+            if (ultimo == NENHUM) {
+                primeirosFilhos[pai] = no;
+            } else {
+                proximosIrmaos[ultimo] = no;
+            }
+            ultimo = no;
+        }
+    }
+
+    public void setTipo(int no, Tipo tipo) {
+        tipos[no] = tipo;
+    }
+
+    private int novo(EspecieNo especie, Tipo tipo, String texto, Object simbolo, int dado, int linha, int coluna) {
+        garantirCapacidade(quantidade + 1);
+        int no = quantidade++;
+        especies[no] = (byte) especie.ordinal();
+        tipos[no] = tipo;
+        textos[no] = texto;
+        simbolos[no] = simbolo;
+        dados[no] = dado;
+        linhas[no] = linha;
+        colunas[no] = coluna;
+        primeirosFilhos[no] = NENHUM;
+        proximosIrmaos[no] = NENHUM;
+        return no;
+    }
+
+    private void garantirCapacidade(int minimo) {
+        if (minimo > especies.length) {
+            int capacidade = Math.max(minimo, especies.length * 2);
+            especies = Arrays.copyOf(especies, capacidade);
+            tipos = Arrays.copyOf(tipos, capacidade);
+            textos = Arrays.copyOf(textos, capacidade);
+            simbolos = Arrays.copyOf(simbolos, capacidade);
+            dados = Arrays.copyOf(dados, capacidade);
+            linhas = Arrays.copyOf(linhas, capacidade);
+            colunas = Arrays.copyOf(colunas, capacidade);
+            primeirosFilhos = Arrays.copyOf(primeirosFilhos, capacidade);
+            proximosIrmaos = Arrays.copyOf(proximosIrmaos, capacidade);
+        }
+    }
+
+    private void empilhar(int no) {
+        if (topo == pilha.length) {
+            pilha = Arrays.copyOf(pilha, topo * 2);
+        }
+        pilha[topo++] = no;
+    }
+
+    // === Consulta ===
+
+    public int getRaiz() {
+        return raiz;
+    }
+
+    public int tamanho() {
+        return quantidade;
+    }
+
+    public EspecieNo getEspecie(int no) {
+        return EspecieNo.deOrdinal(especies[no]);
+    }
+
+    // Tipo calculado pelo Parser; null em nós sem tipo (ex: comandos)
+    public Tipo getTipo(int no) {
+        return tipos[no];
+    }
+
+    public String getTexto(int no) {
+        return textos[no];
+    }
+
+    public Object getSimbolo(int no) {
+        return simbolos[no];
+    }
+
+    public int getDado(int no) {
+        return dados[no];
+    }
+
+    // Operador de BINARIA, UNARIA, POSFIXA, ATRIBUICAO e INCREMENTO
+    public TokenKind getOperador(int no) {
+        return TokenKind.deOrdinal(dados[no]);
+    }
+
+    public int getLinha(int no) {
+        return linhas[no];
+    }
+
+    public int getColuna(int no) {
+        return colunas[no];
+    }
+
+    public int primeiroFilho(int no) {
+        return primeirosFilhos[no];
+    }
+
+    public int proximoIrmao(int no) {
+        return proximosIrmaos[no];
+    }
+
+    public int numeroFilhos(int no) {
+        int n = 0;
+        for (int f = primeirosFilhos[no]; f != NENHUM; f = proximosIrmaos[f]) {
+            n++;
+        }
+        return n;
+    }
+
+    // i-ésimo filho, ou NENHUM se o nó tiver menos filhos
+    public int filho(int no, int i) {
+        int f = primeirosFilhos[no];
+        while (f != NENHUM && i-- > 0) {
+            f = proximosIrmaos[f];
+        }
+        return f;
+    }
+
+    public No no(int indice) {
+        return new No(this, indice);
+    }
+
+    // === Impressão (--ast) ===
+
+    public void imprimir(PrintStream saida) {
+        if (raiz != NENHUM) {
+            StringBuilder sb = new StringBuilder();
+            imprimir(raiz, 0, sb);
+            saida.print(sb);
+        }
+    }
+
+    private void imprimir(int no, int nivel, StringBuilder sb) {
+        for (int i = 0; i < nivel; i++) {
+            sb.append("  ");
+        }
+        descrever(no, sb);
+        sb.append('\n');
+        for (int f = primeirosFilhos[no]; f != NENHUM; f = proximosIrmaos[f]) {
+            imprimir(f, nivel + 1, sb);
+        }
+    }
+
+    void descrever(int no, StringBuilder sb) {
+        EspecieNo especie = getEspecie(no);
+        sb.append(especie);
+        switch (especie) {
+            case BINARIA:
+            case UNARIA:
+            case POSFIXA:
+            case ATRIBUICAO:
+            case INCREMENTO:
+                sb.append(' ').append(getOperador(no));
+                break;
+            case ACESSO_CAMPO:
+                sb.append(dados[no] == 1 ? " ->" : " .");
+                break;
+            case CAMPO:
+            case VARIAVEL:
+                if (dados[no] >= 0) {
+                    sb.append(" [").append(dados[no]).append(']');
+                }
+                break;
+            case LITERAL_INT:
+                sb.append(' ').append(dados[no]);
+                break;
+            case DECLARACAO:
+                if (dados[no] == 1) {
+                    sb.append(" const");
+                }
+                break;
+            default:
+                break;
+        }
+        if (textos[no] != null) {
+            sb.append(' ').append(textos[no]);
+        }
+        if (tipos[no] != null) {
+            sb.append(" : ").append(tipos[no]);
+        }
+        sb.append(" @").append(linhas[no]).append(':').append(colunas[no]);
+    }
+
+}
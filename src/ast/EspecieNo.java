@@ -0,0 +1,78 @@
+package ast;
+
+/**
+ * Espécies de nós da ArvoreSintatica. Cada espécie pertence a uma categoria
+ * (declaração, comando ou expressão); o comentário indica o que o nó guarda
+ * e quais são os filhos, por ordem.
+ *
+ * @author itsupport
+ */
+public enum EspecieNo {
+
+    // === Declarações ===
+    PROGRAMA(Categoria.DECLARACAO),      // filhos: STRUCT | FUNCAO | DECLARACAO
+    STRUCT(Categoria.DECLARACAO),        // texto: nome, simbolo: Struct; filhos: CAMPO
+    CAMPO(Categoria.DECLARACAO),         // texto: nome, tipo; dado: tamanho do array ou -1
+    FUNCAO(Categoria.DECLARACAO),        // texto: nome, tipo: retorno, simbolo: Funcao; filhos: PARAMETRO*, BLOCO
+    PARAMETRO(Categoria.DECLARACAO),     // texto: nome, tipo, simbolo: Variavel
+    DECLARACAO(Categoria.DECLARACAO),    // dado: 1 se const; filhos: VARIAVEL
+    VARIAVEL(Categoria.DECLARACAO),      // texto: nome, tipo, simbolo: Variavel; dado: tamanho do array ou -1; filho: inicializador
+
+    // === Comandos ===
+    BLOCO(Categoria.COMANDO),            // filhos: comandos
+    IF(Categoria.COMANDO),               // filhos: condição, BLOCO [, BLOCO else]
+    WHILE(Categoria.COMANDO),            // filhos: condição, BLOCO
+    DO_WHILE(Categoria.COMANDO),         // filhos: BLOCO, condição
+    FOR(Categoria.COMANDO),              // filhos: inicialização, condição, passo, BLOCO
+    SWITCH(Categoria.COMANDO),           // filhos: expressão, CASO* [, DEFEITO]
+    CASO(Categoria.COMANDO),             // texto: constante; dado: valor; filhos: comandos
+    DEFEITO(Categoria.COMANDO),          // filhos: comandos
+    RETURN(Categoria.COMANDO),           // filho: expressão
+    BREAK(Categoria.COMANDO),
+    CONTINUE(Categoria.COMANDO),
+    ATRIBUICAO(Categoria.COMANDO),       // dado: TokenKind do operador; filhos: lvalue, expressão
+    INCREMENTO(Categoria.COMANDO),       // dado: INCREMENT | DECREMENT; filho: lvalue
+    PRINTF(Categoria.COMANDO),           // texto: formato; filhos: argumentos
+    SCANF(Categoria.COMANDO),            // texto: formato; filhos: endereços (UNARIA &)
+
+    // === Expressões (tipo: o tipo calculado pelo Parser) ===
+    TERNARIA(Categoria.EXPRESSAO),       // filhos: condição, verdadeiro, falso
+    BINARIA(Categoria.EXPRESSAO),        // dado: TokenKind do operador; filhos: esquerda, direita
+    UNARIA(Categoria.EXPRESSAO),         // dado: TokenKind do operador (prefixo); filho: operando
+    POSFIXA(Categoria.EXPRESSAO),        // dado: INCREMENT | DECREMENT; filho: operando
+    CHAMADA(Categoria.EXPRESSAO),        // texto: nome, simbolo: Funcao; filhos: argumentos
+    IDENTIFICADOR(Categoria.EXPRESSAO),  // texto: nome, simbolo: Variavel (null se por declarar)
+    INDICE(Categoria.EXPRESSAO),         // filhos: array, índice
+    ACESSO_CAMPO(Categoria.EXPRESSAO),   // texto: campo; dado: 1 para '->'; filho: struct
+    LITERAL_INT(Categoria.EXPRESSAO),    // dado: valor
+    LITERAL_FLOAT(Categoria.EXPRESSAO),  // texto: lexema
+    LITERAL_CHAR(Categoria.EXPRESSAO),   // texto: lexema com aspas; dado: código do carácter
+    LITERAL_STRING(Categoria.EXPRESSAO); // texto: lexema com aspas
+
+    public enum Categoria {
+        DECLARACAO,
+        COMANDO,
+        EXPRESSAO
+    }
+
+    private static final EspecieNo[] VALORES = values();
+
+    private final Categoria categoria;
+
+    EspecieNo(Categoria categoria) {
+        this.categoria = categoria;
+    }
+
+    public Categoria getCategoria() {
+        return categoria;
+    }
+
+    public boolean isExpressao() {
+        return categoria == Categoria.EXPRESSAO;
+    }
+
+    static EspecieNo deOrdinal(int ordinal) {
+        return VALORES[ordinal];
+    }
+
+}
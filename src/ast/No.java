@@ -0,0 +1,81 @@
+package ast;
+
+import java.util.ArrayList;
+import java.util.List;
+import models.Tipo;
+
+/**
+ * Vista de um nó da ArvoreSintatica, criada a pedido (ferramentas, IDE).
+ * Não guarda nada além da árvore e do índice; as passagens que percorrem a
+ * árvore inteira devem usar diretamente os métodos por índice da arena.
+ *
+ * @author itsupport
+ */
+public final class No {
+
+    private final ArvoreSintatica arvore;
+    private final int indice;
+
+    No(ArvoreSintatica arvore, int indice) {
+        this.arvore = arvore;
+        this.indice = indice;
+    }
+
+    public int getIndice() {
+        return indice;
+    }
+
+    public EspecieNo getEspecie() {
+        return arvore.getEspecie(indice);
+    }
+
+    public Tipo getTipo() {
+        return arvore.getTipo(indice);
+    }
+
+    public String getTexto() {
+        return arvore.getTexto(indice);
+    }
+
+    public Object getSimbolo() {
+        return arvore.getSimbolo(indice);
+    }
+
+    public int getDado() {
+        return arvore.getDado(indice);
+    }
+
+    public int getLinha() {
+        return arvore.getLinha(indice);
+    }
+
+    public int getColuna() {
+        return arvore.getColuna(indice);
+    }
+
+    public List<No> getFilhos() {
+        List<No> filhos = new ArrayList<>();
+        for (int f = arvore.primeiroFilho(indice); f != ArvoreSintatica.NENHUM; f = arvore.proximoIrmao(f)) {
+            filhos.add(new No(arvore, f));
+        }
+        return filhos;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof No && ((No) obj).arvore == arvore && ((No) obj).indice == indice;
+    }
+
+    @Override
+    public int hashCode() {
+        return indice;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        arvore.descrever(indice, sb);
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,549 @@
+package backend;
+
+import ir.ConstrucaoNaoSuportada;
+import ir.FuncaoIR;
+import ir.Instrucao;
+import ir.LayoutMemoria;
+import ir.OpIR;
+import ir.Operando;
+import ir.ProgramaIR;
+import ir.TipoIR;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gera assembly x86-64 (sintaxe AT&T, ABI System V) a partir do ProgramaIR.
+ *
+ * A geração é direta: cada temporário tem um espaço de 8 bytes na pilha e
+ * cada instrução carrega os operandos para %rax/%rcx (ou %xmm0/%xmm1), faz a
+ * operação e guarda o resultado. Os argumentos das chamadas seguem a ABI
+ * (%rdi, %rsi, %rdx, %rcx, %r8, %r9 e %xmm0-%xmm7, e os restantes na pilha,
+ * 8 bytes cada, o primeiro em 16(%rbp) da função chamada), pelo que printf e
+ * scanf são chamados diretamente da libc.
+ *
+ * @author itsupport
+ */
+public class GeradorX86 {
+
+    private static final int RAX = 0, RCX = 1, RDX = 2, RSI = 3, RDI = 4, R8 = 5, R9 = 6, R11 = 7;
+    private static final String[] REGISTOS_64 = {"%rax", "%rcx", "%rdx", "%rsi", "%rdi", "%r8", "%r9", "%r11"};
+    private static final String[] REGISTOS_32 = {"%eax", "%ecx", "%edx", "%esi", "%edi", "%r8d", "%r9d", "%r11d"};
+    private static final int[] ARGUMENTOS_INTEIROS = {RDI, RSI, RDX, RCX, R8, R9};
+    private static final int ARGUMENTOS_REAIS = 8;
+
+    private final StringBuilder sb = new StringBuilder(1 << 16);
+    private Writer saida;
+
+    private FuncaoIR funcao;
+    private int numeroFuncao;
+    private long[] deslocamentosLocais;
+
+    public void gerar(ProgramaIR programa, Writer saida) throws IOException {
+        this.saida = saida;
+        dados(programa);
+        sb.append("\t.text\n");
+        numeroFuncao = 0;
+        for (FuncaoIR f : programa.getFuncoes()) {
+            funcao(f);
+            numeroFuncao++;
+            descarregar();
+        }
+        sb.append("\t.section .note.GNU-stack,\"\",@progbits\n");
+        descarregar();
+    }
+
+    private void descarregar() throws IOException {
+        saida.append(sb);
+        sb.setLength(0);
+    }
+
+    // === Dados ===
+
+    private void dados(ProgramaIR programa) {
+        List<byte[]> strings = programa.getStrings();
+        if (!strings.isEmpty()) {
+            sb.append("\t.section .rodata\n");
+            for (int i = 0; i < strings.size(); i++) {
+                sb.append(".LC").append(i).append(":\n\t.string \"");
+                for (byte b : strings.get(i)) {
+                    int c = b & 0xFF;
+                    if (c == '"' || c == '\\') {
+                        sb.append('\\').append((char) c);
+                    } else if (c < 0x20 || c >= 0x7F) {
+                        sb.append('\\').append((char) ('0' + (c >> 6))).append((char) ('0' + ((c >> 3) & 7))).append((char) ('0' + (c & 7)));
+                    } else {
+                        sb.append((char) c);
+                    }
+                }
+                sb.append("\"\n");
+            }
+        }
+        for (ProgramaIR.Global global : programa.getGlobais()) {
+            Operando valor = global.getValorInicial();
+            sb.append(valor != null ? "\t.data\n" : "\t.bss\n");
+            sb.append("\t.align ").append(global.getAlinhamento()).append('\n');
+            sb.append(global.getNome()).append(":\n");
+            if (valor == null) {
+                sb.append("\t.zero ").append(global.getTamanho()).append('\n');
+                continue;
+            }
+            switch (global.getTipoInicial()) {
+                case I8:
+                    sb.append("\t.byte ").append((byte) valor.getInteiro()).append('\n');
+                    break;
+                case I16:
+                    sb.append("\t.short ").append((short) valor.getInteiro()).append('\n');
+                    break;
+                case I32:
+                    sb.append("\t.long ").append((int) valor.getInteiro()).append('\n');
+                    break;
+                case I64:
+                    sb.append("\t.quad ").append(valor.getInteiro()).append('\n');
+                    break;
+                case F32:
+                    sb.append("\t.long ").append(Float.floatToRawIntBits((float) valor.getReal())).append('\n');
+                    break;
+                default:
+                    sb.append("\t.quad ").append(Double.doubleToRawLongBits(valor.getReal())).append('\n');
+                    break;
+            }
+            if (global.getTamanho() > global.getTipoInicial().getTamanho()) {
+                sb.append("\t.zero ").append(global.getTamanho() - global.getTipoInicial().getTamanho()).append('\n');
+            }
+        }
+    }
+
+    // === Funções ===
+
+    private void funcao(FuncaoIR f) {
+        funcao = f;
+        // Temporários em -8(%rbp), -16(%rbp), ...; os espaços locais a seguir
+        long topo = 8L * f.getNumeroTemps();
+        deslocamentosLocais = new long[f.getNumeroLocais()];
+        for (int i = 0; i < f.getNumeroLocais(); i++) {
+            topo = LayoutMemoria.alinhar(topo + f.getTamanhoLocal(i), f.getAlinhamentoLocal(i));
+            deslocamentosLocais[i] = -topo;
+        }
+        long quadro = LayoutMemoria.alinhar(topo, 16);
+
+        String nome = f.getNome();
+        if (nome.equals("main")) {
+            sb.append("\t.globl main\n");
+        }
+        sb.append("\t.type ").append(nome).append(", @function\n");
+        sb.append(nome).append(":\n");
+        sb.append("\tpushq %rbp\n\tmovq %rsp, %rbp\n");
+        if (quadro > 0) {
+            sb.append("\tsubq $").append(quadro).append(", %rsp\n");
+        }
+
+        int inteiros = 0;
+        int reais = 0;
+        long pilha = 16; // Acima do %rbp guardado e do endereço de retorno
+        for (Operando parametro : f.getParametros()) {
+            TipoIR tipo = parametro.getTipo();
+            if (tipo.isReal() && reais < ARGUMENTOS_REAIS) {
+                instrucao(movReal(tipo), "%xmm" + reais++, temp(parametro));
+            } else if (!tipo.isReal() && inteiros < ARGUMENTOS_INTEIROS.length) {
+                instrucao(mov(tipo), registo(ARGUMENTOS_INTEIROS[inteiros++], tipo), temp(parametro));
+            } else if (tipo.isReal()) {
+                instrucao(movReal(tipo), pilha + "(%rbp)", "%xmm0");
+                guardarReal(parametro, 0);
+                pilha += 8;
+            } else {
+                instrucao(mov(tipo), pilha + "(%rbp)", registo(RAX, tipo));
+                guardar(parametro, RAX);
+                pilha += 8;
+            }
+        }
+
+        for (Instrucao instrucao : f.getInstrucoes()) {
+            instrucao(instrucao);
+        }
+        sb.append("\t.size ").append(nome).append(", .-").append(nome).append('\n');
+    }
+
+    private void instrucao(Instrucao i) {
+        TipoIR tipo = i.getTipo();
+        switch (i.getOp()) {
+            case MOV:
+                if (tipo.isReal()) {
+                    carregarReal(i.getA(), 0);
+                    guardarReal(i.getDestino(), 0);
+                } else {
+                    carregar(i.getA(), RAX);
+                    guardar(i.getDestino(), RAX);
+                }
+                break;
+            case ADD:
+            case SUB:
+            case MUL:
+            case DIV:
+                aritmetica(i);
+                break;
+            case NEG:
+                if (tipo.isReal()) {
+                    // Troca o bit de sinal, como o gcc (0 - x daria +0 para x = 0)
+                    carregarReal(i.getA(), 0);
+                    carregarReal(Operando.real(-0.0, tipo), 1);
+                    instrucao("xorps", "%xmm1", "%xmm0");
+                    guardarReal(i.getDestino(), 0);
+                } else {
+                    carregar(i.getA(), RAX);
+                    sb.append(tipo == TipoIR.I64 ? "\tnegq %rax\n" : "\tnegl %eax\n");
+                    guardar(i.getDestino(), RAX);
+                }
+                break;
+            case EQ:
+            case NE:
+            case LT:
+            case LE:
+            case GT:
+            case GE:
+                comparacao(i);
+                break;
+            case CVT:
+                conversao(i);
+                break;
+            case LOAD: {
+                String endereco = memoria(i.getA());
+                switch (tipo) {
+                    case I8:
+                        instrucao("movsbl", endereco, "%eax");
+                        break;
+                    case I16:
+                        instrucao("movswl", endereco, "%eax");
+                        break;
+                    case F32:
+                    case F64:
+                        instrucao(movReal(tipo), endereco, "%xmm0");
+                        guardarReal(i.getDestino(), 0);
+                        return;
+                    default:
+                        instrucao(mov(tipo), endereco, registo(RAX, tipo));
+                        break;
+                }
+                guardar(i.getDestino(), RAX);
+                break;
+            }
+            case STORE: {
+                if (tipo.isReal()) {
+                    carregarReal(i.getB(), 0);
+                    instrucao(movReal(tipo), "%xmm0", memoria(i.getA()));
+                    break;
+                }
+                carregar(i.getB(), RCX);
+                String endereco = memoria(i.getA());
+                switch (tipo) {
+                    case I8:
+                        instrucao("movb", "%cl", endereco);
+                        break;
+                    case I16:
+                        instrucao("movw", "%cx", endereco);
+                        break;
+                    default:
+                        instrucao(mov(tipo), registo(RCX, tipo), endereco);
+                        break;
+                }
+                break;
+            }
+            case MEMCPY:
+                carregar(i.getA(), RDI);
+                carregar(i.getB(), RSI);
+                sb.append("\tmovq $").append(i.getTamanho()).append(", %rcx\n\trep movsb\n");
+                break;
+            case LABEL:
+                sb.append(rotulo(i.getRotulo())).append(":\n");
+                break;
+            case JMP:
+                sb.append("\tjmp ").append(rotulo(i.getRotulo())).append('\n');
+                break;
+            case JNZ:
+            case JZ:
+                carregar(i.getA(), RAX);
+                instrucao(i.getA().getTipo() == TipoIR.I64 ? "testq" : "testl", registo(RAX, i.getA().getTipo()), registo(RAX, i.getA().getTipo()));
+                sb.append(i.getOp() == OpIR.JNZ ? "\tjne " : "\tje ").append(rotulo(i.getRotulo())).append('\n');
+                break;
+            case CALL:
+                chamada(i);
+                break;
+            case RET:
+                if (i.getA() != null) {
+                    if (tipo.isReal()) {
+                        carregarReal(i.getA(), 0);
+                    } else {
+                        carregar(i.getA(), RAX);
+                    }
+                }
+                sb.append("\tleave\n\tret\n");
+                break;
+            default:
+                naoSuportado("instrução " + i.getOp());
+        }
+    }
+
+    private void aritmetica(Instrucao i) {
+        TipoIR tipo = i.getTipo();
+        if (tipo.isReal()) {
+            carregarReal(i.getA(), 0);
+            carregarReal(i.getB(), 1);
+            String sufixo = tipo == TipoIR.F32 ? "ss" : "sd";
+            String op = i.getOp() == OpIR.ADD ? "add" : i.getOp() == OpIR.SUB ? "sub" : i.getOp() == OpIR.MUL ? "mul" : "div";
+            instrucao(op + sufixo, "%xmm1", "%xmm0");
+            guardarReal(i.getDestino(), 0);
+            return;
+        }
+        carregar(i.getA(), RAX);
+        carregar(i.getB(), RCX);
+        boolean q = tipo == TipoIR.I64;
+        switch (i.getOp()) {
+            case ADD:
+                instrucao(q ? "addq" : "addl", registo(RCX, tipo), registo(RAX, tipo));
+                break;
+            case SUB:
+                instrucao(q ? "subq" : "subl", registo(RCX, tipo), registo(RAX, tipo));
+                break;
+            case MUL:
+                instrucao(q ? "imulq" : "imull", registo(RCX, tipo), registo(RAX, tipo));
+                break;
+            default:
+                sb.append(q ? "\tcqto\n\tidivq %rcx\n" : "\tcltd\n\tidivl %ecx\n");
+                break;
+        }
+        guardar(i.getDestino(), RAX);
+    }
+
+    private void comparacao(Instrucao i) {
+        TipoIR tipo = i.getTipo();
+        OpIR op = i.getOp();
+        if (tipo.isReal()) {
+            carregarReal(i.getA(), 0);
+            carregarReal(i.getB(), 1);
+            String ucomis = tipo == TipoIR.F32 ? "ucomiss" : "ucomisd";
+            // a < b e a <= b comparam b com a para usar seta/setae, que são falsos com NaN
+            boolean trocar = op == OpIR.LT || op == OpIR.LE;
+            instrucao(ucomis, trocar ? "%xmm0" : "%xmm1", trocar ? "%xmm1" : "%xmm0");
+            switch (op) {
+                case EQ:
+                    sb.append("\tsete %al\n\tsetnp %cl\n\tandb %cl, %al\n");
+                    break;
+                case NE:
+                    sb.append("\tsetne %al\n\tsetp %cl\n\torb %cl, %al\n");
+                    break;
+                case LT:
+                case GT:
+                    sb.append("\tseta %al\n");
+                    break;
+                default:
+                    sb.append("\tsetae %al\n");
+                    break;
+            }
+        } else {
+            carregar(i.getA(), RAX);
+            carregar(i.getB(), RCX);
+            instrucao(tipo == TipoIR.I64 ? "cmpq" : "cmpl", registo(RCX, tipo), registo(RAX, tipo));
+            String set;
+            switch (op) {
+                case EQ: set = "sete"; break;
+                case NE: set = "setne"; break;
+                case LT: set = "setl"; break;
+                case LE: set = "setle"; break;
+                case GT: set = "setg"; break;
+                default: set = "setge"; break;
+            }
+            sb.append('\t').append(set).append(" %al\n");
+        }
+        sb.append("\tmovzbl %al, %eax\n");
+        guardar(i.getDestino(), RAX);
+    }
+
+    private void conversao(Instrucao i) {
+        TipoIR de = i.getA().getTipo();
+        TipoIR para = i.getTipo();
+        if (!de.isReal() && !para.isReal()) {
+            carregar(i.getA(), RAX);
+            if (de == TipoIR.I32 && para == TipoIR.I64) {
+                sb.append("\tmovslq %eax, %rax\n");
+            }
+            guardar(i.getDestino(), RAX);
+        } else if (!de.isReal()) {
+            carregar(i.getA(), RAX);
+            instrucao((para == TipoIR.F32 ? "cvtsi2ss" : "cvtsi2sd") + (de == TipoIR.I64 ? "q" : "l"), registo(RAX, de), "%xmm0");
+            guardarReal(i.getDestino(), 0);
+        } else if (!para.isReal()) {
+            carregarReal(i.getA(), 0);
+            instrucao(de == TipoIR.F32 ? "cvttss2si" : "cvttsd2si", "%xmm0", registo(RAX, para));
+            guardar(i.getDestino(), RAX);
+        } else {
+            carregarReal(i.getA(), 0);
+            instrucao(de == TipoIR.F32 ? "cvtss2sd" : "cvtsd2ss", "%xmm0", "%xmm0");
+            guardarReal(i.getDestino(), 0);
+        }
+    }
+
+    private void chamada(Instrucao i) {
+        // Os argumentos que já não cabem nos registos vão para a pilha, o primeiro no topo
+        List<Operando> argumentos = i.getArgumentos();
+        List<Operando> naPilha = new ArrayList<>();
+        int inteiros = 0;
+        int reais = 0;
+        for (Operando argumento : argumentos) {
+            if (argumento.getTipo().isReal() ? reais++ >= ARGUMENTOS_REAIS : inteiros++ >= ARGUMENTOS_INTEIROS.length) {
+                naPilha.add(argumento);
+            }
+        }
+        // O %rsp tem de ficar alinhado a 16 bytes no call
+        long bytesPilha = LayoutMemoria.alinhar(8L * naPilha.size(), 16);
+        if (bytesPilha > 8L * naPilha.size()) {
+            sb.append("\tsubq $8, %rsp\n");
+        }
+        for (int k = naPilha.size() - 1; k >= 0; k--) {
+            empilhar(naPilha.get(k));
+        }
+
+        inteiros = 0;
+        reais = 0;
+        for (Operando argumento : argumentos) {
+            if (argumento.getTipo().isReal()) {
+                if (reais < ARGUMENTOS_REAIS) {
+                    carregarReal(argumento, reais);
+                }
+                reais++;
+            } else {
+                if (inteiros < ARGUMENTOS_INTEIROS.length) {
+                    carregar(argumento, ARGUMENTOS_INTEIROS[inteiros]);
+                }
+                inteiros++;
+            }
+        }
+        reais = Math.min(reais, ARGUMENTOS_REAIS);
+        if (i.isVariadico()) {
+            // %al: número de registos vetoriais usados pelos argumentos variáveis
+            sb.append("\tmovl $").append(reais).append(", %eax\n");
+            sb.append("\tcall ").append(i.getFuncao()).append("@PLT\n");
+        } else {
+            sb.append("\tcall ").append(i.getFuncao()).append('\n');
+        }
+        if (bytesPilha > 0) {
+            sb.append("\taddq $").append(bytesPilha).append(", %rsp\n");
+        }
+        Operando destino = i.getDestino();
+        if (destino != null) {
+            if (destino.getTipo().isReal()) {
+                guardarReal(destino, 0);
+            } else {
+                guardar(destino, RAX);
+            }
+        }
+    }
+
+    // === Operandos ===
+
+    private void carregar(Operando operando, int registo) {
+        TipoIR tipo = operando.getTipo();
+        switch (operando.getEspecie()) {
+            case TEMP:
+                instrucao(mov(tipo), temp(operando), registo(registo, tipo));
+                break;
+            case INTEIRO: {
+                long valor = operando.getInteiro();
+                if (tipo == TipoIR.I64 && (valor < Integer.MIN_VALUE || valor > Integer.MAX_VALUE)) {
+                    instrucao("movabsq", "$" + valor, REGISTOS_64[registo]);
+                } else {
+                    instrucao(mov(tipo), "$" + valor, registo(registo, tipo));
+                }
+                break;
+            }
+            case REAL:
+                naoSuportado("constante real num registo inteiro");
+                break;
+            default:
+                instrucao("leaq", memoria(operando), REGISTOS_64[registo]);
+                break;
+        }
+    }
+
+    private void carregarReal(Operando operando, int xmm) {
+        TipoIR tipo = operando.getTipo();
+        if (operando.getEspecie() == Operando.Especie.REAL) {
+            if (tipo == TipoIR.F32) {
+                instrucao("movl", "$" + Float.floatToRawIntBits((float) operando.getReal()), "%r11d");
+                instrucao("movd", "%r11d", "%xmm" + xmm);
+            } else {
+                instrucao("movabsq", "$" + Double.doubleToRawLongBits(operando.getReal()), "%r11");
+                instrucao("movq", "%r11", "%xmm" + xmm);
+            }
+        } else {
+            instrucao(movReal(tipo), temp(operando), "%xmm" + xmm);
+        }
+    }
+
+    // Põe o argumento na pilha em 8 bytes; um real vai pelos bits, em %rax
+    private void empilhar(Operando argumento) {
+        if (argumento.getEspecie() == Operando.Especie.REAL) {
+            long bits = argumento.getTipo() == TipoIR.F32
+                    ? Float.floatToRawIntBits((float) argumento.getReal()) & 0xFFFFFFFFL
+                    : Double.doubleToRawLongBits(argumento.getReal());
+            instrucao("movabsq", "$" + bits, "%rax");
+        } else if (argumento.isTemp()) {
+            instrucao("movq", temp(argumento), "%rax");
+        } else {
+            carregar(argumento, RAX);
+        }
+        sb.append("\tpushq %rax\n");
+    }
+
+    private void guardar(Operando destino, int registo) {
+        instrucao(mov(destino.getTipo()), registo(registo, destino.getTipo()), temp(destino));
+    }
+
+    private void guardarReal(Operando destino, int xmm) {
+        instrucao(movReal(destino.getTipo()), "%xmm" + xmm, temp(destino));
+    }
+
+    // Endereço de memória indicado pelo operando; os endereços calculados passam por %rax
+    private String memoria(Operando endereco) {
+        switch (endereco.getEspecie()) {
+            case GLOBAL:
+                return endereco.getNome() + "(%rip)";
+            case STRING:
+                return ".LC" + endereco.getIndice() + "(%rip)";
+            case LOCAL:
+                return deslocamentosLocais[endereco.getIndice()] + "(%rbp)";
+            default:
+                carregar(endereco, RAX);
+                return "(%rax)";
+        }
+    }
+
+    private String temp(Operando temp) {
+        return -8L * (temp.getIndice() + 1) + "(%rbp)";
+    }
+
+    private String rotulo(int rotulo) {
+        return ".L" + numeroFuncao + "_" + rotulo;
+    }
+
+    private static String registo(int registo, TipoIR tipo) {
+        return tipo == TipoIR.I64 ? REGISTOS_64[registo] : REGISTOS_32[registo];
+    }
+
+    private static String mov(TipoIR tipo) {
+        return tipo == TipoIR.I64 ? "movq" : "movl";
+    }
+
+    private static String movReal(TipoIR tipo) {
+        return tipo == TipoIR.F32 ? "movss" : "movsd";
+    }
+
+    private void instrucao(String mnemonica, String origem, String destino) {
+        sb.append('\t').append(mnemonica).append(' ').append(origem).append(", ").append(destino).append('\n');
+    }
+
+    private static void naoSuportado(String construcao) {
+        throw new ConstrucaoNaoSuportada("Não suportado pelo gerador de código: " + construcao);
+    }
+
+}
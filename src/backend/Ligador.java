@@ -0,0 +1,91 @@
+package backend;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Monta o assembly com o "as" do sistema e liga o objeto com o "ld" contra a
+ * libc dinâmica e os ficheiros de arranque (crt1.o, crti.o, crtn.o), sem
+ * passar pelo gcc.
+ *
+ * @author itsupport
+ */
+public class Ligador {
+
+    private static final String[] DIRETORIOS_BIBLIOTECAS = {
+        "/usr/lib/x86_64-linux-gnu", "/usr/lib64", "/usr/lib", "/lib/x86_64-linux-gnu", "/lib64"
+    };
+    private static final String[] CARREGADORES = {
+        "/lib64/ld-linux-x86-64.so.2", "/lib/x86_64-linux-gnu/ld-linux-x86-64.so.2", "/lib/ld-linux-x86-64.so.2"
+    };
+
+    /**
+     * Gera o executável a partir do ficheiro assembly.
+     *
+     * @throws IOException se as ferramentas ou a libc não forem encontradas,
+     * ou se o as/ld falharem (a mensagem inclui o erro que reportaram)
+     */
+    public void ligar(File assembly, File executavel) throws IOException {
+        String arquitetura = System.getProperty("os.arch");
+        if (!System.getProperty("os.name").startsWith("Linux")
+                || !(arquitetura.equals("amd64") || arquitetura.equals("x86_64"))) {
+            throw new IOException("O gerador de código só produz executáveis Linux x86-64");
+        }
+        String bibliotecas = procurarDiretorio();
+        String carregador = procurarCarregador();
+
+        File objeto = File.createTempFile("compilador", ".o");
+        try {
+            executar(List.of("as", "--64", "-o", objeto.getPath(), assembly.getPath()));
+            List<String> ld = new ArrayList<>(List.of("ld", "-o", executavel.getPath(),
+                    "-dynamic-linker", carregador,
+                    bibliotecas + "/crt1.o", bibliotecas + "/crti.o",
+                    objeto.getPath(),
+                    "-L" + bibliotecas, "-lc",
+                    bibliotecas + "/crtn.o"));
+            executar(ld);
+        } finally {
+            objeto.delete();
+        }
+    }
+
+    private static String procurarDiretorio() throws IOException {
+        for (String diretorio : DIRETORIOS_BIBLIOTECAS) {
+            if (new File(diretorio, "crt1.o").isFile() && new File(diretorio, "crti.o").isFile()) {
+                return diretorio;
+            }
+        }
+        throw new IOException("crt1.o não encontrado (instale as bibliotecas de desenvolvimento da libc)");
+    }
+
+    private static String procurarCarregador() throws IOException {
+        for (String carregador : CARREGADORES) {
+            if (new File(carregador).exists()) {
+                return carregador;
+            }
+        }
+        throw new IOException("ld-linux-x86-64.so.2 não encontrado");
+    }
+
+    private static void executar(List<String> comando) throws IOException {
+        Process processo;
+        try {
+            processo = new ProcessBuilder(comando).redirectErrorStream(true).start();
+        } catch (IOException e) {
+            throw new IOException("Não foi possível executar '" + comando.get(0) + "' (binutils instalado?)", e);
+        }
+        String mensagens = new String(processo.getInputStream().readAllBytes(), Charset.defaultCharset());
+        try {
+            if (processo.waitFor() != 0) {
+                throw new IOException("'" + comando.get(0) + "' falhou: " + mensagens.trim());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrompido à espera de '" + comando.get(0) + "'", e);
+        }
+    }
+
+}
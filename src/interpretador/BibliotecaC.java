@@ -0,0 +1,763 @@
+package interpretador;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * printf e scanf do programa interpretado, com a saída e a entrada em bytes
+ * (as strings do programa já estão codificadas com o charset do ficheiro
+ * fonte, como no executável).
+ *
+ * A formatação segue a glibc: flags "-+ #0", largura e precisão (também com
+ * '*'), modificadores de tamanho e as conversões d i u o x X c s p f F e E g
+ * G a A % n. Os reais são arredondados a partir do valor binário exato, com
+ * empate para par, pelo que "%.2f" de 2.675 dá 2.67 como no C.
+ *
+ * @author itsupport
+ */
+final class BibliotecaC {
+
+    private static final int EOF = -1;
+
+    private final Memoria memoria;
+    private final InputStream entrada;
+    private final OutputStream saida;
+    private byte[] buffer = new byte[256];
+    private int tamanho;
+    private int devolvido = -2; // Byte devolvido à entrada por scanf, -2 se nenhum
+
+    BibliotecaC(Memoria memoria, InputStream entrada, OutputStream saida) {
+        this.memoria = memoria;
+        this.entrada = entrada;
+        this.saida = saida;
+    }
+
+    void descarregar() {
+        try {
+            saida.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // === printf ===
+
+    /**
+     * Formata e escreve. Os argumentos vêm como em registos: inteiros com o
+     * valor (já estendido a 64 bits) e reais com os bits do double.
+     *
+     * @return número de bytes escritos
+     */
+    int printf(long[] argumentos, int n) {
+        tamanho = 0;
+        byte[] m = memoria.bytes;
+        int p = (int) argumentos[0];
+        memoria.comprimento(p);
+        int proximo = 1;
+        while (m[p] != 0) {
+            byte c = m[p++];
+            if (c != '%') {
+                escrever(c);
+                continue;
+            }
+            int inicioEspecificacao = p - 1;
+            boolean esquerda = false;
+            boolean sinal = false;
+            boolean espaco = false;
+            boolean alternativa = false;
+            boolean zeros = false;
+            for (;; p++) {
+                if (m[p] == '-') {
+                    esquerda = true;
+                } else if (m[p] == '+') {
+                    sinal = true;
+                } else if (m[p] == ' ') {
+                    espaco = true;
+                } else if (m[p] == '#') {
+                    alternativa = true;
+                } else if (m[p] == '0') {
+                    zeros = true;
+                } else {
+                    break;
+                }
+            }
+            int largura = 0;
+            if (m[p] == '*') {
+                p++;
+                largura = (int) argumento(argumentos, proximo++, n);
+                if (largura < 0) {
+                    esquerda = true;
+                    largura = -largura;
+                }
+            } else {
+                while (m[p] >= '0' && m[p] <= '9') {
+                    largura = largura * 10 + (m[p++] - '0');
+                }
+            }
+            int precisao = -1;
+            if (m[p] == '.') {
+                p++;
+                if (m[p] == '*') {
+                    p++;
+                    precisao = (int) argumento(argumentos, proximo++, n);
+                    precisao = precisao < 0 ? -1 : precisao;
+                } else {
+                    precisao = 0;
+                    while (m[p] >= '0' && m[p] <= '9') {
+                        precisao = precisao * 10 + (m[p++] - '0');
+                    }
+                }
+            }
+            int bits = 32; // Tamanho do argumento inteiro: hh=8, h=16, l/ll/j/z/t=64
+            while (true) {
+                if (m[p] == 'h') {
+                    bits = bits == 16 ? 8 : 16;
+                } else if (m[p] == 'l' || m[p] == 'j' || m[p] == 'z' || m[p] == 't' || m[p] == 'q' || m[p] == 'L') {
+                    bits = 64;
+                } else {
+                    break;
+                }
+                p++;
+            }
+            char conversao = (char) m[p];
+            if (conversao == 0) {
+                escrever(m, inicioEspecificacao, p - inicioEspecificacao);
+                break;
+            }
+            p++;
+            String prefixo = "";
+            String corpo;
+            switch (conversao) {
+                case 'd':
+                case 'i': {
+                    long valor = estreitar(argumento(argumentos, proximo++, n), bits, true);
+                    prefixo = valor < 0 ? "-" : sinal ? "+" : espaco ? " " : "";
+                    corpo = digitos(valor < 0 ? Long.toUnsignedString(-valor) : Long.toString(valor), valor == 0, precisao);
+                    break;
+                }
+                case 'u':
+                case 'o':
+                case 'x':
+                case 'X': {
+                    long valor = estreitar(argumento(argumentos, proximo++, n), bits, false);
+                    int base = conversao == 'u' ? 10 : conversao == 'o' ? 8 : 16;
+                    String texto = Long.toUnsignedString(valor, base);
+                    corpo = digitos(conversao == 'X' ? texto.toUpperCase() : texto, valor == 0, precisao);
+                    if (alternativa && conversao == 'o' && !corpo.startsWith("0")) {
+                        corpo = "0" + corpo;
+                    } else if (alternativa && valor != 0 && base == 16) {
+                        prefixo = conversao == 'x' ? "0x" : "0X";
+                    }
+                    break;
+                }
+                case 'c':
+                    alinhar(null, 1, largura, esquerda, false, (byte) argumento(argumentos, proximo++, n));
+                    continue;
+                case 's': {
+                    long endereco = argumento(argumentos, proximo++, n);
+                    if (endereco == 0) {
+                        corpo = precisao < 0 || precisao >= 6 ? "(null)" : "";
+                        break;
+                    }
+                    int comprimento = memoria.comprimento(endereco);
+                    if (precisao >= 0 && precisao < comprimento) {
+                        comprimento = precisao;
+                    }
+                    alinharBytes((int) endereco, comprimento, largura, esquerda);
+                    continue;
+                }
+                case 'p': {
+                    long valor = argumento(argumentos, proximo++, n);
+                    corpo = valor == 0 ? "(nil)" : "0x" + Long.toHexString(valor);
+                    zeros = false;
+                    break;
+                }
+                case 'f':
+                case 'F':
+                case 'e':
+                case 'E':
+                case 'g':
+                case 'G':
+                case 'a':
+                case 'A': {
+                    double valor = Double.longBitsToDouble(argumento(argumentos, proximo++, n));
+                    prefixo = Double.doubleToRawLongBits(valor) < 0 ? "-" : sinal ? "+" : espaco ? " " : "";
+                    if (Double.isNaN(valor) || Double.isInfinite(valor)) {
+                        corpo = Double.isNaN(valor) ? "nan" : "inf";
+                        zeros = false;
+                    } else {
+                        corpo = real(Math.abs(valor), Character.toLowerCase(conversao), precisao, alternativa);
+                    }
+                    if (Character.isUpperCase(conversao)) {
+                        corpo = corpo.toUpperCase();
+                        prefixo = prefixo.toUpperCase();
+                    }
+                    precisao = -1; // Os zeros à esquerda voltam a ser permitidos
+                    break;
+                }
+                case '%':
+                    escrever((byte) '%');
+                    continue;
+                case 'n':
+                    memoria.escreverI32(argumento(argumentos, proximo++, n), tamanho);
+                    continue;
+                default:
+                    // Conversão desconhecida: a glibc escreve a especificação tal como está
+                    escrever(m, inicioEspecificacao, p - inicioEspecificacao);
+                    continue;
+            }
+            String texto = prefixo + corpo;
+            alinhar(texto, prefixo.length(), largura, esquerda, zeros && !esquerda && precisao < 0, (byte) 0);
+        }
+        try {
+            saida.write(buffer, 0, tamanho);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tamanho;
+    }
+
+    private static long argumento(long[] argumentos, int indice, int n) {
+        // Argumento em falta: o printf real leria lixo de um registo
+        return indice < n ? argumentos[indice] : 0;
+    }
+
+    private static long estreitar(long valor, int bits, boolean comSinal) {
+        switch (bits) {
+            case 8:
+                return comSinal ? (byte) valor : valor & 0xFF;
+            case 16:
+                return comSinal ? (short) valor : valor & 0xFFFF;
+            case 32:
+                return comSinal ? (int) valor : valor & 0xFFFFFFFFL;
+            default:
+                return valor;
+        }
+    }
+
+    // Dígitos de um inteiro com a precisão como número mínimo de dígitos
+    private static String digitos(String texto, boolean zero, int precisao) {
+        if (precisao < 0) {
+            return texto;
+        }
+        if (precisao == 0 && zero) {
+            return "";
+        }
+        return texto.length() >= precisao ? texto : "0".repeat(precisao - texto.length()) + texto;
+    }
+
+    private static String real(double valor, char conversao, int precisao, boolean alternativa) {
+        switch (conversao) {
+            case 'f': {
+                String texto = fixo(valor, precisao < 0 ? 6 : precisao);
+                return alternativa && precisao == 0 ? texto + "." : texto;
+            }
+            case 'e':
+                return cientifico(valor, precisao < 0 ? 6 : precisao, alternativa);
+            case 'g': {
+                int significativos = precisao < 0 ? 6 : precisao == 0 ? 1 : precisao;
+                int expoente = valor == 0 ? 0 : expoente(arredondar(valor, significativos));
+                String texto = significativos > expoente && expoente >= -4
+                        ? fixo(valor, significativos - 1 - expoente)
+                        : cientifico(valor, significativos - 1, alternativa);
+                if (alternativa) {
+                    return texto.indexOf('.') < 0 && texto.indexOf('e') < 0 ? texto + "." : texto;
+                }
+                return semZerosFinais(texto);
+            }
+            default:
+                return hexadecimal(valor, precisao);
+        }
+    }
+
+    private static String fixo(double valor, int precisao) {
+        return new BigDecimal(valor).setScale(precisao, RoundingMode.HALF_EVEN).toPlainString();
+    }
+
+    private static String cientifico(double valor, int precisao, boolean alternativa) {
+        String mantissa;
+        int expoente;
+        if (valor == 0) {
+            mantissa = "0".repeat(precisao + 1);
+            expoente = 0;
+        } else {
+            BigDecimal arredondado = arredondar(valor, precisao + 1);
+            expoente = expoente(arredondado);
+            mantissa = arredondado.unscaledValue().toString();
+            mantissa = mantissa + "0".repeat(Math.max(0, precisao + 1 - mantissa.length()));
+        }
+        StringBuilder sb = new StringBuilder().append(mantissa.charAt(0));
+        if (precisao > 0 || alternativa) {
+            sb.append('.').append(mantissa, 1, precisao + 1);
+        }
+        sb.append(expoente < 0 ? "e-" : "e+");
+        int absoluto = Math.abs(expoente);
+        return sb.append(absoluto < 10 ? "0" : "").append(absoluto).toString();
+    }
+
+    private static BigDecimal arredondar(double valor, int significativos) {
+        return new BigDecimal(valor).round(new MathContext(significativos, RoundingMode.HALF_EVEN));
+    }
+
+    // Expoente decimal do primeiro dígito significativo
+    private static int expoente(BigDecimal valor) {
+        return valor.precision() - valor.scale() - 1;
+    }
+
+    private static String semZerosFinais(String texto) {
+        int e = texto.indexOf('e');
+        String mantissa = e < 0 ? texto : texto.substring(0, e);
+        if (mantissa.indexOf('.') >= 0) {
+            int fim = mantissa.length();
+            while (mantissa.charAt(fim - 1) == '0') {
+                fim--;
+            }
+            if (mantissa.charAt(fim - 1) == '.') {
+                fim--;
+            }
+            mantissa = mantissa.substring(0, fim);
+        }
+        return e < 0 ? mantissa : mantissa + texto.substring(e);
+    }
+
+    // %a: 0x1.8p+1; sem precisão mostra os dígitos necessários
+    private static String hexadecimal(double valor, int precisao) {
+        if (valor == 0) {
+            return "0x0" + (precisao > 0 ? "." + "0".repeat(precisao) : "") + "p+0";
+        }
+        long bits = Double.doubleToRawLongBits(valor);
+        int expoente = (int) ((bits >>> 52) & 0x7FF);
+        long fracao = bits & 0xFFFFFFFFFFFFFL;
+        if (expoente == 0) {
+            // Subnormal: normaliza para 1.xxx como a glibc
+            int deslocamento = Long.numberOfLeadingZeros(fracao) - 11;
+            fracao = (fracao << deslocamento) & 0xFFFFFFFFFFFFFL;
+            expoente = 1 - deslocamento;
+        }
+        expoente -= 1023;
+        String digitos = String.format("%013x", fracao);
+        int inteiro = 1;
+        if (precisao >= 0 && precisao < 13) {
+            BigInteger completo = BigInteger.valueOf(1L << 52 | fracao);
+            BigInteger[] divisao = completo.divideAndRemainder(BigInteger.ONE.shiftLeft(4 * (13 - precisao)));
+            BigInteger metade = BigInteger.ONE.shiftLeft(4 * (13 - precisao) - 1);
+            BigInteger quociente = divisao[0];
+            int comparacao = divisao[1].compareTo(metade);
+            if (comparacao > 0 || (comparacao == 0 && quociente.testBit(0))) {
+                quociente = quociente.add(BigInteger.ONE);
+            }
+            inteiro = quociente.shiftRight(4 * precisao).intValue();
+            digitos = precisao == 0 ? "" : String.format("%0" + precisao + "x", quociente.subtract(BigInteger.valueOf(inteiro).shiftLeft(4 * precisao)));
+        } else {
+            int fim = digitos.length();
+            while (fim > 0 && digitos.charAt(fim - 1) == '0') {
+                fim--;
+            }
+            digitos = digitos.substring(0, fim) + (precisao > 13 ? "0".repeat(precisao - 13) : "");
+        }
+        return "0x" + inteiro + (digitos.isEmpty() ? "" : "." + digitos) + "p" + (expoente < 0 ? "" : "+") + expoente;
+    }
+
+    // Escreve o texto (ASCII) ou um único byte com espaços ou zeros até à largura
+    private void alinhar(String texto, int prefixo, int largura, boolean esquerda, boolean zeros, byte unico) {
+        int comprimento = texto != null ? texto.length() : 1;
+        int enchimento = Math.max(0, largura - comprimento);
+        if (!esquerda && !zeros) {
+            repetir((byte) ' ', enchimento);
+        }
+        if (texto == null) {
+            escrever(unico);
+        } else {
+            for (int i = 0; i < texto.length(); i++) {
+                if (i == prefixo && zeros) {
+                    repetir((byte) '0', enchimento);
+                }
+                escrever((byte) texto.charAt(i));
+            }
+            if (zeros && prefixo == texto.length()) {
+                repetir((byte) '0', enchimento);
+            }
+        }
+        if (esquerda) {
+            repetir((byte) ' ', enchimento);
+        }
+    }
+
+    private void alinharBytes(int inicio, int comprimento, int largura, boolean esquerda) {
+        int enchimento = Math.max(0, largura - comprimento);
+        if (!esquerda) {
+            repetir((byte) ' ', enchimento);
+        }
+        escrever(memoria.bytes, inicio, comprimento);
+        if (esquerda) {
+            repetir((byte) ' ', enchimento);
+        }
+    }
+
+    private void repetir(byte b, int vezes) {
+        for (int i = 0; i < vezes; i++) {
+            escrever(b);
+        }
+    }
+
+    private void escrever(byte b) {
+        if (tamanho == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        buffer[tamanho++] = b;
+    }
+
+    private void escrever(byte[] bytes, int inicio, int comprimento) {
+        if (tamanho + comprimento > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, tamanho + comprimento));
+        }
+        System.arraycopy(bytes, inicio, buffer, tamanho, comprimento);
+        tamanho += comprimento;
+    }
+
+    // === scanf ===
+
+    /**
+     * Lê da entrada segundo o formato em argumentos[0] e guarda os valores
+     * nos endereços dos argumentos seguintes.
+     *
+     * @return número de conversões guardadas, ou -1 (EOF) se a entrada
+     * acabou antes da primeira
+     */
+    int scanf(long[] argumentos, int n) {
+        descarregar();
+        byte[] m = memoria.bytes;
+        int p = (int) argumentos[0];
+        memoria.comprimento(p);
+        int proximo = 1;
+        int guardados = 0;
+        int consumidos = 0;
+        boolean fimEntrada = false;
+        formato:
+        while (m[p] != 0) {
+            byte c = m[p++];
+            if (espaco(c)) {
+                consumidos += saltarEspacos();
+                continue;
+            }
+            if (c != '%' || m[p] == '%') {
+                if (c == '%') {
+                    p++;
+                    consumidos += saltarEspacos();
+                }
+                int lido = ler();
+                if (lido != c) {
+                    fimEntrada = lido == EOF;
+                    devolver(lido);
+                    break;
+                }
+                consumidos++;
+                continue;
+            }
+            boolean suprimir = false;
+            if (m[p] == '*') {
+                suprimir = true;
+                p++;
+            }
+            int largura = 0;
+            while (m[p] >= '0' && m[p] <= '9') {
+                largura = largura * 10 + (m[p++] - '0');
+            }
+            int bits = 32;
+            while (true) {
+                if (m[p] == 'h') {
+                    bits = bits == 16 ? 8 : 16;
+                } else if (m[p] == 'l' || m[p] == 'j' || m[p] == 'z' || m[p] == 't' || m[p] == 'q' || m[p] == 'L') {
+                    bits = 64;
+                } else {
+                    break;
+                }
+                p++;
+            }
+            char conversao = (char) m[p];
+            if (conversao == 0) {
+                break;
+            }
+            p++;
+            if (conversao != 'c' && conversao != '[' && conversao != 'n') {
+                consumidos += saltarEspacos();
+            }
+            if (largura == 0) {
+                largura = conversao == 'c' ? 1 : Integer.MAX_VALUE;
+            }
+            switch (conversao) {
+                case 'd':
+                case 'i':
+                case 'u':
+                case 'o':
+                case 'x':
+                case 'X': {
+                    StringBuilder texto = new StringBuilder();
+                    int base = conversao == 'o' ? 8 : conversao == 'x' || conversao == 'X' ? 16 : conversao == 'i' ? 0 : 10;
+                    if (!lerInteiro(texto, base, largura)) {
+                        fimEntrada = texto.length() == 0 && espiar() == EOF;
+                        break formato;
+                    }
+                    consumidos += texto.length();
+                    if (!suprimir) {
+                        long valor = converterInteiro(texto.toString(), base);
+                        guardarInteiro(argumento(argumentos, proximo++, n), valor, bits);
+                        guardados++;
+                    }
+                    break;
+                }
+                case 'f':
+                case 'F':
+                case 'e':
+                case 'E':
+                case 'g':
+                case 'G':
+                case 'a':
+                case 'A': {
+                    StringBuilder texto = new StringBuilder();
+                    if (!lerReal(texto, largura)) {
+                        fimEntrada = texto.length() == 0 && espiar() == EOF;
+                        break formato;
+                    }
+                    consumidos += texto.length();
+                    if (!suprimir) {
+                        double valor = Double.parseDouble(texto.toString());
+                        long endereco = argumento(argumentos, proximo++, n);
+                        if (bits == 64) {
+                            memoria.escreverF64(endereco, valor);
+                        } else {
+                            memoria.escreverF32(endereco, valor);
+                        }
+                        guardados++;
+                    }
+                    break;
+                }
+                case 's':
+                case 'c':
+                case '[': {
+                    boolean[] conjunto = null;
+                    if (conversao == '[') {
+                        conjunto = new boolean[256];
+                        p = conjunto(m, p, conjunto);
+                    }
+                    long endereco = suprimir ? 0 : argumento(argumentos, proximo++, n);
+                    int lidos = 0;
+                    while (lidos < largura) {
+                        int b = ler();
+                        boolean aceite = b != EOF && (conversao == 'c' || (conversao == 's' ? !espaco((byte) b) : conjunto[b]));
+                        if (!aceite) {
+                            devolver(b);
+                            break;
+                        }
+                        if (!suprimir) {
+                            memoria.escreverI8(endereco + lidos, b);
+                        }
+                        lidos++;
+                    }
+                    if (lidos == 0 || (conversao == 'c' && lidos < largura)) {
+                        fimEntrada = espiar() == EOF;
+                        break formato;
+                    }
+                    consumidos += lidos;
+                    if (!suprimir) {
+                        if (conversao != 'c') {
+                            memoria.escreverI8(endereco + lidos, 0);
+                        }
+                        guardados++;
+                    }
+                    break;
+                }
+                case 'n':
+                    if (!suprimir) {
+                        guardarInteiro(argumento(argumentos, proximo++, n), consumidos, bits);
+                    }
+                    break;
+                default:
+                    break formato;
+            }
+        }
+        return guardados == 0 && fimEntrada ? EOF : guardados;
+    }
+
+    // [sinal] [0x] dígitos na base (0: decimal, octal com 0 ou hexadecimal com 0x)
+    private boolean lerInteiro(StringBuilder texto, int base, int largura) {
+        boolean digitos = false;
+        int b = ler();
+        if ((b == '-' || b == '+') && texto.length() < largura) {
+            texto.append((char) b);
+            b = ler();
+        }
+        if ((base == 0 || base == 16) && b == '0' && texto.length() < largura) {
+            texto.append('0');
+            digitos = true;
+            b = ler();
+            if ((b == 'x' || b == 'X') && texto.length() < largura) {
+                texto.append((char) b);
+                b = ler();
+                base = 16;
+            } else if (base == 0) {
+                base = 8;
+            }
+        }
+        if (base == 0) {
+            base = 10;
+        }
+        while (b != EOF && Character.digit(b, base) >= 0 && texto.length() < largura) {
+            texto.append((char) b);
+            digitos = true;
+            b = ler();
+        }
+        devolver(b);
+        return digitos;
+    }
+
+    private static long converterInteiro(String texto, int base) {
+        boolean negativo = texto.startsWith("-");
+        String digitos = texto.charAt(0) == '-' || texto.charAt(0) == '+' ? texto.substring(1) : texto;
+        if (base == 0 || base == 16) {
+            if (digitos.length() > 1 && (digitos.charAt(1) == 'x' || digitos.charAt(1) == 'X')) {
+                digitos = digitos.substring(2);
+                base = 16;
+            } else if (base == 0) {
+                base = digitos.length() > 1 && digitos.charAt(0) == '0' ? 8 : 10;
+            }
+        }
+        BigInteger valor = digitos.isEmpty() ? BigInteger.ZERO : new BigInteger(digitos, base);
+        return (negativo ? valor.negate() : valor).longValue();
+    }
+
+    private void guardarInteiro(long endereco, long valor, int bits) {
+        switch (bits) {
+            case 8:
+                memoria.escreverI8(endereco, valor);
+                break;
+            case 16:
+                memoria.escreverI16(endereco, valor);
+                break;
+            case 32:
+                memoria.escreverI32(endereco, valor);
+                break;
+            default:
+                memoria.escreverI64(endereco, valor);
+                break;
+        }
+    }
+
+    // [sinal] dígitos [. dígitos] [e [sinal] dígitos]
+    private boolean lerReal(StringBuilder texto, int largura) {
+        int b = ler();
+        if ((b == '-' || b == '+') && texto.length() < largura) {
+            texto.append((char) b);
+            b = ler();
+        }
+        boolean digitos = false;
+        while (b >= '0' && b <= '9' && texto.length() < largura) {
+            texto.append((char) b);
+            digitos = true;
+            b = ler();
+        }
+        if (b == '.' && texto.length() < largura) {
+            texto.append('.');
+            b = ler();
+            while (b >= '0' && b <= '9' && texto.length() < largura) {
+                texto.append((char) b);
+                digitos = true;
+                b = ler();
+            }
+        }
+        if (digitos && (b == 'e' || b == 'E') && texto.length() < largura) {
+            texto.append('e');
+            b = ler();
+            if ((b == '-' || b == '+') && texto.length() < largura) {
+                texto.append((char) b);
+                b = ler();
+            }
+            boolean expoente = false;
+            while (b >= '0' && b <= '9' && texto.length() < largura) {
+                texto.append((char) b);
+                expoente = true;
+                b = ler();
+            }
+            if (!expoente) {
+                texto.append('0');
+            }
+        }
+        devolver(b);
+        return digitos;
+    }
+
+    // Lê o conjunto de %[...] a partir de p (depois de '['); devolve a posição depois de ']'
+    private static int conjunto(byte[] m, int p, boolean[] conjunto) {
+        boolean negado = m[p] == '^';
+        if (negado) {
+            p++;
+        }
+        boolean primeiro = true;
+        while (m[p] != 0 && (m[p] != ']' || primeiro)) {
+            int de = m[p] & 0xFF;
+            if (m[p + 1] == '-' && m[p + 2] != ']' && m[p + 2] != 0) {
+                int ate = m[p + 2] & 0xFF;
+                for (int c = de; c <= ate; c++) {
+                    conjunto[c] = true;
+                }
+                p += 3;
+            } else {
+                conjunto[de] = true;
+                p++;
+            }
+            primeiro = false;
+        }
+        if (negado) {
+            for (int c = 0; c < conjunto.length; c++) {
+                conjunto[c] = !conjunto[c];
+            }
+        }
+        return m[p] == ']' ? p + 1 : p;
+    }
+
+    private int saltarEspacos() {
+        int saltados = 0;
+        int b = ler();
+        while (b != EOF && espaco((byte) b)) {
+            saltados++;
+            b = ler();
+        }
+        devolver(b);
+        return saltados;
+    }
+
+    private static boolean espaco(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+
+    private int ler() {
+        if (devolvido != -2) {
+            int b = devolvido;
+            devolvido = -2;
+            return b;
+        }
+        try {
+            return entrada.read();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int espiar() {
+        int b = ler();
+        devolver(b);
+        return b;
+    }
+
+    private void devolver(int b) {
+        devolvido = b;
+    }
+
+}
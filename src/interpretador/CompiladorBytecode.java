@@ -0,0 +1,344 @@
+package interpretador;
+
+import ir.ConstrucaoNaoSuportada;
+import ir.FuncaoIR;
+import ir.Instrucao;
+import ir.LayoutMemoria;
+import ir.OpIR;
+import ir.Operando;
+import ir.ProgramaIR;
+import ir.TipoIR;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Traduz a representação intermédia (já otimizada) para bytecode de
+ * registos. Cada temporário da FuncaoIR passa a ser um registo no banco
+ * inteiro ou real, conforme o tipo, e as instruções escolhem o código pelo
+ * tipo (ADD_I32, ADD_F64, LOAD_I8, ...) para que o Interpretador não tenha
+ * de decidir nada em tempo de execução.
+ *
+ * A memória segue o mesmo layout que o executável (LayoutMemoria), pelo que
+ * structs, arrays e aritmética de ponteiros funcionam como no código
+ * nativo.
+ *
+ * @author itsupport
+ */
+public class CompiladorBytecode {
+
+    private final ProgramaIR programa;
+    private final Map<String, Integer> indicesFuncoes = new HashMap<>();
+    private final Map<String, Long> enderecosGlobais = new HashMap<>();
+    private long[] enderecosStrings;
+
+    // Estado da função em tradução
+    private int[] registosTemps;
+    private int temposInteiros;
+    private int temposReais;
+    private final Map<Operando, Integer> constantes = new HashMap<>();
+    private final List<Long> constantesInteiras = new ArrayList<>();
+    private final List<Double> constantesReais = new ArrayList<>();
+    private final List<Integer> locais = new ArrayList<>();
+    private long[] deslocamentosLocais;
+    private int[] codigo = new int[256];
+    private int posicao;
+
+    public CompiladorBytecode(ProgramaIR programa) {
+        this.programa = programa;
+    }
+
+    public ProgramaBytecode compilar() {
+        List<FuncaoIR> funcoesIR = programa.getFuncoes();
+        for (int i = 0; i < funcoesIR.size(); i++) {
+            indicesFuncoes.put(funcoesIR.get(i).getNome(), i);
+        }
+        Integer principal = indicesFuncoes.get("main");
+        if (principal == null) {
+            throw new ConstrucaoNaoSuportada("Não suportado pelo interpretador: programa sem main");
+        }
+        byte[] imagem = imagem();
+        FuncaoBytecode[] funcoes = new FuncaoBytecode[funcoesIR.size()];
+        for (int i = 0; i < funcoes.length; i++) {
+            funcoes[i] = funcao(funcoesIR.get(i));
+        }
+        return new ProgramaBytecode(funcoes, principal, imagem);
+    }
+
+    // === Dados ===
+
+    // Globais e strings a partir do fim da zona nula; a pilha começa no fim da imagem
+    private byte[] imagem() {
+        long topo = Memoria.TAMANHO_NULO;
+        for (ProgramaIR.Global global : programa.getGlobais()) {
+            topo = LayoutMemoria.alinhar(topo, global.getAlinhamento());
+            enderecosGlobais.put(global.getNome(), topo);
+            topo += global.getTamanho();
+        }
+        List<byte[]> strings = programa.getStrings();
+        enderecosStrings = new long[strings.size()];
+        for (int i = 0; i < strings.size(); i++) {
+            enderecosStrings[i] = topo;
+            topo += strings.get(i).length + 1;
+        }
+        topo = LayoutMemoria.alinhar(topo, 16);
+
+        Memoria memoria = new Memoria((int) topo);
+        for (ProgramaIR.Global global : programa.getGlobais()) {
+            Operando valor = global.getValorInicial();
+            if (valor == null) {
+                continue;
+            }
+            long endereco = enderecosGlobais.get(global.getNome());
+            switch (global.getTipoInicial()) {
+                case I8:
+                    memoria.escreverI8(endereco, valor.getInteiro());
+                    break;
+                case I16:
+                    memoria.escreverI16(endereco, valor.getInteiro());
+                    break;
+                case I32:
+                    memoria.escreverI32(endereco, valor.getInteiro());
+                    break;
+                case I64:
+                    memoria.escreverI64(endereco, valor.getInteiro());
+                    break;
+                case F32:
+                    memoria.escreverF32(endereco, valor.getReal());
+                    break;
+                default:
+                    memoria.escreverF64(endereco, valor.getReal());
+                    break;
+            }
+        }
+        for (int i = 0; i < strings.size(); i++) {
+            byte[] bytes = strings.get(i);
+            System.arraycopy(bytes, 0, memoria.bytes, (int) enderecosStrings[i], bytes.length);
+        }
+        return memoria.bytes;
+    }
+
+    // === Funções ===
+
+    private FuncaoBytecode funcao(FuncaoIR f) {
+        registosTemps = new int[f.getNumeroTemps()];
+        temposInteiros = 0;
+        temposReais = 0;
+        for (int i = 0; i < registosTemps.length; i++) {
+            registosTemps[i] = f.getTipoTemp(i).isReal() ? temposReais++ : temposInteiros++;
+        }
+        constantes.clear();
+        constantesInteiras.clear();
+        constantesReais.clear();
+        locais.clear();
+        posicao = 0;
+
+        long topo = 0;
+        deslocamentosLocais = new long[f.getNumeroLocais()];
+        for (int i = 0; i < deslocamentosLocais.length; i++) {
+            topo = LayoutMemoria.alinhar(topo, f.getAlinhamentoLocal(i));
+            deslocamentosLocais[i] = topo;
+            topo += f.getTamanhoLocal(i);
+        }
+
+        FuncaoBytecode funcao = new FuncaoBytecode(f.getNome());
+        funcao.tamanhoQuadro = LayoutMemoria.alinhar(topo, 16);
+        funcao.parametros = new int[f.getParametros().size()];
+        for (int i = 0; i < funcao.parametros.length; i++) {
+            funcao.parametros[i] = codificado(f.getParametros().get(i));
+        }
+
+        int[] posicoesRotulos = new int[f.getNumeroRotulos()];
+        List<int[]> saltos = new ArrayList<>(); // {posição do alvo no código, rótulo}
+        for (Instrucao instrucao : f.getInstrucoes()) {
+            if (instrucao.getOp() == OpIR.LABEL) {
+                posicoesRotulos[instrucao.getRotulo()] = posicao;
+            } else if (instrucao.getOp().isSalto()) {
+                if (instrucao.getOp() == OpIR.JMP) {
+                    emitir(OpBytecode.JMP);
+                } else {
+                    emitir(instrucao.getOp() == OpIR.JNZ ? OpBytecode.JNZ : OpBytecode.JZ, registo(instrucao.getA()));
+                }
+                saltos.add(new int[]{posicao, instrucao.getRotulo()});
+                emitir(-1);
+            } else {
+                instrucao(instrucao);
+            }
+        }
+        for (int[] salto : saltos) {
+            codigo[salto[0]] = posicoesRotulos[salto[1]];
+        }
+        funcao.codigo = Arrays.copyOf(codigo, posicao);
+
+        funcao.registosInteiros = new long[temposInteiros + constantesInteiras.size()];
+        for (int i = 0; i < constantesInteiras.size(); i++) {
+            funcao.registosInteiros[temposInteiros + i] = constantesInteiras.get(i);
+        }
+        funcao.registosReais = new double[temposReais + constantesReais.size()];
+        for (int i = 0; i < constantesReais.size(); i++) {
+            funcao.registosReais[temposReais + i] = constantesReais.get(i);
+        }
+        funcao.locais = locais.stream().mapToInt(Integer::intValue).toArray();
+        return funcao;
+    }
+
+    private void instrucao(Instrucao i) {
+        TipoIR tipo = i.getTipo();
+        switch (i.getOp()) {
+            case MOV:
+                emitir(tipo.isReal() ? OpBytecode.MOV_F : OpBytecode.MOV_I, registo(i.getDestino()), registo(i.getA()));
+                break;
+            case ADD:
+            case SUB:
+            case MUL:
+            case DIV: {
+                int base = tipo == TipoIR.I32 ? OpBytecode.ADD_I32 : tipo == TipoIR.I64 ? OpBytecode.ADD_I64
+                        : tipo == TipoIR.F32 ? OpBytecode.ADD_F32 : OpBytecode.ADD_F64;
+                emitir(base + i.getOp().ordinal() - OpIR.ADD.ordinal(), registo(i.getDestino()), registo(i.getA()), registo(i.getB()));
+                break;
+            }
+            case NEG:
+                emitir(tipo.isReal() ? OpBytecode.NEG_F : tipo == TipoIR.I64 ? OpBytecode.NEG_I64 : OpBytecode.NEG_I32,
+                        registo(i.getDestino()), registo(i.getA()));
+                break;
+            case EQ:
+            case NE:
+            case LT:
+            case LE:
+            case GT:
+            case GE:
+                emitir((tipo.isReal() ? OpBytecode.EQ_F : OpBytecode.EQ_I) + i.getOp().ordinal() - OpIR.EQ.ordinal(),
+                        registo(i.getDestino()), registo(i.getA()), registo(i.getB()));
+                break;
+            case CVT:
+                emitir(conversao(i.getA().getTipo(), tipo), registo(i.getDestino()), registo(i.getA()));
+                break;
+            case LOAD:
+                emitir(OpBytecode.LOAD_I8 + indiceMemoria(tipo), registo(i.getDestino()), registo(i.getA()));
+                break;
+            case STORE:
+                emitir(OpBytecode.STORE_I8 + indiceMemoria(tipo), registo(i.getA()), registo(i.getB()));
+                break;
+            case MEMCPY:
+                emitir(OpBytecode.MEMCPY, registo(i.getA()), registo(i.getB()), (int) i.getTamanho());
+                break;
+            case CALL:
+                chamada(i);
+                break;
+            case RET:
+                if (i.getA() == null) {
+                    emitir(OpBytecode.RET);
+                } else {
+                    emitir(i.getA().getTipo().isReal() ? OpBytecode.RET_F : OpBytecode.RET_I, registo(i.getA()));
+                }
+                break;
+            default:
+                naoSuportado("instrução " + i.getOp());
+        }
+    }
+
+    private void chamada(Instrucao i) {
+        int destino = i.getDestino() != null ? codificado(i.getDestino()) : -1;
+        if (i.isVariadico()) {
+            if (i.getFuncao().equals("printf")) {
+                emitir(OpBytecode.PRINTF);
+            } else if (i.getFuncao().equals("scanf")) {
+                emitir(OpBytecode.SCANF);
+            } else {
+                naoSuportado("função variádica " + i.getFuncao());
+            }
+        } else {
+            Integer indice = indicesFuncoes.get(i.getFuncao());
+            if (indice == null) {
+                naoSuportado("função sem corpo " + i.getFuncao());
+            }
+            emitir(OpBytecode.CALL, indice);
+        }
+        emitir(destino, i.getArgumentos().size());
+        for (Operando argumento : i.getArgumentos()) {
+            emitir(codificado(argumento));
+        }
+    }
+
+    private static int conversao(TipoIR de, TipoIR para) {
+        if (!de.isReal() && !para.isReal()) {
+            return para == TipoIR.I32 ? OpBytecode.CVT_I32 : OpBytecode.MOV_I;
+        }
+        if (!de.isReal()) {
+            return para == TipoIR.F32 ? OpBytecode.CVT_I_F32 : OpBytecode.CVT_I_F64;
+        }
+        if (!para.isReal()) {
+            return para == TipoIR.I32 ? OpBytecode.CVT_F_I32 : OpBytecode.CVT_F_I64;
+        }
+        return para == TipoIR.F32 ? OpBytecode.CVT_F32 : OpBytecode.MOV_F;
+    }
+
+    // Posição do tipo na sequência LOAD_I8..LOAD_F64 (a mesma em STORE)
+    private static int indiceMemoria(TipoIR tipo) {
+        return tipo.ordinal() - TipoIR.I8.ordinal();
+    }
+
+    // === Registos ===
+
+    private int registo(Operando operando) {
+        switch (operando.getEspecie()) {
+            case TEMP:
+                return registosTemps[operando.getIndice()];
+            case INTEIRO:
+                return constante(operando, operando.getInteiro());
+            case REAL: {
+                Integer registo = constantes.get(operando);
+                if (registo == null) {
+                    registo = temposReais + constantesReais.size();
+                    constantesReais.add(operando.getReal());
+                    constantes.put(operando, registo);
+                }
+                return registo;
+            }
+            case GLOBAL:
+                return constante(operando, enderecosGlobais.get(operando.getNome()));
+            case STRING:
+                return constante(operando, enderecosStrings[operando.getIndice()]);
+            default: {
+                // Espaço local: o endereço só é conhecido à entrada da função
+                Integer registo = constantes.get(operando);
+                if (registo == null) {
+                    registo = constante(operando, 0);
+                    locais.add(registo);
+                    locais.add((int) deslocamentosLocais[operando.getIndice()]);
+                }
+                return registo;
+            }
+        }
+    }
+
+    private int constante(Operando operando, long valor) {
+        Integer registo = constantes.get(operando);
+        if (registo == null) {
+            registo = temposInteiros + constantesInteiras.size();
+            constantesInteiras.add(valor);
+            constantes.put(operando, registo);
+        }
+        return registo;
+    }
+
+    private int codificado(Operando operando) {
+        return registo(operando) << 1 | (operando.getTipo().isReal() ? 1 : 0);
+    }
+
+    private void emitir(int... palavras) {
+        if (posicao + palavras.length > codigo.length) {
+            codigo = Arrays.copyOf(codigo, Math.max(codigo.length * 2, posicao + palavras.length));
+        }
+        for (int palavra : palavras) {
+            codigo[posicao++] = palavra;
+        }
+    }
+
+    private static void naoSuportado(String construcao) {
+        throw new ConstrucaoNaoSuportada("Não suportado pelo interpretador: " + construcao);
+    }
+
+}
@@ -0,0 +1,33 @@
+package interpretador;
+
+/**
+ * Falha do programa interpretado que no executável seria um sinal: acesso a
+ * memória inválida (SIGSEGV) ou divisão inteira por zero (SIGFPE). O código
+ * de saída é o que a shell mostraria para o processo terminado pelo sinal.
+ *
+ * @author itsupport
+ */
+public class ErroExecucao extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int codigoSaida;
+
+    public ErroExecucao(String mensagem, int codigoSaida) {
+        super(mensagem);
+        this.codigoSaida = codigoSaida;
+    }
+
+    static ErroExecucao segmentacao(long endereco) {
+        return new ErroExecucao("Segmentation fault (endereço 0x" + Long.toHexString(endereco) + ")", 139);
+    }
+
+    static ErroExecucao divisaoPorZero() {
+        return new ErroExecucao("Floating point exception (divisão inteira por zero)", 136);
+    }
+
+    public int getCodigoSaida() {
+        return codigoSaida;
+    }
+
+}
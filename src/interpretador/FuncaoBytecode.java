@@ -0,0 +1,26 @@
+package interpretador;
+
+/**
+ * Uma função compilada para bytecode. Os registos de cada chamada começam
+ * como cópias de registosInteiros/registosReais, que já trazem as constantes
+ * e os endereços fixos nas posições a seguir aos temporários; os endereços
+ * dos espaços locais dependem da pilha e são calculados à entrada a partir
+ * de locais (pares registo, deslocamento no quadro).
+ *
+ * @author itsupport
+ */
+final class FuncaoBytecode {
+
+    final String nome;
+    int[] codigo;
+    long[] registosInteiros;
+    double[] registosReais;
+    int[] locais;
+    int[] parametros;   // registos codificados como em CALL
+    long tamanhoQuadro; // múltiplo de 16
+
+    FuncaoBytecode(String nome) {
+        this.nome = nome;
+    }
+
+}
@@ -0,0 +1,394 @@
+package interpretador;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Executa um ProgramaBytecode na JVM, sem gerar nem ligar o executável.
+ *
+ * Cada chamada tem os seus próprios registos, um long[] para os inteiros e
+ * endereços e um double[] para os reais (float é guardado como o double
+ * exato e as contas F32 são feitas em float), sem boxing. Os espaços locais
+ * ficam na pilha dentro da Memoria; as chamadas entre funções do programa
+ * usam a pilha da thread Java, que é criada com TAMANHO_PILHA_JAVA para
+ * aguentar recursões profundas.
+ *
+ * @author itsupport
+ */
+public class Interpretador {
+
+    public static final int TAMANHO_PILHA = 8 << 20;        // Pilha do programa, como o ulimit -s habitual
+    public static final long TAMANHO_PILHA_JAVA = 1L << 30;
+
+    private final ProgramaBytecode programa;
+    private final Memoria memoria;
+    private final BibliotecaC biblioteca;
+    private long topoPilha;
+    private long retornoInteiro;
+    private double retornoReal;
+    private long[] argumentosVariadicos = new long[16];
+
+    public Interpretador(ProgramaBytecode programa, InputStream entrada, OutputStream saida) {
+        this.programa = programa;
+        memoria = new Memoria(programa.imagem.length + TAMANHO_PILHA);
+        System.arraycopy(programa.imagem, 0, memoria.bytes, 0, programa.imagem.length);
+        topoPilha = programa.imagem.length;
+        biblioteca = new BibliotecaC(memoria, new BufferedInputStream(entrada), new BufferedOutputStream(saida, 1 << 16));
+    }
+
+    /**
+     * Corre main até ao fim.
+     *
+     * @return o valor devolvido por main (o código de saída do processo)
+     * @throws ErroExecucao se o programa aceder a memória inválida, dividir
+     * por zero ou esgotar a pilha
+     */
+    public int executar() throws InterruptedException {
+        RuntimeException[] erro = new RuntimeException[1];
+        Thread thread = new Thread(null, () -> {
+            try {
+                FuncaoBytecode principal = programa.funcoes[programa.principal];
+                executar(principal, principal.registosInteiros.clone(), principal.registosReais.clone());
+            } catch (RuntimeException e) {
+                erro[0] = e;
+            } catch (StackOverflowError e) {
+                erro[0] = new ErroExecucao("Segmentation fault (pilha esgotada)", 139);
+            } finally {
+                biblioteca.descarregar();
+            }
+        }, "interpretador", TAMANHO_PILHA_JAVA);
+        thread.start();
+        thread.join();
+        if (erro[0] != null) {
+            throw erro[0];
+        }
+        return (int) retornoInteiro;
+    }
+
+    private void executar(FuncaoBytecode funcao, long[] r, double[] f) {
+        long base = topoPilha;
+        if (base + funcao.tamanhoQuadro > memoria.bytes.length) {
+            throw new ErroExecucao("Segmentation fault (pilha esgotada)", 139);
+        }
+        topoPilha = base + funcao.tamanhoQuadro;
+        int[] locais = funcao.locais;
+        for (int i = 0; i < locais.length; i += 2) {
+            r[locais[i]] = base + locais[i + 1];
+        }
+        Memoria m = memoria;
+        int[] c = funcao.codigo;
+        int pc = 0;
+        try {
+            while (true) {
+                switch (c[pc]) {
+                    case OpBytecode.MOV_I:
+                        r[c[pc + 1]] = r[c[pc + 2]];
+                        pc += 3;
+                        break;
+                    case OpBytecode.MOV_F:
+                        f[c[pc + 1]] = f[c[pc + 2]];
+                        pc += 3;
+                        break;
+                    case OpBytecode.ADD_I32:
+                        r[c[pc + 1]] = (int) (r[c[pc + 2]] + r[c[pc + 3]]);
+                        pc += 4;
+                        break;
+                    case OpBytecode.SUB_I32:
+                        r[c[pc + 1]] = (int) (r[c[pc + 2]] - r[c[pc + 3]]);
+                        pc += 4;
+                        break;
+                    case OpBytecode.MUL_I32:
+                        r[c[pc + 1]] = (int) r[c[pc + 2]] * (int) r[c[pc + 3]];
+                        pc += 4;
+                        break;
+                    case OpBytecode.DIV_I32: {
+                        int a = (int) r[c[pc + 2]];
+                        int b = (int) r[c[pc + 3]];
+                        if (b == 0 || (a == Integer.MIN_VALUE && b == -1)) {
+                            throw ErroExecucao.divisaoPorZero();
+                        }
+                        r[c[pc + 1]] = a / b;
+                        pc += 4;
+                        break;
+                    }
+                    case OpBytecode.ADD_I64:
+                        r[c[pc + 1]] = r[c[pc + 2]] + r[c[pc + 3]];
+                        pc += 4;
+                        break;
+                    case OpBytecode.SUB_I64:
+                        r[c[pc + 1]] = r[c[pc + 2]] - r[c[pc + 3]];
+                        pc += 4;
+                        break;
+                    case OpBytecode.MUL_I64:
+                        r[c[pc + 1]] = r[c[pc + 2]] * r[c[pc + 3]];
+                        pc += 4;
+                        break;
+                    case OpBytecode.DIV_I64: {
+                        long a = r[c[pc + 2]];
+                        long b = r[c[pc + 3]];
+                        if (b == 0 || (a == Long.MIN_VALUE && b == -1)) {
+                            throw ErroExecucao.divisaoPorZero();
+                        }
+                        r[c[pc + 1]] = a / b;
+                        pc += 4;
+                        break;
+                    }
+                    case OpBytecode.ADD_F32:
+                        f[c[pc + 1]] = (float) f[c[pc + 2]] + (float) f[c[pc + 3]];
+                        pc += 4;
+                        break;
+                    case OpBytecode.SUB_F32:
+                        f[c[pc + 1]] = (float) f[c[pc + 2]] - (float) f[c[pc + 3]];
+                        pc += 4;
+                        break;
+                    case OpBytecode.MUL_F32:
+                        f[c[pc + 1]] = (float) f[c[pc + 2]] * (float) f[c[pc + 3]];
+                        pc += 4;
+                        break;
+                    case OpBytecode.DIV_F32:
+                        f[c[pc + 1]] = (float) f[c[pc + 2]] / (float) f[c[pc + 3]];
+                        pc += 4;
+                        break;
+                    case OpBytecode.ADD_F64:
+                        f[c[pc + 1]] = f[c[pc + 2]] + f[c[pc + 3]];
+                        pc += 4;
+                        break;
+                    case OpBytecode.SUB_F64:
+                        f[c[pc + 1]] = f[c[pc + 2]] - f[c[pc + 3]];
+                        pc += 4;
+                        break;
+                    case OpBytecode.MUL_F64:
+                        f[c[pc + 1]] = f[c[pc + 2]] * f[c[pc + 3]];
+                        pc += 4;
+                        break;
+                    case OpBytecode.DIV_F64:
+                        f[c[pc + 1]] = f[c[pc + 2]] / f[c[pc + 3]];
+                        pc += 4;
+                        break;
+                    case OpBytecode.NEG_I32:
+                        r[c[pc + 1]] = -(int) r[c[pc + 2]];
+                        pc += 3;
+                        break;
+                    case OpBytecode.NEG_I64:
+                        r[c[pc + 1]] = -r[c[pc + 2]];
+                        pc += 3;
+                        break;
+                    case OpBytecode.NEG_F:
+                        f[c[pc + 1]] = -f[c[pc + 2]];
+                        pc += 3;
+                        break;
+                    case OpBytecode.EQ_I:
+                        r[c[pc + 1]] = r[c[pc + 2]] == r[c[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case OpBytecode.NE_I:
+                        r[c[pc + 1]] = r[c[pc + 2]] != r[c[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case OpBytecode.LT_I:
+                        r[c[pc + 1]] = r[c[pc + 2]] < r[c[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case OpBytecode.LE_I:
+                        r[c[pc + 1]] = r[c[pc + 2]] <= r[c[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case OpBytecode.GT_I:
+                        r[c[pc + 1]] = r[c[pc + 2]] > r[c[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case OpBytecode.GE_I:
+                        r[c[pc + 1]] = r[c[pc + 2]] >= r[c[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case OpBytecode.EQ_F:
+                        r[c[pc + 1]] = f[c[pc + 2]] == f[c[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case OpBytecode.NE_F:
+                        r[c[pc + 1]] = f[c[pc + 2]] != f[c[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case OpBytecode.LT_F:
+                        r[c[pc + 1]] = f[c[pc + 2]] < f[c[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case OpBytecode.LE_F:
+                        r[c[pc + 1]] = f[c[pc + 2]] <= f[c[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case OpBytecode.GT_F:
+                        r[c[pc + 1]] = f[c[pc + 2]] > f[c[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case OpBytecode.GE_F:
+                        r[c[pc + 1]] = f[c[pc + 2]] >= f[c[pc + 3]] ? 1 : 0;
+                        pc += 4;
+                        break;
+                    case OpBytecode.CVT_I32:
+                        r[c[pc + 1]] = (int) r[c[pc + 2]];
+                        pc += 3;
+                        break;
+                    case OpBytecode.CVT_I_F32:
+                        f[c[pc + 1]] = (float) r[c[pc + 2]];
+                        pc += 3;
+                        break;
+                    case OpBytecode.CVT_I_F64:
+                        f[c[pc + 1]] = (double) r[c[pc + 2]];
+                        pc += 3;
+                        break;
+                    case OpBytecode.CVT_F_I32:
+                        r[c[pc + 1]] = truncar32(f[c[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case OpBytecode.CVT_F_I64:
+                        r[c[pc + 1]] = truncar64(f[c[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case OpBytecode.CVT_F32:
+                        f[c[pc + 1]] = (float) f[c[pc + 2]];
+                        pc += 3;
+                        break;
+                    case OpBytecode.LOAD_I8:
+                        r[c[pc + 1]] = m.lerI8(r[c[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case OpBytecode.LOAD_I16:
+                        r[c[pc + 1]] = m.lerI16(r[c[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case OpBytecode.LOAD_I32:
+                        r[c[pc + 1]] = m.lerI32(r[c[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case OpBytecode.LOAD_I64:
+                        r[c[pc + 1]] = m.lerI64(r[c[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case OpBytecode.LOAD_F32:
+                        f[c[pc + 1]] = m.lerF32(r[c[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case OpBytecode.LOAD_F64:
+                        f[c[pc + 1]] = m.lerF64(r[c[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case OpBytecode.STORE_I8:
+                        m.escreverI8(r[c[pc + 1]], r[c[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case OpBytecode.STORE_I16:
+                        m.escreverI16(r[c[pc + 1]], r[c[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case OpBytecode.STORE_I32:
+                        m.escreverI32(r[c[pc + 1]], r[c[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case OpBytecode.STORE_I64:
+                        m.escreverI64(r[c[pc + 1]], r[c[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case OpBytecode.STORE_F32:
+                        m.escreverF32(r[c[pc + 1]], f[c[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case OpBytecode.STORE_F64:
+                        m.escreverF64(r[c[pc + 1]], f[c[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case OpBytecode.MEMCPY:
+                        m.copiar(r[c[pc + 1]], r[c[pc + 2]], c[pc + 3]);
+                        pc += 4;
+                        break;
+                    case OpBytecode.JMP:
+                        pc = c[pc + 1];
+                        break;
+                    case OpBytecode.JNZ:
+                        pc = r[c[pc + 1]] != 0 ? c[pc + 2] : pc + 3;
+                        break;
+                    case OpBytecode.JZ:
+                        pc = r[c[pc + 1]] == 0 ? c[pc + 2] : pc + 3;
+                        break;
+                    case OpBytecode.CALL:
+                        pc = chamar(c, pc, r, f);
+                        break;
+                    case OpBytecode.PRINTF:
+                    case OpBytecode.SCANF: {
+                        int destino = c[pc + 1];
+                        int n = c[pc + 2];
+                        long[] argumentos = argumentosVariadicos(n);
+                        for (int i = 0; i < n; i++) {
+                            int argumento = c[pc + 3 + i];
+                            argumentos[i] = (argumento & 1) != 0 ? Double.doubleToRawLongBits(f[argumento >> 1]) : r[argumento >> 1];
+                        }
+                        int resultado = c[pc] == OpBytecode.PRINTF ? biblioteca.printf(argumentos, n) : biblioteca.scanf(argumentos, n);
+                        if (destino >= 0) {
+                            r[destino >> 1] = resultado;
+                        }
+                        pc += 3 + n;
+                        break;
+                    }
+                    case OpBytecode.RET:
+                        return;
+                    case OpBytecode.RET_I:
+                        retornoInteiro = r[c[pc + 1]];
+                        return;
+                    case OpBytecode.RET_F:
+                        retornoReal = f[c[pc + 1]];
+                        return;
+                    default:
+                        throw new IllegalStateException("Código de operação inválido " + c[pc] + " em " + funcao.nome);
+                }
+            }
+        } finally {
+            topoPilha = base;
+        }
+    }
+
+    // Chamada a uma função do programa; devolve a posição da instrução seguinte
+    private int chamar(int[] c, int pc, long[] r, double[] f) {
+        FuncaoBytecode chamada = programa.funcoes[c[pc + 1]];
+        int destino = c[pc + 2];
+        int n = c[pc + 3];
+        long[] registos = chamada.registosInteiros.clone();
+        double[] reais = chamada.registosReais.clone();
+        int[] parametros = chamada.parametros;
+        for (int i = 0; i < n; i++) {
+            int argumento = c[pc + 4 + i];
+            if ((argumento & 1) != 0) {
+                reais[parametros[i] >> 1] = f[argumento >> 1];
+            } else {
+                registos[parametros[i] >> 1] = r[argumento >> 1];
+            }
+        }
+        executar(chamada, registos, reais);
+        if (destino >= 0) {
+            if ((destino & 1) != 0) {
+                f[destino >> 1] = retornoReal;
+            } else {
+                r[destino >> 1] = retornoInteiro;
+            }
+        }
+        return pc + 4 + n;
+    }
+
+    private long[] argumentosVariadicos(int n) {
+        if (n > argumentosVariadicos.length) {
+            argumentosVariadicos = new long[n];
+        }
+        return argumentosVariadicos;
+    }
+
+    // cvttsd2si devolve o "valor indefinido" (o mínimo) fora do intervalo e com NaN
+    private static long truncar32(double valor) {
+        return valor > -2147483649.0 && valor < 2147483648.0 ? (int) valor : Integer.MIN_VALUE;
+    }
+
+    private static long truncar64(double valor) {
+        return valor >= -0x1p63 && valor < 0x1p63 ? (long) valor : Long.MIN_VALUE;
+    }
+
+}
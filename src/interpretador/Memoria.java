@@ -0,0 +1,105 @@
+package interpretador;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Memória do programa interpretado: um único byte[] em little-endian, com os
+ * endereços como índices. Os primeiros TAMANHO_NULO bytes nunca são usados,
+ * para que o acesso através de um ponteiro nulo falhe como no executável; a
+ * seguir vêm as globais, as strings e a pilha.
+ *
+ * @author itsupport
+ */
+final class Memoria {
+
+    static final int TAMANHO_NULO = 4096;
+
+    private static final VarHandle I16 = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle I32 = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle I64 = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle F32 = MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle F64 = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.LITTLE_ENDIAN);
+
+    final byte[] bytes;
+
+    Memoria(int tamanho) {
+        bytes = new byte[tamanho];
+    }
+
+    // Índice no array para um acesso de n bytes, ou ErroExecucao fora da memória válida
+    private int indice(long endereco, int n) {
+        if (endereco < TAMANHO_NULO || endereco > bytes.length - n) {
+            throw ErroExecucao.segmentacao(endereco);
+        }
+        return (int) endereco;
+    }
+
+    long lerI8(long endereco) {
+        return bytes[indice(endereco, 1)];
+    }
+
+    long lerI16(long endereco) {
+        return (short) I16.get(bytes, indice(endereco, 2));
+    }
+
+    long lerI32(long endereco) {
+        return (int) I32.get(bytes, indice(endereco, 4));
+    }
+
+    long lerI64(long endereco) {
+        return (long) I64.get(bytes, indice(endereco, 8));
+    }
+
+    double lerF32(long endereco) {
+        return (float) F32.get(bytes, indice(endereco, 4));
+    }
+
+    double lerF64(long endereco) {
+        return (double) F64.get(bytes, indice(endereco, 8));
+    }
+
+    void escreverI8(long endereco, long valor) {
+        bytes[indice(endereco, 1)] = (byte) valor;
+    }
+
+    void escreverI16(long endereco, long valor) {
+        I16.set(bytes, indice(endereco, 2), (short) valor);
+    }
+
+    void escreverI32(long endereco, long valor) {
+        I32.set(bytes, indice(endereco, 4), (int) valor);
+    }
+
+    void escreverI64(long endereco, long valor) {
+        I64.set(bytes, indice(endereco, 8), valor);
+    }
+
+    void escreverF32(long endereco, double valor) {
+        F32.set(bytes, indice(endereco, 4), (float) valor);
+    }
+
+    void escreverF64(long endereco, double valor) {
+        F64.set(bytes, indice(endereco, 8), valor);
+    }
+
+    void copiar(long destino, long origem, long tamanho) {
+        int n = (int) tamanho;
+        System.arraycopy(bytes, indice(origem, n), bytes, indice(destino, n), n);
+    }
+
+    // Comprimento da string C que começa no endereço (sem o '\0')
+    int comprimento(long endereco) {
+        int inicio = indice(endereco, 1);
+        int fim = inicio;
+        while (fim < bytes.length && bytes[fim] != 0) {
+            fim++;
+        }
+        if (fim == bytes.length) {
+            throw ErroExecucao.segmentacao(fim);
+        }
+        return fim - inicio;
+    }
+
+}
@@ -0,0 +1,93 @@
+package interpretador;
+
+/**
+ * Códigos de operação do bytecode. Cada instrução ocupa o código seguido dos
+ * operandos indicados no comentário, todos inteiros no mesmo int[]:
+ * d, a e b são registos (os inteiros e os reais têm bancos separados, o banco
+ * é dado pelo código), alvo é a posição de destino de um salto e imm um
+ * valor imediato.
+ *
+ * As constantes e os endereços de globais, strings e espaços locais também
+ * vivem em registos, preenchidos à entrada da função, pelo que nenhuma
+ * instrução precisa de distinguir o tipo de operando.
+ *
+ * @author itsupport
+ */
+final class OpBytecode {
+
+    private OpBytecode() {
+    }
+
+    static final int MOV_I = 0;     // d a
+    static final int MOV_F = 1;     // d a
+
+    static final int ADD_I32 = 2;   // d a b
+    static final int SUB_I32 = 3;
+    static final int MUL_I32 = 4;
+    static final int DIV_I32 = 5;
+    static final int ADD_I64 = 6;
+    static final int SUB_I64 = 7;
+    static final int MUL_I64 = 8;
+    static final int DIV_I64 = 9;
+    static final int ADD_F32 = 10;
+    static final int SUB_F32 = 11;
+    static final int MUL_F32 = 12;
+    static final int DIV_F32 = 13;
+    static final int ADD_F64 = 14;
+    static final int SUB_F64 = 15;
+    static final int MUL_F64 = 16;
+    static final int DIV_F64 = 17;
+
+    static final int NEG_I32 = 18;  // d a
+    static final int NEG_I64 = 19;
+    static final int NEG_F = 20;
+
+    static final int EQ_I = 21;     // d a b (d inteiro 0/1)
+    static final int NE_I = 22;
+    static final int LT_I = 23;
+    static final int LE_I = 24;
+    static final int GT_I = 25;
+    static final int GE_I = 26;
+    static final int EQ_F = 27;
+    static final int NE_F = 28;
+    static final int LT_F = 29;
+    static final int LE_F = 30;
+    static final int GT_F = 31;
+    static final int GE_F = 32;
+
+    static final int CVT_I32 = 33;  // d a: inteiro truncado a 32 bits
+    static final int CVT_I_F32 = 34; // d a: inteiro -> float
+    static final int CVT_I_F64 = 35;
+    static final int CVT_F_I32 = 36; // d a: real -> inteiro
+    static final int CVT_F_I64 = 37;
+    static final int CVT_F32 = 38;  // d a: double -> float
+
+    static final int LOAD_I8 = 39;  // d a (a: registo com o endereço)
+    static final int LOAD_I16 = 40;
+    static final int LOAD_I32 = 41;
+    static final int LOAD_I64 = 42;
+    static final int LOAD_F32 = 43;
+    static final int LOAD_F64 = 44;
+    static final int STORE_I8 = 45; // a b (*a = b)
+    static final int STORE_I16 = 46;
+    static final int STORE_I32 = 47;
+    static final int STORE_I64 = 48;
+    static final int STORE_F32 = 49;
+    static final int STORE_F64 = 50;
+    static final int MEMCPY = 51;   // a b imm
+
+    static final int JMP = 52;      // alvo
+    static final int JNZ = 53;      // a alvo
+    static final int JZ = 54;       // a alvo
+
+    // funcao destino n argumentos...; destino e argumentos são registos
+    // codificados como (registo << 1) | real, destino -1 sem resultado
+    static final int CALL = 55;
+    static final int PRINTF = 56;   // destino n argumentos...
+    static final int SCANF = 57;    // destino n argumentos...
+
+    static final int RET = 58;
+    static final int RET_I = 59;    // a
+    static final int RET_F = 60;    // a
+
+}
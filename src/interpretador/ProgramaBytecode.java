@@ -0,0 +1,35 @@
+package interpretador;
+
+/**
+ * Programa compilado para bytecode: as funções e a imagem inicial da
+ * memória (zona nula, globais inicializadas e strings), a seguir à qual
+ * começa a pilha.
+ *
+ * @author itsupport
+ */
+public final class ProgramaBytecode {
+
+    final FuncaoBytecode[] funcoes;
+    final int principal; // índice de main
+    final byte[] imagem;
+
+    ProgramaBytecode(FuncaoBytecode[] funcoes, int principal, byte[] imagem) {
+        this.funcoes = funcoes;
+        this.principal = principal;
+        this.imagem = imagem;
+    }
+
+    public int getNumeroFuncoes() {
+        return funcoes.length;
+    }
+
+    // Bytes de bytecode de todas as funções (4 por palavra)
+    public long getTamanhoCodigo() {
+        long palavras = 0;
+        for (FuncaoBytecode funcao : funcoes) {
+            palavras += funcao.codigo.length;
+        }
+        return palavras * 4;
+    }
+
+}
@@ -0,0 +1,19 @@
+package ir;
+
+/**
+ * Construção aceite pelo Parser que o gerador de código (ou o
+ * interpretador) ainda não traduz: funções que devolvem structs,
+ * inicialização de arrays, arrays sem tamanho constante. A Compilacao
+ * reporta-a como aviso e não gera o executável; o número de erros não muda.
+ *
+ * @author itsupport
+ */
+public class ConstrucaoNaoSuportada extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ConstrucaoNaoSuportada(String mensagem) {
+        super(mensagem);
+    }
+
+}
@@ -0,0 +1,866 @@
+package ir;
+
+import Tokens.TokenKind;
+import ast.ArvoreSintatica;
+import ast.EspecieNo;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import models.Funcao;
+import models.Parametro;
+import models.Tipo;
+import models.Variavel;
+
+/**
+ * Tradução da árvore sintática tipada (sem erros) para a representação
+ * intermédia de três endereços.
+ *
+ * Os escalares locais e os parâmetros ficam em temporários, exceto quando o
+ * seu endereço é usado com '&'; arrays, structs e variáveis globais vivem na
+ * memória e são acedidos com LOAD/STORE. Uma expressão do tipo array ou
+ * struct vale o seu endereço. As condições de if, while, for e dos
+ * operadores && e || são traduzidas em saltos, com avaliação em curto
+ * circuito.
+ *
+ * @author itsupport
+ */
+public class ConstrutorIR {
+
+    private static final int NENHUM = ArvoreSintatica.NENHUM;
+
+    // Onde vive uma variável: num temporário ou num endereço
+    private static final class Lugar {
+
+        final Operando temp;
+        final Operando endereco;
+        final Tipo tipo;
+        final boolean array; // Variável array: o valor é o próprio endereço
+
+        Lugar(Operando temp, Operando endereco, Tipo tipo, boolean array) {
+            this.temp = temp;
+            this.endereco = endereco;
+            this.tipo = tipo;
+            this.array = array;
+        }
+    }
+
+    private final ArvoreSintatica arvore;
+    private final Charset charset;
+    private final LayoutMemoria layout = new LayoutMemoria();
+    private final ProgramaIR programa = new ProgramaIR();
+
+    private final Map<Variavel, Lugar> variaveis = new IdentityHashMap<>();
+    private final Set<Variavel> comEndereco = Collections.newSetFromMap(new IdentityHashMap<>());
+    // Globais inicializadas com expressões não constantes, avaliadas no início de main
+    private final List<Integer> inicializacoesGlobais = new ArrayList<>();
+
+    private FuncaoIR funcao;
+    private final Deque<Integer> saidas = new ArrayDeque<>();
+    private final Deque<Integer> continuacoes = new ArrayDeque<>();
+
+    /**
+     * @param charset charset com que o código fonte foi lido, usado para
+     * voltar a obter os bytes dos literais de string
+     */
+    public ConstrutorIR(ArvoreSintatica arvore, Charset charset) {
+        this.arvore = arvore;
+        this.charset = charset;
+    }
+
+    public ProgramaIR construir() {
+        // Os nós são criados pela ordem do código, pelo que cada struct aparece depois das que usa
+        for (int no = 0; no < arvore.tamanho(); no++) {
+            if (arvore.getEspecie(no) == EspecieNo.STRUCT) {
+                layoutStruct(no);
+            } else if (arvore.getEspecie(no) == EspecieNo.UNARIA && arvore.getOperador(no) == TokenKind.BITWISE_AND) {
+                int operando = arvore.primeiroFilho(no);
+                if (operando != NENHUM && arvore.getEspecie(operando) == EspecieNo.IDENTIFICADOR
+                        && arvore.getSimbolo(operando) != null) {
+                    comEndereco.add((Variavel) arvore.getSimbolo(operando));
+                }
+            }
+        }
+
+        int raiz = arvore.getRaiz();
+        for (int no = arvore.primeiroFilho(raiz); no != NENHUM; no = arvore.proximoIrmao(no)) {
+            if (arvore.getEspecie(no) == EspecieNo.DECLARACAO) {
+                for (int var = arvore.primeiroFilho(no); var != NENHUM; var = arvore.proximoIrmao(var)) {
+                    declararGlobal(var);
+                }
+            }
+        }
+        for (int no = arvore.primeiroFilho(raiz); no != NENHUM; no = arvore.proximoIrmao(no)) {
+            if (arvore.getEspecie(no) == EspecieNo.FUNCAO) {
+                traduzirFuncao(no);
+            }
+        }
+        return programa;
+    }
+
+    public LayoutMemoria getLayout() {
+        return layout;
+    }
+
+    // === Declarações ===
+
+    private void layoutStruct(int no) {
+        layout.iniciarStruct(arvore.getTexto(no));
+        for (int campo = arvore.primeiroFilho(no); campo != NENHUM; campo = arvore.proximoIrmao(campo)) {
+            layout.adicionarCampo(arvore.getTexto(campo), arvore.getTipo(campo), arvore.getDado(campo));
+        }
+        layout.concluirStruct();
+    }
+
+    private void declararGlobal(int no) {
+        Variavel var = (Variavel) arvore.getSimbolo(no);
+        Tipo tipo = arvore.getTipo(no);
+        int elementos = arvore.getDado(no);
+        long alinhamento = Math.max(layout.alinhamento(tipo), elementos >= 0 ? 16 : 1);
+        Operando endereco = Operando.global(var.getNome());
+        variaveis.put(var, new Lugar(null, endereco, tipo, elementos >= 0));
+
+        int inicial = arvore.primeiroFilho(no);
+        Operando constante = inicial != NENHUM ? constante(inicial) : null;
+        TipoIR tipoMemoria = TipoIR.de(tipo);
+        if (constante != null && elementos < 0 && tipoMemoria != null) {
+            constante = converter(constante, tipoMemoria.emRegisto());
+        } else if (inicial != NENHUM) {
+            inicializacoesGlobais.add(no);
+            constante = null;
+        }
+        programa.adicionarGlobal(var.getNome(), layout.tamanhoArmazenado(tipo, elementos), alinhamento,
+                constante != null ? tipoMemoria : null, constante);
+    }
+
+    private Operando constante(int no) {
+        switch (arvore.getEspecie(no)) {
+            case LITERAL_INT:
+            case LITERAL_CHAR:
+                return Operando.inteiro(arvore.getDado(no), TipoIR.I32);
+            case LITERAL_FLOAT:
+                return Operando.real(valorReal(arvore.getTexto(no)), TipoIR.F64);
+            case UNARIA:
+                Operando operando = arvore.getOperador(no) == TokenKind.MINUS ? constante(arvore.primeiroFilho(no)) : null;
+                if (operando == null) {
+                    return null;
+                }
+                return operando.getEspecie() == Operando.Especie.INTEIRO
+                        ? Operando.inteiro(-operando.getInteiro(), operando.getTipo())
+                        : Operando.real(-operando.getReal(), operando.getTipo());
+            default:
+                return null;
+        }
+    }
+
+    private void traduzirFuncao(int no) {
+        Funcao simbolo = (Funcao) arvore.getSimbolo(no);
+        Tipo tipoRetorno = arvore.getTipo(no);
+        if (isStructValor(tipoRetorno)) {
+            naoSuportado("função que devolve uma struct (" + simbolo.getNome() + ")");
+        }
+        funcao = new FuncaoIR(simbolo.getNome(), tipoRegisto(tipoRetorno));
+
+        int corpo = NENHUM;
+        for (int filho = arvore.primeiroFilho(no); filho != NENHUM; filho = arvore.proximoIrmao(filho)) {
+            if (arvore.getEspecie(filho) == EspecieNo.PARAMETRO) {
+                declararParametro(filho);
+            } else {
+                corpo = filho;
+            }
+        }
+
+        if (simbolo.getNome().equals("main")) {
+            for (int global : inicializacoesGlobais) {
+                atribuir(variaveis.get((Variavel) arvore.getSimbolo(global)), arvore.primeiroFilho(global));
+            }
+        }
+        comando(corpo);
+
+        // Retorno implícito no fim da função (0 em main, como em C99)
+        List<Instrucao> instrucoes = funcao.getInstrucoes();
+        if (instrucoes.isEmpty() || instrucoes.get(instrucoes.size() - 1).getOp() != OpIR.RET) {
+            TipoIR tipo = funcao.getTipoRetorno();
+            emitir(new Instrucao(OpIR.RET, tipo, null, tipo != null ? zero(tipo) : null, null));
+        }
+        programa.adicionarFuncao(funcao);
+        funcao = null;
+    }
+
+    private void declararParametro(int no) {
+        Variavel var = (Variavel) arvore.getSimbolo(no);
+        Tipo tipo = arvore.getTipo(no);
+        if (isStructValor(tipo)) {
+            // O chamador passa o endereço de uma cópia
+            variaveis.put(var, new Lugar(null, funcao.novoParametro(TipoIR.I64), tipo, false));
+            return;
+        }
+        Operando parametro = funcao.novoParametro(tipoRegisto(tipo));
+        if (comEndereco.contains(var)) {
+            Operando endereco = funcao.novoLocal(layout.tamanho(tipo), layout.alinhamento(tipo));
+            emitir(new Instrucao(OpIR.STORE, TipoIR.de(tipo), null, endereco, parametro));
+            variaveis.put(var, new Lugar(null, endereco, tipo, false));
+        } else {
+            variaveis.put(var, new Lugar(parametro, null, tipo, false));
+        }
+    }
+
+    private void declararLocal(int no) {
+        Variavel var = (Variavel) arvore.getSimbolo(no);
+        Tipo tipo = arvore.getTipo(no);
+        int elementos = arvore.getDado(no);
+        Lugar lugar;
+        if (elementos >= 0 || isStructValor(tipo) || comEndereco.contains(var)) {
+            Operando endereco = funcao.novoLocal(layout.tamanhoArmazenado(tipo, elementos), layout.alinhamento(tipo));
+            lugar = new Lugar(null, endereco, tipo, elementos >= 0);
+        } else {
+            lugar = new Lugar(funcao.novoTemp(tipoRegisto(tipo)), null, tipo, false);
+        }
+        variaveis.put(var, lugar);
+
+        int inicial = arvore.primeiroFilho(no);
+        if (inicial != NENHUM) {
+            if (lugar.array) {
+                naoSuportado("inicialização de arrays (" + var.getNome() + ")");
+            }
+            atribuir(lugar, inicial);
+        }
+    }
+
+    // === Comandos ===
+
+    private void comando(int no) {
+        switch (arvore.getEspecie(no)) {
+            case BLOCO:
+            case DECLARACAO:
+                for (int filho = arvore.primeiroFilho(no); filho != NENHUM; filho = arvore.proximoIrmao(filho)) {
+                    comando(filho);
+                }
+                break;
+            case VARIAVEL:
+                declararLocal(no);
+                break;
+            case STRUCT:
+                break;
+            case IF: {
+                int senao = funcao.novoRotulo();
+                saltar(arvore.filho(no, 0), false, senao);
+                comando(arvore.filho(no, 1));
+                int alternativa = arvore.filho(no, 2);
+                if (alternativa != NENHUM) {
+                    int fim = funcao.novoRotulo();
+                    emitir(Instrucao.rotulo(OpIR.JMP, fim, null));
+                    rotulo(senao);
+                    comando(alternativa);
+                    rotulo(fim);
+                } else {
+                    rotulo(senao);
+                }
+                break;
+            }
+            case WHILE: {
+                int inicio = funcao.novoRotulo();
+                int fim = funcao.novoRotulo();
+                rotulo(inicio);
+                saltar(arvore.filho(no, 0), false, fim);
+                ciclo(arvore.filho(no, 1), fim, inicio);
+                emitir(Instrucao.rotulo(OpIR.JMP, inicio, null));
+                rotulo(fim);
+                break;
+            }
+            case DO_WHILE: {
+                int inicio = funcao.novoRotulo();
+                int teste = funcao.novoRotulo();
+                int fim = funcao.novoRotulo();
+                rotulo(inicio);
+                ciclo(arvore.filho(no, 0), fim, teste);
+                rotulo(teste);
+                saltar(arvore.filho(no, 1), true, inicio);
+                rotulo(fim);
+                break;
+            }
+            case FOR: {
+                int teste = funcao.novoRotulo();
+                int passo = funcao.novoRotulo();
+                int fim = funcao.novoRotulo();
+                comando(arvore.filho(no, 0));
+                rotulo(teste);
+                saltar(arvore.filho(no, 1), false, fim);
+                ciclo(arvore.filho(no, 3), fim, passo);
+                rotulo(passo);
+                comando(arvore.filho(no, 2));
+                emitir(Instrucao.rotulo(OpIR.JMP, teste, null));
+                rotulo(fim);
+                break;
+            }
+            case SWITCH:
+                traduzirSwitch(no);
+                break;
+            case RETURN: {
+                TipoIR tipo = funcao.getTipoRetorno();
+                Operando valor = valor(arvore.primeiroFilho(no));
+                emitir(new Instrucao(OpIR.RET, tipo, null, tipo != null ? converter(valor, tipo) : null, null));
+                break;
+            }
+            case BREAK:
+                emitir(Instrucao.rotulo(OpIR.JMP, saidas.peek(), null));
+                break;
+            case CONTINUE:
+                emitir(Instrucao.rotulo(OpIR.JMP, continuacoes.peek(), null));
+                break;
+            case ATRIBUICAO:
+                traduzirAtribuicao(no);
+                break;
+            case INCREMENTO:
+                incrementar(lugar(arvore.primeiroFilho(no)), arvore.getOperador(no), false);
+                break;
+            case PRINTF:
+            case SCANF:
+                traduzirChamadaBiblioteca(no);
+                break;
+            default:
+                valor(no);
+                break;
+        }
+    }
+
+    private void ciclo(int corpo, int saida, int continuacao) {
+        saidas.push(saida);
+        continuacoes.push(continuacao);
+        comando(corpo);
+        continuacoes.pop();
+        saidas.pop();
+    }
+
+    // Cadeia de comparações seguida dos corpos dos casos, que continuam uns nos outros até um break
+    private void traduzirSwitch(int no) {
+        int expressao = arvore.primeiroFilho(no);
+        Operando valor = valor(expressao);
+        int fim = funcao.novoRotulo();
+        int defeito = fim;
+        List<Integer> corpos = new ArrayList<>();
+        List<Integer> rotulos = new ArrayList<>();
+        for (int caso = arvore.proximoIrmao(expressao); caso != NENHUM; caso = arvore.proximoIrmao(caso)) {
+            int rotulo = funcao.novoRotulo();
+            corpos.add(caso);
+            rotulos.add(rotulo);
+            if (arvore.getEspecie(caso) == EspecieNo.DEFEITO) {
+                defeito = rotulo;
+            } else {
+                Operando igual = emitir(OpIR.EQ, valor.getTipo(), TipoIR.I32, valor,
+                        converter(Operando.inteiro(arvore.getDado(caso), TipoIR.I32), valor.getTipo()));
+                emitir(Instrucao.rotulo(OpIR.JNZ, rotulo, igual));
+            }
+        }
+        emitir(Instrucao.rotulo(OpIR.JMP, defeito, null));
+        saidas.push(fim);
+        for (int i = 0; i < corpos.size(); i++) {
+            rotulo(rotulos.get(i));
+            for (int filho = arvore.primeiroFilho(corpos.get(i)); filho != NENHUM; filho = arvore.proximoIrmao(filho)) {
+                comando(filho);
+            }
+        }
+        saidas.pop();
+        rotulo(fim);
+    }
+
+    private void traduzirAtribuicao(int no) {
+        Lugar lugar = lugar(arvore.filho(no, 0));
+        int expressao = arvore.filho(no, 1);
+        TokenKind operador = arvore.getOperador(no);
+        if (operador == TokenKind.ASSIGN) {
+            atribuir(lugar, expressao);
+            return;
+        }
+        OpIR op = operador == TokenKind.ADD_ASSIGN ? OpIR.ADD
+                : operador == TokenKind.SUB_ASSIGN ? OpIR.SUB
+                : operador == TokenKind.MUL_ASSIGN ? OpIR.MUL : OpIR.DIV;
+        Operando atual = ler(lugar);
+        Operando direita = valor(expressao);
+        Operando resultado;
+        if (lugar.tipo.terminaEmPonteiro() && (op == OpIR.ADD || op == OpIR.SUB)) {
+            resultado = deslocarPonteiro(op, atual, direita, lugar.tipo.basePonteiro());
+        } else {
+            TipoIR tipo = comum(atual.getTipo(), direita.getTipo());
+            resultado = emitir(op, tipo, tipo, converter(atual, tipo), converter(direita, tipo));
+        }
+        escrever(lugar, converter(resultado, atual.getTipo()));
+    }
+
+    private void atribuir(Lugar lugar, int expressao) {
+        Operando valor = valor(expressao);
+        if (isStructValor(lugar.tipo)) {
+            emitir(Instrucao.copia(lugar.endereco, valor, layout.tamanho(lugar.tipo)));
+        } else {
+            escrever(lugar, converter(valor, tipoRegisto(lugar.tipo)));
+        }
+    }
+
+    // printf e scanf da libc; os argumentos float de uma função variádica passam a double
+    private void traduzirChamadaBiblioteca(int no) {
+        List<Operando> argumentos = new ArrayList<>();
+        argumentos.add(string(arvore.getTexto(no)));
+        for (int filho = arvore.primeiroFilho(no); filho != NENHUM; filho = arvore.proximoIrmao(filho)) {
+            Operando argumento = valor(filho);
+            argumentos.add(argumento.getTipo() == TipoIR.F32 ? converter(argumento, TipoIR.F64) : argumento);
+        }
+        String nome = arvore.getEspecie(no) == EspecieNo.PRINTF ? "printf" : "scanf";
+        emitir(Instrucao.chamada(null, TipoIR.I32, nome, argumentos, true));
+    }
+
+    // === Expressões ===
+
+    private Operando valor(int no) {
+        Tipo tipo = arvore.getTipo(no);
+        switch (arvore.getEspecie(no)) {
+            case LITERAL_INT:
+            case LITERAL_CHAR:
+                return Operando.inteiro(arvore.getDado(no), TipoIR.I32);
+            case LITERAL_FLOAT:
+                // double, como em C (o Parser trata-os como float)
+                return Operando.real(valorReal(arvore.getTexto(no)), TipoIR.F64);
+            case LITERAL_STRING:
+                return string(arvore.getTexto(no));
+            case IDENTIFICADOR:
+            case INDICE:
+            case ACESSO_CAMPO:
+                return ler(lugar(no));
+            case UNARIA:
+                return unaria(no);
+            case POSFIXA:
+                return incrementar(lugar(arvore.primeiroFilho(no)), arvore.getOperador(no), true);
+            case BINARIA:
+                return binaria(no);
+            case TERNARIA: {
+                Operando resultado = funcao.novoTemp(tipoRegisto(tipo));
+                int falso = funcao.novoRotulo();
+                int fim = funcao.novoRotulo();
+                saltar(arvore.filho(no, 0), false, falso);
+                emitir(new Instrucao(OpIR.MOV, resultado.getTipo(), resultado,
+                        converter(valor(arvore.filho(no, 1)), resultado.getTipo()), null));
+                emitir(Instrucao.rotulo(OpIR.JMP, fim, null));
+                rotulo(falso);
+                emitir(new Instrucao(OpIR.MOV, resultado.getTipo(), resultado,
+                        converter(valor(arvore.filho(no, 2)), resultado.getTipo()), null));
+                rotulo(fim);
+                return resultado;
+            }
+            case CHAMADA:
+                return chamada(no);
+            default:
+                return naoSuportado("expressão " + arvore.getEspecie(no) + " na linha " + arvore.getLinha(no));
+        }
+    }
+
+    private Operando unaria(int no) {
+        int operando = arvore.primeiroFilho(no);
+        TokenKind operador = arvore.getOperador(no);
+        switch (operador) {
+            case MINUS: {
+                Operando valor = valor(operando);
+                return emitir(OpIR.NEG, valor.getTipo(), valor.getTipo(), valor, null);
+            }
+            case NOT: {
+                Operando valor = valor(operando);
+                return emitir(OpIR.EQ, valor.getTipo(), TipoIR.I32, valor, zero(valor.getTipo()));
+            }
+            case MULTIPLY:
+                return ler(new Lugar(null, valor(operando), arvore.getTipo(no), false));
+            case BITWISE_AND: {
+                Lugar lugar = lugar(operando);
+                if (lugar.endereco == null) {
+                    throw new IllegalStateException("Variável sem endereço na linha " + arvore.getLinha(no));
+                }
+                return lugar.endereco;
+            }
+            case INCREMENT:
+            case DECREMENT:
+                return incrementar(lugar(operando), operador, false);
+            default:
+                return naoSuportado("operador unário " + operador);
+        }
+    }
+
+    private Operando binaria(int no) {
+        TokenKind operador = arvore.getOperador(no);
+        if (operador == TokenKind.AND || operador == TokenKind.OR) {
+            Operando resultado = funcao.novoTemp(TipoIR.I32);
+            int falso = funcao.novoRotulo();
+            int fim = funcao.novoRotulo();
+            saltar(no, false, falso);
+            emitir(new Instrucao(OpIR.MOV, TipoIR.I32, resultado, Operando.inteiro(1, TipoIR.I32), null));
+            emitir(Instrucao.rotulo(OpIR.JMP, fim, null));
+            rotulo(falso);
+            emitir(new Instrucao(OpIR.MOV, TipoIR.I32, resultado, Operando.inteiro(0, TipoIR.I32), null));
+            rotulo(fim);
+            return resultado;
+        }
+
+        int esquerda = arvore.filho(no, 0);
+        Operando a = valor(esquerda);
+        Operando b = valor(arvore.filho(no, 1));
+        OpIR op = operacao(operador);
+        if (op.isComparacao()) {
+            TipoIR tipo = comum(a.getTipo(), b.getTipo());
+            return emitir(op, tipo, TipoIR.I32, converter(a, tipo), converter(b, tipo));
+        }
+        // Aritmética de ponteiros, possível nas expressões que o Parser não verifica
+        Tipo tipoEsquerda = tipoValor(esquerda);
+        if ((op == OpIR.ADD || op == OpIR.SUB) && tipoEsquerda.terminaEmPonteiro()) {
+            return deslocarPonteiro(op, a, b, tipoEsquerda.basePonteiro());
+        }
+        TipoIR tipo = comum(a.getTipo(), b.getTipo());
+        return emitir(op, tipo, tipo, converter(a, tipo), converter(b, tipo));
+    }
+
+    private Operando chamada(int no) {
+        Funcao simbolo = (Funcao) arvore.getSimbolo(no);
+        if (simbolo == null) {
+            throw new IllegalStateException("Função por resolver: " + arvore.getTexto(no));
+        }
+        List<Parametro> parametros = simbolo.getParametros();
+        List<Operando> argumentos = new ArrayList<>();
+        int i = 0;
+        for (int filho = arvore.primeiroFilho(no); filho != NENHUM; filho = arvore.proximoIrmao(filho), i++) {
+            Tipo tipoParametro = parametros.get(i).getTipoCanonico();
+            Operando argumento = valor(filho);
+            if (isStructValor(tipoParametro)) {
+                Operando copia = funcao.novoLocal(layout.tamanho(tipoParametro), layout.alinhamento(tipoParametro));
+                emitir(Instrucao.copia(copia, argumento, layout.tamanho(tipoParametro)));
+                argumentos.add(copia);
+            } else {
+                argumentos.add(converter(argumento, tipoRegisto(tipoParametro)));
+            }
+        }
+        TipoIR tipoRetorno = tipoRegisto(simbolo.getTipoRetornoCanonico());
+        Operando destino = tipoRetorno != null ? funcao.novoTemp(tipoRetorno) : null;
+        emitir(Instrucao.chamada(destino, tipoRetorno, simbolo.getNome(), argumentos, false));
+        return destino;
+    }
+
+    // Salta para o rótulo quando o valor lógico da condição é igual a quando
+    private void saltar(int no, boolean quando, int rotulo) {
+        EspecieNo especie = arvore.getEspecie(no);
+        TokenKind operador = especie == EspecieNo.BINARIA || especie == EspecieNo.UNARIA ? arvore.getOperador(no) : null;
+        if (especie == EspecieNo.BINARIA && (operador == TokenKind.AND || operador == TokenKind.OR)) {
+            boolean curtoCircuito = operador == TokenKind.OR;
+            if (quando == curtoCircuito) {
+                saltar(arvore.filho(no, 0), quando, rotulo);
+                saltar(arvore.filho(no, 1), quando, rotulo);
+            } else {
+                int fim = funcao.novoRotulo();
+                saltar(arvore.filho(no, 0), !quando, fim);
+                saltar(arvore.filho(no, 1), quando, rotulo);
+                rotulo(fim);
+            }
+            return;
+        }
+        if (especie == EspecieNo.UNARIA && operador == TokenKind.NOT) {
+            saltar(arvore.primeiroFilho(no), !quando, rotulo);
+            return;
+        }
+        Operando condicao = valor(no);
+        if (condicao.getEspecie() == Operando.Especie.INTEIRO) {
+            if ((condicao.getInteiro() != 0) == quando) {
+                emitir(Instrucao.rotulo(OpIR.JMP, rotulo, null));
+            }
+            return;
+        }
+        if (condicao.getTipo().isReal()) {
+            condicao = emitir(OpIR.NE, condicao.getTipo(), TipoIR.I32, condicao, zero(condicao.getTipo()));
+        }
+        emitir(Instrucao.rotulo(quando ? OpIR.JNZ : OpIR.JZ, rotulo, condicao));
+    }
+
+    // === Lugares (lvalues) ===
+
+    private Lugar lugar(int no) {
+        switch (arvore.getEspecie(no)) {
+            case IDENTIFICADOR: {
+                Lugar lugar = variaveis.get((Variavel) arvore.getSimbolo(no));
+                if (lugar == null) {
+                    throw new IllegalStateException("Variável por resolver: " + arvore.getTexto(no));
+                }
+                return lugar;
+            }
+            case INDICE: {
+                int base = arvore.filho(no, 0);
+                Tipo elemento = tipoElemento(no);
+                Operando indice = converter(valor(arvore.filho(no, 1)), TipoIR.I64);
+                Operando endereco = deslocarPonteiro(OpIR.ADD, valor(base), indice, elemento);
+                return new Lugar(null, endereco, elemento, false);
+            }
+            case ACESSO_CAMPO: {
+                int base = arvore.primeiroFilho(no);
+                Tipo tipoStruct = arvore.getDado(no) == 1 ? tipoValor(base).basePonteiro() : tipoValor(base);
+                long deslocamento = layout.deslocamento(tipoStruct, arvore.getTexto(no));
+                Operando endereco = valor(base);
+                if (deslocamento != 0) {
+                    endereco = emitir(OpIR.ADD, TipoIR.I64, TipoIR.I64, endereco, Operando.inteiro(deslocamento, TipoIR.I64));
+                }
+                return new Lugar(null, endereco, arvore.getTipo(no), false);
+            }
+            case UNARIA:
+                if (arvore.getOperador(no) == TokenKind.MULTIPLY) {
+                    return new Lugar(null, valor(arvore.primeiroFilho(no)), arvore.getTipo(no), false);
+                }
+                break;
+            default:
+                break;
+        }
+        return naoSuportado("atribuição a " + arvore.getEspecie(no) + " na linha " + arvore.getLinha(no));
+    }
+
+    // Valor guardado num lugar; arrays e structs valem o endereço
+    private Operando ler(Lugar lugar) {
+        if (lugar.temp != null) {
+            return lugar.temp;
+        }
+        if (lugar.array || isAgregado(lugar.tipo)) {
+            return lugar.endereco;
+        }
+        TipoIR tipo = tipoMemoria(lugar.tipo);
+        return emitir(OpIR.LOAD, tipo, tipo.emRegisto(), lugar.endereco, null);
+    }
+
+    private void escrever(Lugar lugar, Operando valor) {
+        if (lugar.temp != null) {
+            emitir(new Instrucao(OpIR.MOV, lugar.temp.getTipo(), lugar.temp, valor, null));
+        } else {
+            emitir(new Instrucao(OpIR.STORE, tipoMemoria(lugar.tipo), null, lugar.endereco, valor));
+        }
+    }
+
+    // ++ e --; devolve o valor anterior (posfixo) ou o novo
+    private Operando incrementar(Lugar lugar, TokenKind operador, boolean devolverAnterior) {
+        OpIR op = operador == TokenKind.INCREMENT ? OpIR.ADD : OpIR.SUB;
+        Operando atual = ler(lugar);
+        if (devolverAnterior && lugar.temp != null) {
+            Operando copia = funcao.novoTemp(atual.getTipo());
+            emitir(new Instrucao(OpIR.MOV, copia.getTipo(), copia, atual, null));
+            atual = copia;
+        }
+        Operando novo;
+        if (lugar.tipo.terminaEmPonteiro()) {
+            novo = deslocarPonteiro(op, atual, Operando.inteiro(1, TipoIR.I64), lugar.tipo.basePonteiro());
+        } else {
+            TipoIR tipo = atual.getTipo();
+            Operando um = tipo.isReal() ? Operando.real(1, tipo) : Operando.inteiro(1, tipo);
+            novo = emitir(op, tipo, tipo, atual, um);
+        }
+        escrever(lugar, novo);
+        return devolverAnterior ? atual : novo;
+    }
+
+    // endereço ± indice * sizeof(elemento)
+    private Operando deslocarPonteiro(OpIR op, Operando endereco, Operando indice, Tipo elemento) {
+        long tamanho = layout.tamanho(elemento);
+        indice = converter(indice, TipoIR.I64);
+        Operando deslocamento;
+        if (indice.getEspecie() == Operando.Especie.INTEIRO) {
+            if (indice.getInteiro() == 0) {
+                return endereco;
+            }
+            deslocamento = Operando.inteiro(indice.getInteiro() * tamanho, TipoIR.I64);
+        } else if (tamanho == 1) {
+            deslocamento = indice;
+        } else {
+            deslocamento = emitir(OpIR.MUL, TipoIR.I64, TipoIR.I64, indice, Operando.inteiro(tamanho, TipoIR.I64));
+        }
+        return emitir(op, TipoIR.I64, TipoIR.I64, endereco, deslocamento);
+    }
+
+    // === Tipos ===
+
+    // Tipo do elemento de um INDICE; os arrays locais e globais são declarados com o tipo do elemento
+    private Tipo tipoElemento(int no) {
+        int base = arvore.filho(no, 0);
+        if (isVariavelArray(base)) {
+            return arvore.getTipo(base);
+        }
+        Tipo tipo = arvore.getTipo(base);
+        if (tipo.terminaEmArray()) {
+            return tipo.semArray();
+        }
+        return tipo.terminaEmPonteiro() ? tipo.basePonteiro() : arvore.getTipo(no);
+    }
+
+    // Tipo de uma expressão como valor: uma variável array vale um ponteiro para o elemento
+    private Tipo tipoValor(int no) {
+        Tipo tipo = arvore.getTipo(no);
+        if (isVariavelArray(no)) {
+            return tipo.ponteiroPara();
+        }
+        return tipo.terminaEmArray() ? tipo.semArray().ponteiroPara() : tipo;
+    }
+
+    private boolean isVariavelArray(int no) {
+        if (arvore.getEspecie(no) != EspecieNo.IDENTIFICADOR) {
+            return false;
+        }
+        Lugar lugar = variaveis.get((Variavel) arvore.getSimbolo(no));
+        return lugar != null && lugar.array;
+    }
+
+    private static boolean isStructValor(Tipo tipo) {
+        return tipo.isStruct() && !tipo.terminaEmPonteiro() && !tipo.terminaEmArray();
+    }
+
+    private static boolean isAgregado(Tipo tipo) {
+        return isStructValor(tipo) || tipo.terminaEmArray();
+    }
+
+    // Tipo de um valor num temporário; null para void
+    private TipoIR tipoRegisto(Tipo tipo) {
+        if (isAgregado(tipo)) {
+            return TipoIR.I64;
+        }
+        TipoIR ir = TipoIR.de(tipo);
+        if (ir == null && !tipo.getNome().equals("void")) {
+            naoSuportado("tipo " + tipo);
+        }
+        return ir != null ? ir.emRegisto() : null;
+    }
+
+    private TipoIR tipoMemoria(Tipo tipo) {
+        TipoIR ir = TipoIR.de(tipo);
+        return ir != null ? ir : naoSuportado("tipo " + tipo);
+    }
+
+    // Conversões aritméticas habituais de C: o tipo mais largo dos dois operandos
+    private static TipoIR comum(TipoIR a, TipoIR b) {
+        if (a == TipoIR.F64 || b == TipoIR.F64) {
+            return TipoIR.F64;
+        }
+        if (a == TipoIR.F32 || b == TipoIR.F32) {
+            return TipoIR.F32;
+        }
+        return a == TipoIR.I64 || b == TipoIR.I64 ? TipoIR.I64 : TipoIR.I32;
+    }
+
+    private Operando converter(Operando valor, TipoIR tipo) {
+        if (valor.getTipo() == tipo) {
+            return valor;
+        }
+        if (valor.getEspecie() == Operando.Especie.INTEIRO) {
+            return tipo.isReal() ? Operando.real(valor.getInteiro(), tipo) : Operando.inteiro(valor.getInteiro(), tipo);
+        }
+        if (valor.getEspecie() == Operando.Especie.REAL) {
+            double real = valor.getTipo() == TipoIR.F32 && !tipo.isReal() ? (float) valor.getReal() : valor.getReal();
+            return tipo.isReal() ? Operando.real(real, tipo) : Operando.inteiro((long) real, tipo);
+        }
+        return emitir(OpIR.CVT, tipo, tipo, valor, null);
+    }
+
+    private static Operando zero(TipoIR tipo) {
+        return tipo.isReal() ? Operando.real(0, tipo) : Operando.inteiro(0, tipo);
+    }
+
+    private static OpIR operacao(TokenKind operador) {
+        switch (operador) {
+            case PLUS:
+                return OpIR.ADD;
+            case MINUS:
+                return OpIR.SUB;
+            case MULTIPLY:
+                return OpIR.MUL;
+            case DIVIDE:
+                return OpIR.DIV;
+            case EQUAL:
+                return OpIR.EQ;
+            case NOT_EQUAL:
+                return OpIR.NE;
+            case LESS:
+                return OpIR.LT;
+            case LESS_EQUAL:
+                return OpIR.LE;
+            case GREATER:
+                return OpIR.GT;
+            case GREATER_EQUAL:
+                return OpIR.GE;
+            default:
+                return naoSuportado("operador " + operador);
+        }
+    }
+
+    // === Literais ===
+
+    private static double valorReal(String lexema) {
+        String numero = lexema.endsWith("f") || lexema.endsWith("F") ? lexema.substring(0, lexema.length() - 1) : lexema;
+        return Double.parseDouble(numero);
+    }
+
+    // Resolve as sequências de escape e volta a codificar o texto com o charset do código fonte
+    private Operando string(String lexema) {
+        String texto = lexema.length() >= 2 ? lexema.substring(1, lexema.length() - 1) : lexema;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(texto.length());
+        StringBuilder simples = new StringBuilder();
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c != '\\' || i + 1 == texto.length()) {
+                simples.append(c);
+                continue;
+            }
+            bytes.writeBytes(simples.toString().getBytes(charset));
+            simples.setLength(0);
+            char escape = texto.charAt(++i);
+            switch (escape) {
+                case 'n': bytes.write('\n'); break;
+                case 't': bytes.write('\t'); break;
+                case 'r': bytes.write('\r'); break;
+                case 'a': bytes.write(7); break;
+                case 'b': bytes.write('\b'); break;
+                case 'f': bytes.write('\f'); break;
+                case 'v': bytes.write(11); break;
+                case 'x': {
+                    int valor = 0;
+                    while (i + 1 < texto.length() && Character.digit(texto.charAt(i + 1), 16) >= 0) {
+                        valor = valor * 16 + Character.digit(texto.charAt(++i), 16);
+                    }
+                    bytes.write(valor);
+                    break;
+                }
+                default:
+                    if (escape >= '0' && escape <= '7') {
+                        int valor = escape - '0';
+                        for (int n = 1; n < 3 && i + 1 < texto.length() && texto.charAt(i + 1) >= '0' && texto.charAt(i + 1) <= '7'; n++) {
+                            valor = valor * 8 + texto.charAt(++i) - '0';
+                        }
+                        bytes.write(valor);
+                    } else {
+                        simples.append(escape); // \\, \", \' e escapes desconhecidos
+                    }
+                    break;
+            }
+        }
+        bytes.writeBytes(simples.toString().getBytes(charset));
+        return programa.string(lexema, bytes.toByteArray());
+    }
+
+    // === Emissão ===
+
+    private Operando emitir(OpIR op, TipoIR tipo, TipoIR tipoDestino, Operando a, Operando b) {
+        Operando destino = funcao.novoTemp(tipoDestino);
+        funcao.emitir(new Instrucao(op, tipo, destino, a, b));
+        return destino;
+    }
+
+    private void emitir(Instrucao instrucao) {
+        funcao.emitir(instrucao);
+    }
+
+    private void rotulo(int rotulo) {
+        funcao.emitir(Instrucao.rotulo(OpIR.LABEL, rotulo, null));
+    }
+
+    private static <T> T naoSuportado(String construcao) {
+        throw new ConstrucaoNaoSuportada("Não suportado pelo gerador de código: " + construcao);
+    }
+
+}
@@ -0,0 +1,99 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Uma função na representação intermédia: a lista de instruções, o tipo de
+ * cada temporário e os espaços locais (variáveis que precisam de endereço:
+ * arrays, structs e escalares usados com '&').
+ *
+ * Os parâmetros são os primeiros temporários; um parâmetro struct chega
+ * como o endereço (I64) de uma cópia feita pelo chamador.
+ *
+ * @author itsupport
+ */
+public class FuncaoIR {
+
+    private final String nome;
+    private final TipoIR tipoRetorno; // null para void
+    private final List<Operando> parametros = new ArrayList<>();
+    private List<Instrucao> instrucoes = new ArrayList<>();
+    private final List<TipoIR> tiposTemps = new ArrayList<>();
+    private final List<long[]> espacos = new ArrayList<>(); // {tamanho, alinhamento}
+    private int rotulos;
+
+    public FuncaoIR(String nome, TipoIR tipoRetorno) {
+        this.nome = nome;
+        this.tipoRetorno = tipoRetorno;
+    }
+
+    public Operando novoTemp(TipoIR tipo) {
+        tiposTemps.add(tipo);
+        return Operando.temp(tiposTemps.size() - 1, tipo);
+    }
+
+    public Operando novoParametro(TipoIR tipo) {
+        Operando temp = novoTemp(tipo);
+        parametros.add(temp);
+        return temp;
+    }
+
+    public Operando novoLocal(long tamanho, long alinhamento) {
+        espacos.add(new long[]{Math.max(1, tamanho), Math.max(1, alinhamento)});
+        return Operando.local(espacos.size() - 1);
+    }
+
+    public int novoRotulo() {
+        return rotulos++;
+    }
+
+    public void emitir(Instrucao instrucao) {
+        instrucoes.add(instrucao);
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public TipoIR getTipoRetorno() {
+        return tipoRetorno;
+    }
+
+    public List<Operando> getParametros() {
+        return parametros;
+    }
+
+    public List<Instrucao> getInstrucoes() {
+        return instrucoes;
+    }
+
+    public void setInstrucoes(List<Instrucao> instrucoes) {
+        this.instrucoes = instrucoes;
+    }
+
+    public int getNumeroTemps() {
+        return tiposTemps.size();
+    }
+
+    public TipoIR getTipoTemp(int temp) {
+        return tiposTemps.get(temp);
+    }
+
+    public int getNumeroLocais() {
+        return espacos.size();
+    }
+
+    public long getTamanhoLocal(int espaco) {
+        return espacos.get(espaco)[0];
+    }
+
+    public long getAlinhamentoLocal(int espaco) {
+        return espacos.get(espaco)[1];
+    }
+
+    public int getNumeroRotulos() {
+        return rotulos;
+    }
+
+}
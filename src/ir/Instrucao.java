@@ -0,0 +1,156 @@
+package ir;
+
+import java.util.List;
+
+/**
+ * Uma instrução de três endereços. Os campos são mutáveis para que as
+ * passagens de otimização possam reescrever as instruções no lugar.
+ *
+ * @author itsupport
+ */
+public final class Instrucao {
+
+    private OpIR op;
+    private TipoIR tipo;
+    private Operando destino;        // Temporário escrito, ou null
+    private Operando a;
+    private Operando b;
+    private int rotulo = -1;          // LABEL, JMP, JNZ, JZ
+    private String funcao;            // CALL
+    private List<Operando> argumentos; // CALL
+    private boolean variadico;        // CALL de printf/scanf
+    private long tamanho;             // MEMCPY
+
+    public Instrucao(OpIR op, TipoIR tipo, Operando destino, Operando a, Operando b) {
+        this.op = op;
+        this.tipo = tipo;
+        this.destino = destino;
+        this.a = a;
+        this.b = b;
+    }
+
+    public static Instrucao rotulo(OpIR op, int rotulo, Operando condicao) {
+        Instrucao instrucao = new Instrucao(op, condicao != null ? condicao.getTipo() : null, null, condicao, null);
+        instrucao.rotulo = rotulo;
+        return instrucao;
+    }
+
+    public static Instrucao chamada(Operando destino, TipoIR tipo, String funcao, List<Operando> argumentos, boolean variadico) {
+        Instrucao instrucao = new Instrucao(OpIR.CALL, tipo, destino, null, null);
+        instrucao.funcao = funcao;
+        instrucao.argumentos = argumentos;
+        instrucao.variadico = variadico;
+        return instrucao;
+    }
+
+    public static Instrucao copia(Operando destino, Operando origem, long tamanho) {
+        Instrucao instrucao = new Instrucao(OpIR.MEMCPY, TipoIR.I64, null, destino, origem);
+        instrucao.tamanho = tamanho;
+        return instrucao;
+    }
+
+    public OpIR getOp() {
+        return op;
+    }
+
+    public TipoIR getTipo() {
+        return tipo;
+    }
+
+    public Operando getDestino() {
+        return destino;
+    }
+
+    public Operando getA() {
+        return a;
+    }
+
+    public Operando getB() {
+        return b;
+    }
+
+    public int getRotulo() {
+        return rotulo;
+    }
+
+    public String getFuncao() {
+        return funcao;
+    }
+
+    public List<Operando> getArgumentos() {
+        return argumentos;
+    }
+
+    public boolean isVariadico() {
+        return variadico;
+    }
+
+    public long getTamanho() {
+        return tamanho;
+    }
+
+    public void setOp(OpIR op) {
+        this.op = op;
+    }
+
+    public void setTipo(TipoIR tipo) {
+        this.tipo = tipo;
+    }
+
+    public void setA(Operando a) {
+        this.a = a;
+    }
+
+    public void setB(Operando b) {
+        this.b = b;
+    }
+
+    public void setRotulo(int rotulo) {
+        this.rotulo = rotulo;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        switch (op) {
+            case LABEL:
+                return "L" + rotulo + ":";
+            case JMP:
+                return "    jmp L" + rotulo;
+            case JNZ:
+            case JZ:
+                return "    " + op.name().toLowerCase() + " " + a + ", L" + rotulo;
+            case STORE:
+                return "    store." + tipo.name().toLowerCase() + " [" + a + "], " + b;
+            case MEMCPY:
+                return "    memcpy [" + a + "], [" + b + "], " + tamanho;
+            case RET:
+                return a != null ? "    ret " + a : "    ret";
+            case CALL:
+                sb.append("    ");
+                if (destino != null) {
+                    sb.append(destino).append(" = ");
+                }
+                sb.append("call ").append(funcao).append('(');
+                for (int i = 0; i < argumentos.size(); i++) {
+                    if (i > 0) {
+                        sb.append(", ");
+                    }
+                    sb.append(argumentos.get(i));
+                }
+                return sb.append(variadico ? ", ...)" : ")").toString();
+            default:
+                sb.append("    ").append(destino).append(" = ").append(op.name().toLowerCase())
+                        .append('.').append(tipo.name().toLowerCase()).append(' ');
+                if (op == OpIR.LOAD) {
+                    return sb.append('[').append(a).append(']').toString();
+                }
+                sb.append(a);
+                if (b != null) {
+                    sb.append(", ").append(b);
+                }
+                return sb.toString();
+        }
+    }
+
+}
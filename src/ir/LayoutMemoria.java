@@ -0,0 +1,94 @@
+package ir;
+
+import java.util.HashMap;
+import java.util.Map;
+import models.Tipo;
+
+/**
+ * Tamanhos, alinhamentos e deslocamentos dos campos segundo a ABI System V
+ * x86-64. A ordem dos campos de cada struct vem dos nós CAMPO da árvore
+ * (models.Struct guarda-os num HashMap, sem ordem).
+ *
+ * @author itsupport
+ */
+public class LayoutMemoria {
+
+    private static class Layout {
+
+        final Map<String, Long> deslocamentos = new HashMap<>();
+        long tamanho;
+        long alinhamento = 1;
+    }
+
+    private final Map<String, Layout> structs = new HashMap<>();
+    private Layout emConstrucao;
+
+    public void iniciarStruct(String nome) {
+        emConstrucao = new Layout();
+        structs.put(nome, emConstrucao);
+    }
+
+    // Acrescenta um campo à struct iniciada; elementos > 0 para campos array
+    public void adicionarCampo(String nome, Tipo tipo, int elementos) {
+        long tamanho = tamanhoArmazenado(tipo, elementos);
+        long alinhamento = alinhamento(tipo.terminaEmArray() && elementos > 0 ? tipo.semArray() : tipo);
+        Layout layout = emConstrucao;
+        layout.tamanho = alinhar(layout.tamanho, alinhamento);
+        layout.deslocamentos.put(nome, layout.tamanho);
+        layout.tamanho += tamanho;
+        layout.alinhamento = Math.max(layout.alinhamento, alinhamento);
+    }
+
+    public void concluirStruct() {
+        emConstrucao.tamanho = Math.max(1, alinhar(emConstrucao.tamanho, emConstrucao.alinhamento));
+        emConstrucao = null;
+    }
+
+    // Tamanho de um valor do tipo; T[] como valor (parâmetro) é um ponteiro
+    public long tamanho(Tipo tipo) {
+        if (tipo.isStruct() && !tipo.terminaEmPonteiro() && !tipo.terminaEmArray()) {
+            return struct(tipo.getNomeStruct()).tamanho;
+        }
+        TipoIR ir = TipoIR.de(tipo);
+        return ir != null ? ir.getTamanho() : 1;
+    }
+
+    public long alinhamento(Tipo tipo) {
+        if (tipo.isStruct() && !tipo.terminaEmPonteiro() && !tipo.terminaEmArray()) {
+            return struct(tipo.getNomeStruct()).alinhamento;
+        }
+        return tamanho(tipo);
+    }
+
+    // Espaço ocupado por uma variável ou campo com o número de elementos dado (-1 se não for array)
+    public long tamanhoArmazenado(Tipo tipo, int elementos) {
+        if (elementos < 0) {
+            return tamanho(tipo);
+        }
+        if (elementos == 0) {
+            throw new ConstrucaoNaoSuportada("Não suportado pelo gerador de código: array sem tamanho constante");
+        }
+        return elementos * tamanho(tipo.terminaEmArray() ? tipo.semArray() : tipo);
+    }
+
+    public long deslocamento(Tipo tipoStruct, String campo) {
+        Long deslocamento = struct(tipoStruct.getNomeStruct()).deslocamentos.get(campo);
+        if (deslocamento == null) {
+            throw new IllegalStateException("Campo '" + campo + "' sem layout em " + tipoStruct);
+        }
+        return deslocamento;
+    }
+
+    private Layout struct(String nome) {
+        Layout layout = structs.get(nome);
+        if (layout == null) {
+            throw new IllegalStateException("Struct '" + nome + "' sem layout");
+        }
+        return layout;
+    }
+
+    public static long alinhar(long valor, long alinhamento) {
+        return (valor + alinhamento - 1) / alinhamento * alinhamento;
+    }
+
+}
@@ -0,0 +1,55 @@
+package ir;
+
+/**
+ * Operações da representação intermédia. Nas instruções de três endereços o
+ * destino é sempre um temporário; o tipo da instrução é o tipo dos operandos
+ * (nas comparações o resultado é I32 0/1, em CVT é o tipo de destino e em
+ * LOAD/STORE é o tipo guardado na memória).
+ *
+ * @author itsupport
+ */
+public enum OpIR {
+
+    MOV(true),     // destino = a
+    ADD(true),     // destino = a + b
+    SUB(true),
+    MUL(true),
+    DIV(true),
+    NEG(true),     // destino = -a
+    EQ(true),      // destino = a == b
+    NE(true),
+    LT(true),
+    LE(true),
+    GT(true),
+    GE(true),
+    CVT(true),     // destino = (tipo) a
+    LOAD(true),    // destino = *a
+    STORE(false),  // *a = b
+    MEMCPY(false), // copia tamanho bytes de b para a
+    LABEL(false),  // rotulo:
+    JMP(false),    // salta para rotulo
+    JNZ(false),    // salta para rotulo se a != 0
+    JZ(false),     // salta para rotulo se a == 0
+    CALL(false),   // [destino =] funcao(argumentos)
+    RET(false);    // return [a]
+
+    private final boolean defineDestino;
+
+    OpIR(boolean defineDestino) {
+        this.defineDestino = defineDestino;
+    }
+
+    // Instrução pura cujo único efeito é escrever o destino
+    public boolean isPura() {
+        return defineDestino;
+    }
+
+    public boolean isComparacao() {
+        return ordinal() >= EQ.ordinal() && ordinal() <= GE.ordinal();
+    }
+
+    public boolean isSalto() {
+        return this == JMP || this == JNZ || this == JZ;
+    }
+
+}
@@ -0,0 +1,136 @@
+package ir;
+
+/**
+ * Operando de uma instrução da representação intermédia: um temporário, uma
+ * constante inteira ou real, ou um endereço (variável global, literal de
+ * string ou espaço local da pilha). Os endereços são sempre I64.
+ *
+ * Os operandos são imutáveis; dois temporários com o mesmo número são o
+ * mesmo valor.
+ *
+ * @author itsupport
+ */
+public final class Operando {
+
+    public enum Especie {
+        TEMP,     // indice: número do temporário
+        INTEIRO,  // inteiro: valor
+        REAL,     // real: valor (convertido para float quando o tipo é F32)
+        GLOBAL,   // nome: símbolo da variável global
+        STRING,   // indice: posição na tabela de strings do ProgramaIR
+        LOCAL     // indice: espaço local da FuncaoIR
+    }
+
+    private final Especie especie;
+    private final TipoIR tipo;
+    private final int indice;
+    private final long inteiro;
+    private final double real;
+    private final String nome;
+
+    private Operando(Especie especie, TipoIR tipo, int indice, long inteiro, double real, String nome) {
+        this.especie = especie;
+        this.tipo = tipo;
+        this.indice = indice;
+        this.inteiro = inteiro;
+        this.real = real;
+        this.nome = nome;
+    }
+
+    public static Operando temp(int numero, TipoIR tipo) {
+        return new Operando(Especie.TEMP, tipo, numero, 0, 0, null);
+    }
+
+    public static Operando inteiro(long valor, TipoIR tipo) {
+        return new Operando(Especie.INTEIRO, tipo, 0, tipo == TipoIR.I32 ? (int) valor : valor, 0, null);
+    }
+
+    public static Operando real(double valor, TipoIR tipo) {
+        return new Operando(Especie.REAL, tipo, 0, 0, tipo == TipoIR.F32 ? (float) valor : valor, null);
+    }
+
+    public static Operando global(String nome) {
+        return new Operando(Especie.GLOBAL, TipoIR.I64, 0, 0, 0, nome);
+    }
+
+    public static Operando string(int indice) {
+        return new Operando(Especie.STRING, TipoIR.I64, indice, 0, 0, null);
+    }
+
+    public static Operando local(int espaco) {
+        return new Operando(Especie.LOCAL, TipoIR.I64, espaco, 0, 0, null);
+    }
+
+    public Especie getEspecie() {
+        return especie;
+    }
+
+    public TipoIR getTipo() {
+        return tipo;
+    }
+
+    public boolean isTemp() {
+        return especie == Especie.TEMP;
+    }
+
+    public boolean isConstante() {
+        return especie == Especie.INTEIRO || especie == Especie.REAL;
+    }
+
+    public int getIndice() {
+        return indice;
+    }
+
+    public long getInteiro() {
+        return inteiro;
+    }
+
+    public double getReal() {
+        return real;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Operando)) {
+            return false;
+        }
+        Operando o = (Operando) obj;
+        return especie == o.especie && tipo == o.tipo && indice == o.indice && inteiro == o.inteiro
+                && Double.compare(real, o.real) == 0 && (nome == null ? o.nome == null : nome.equals(o.nome));
+    }
+
+    @Override
+    public int hashCode() {
+        int h = especie.ordinal() * 31 + tipo.ordinal();
+        h = h * 31 + indice;
+        h = h * 31 + Long.hashCode(inteiro);
+        h = h * 31 + Double.hashCode(real);
+        return nome != null ? h * 31 + nome.hashCode() : h;
+    }
+
+    @Override
+    public String toString() {
+        switch (especie) {
+            case TEMP:
+                return "t" + indice;
+            case INTEIRO:
+                return Long.toString(inteiro);
+            case REAL:
+                return tipo == TipoIR.F32 ? Float.toString((float) real) + "f" : Double.toString(real);
+            case GLOBAL:
+                return "@" + nome;
+            case STRING:
+                return "$str" + indice;
+            default:
+                return "%local" + indice;
+        }
+    }
+
+}
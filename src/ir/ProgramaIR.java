@@ -0,0 +1,138 @@
+package ir;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Programa completo na representação intermédia: as funções, as variáveis
+ * globais e a tabela de literais de string (já com as sequências de escape
+ * resolvidas, em bytes).
+ *
+ * @author itsupport
+ */
+public class ProgramaIR {
+
+    public static class Global {
+
+        private final String nome;
+        private final long tamanho;
+        private final long alinhamento;
+        private final TipoIR tipoInicial;   // null: inicializada a zeros
+        private final Operando valorInicial;
+
+        Global(String nome, long tamanho, long alinhamento, TipoIR tipoInicial, Operando valorInicial) {
+            this.nome = nome;
+            this.tamanho = tamanho;
+            this.alinhamento = alinhamento;
+            this.tipoInicial = tipoInicial;
+            this.valorInicial = valorInicial;
+        }
+
+        public String getNome() {
+            return nome;
+        }
+
+        public long getTamanho() {
+            return tamanho;
+        }
+
+        public long getAlinhamento() {
+            return alinhamento;
+        }
+
+        public TipoIR getTipoInicial() {
+            return tipoInicial;
+        }
+
+        // Constante com que a global começa, ou null
+        public Operando getValorInicial() {
+            return valorInicial;
+        }
+    }
+
+    private final List<FuncaoIR> funcoes = new ArrayList<>();
+    private final List<Global> globais = new ArrayList<>();
+    private final List<byte[]> strings = new ArrayList<>();
+    private final Map<String, Integer> indiceStrings = new HashMap<>();
+
+    public void adicionarFuncao(FuncaoIR funcao) {
+        funcoes.add(funcao);
+    }
+
+    public void adicionarGlobal(String nome, long tamanho, long alinhamento, TipoIR tipoInicial, Operando valorInicial) {
+        globais.add(new Global(nome, tamanho, alinhamento, tipoInicial, valorInicial));
+    }
+
+    // Literais iguais partilham a mesma entrada
+    public Operando string(String chave, byte[] bytes) {
+        Integer indice = indiceStrings.get(chave);
+        if (indice == null) {
+            indice = strings.size();
+            strings.add(bytes);
+            indiceStrings.put(chave, indice);
+        }
+        return Operando.string(indice);
+    }
+
+    public List<FuncaoIR> getFuncoes() {
+        return funcoes;
+    }
+
+    public List<Global> getGlobais() {
+        return globais;
+    }
+
+    public List<byte[]> getStrings() {
+        return strings;
+    }
+
+    // === Impressão (--ir) ===
+
+    public void imprimir(PrintStream saida) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < strings.size(); i++) {
+            sb.append("$str").append(i).append(" = \"");
+            for (byte b : strings.get(i)) {
+                int c = b & 0xFF;
+                if (c == '\n') {
+                    sb.append("\\n");
+                } else if (c == '"' || c == '\\') {
+                    sb.append('\\').append((char) c);
+                } else if (c < 0x20 || c >= 0x7F) {
+                    sb.append(String.format("\\%03o", c));
+                } else {
+                    sb.append((char) c);
+                }
+            }
+            sb.append("\"\n");
+        }
+        for (Global global : globais) {
+            sb.append('@').append(global.nome).append(" : ").append(global.tamanho).append(" bytes");
+            if (global.valorInicial != null) {
+                sb.append(" = ").append(global.tipoInicial.name().toLowerCase()).append(' ').append(global.valorInicial);
+            }
+            sb.append('\n');
+        }
+        for (FuncaoIR funcao : funcoes) {
+            sb.append('\n').append(funcao.getTipoRetorno() != null ? funcao.getTipoRetorno().name().toLowerCase() : "void")
+                    .append(' ').append(funcao.getNome()).append('(');
+            for (int i = 0; i < funcao.getParametros().size(); i++) {
+                Operando p = funcao.getParametros().get(i);
+                sb.append(i > 0 ? ", " : "").append(p.getTipo().name().toLowerCase()).append(' ').append(p);
+            }
+            sb.append(") {\n");
+            for (int i = 0; i < funcao.getNumeroLocais(); i++) {
+                sb.append("    %local").append(i).append(" : ").append(funcao.getTamanhoLocal(i)).append(" bytes\n");
+            }
+            for (Instrucao instrucao : funcao.getInstrucoes()) {
+                sb.append(instrucao).append('\n');
+            }
+            sb.append("}\n");
+        }
+        saida.print(sb);
+    }
+
+}
@@ -0,0 +1,76 @@
+package ir;
+
+import models.Tipo;
+
+/**
+ * Tipos escalares da representação intermédia. Os temporários só usam I32,
+ * I64, F32 e F64; I8 e I16 aparecem apenas nos acessos à memória (char e
+ * short), que estendem o valor para I32. Ponteiros e endereços são I64.
+ *
+ * @author itsupport
+ */
+public enum TipoIR {
+
+    I8(1, false),
+    I16(2, false),
+    I32(4, false),
+    I64(8, false),
+    F32(4, true),
+    F64(8, true);
+
+    private final int tamanho;
+    private final boolean real;
+
+    TipoIR(int tamanho, boolean real) {
+        this.tamanho = tamanho;
+        this.real = real;
+    }
+
+    public int getTamanho() {
+        return tamanho;
+    }
+
+    public boolean isReal() {
+        return real;
+    }
+
+    // Tipo do temporário que recebe um valor lido da memória com este tipo
+    public TipoIR emRegisto() {
+        return this == I8 || this == I16 ? I32 : this;
+    }
+
+    /**
+     * Tipo com que um valor de um tipo do Parser é guardado na memória, ou
+     * null para void e structs (que só existem na memória). Ponteiros e
+     * arrays (já convertidos em endereço) são I64.
+     */
+    public static TipoIR de(Tipo tipo) {
+        String nome = tipo.getNome();
+        if (tipo.terminaEmPonteiro() || tipo.terminaEmArray()) {
+            return I64;
+        }
+        if (tipo.isStruct() || nome.equals("void") || tipo == Tipo.UNKNOWN) {
+            return null;
+        }
+        switch (nome) {
+            case "char":
+            case "signed char":
+            case "unsigned char":
+                return I8;
+            case "short":
+            case "signed short":
+            case "signed short int":
+            case "unsigned short":
+            case "short int":
+                return I16;
+            case "float":
+                return F32;
+            case "double":
+            case "long double":
+                return F64;
+            default:
+                return nome.contains("long") ? I64 : I32;
+        }
+    }
+
+}
@@ -0,0 +1,404 @@
+package main;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Cache persistente dos resultados da verificação (--cache): para cada
+ * ficheiro guarda o número de erros e os diagnósticos, identificados pelo
+ * SHA-256 do conteúdo, do charset e da versão do compilador (o SHA-256 das
+ * próprias classes). Um acerto dispensa o Analex e o Parser. Quando o
+ * ficheiro não tem erros guarda-se também o executável gerado, com uma chave
+ * derivada da do ficheiro e das opções que mudam o código (ver
+ * chaveExecutavel), para que uma compilação normal com acerto também não
+ * passe pela geração de código nem pelo as/ld.
+ *
+ * Cada entrada é um ficheiro com o nome da chave em hexadecimal, escrito num
+ * temporário e movido atomicamente, pelo que vários processos podem usar o
+ * mesmo diretório: um leitor vê a entrada inteira ou não a vê, e uma entrada
+ * truncada ou corrompida (CRC32 errado) conta como falha. A data de
+ * modificação serve de data do último acesso; quando o diretório passa do
+ * tamanho máximo são apagadas as entradas usadas há mais tempo.
+ *
+ * Formato: int MAGICO, int erros, int n, n bytes de diagnósticos (tal como
+ * foram escritos, no charset da chave), long CRC32 do que está para trás.
+ * Os executáveis usam o mesmo formato com MAGICO_EXECUTAVEL, erros 0 e os
+ * bytes do executável no lugar dos diagnósticos.
+ *
+ * @author itsupport
+ */
+public class CacheCompilacao {
+
+    public static final long TAMANHO_MAXIMO_PADRAO = 256L * 1024 * 1024;
+
+    private static final int MAGICO = 0x43434831; // "CCH1"
+    private static final int MAGICO_EXECUTAVEL = 0x43435831; // "CCX1"
+    private static final String SUFIXO_TEMPORARIO = ".tmp";
+    // Temporários mais antigos do que isto são de processos que terminaram a meio
+    private static final long IDADE_TEMPORARIO_ABANDONADO_MS = 60 * 60 * 1000;
+
+    /**
+     * Resultado guardado de uma verificação.
+     */
+    public static class Entrada {
+
+        private final int erros;
+        private final byte[] diagnosticos;
+
+        Entrada(int erros, byte[] diagnosticos) {
+            this.erros = erros;
+            this.diagnosticos = diagnosticos;
+        }
+
+        public int getErros() {
+            return erros;
+        }
+
+        // Bytes escritos em saidaErros pela compilação original
+        public byte[] getDiagnosticos() {
+            return diagnosticos;
+        }
+    }
+
+    private final Path diretorio;
+    private final long tamanhoMaximo;
+    private final byte[] versao;
+    // Tamanho estimado do diretório; -1 até à primeira escrita
+    private final AtomicLong tamanho = new AtomicLong(-1);
+
+    public CacheCompilacao(Path diretorio, long tamanhoMaximo) throws IOException {
+        this.diretorio = diretorio;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.versao = versaoCompilador();
+        Files.createDirectories(diretorio);
+    }
+
+    // ${XDG_CACHE_HOME:-~/.cache}/compilador
+    public static Path diretorioPadrao() {
+        String base = System.getenv("XDG_CACHE_HOME");
+        if (base == null || base.isEmpty()) {
+            base = Paths.get(System.getProperty("user.home"), ".cache").toString();
+        }
+        return Paths.get(base, "compilador");
+    }
+
+    // Chave de um ficheiro fonte lido tal como está no disco
+    public String chave(byte[] fonte) {
+        MessageDigest sha = sha256();
+        sha.update(versao);
+        sha.update(Charset.defaultCharset().name().getBytes(StandardCharsets.US_ASCII));
+        sha.update((byte) 0);
+        sha.update(fonte);
+        return hexadecimal(sha.digest());
+    }
+
+    /**
+     * Chave do executável gerado a partir do ficheiro com a chave dada;
+     * perfil descreve as opções que mudam o código gerado (otimizações e
+     * passagens).
+     */
+    public String chaveExecutavel(String chave, String perfil) {
+        MessageDigest sha = sha256();
+        sha.update(chave.getBytes(StandardCharsets.US_ASCII));
+        sha.update((byte) 0);
+        sha.update(perfil.getBytes(StandardCharsets.UTF_8));
+        return hexadecimal(sha.digest());
+    }
+
+    /**
+     * @return a entrada guardada para a chave, ou null se não existe ou não
+     * pôde ser lida
+     */
+    public Entrada obter(String chave) {
+        return ler(chave, MAGICO);
+    }
+
+    // Bytes do executável guardado com chaveExecutavel, ou null
+    public byte[] obterExecutavel(String chave) {
+        Entrada entrada = ler(chave, MAGICO_EXECUTAVEL);
+        return entrada != null ? entrada.getDiagnosticos() : null;
+    }
+
+    public void guardarExecutavel(String chave, byte[] executavel) {
+        escrever(chave, codificar(MAGICO_EXECUTAVEL, 0, executavel));
+    }
+
+    private Entrada ler(String chave, int magico) {
+        Path ficheiro = diretorio.resolve(chave);
+        byte[] conteudo;
+        try {
+            conteudo = Files.readAllBytes(ficheiro);
+        } catch (IOException e) {
+            return null;
+        }
+        Entrada entrada = descodificar(conteudo, magico);
+        if (entrada != null) {
+            try {
+                Files.setLastModifiedTime(ficheiro, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (IOException e) {
+                // Apagada entretanto por outro processo; o resultado lido continua válido
+            }
+        }
+        return entrada;
+    }
+
+    // Falhas de escrita só fazem perder a entrada: a cache nunca faz falhar a compilação
+    public void guardar(String chave, int erros, byte[] diagnosticos) {
+        escrever(chave, codificar(MAGICO, erros, diagnosticos));
+    }
+
+    private void escrever(String chave, byte[] conteudo) {
+        Path temporario = null;
+        try {
+            temporario = Files.createTempFile(diretorio, chave, SUFIXO_TEMPORARIO);
+            Files.write(temporario, conteudo);
+            try {
+                Files.move(temporario, diretorio.resolve(chave), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException | FileAlreadyExistsException e) {
+                Files.move(temporario, diretorio.resolve(chave), StandardCopyOption.REPLACE_EXISTING);
+            }
+            temporario = null;
+        } catch (IOException e) {
+            return;
+        } finally {
+            if (temporario != null) {
+                try {
+                    Files.deleteIfExists(temporario);
+                } catch (IOException e) {
+                    // Será apagado pela limpeza de temporários abandonados
+                }
+            }
+        }
+
+        if (tamanho.get() < 0) {
+            tamanho.compareAndSet(-1, medir());
+        }
+        if (tamanho.addAndGet(conteudo.length) > tamanhoMaximo) {
+            libertar();
+        }
+    }
+
+    private static byte[] codificar(int magico, int erros, byte[] diagnosticos) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(diagnosticos.length + 20);
+        try (DataOutputStream saida = new DataOutputStream(bytes)) {
+            saida.writeInt(magico);
+            saida.writeInt(erros);
+            saida.writeInt(diagnosticos.length);
+            saida.write(diagnosticos);
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            saida.writeLong(crc.getValue());
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Não acontece num ByteArrayOutputStream
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Entrada descodificar(byte[] conteudo, int magico) {
+        if (conteudo.length < 20) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(conteudo, 0, conteudo.length - 8);
+        try (DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(conteudo))) {
+            if (entrada.readInt() != magico) {
+                return null;
+            }
+            int erros = entrada.readInt();
+            int comprimento = entrada.readInt();
+            if (comprimento != conteudo.length - 20) {
+                return null;
+            }
+            byte[] diagnosticos = new byte[comprimento];
+            entrada.readFully(diagnosticos);
+            if (entrada.readLong() != crc.getValue()) {
+                return null;
+            }
+            return new Entrada(erros, diagnosticos);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Soma dos tamanhos das entradas no diretório
+    private long medir() {
+        long total = 0;
+        for (Path ficheiro : listar()) {
+            try {
+                total += Files.size(ficheiro);
+            } catch (IOException e) {
+                // Apagada por outro processo
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Apaga as entradas com o acesso mais antigo até o diretório ficar em 3/4
+     * do tamanho máximo. Relê o diretório, acertando a estimativa com o que
+     * os outros processos escreveram ou apagaram.
+     */
+    private synchronized void libertar() {
+        if (tamanho.get() <= tamanhoMaximo) {
+            return; // Outra thread já libertou
+        }
+        List<Object[]> entradas = new ArrayList<>(); // {caminho, último acesso, tamanho}
+        long total = 0;
+        long agora = System.currentTimeMillis();
+        for (Path ficheiro : listar()) {
+            try {
+                BasicFileAttributes atributos = Files.readAttributes(ficheiro, BasicFileAttributes.class);
+                long acesso = atributos.lastModifiedTime().toMillis();
+                if (ficheiro.getFileName().toString().endsWith(SUFIXO_TEMPORARIO)) {
+                    if (agora - acesso > IDADE_TEMPORARIO_ABANDONADO_MS) {
+                        Files.deleteIfExists(ficheiro);
+                    }
+                    continue;
+                }
+                entradas.add(new Object[]{ficheiro, acesso, atributos.size()});
+                total += atributos.size();
+            } catch (IOException e) {
+                // Apagada por outro processo
+            }
+        }
+        entradas.sort((a, b) -> Long.compare((Long) a[1], (Long) b[1]));
+        long alvo = tamanhoMaximo / 4 * 3;
+        for (Object[] entrada : entradas) {
+            if (total <= alvo) {
+                break;
+            }
+            try {
+                Files.deleteIfExists((Path) entrada[0]);
+            } catch (NoSuchFileException e) {
+                // Já apagada por outro processo
+            } catch (IOException e) {
+                continue;
+            }
+            total -= (Long) entrada[2];
+        }
+        tamanho.set(total);
+    }
+
+    private List<Path> listar() {
+        try (Stream<Path> ficheiros = Files.list(diretorio)) {
+            return ficheiros.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * SHA-256 das classes do compilador (o diretório de classes ou o .jar de
+     * onde esta classe foi carregada): qualquer alteração ao compilador
+     * invalida as entradas antigas.
+     */
+    private static byte[] versaoCompilador() throws IOException {
+        Path origem;
+        try {
+            origem = Paths.get(CacheCompilacao.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException | SecurityException | NullPointerException e) {
+            throw new IOException("Não foi possível determinar a versão do compilador", e);
+        }
+        MessageDigest sha = sha256();
+        if (Files.isDirectory(origem)) {
+            List<Path> classes;
+            try (Stream<Path> arvore = Files.walk(origem)) {
+                classes = arvore.filter(p -> p.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+            }
+            for (Path classe : classes) {
+                sha.update(origem.relativize(classe).toString().getBytes(StandardCharsets.UTF_8));
+                atualizar(sha, classe);
+            }
+        } else {
+            atualizar(sha, origem);
+        }
+        return sha.digest();
+    }
+
+    private static void atualizar(MessageDigest sha, Path ficheiro) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream entrada = Files.newInputStream(ficheiro)) {
+            int lidos;
+            while ((lidos = entrada.read(buffer)) > 0) {
+                sha.update(buffer, 0, lidos);
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Todas as JVMs têm SHA-256
+        }
+    }
+
+    private static String hexadecimal(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Copia para destino tudo o que é escrito, guardando uma cópia para a
+     * cache.
+     */
+    static final class Copia extends OutputStream {
+
+        private final OutputStream destino;
+        private final ByteArrayOutputStream copia = new ByteArrayOutputStream();
+
+        Copia(OutputStream destino) {
+            this.destino = destino;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            destino.write(b);
+            copia.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int inicio, int comprimento) throws IOException {
+            destino.write(b, inicio, comprimento);
+            copia.write(b, inicio, comprimento);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            destino.flush();
+        }
+
+        byte[] getBytes() {
+            return copia.toByteArray();
+        }
+    }
+
+}
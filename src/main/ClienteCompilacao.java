@@ -0,0 +1,95 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cliente do {@link ServidorCompilacao}: envia um ficheiro para o servidor e
+ * imprime os diagnósticos como o {@link Main}, seguidos de um resumo só da
+ * verificação: o servidor não gera o executável. As outras opções do Main
+ * (e um ficheiro de saída) são recusadas em vez de ignoradas.
+ *
+ * Uso: ClienteCompilacao [--port=N] [--mmap] [--stream] [ficheiro.c]
+ *      ClienteCompilacao [--port=N] --shutdown
+ *
+ * @author itsupport
+ */
+public class ClienteCompilacao {
+
+    public static void main(String[] args) throws Exception {
+
+        int porta = ServidorCompilacao.PORTA_PADRAO;
+        boolean mapearFicheiro = false;
+        boolean streaming = false;
+        boolean desligar = false;
+        List<String> posicionais = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--mmap")) {
+                mapearFicheiro = true;
+            } else if (arg.equals("--stream")) {
+                streaming = true;
+            } else if (arg.equals("--shutdown")) {
+                desligar = true;
+            } else if (arg.startsWith("--port=")) {
+                porta = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--")) {
+                System.err.println("Erro: opção não suportada pelo servidor: " + arg);
+                System.exit(1);
+            } else {
+                posicionais.add(arg);
+            }
+        }
+        if (posicionais.size() > 1) {
+            System.err.println("Erro: o servidor só verifica o ficheiro, não gera " + posicionais.get(1));
+            System.exit(1);
+        }
+
+        String caminhoFicheiro = (posicionais.size() > 0 && !posicionais.get(0).isEmpty()) ? posicionais.get(0) : "codigo.c";
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), porta);
+                DataInputStream entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+
+            if (desligar) {
+                saida.writeUTF("SHUTDOWN");
+                saida.flush();
+                entrada.readUTF();
+                return;
+            }
+
+            // O servidor pode ter outro diretório de trabalho
+            saida.writeUTF("CHECK");
+            saida.writeBoolean(mapearFicheiro);
+            saida.writeBoolean(streaming);
+            saida.writeUTF(new File(caminhoFicheiro).getAbsolutePath());
+            saida.flush();
+
+            int erros = entrada.readInt();
+            long tempoNanos = entrada.readLong();
+            byte[] diagnosticos = new byte[entrada.readInt()];
+            entrada.readFully(diagnosticos);
+            String erroFatal = entrada.readUTF();
+
+            System.err.write(diagnosticos);
+            System.err.flush();
+
+            if (!erroFatal.isEmpty()) {
+                System.err.println("Erro fatal: " + erroFatal);
+                return;
+            }
+            Main.imprimirResultado(erros, 0, null, tempoNanos / 1_000_000_000.0);
+
+        } catch (IOException e) {
+            System.err.println("Erro: não foi possível contactar o servidor na porta " + porta + ": " + e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,425 @@
+package main;
+
+import analyzer.Analex;
+import analyzer.AnalexAutomato;
+import analyzer.AnalexBuffer;
+import analyzer.AnalexParalelo;
+import analyzer.Parser;
+import analyzer.VerificacaoParalela;
+import ast.ArvoreSintatica;
+import backend.GeradorX86;
+import backend.Ligador;
+import interpretador.CompiladorBytecode;
+import interpretador.Interpretador;
+import interpretador.ProgramaBytecode;
+import ir.ConstrucaoNaoSuportada;
+import ir.ConstrutorIR;
+import ir.ProgramaIR;
+import Tokens.FonteDeTokens;
+import Tokens.JanelaDeTokens;
+import Tokens.TabelaDeTokens;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import otimizacao.GestorPassagens;
+import utils.Estatisticas;
+
+/**
+ * Análise léxica e sintática/semântica de um único ficheiro e, quando há um
+ * ficheiro de saída, geração do executável: árvore sintática, representação
+ * intermédia (otimizada pelo GestorPassagens), assembly x86-64 e as/ld. Com
+ * --run a representação intermédia é compilada para bytecode e executada no
+ * Interpretador (ver interpretar). Com --cache, um ficheiro já verificado
+ * com o mesmo conteúdo não passa pelo Analex nem pelo Parser (ver
+ * CacheCompilacao); quando é preciso o executável, este também vem da
+ * cache. --ast, --ir, --run e --asm voltam a analisar o ficheiro, porque
+ * precisam da árvore, da IR ou do assembly em memória. Com --parallel-check
+ * os corpos das funções são verificados em paralelo (ver
+ * VerificacaoParalela). Cada compilação usa o seu próprio Analex, Parser e
+ * Escopo, pelo que várias podem correr em paralelo.
+ *
+ * @author itsupport
+ */
+public class Compilacao {
+
+    // Tokens guardados de cada vez no modo streaming
+    private static final int CAPACIDADE_JANELA = 1024;
+
+    private final String caminho;
+    private final OpcoesCompilacao opcoes;
+
+    private int countErros;
+    private long tempoNanos;
+    private String diagnosticos = "";
+    private Exception erroFatal;
+    private Estatisticas estatisticas;
+    private ArvoreSintatica arvore;
+    private ProgramaIR programaIR;
+    private ProgramaBytecode programaBytecode;
+    private String naoSuportado;
+
+    public Compilacao(String caminho, OpcoesCompilacao opcoes) {
+        this.caminho = caminho;
+        this.opcoes = opcoes;
+    }
+
+    /**
+     * Compila o ficheiro escrevendo os erros em saidaErros.
+     *
+     * @return número de erros encontrados pelo Parser
+     */
+    public int executar(PrintStream saidaErros) throws IOException {
+        long inicio = System.nanoTime();
+        estatisticas = opcoes.isEstatisticas() || opcoes.isEstatisticasJson() ? new Estatisticas(caminho, leituraSeparada()) : null;
+        try {
+            CacheCompilacao cache = opcoes.getCache();
+            String chave = null;
+            CacheCompilacao.Copia copia = null;
+            String chaveExecutavel = null;
+            if (cache != null) {
+                Estatisticas.Marca marca = marcar();
+                CacheCompilacao.Entrada entrada = null;
+                try {
+                    chave = cache.chave(Files.readAllBytes(Paths.get(caminho)));
+                    entrada = cache.obter(chave);
+                } catch (IOException e) {
+                    // O Analex reporta o erro de leitura como sem cache
+                }
+                registar(Estatisticas.CACHE, marca);
+
+                // Com erros não há geração de código, pelo que só --ast obriga a analisar
+                if (entrada != null && (!opcoes.precisaArvore() || entrada.getErros() > 0 && !opcoes.isArvore())) {
+                    saidaErros.write(entrada.getDiagnosticos(), 0, entrada.getDiagnosticos().length);
+                    saidaErros.flush();
+                    countErros = entrada.getErros();
+                    return countErros;
+                }
+                // Sem erros e só com o executável pedido, serve o que foi gerado da última vez
+                if (chave != null && soExecutavel()) {
+                    chaveExecutavel = cache.chaveExecutavel(chave, perfilCodigo());
+                    if (entrada != null && entrada.getErros() == 0 && reporExecutavel(cache.obterExecutavel(chaveExecutavel))) {
+                        saidaErros.write(entrada.getDiagnosticos(), 0, entrada.getDiagnosticos().length);
+                        saidaErros.flush();
+                        countErros = 0;
+                        return countErros;
+                    }
+                }
+                if (chave != null) {
+                    copia = new CacheCompilacao.Copia(saidaErros);
+                    saidaErros = new PrintStream(copia, true);
+                }
+            }
+
+            Estatisticas.Marca marca = marcar();
+            Analex analex = opcoes.isAutomato() ? new AnalexAutomato(caminho)
+                    : opcoes.isAnaliseParalela() ? new AnalexParalelo(caminho)
+                    : opcoes.isMapearFicheiro() ? new AnalexBuffer(caminho) : new Analex(caminho);
+            analex.setSaidaErros(saidaErros);
+            registar(leituraSeparada() ? Estatisticas.LEITURA : Estatisticas.ANALISE_LEXICA, marca);
+
+            int profundidadeEscopos;
+            if (opcoes.isStreaming()) {
+                Parser parser = analisarEmStreaming(analex, saidaErros);
+                countErros = parser.getCountErros();
+                profundidadeEscopos = parser.getProfundidadeMaximaEscopos();
+            } else {
+                marca = marcar();
+                TabelaDeTokens tabela = analex.analisarCodigo();
+                registar(Estatisticas.ANALISE_LEXICA, marca);
+
+                if (opcoes.isVerificacaoParalela()) {
+                    VerificacaoParalela verificacao = new VerificacaoParalela(tabela);
+                    verificacao.setSaidaErros(saidaErros);
+                    verificacao.setEstatisticas(estatisticas);
+                    if (opcoes.precisaArvore()) {
+                        arvore = new ArvoreSintatica(tabela.tamanho() * 3 / 5);
+                        verificacao.setArvore(arvore);
+                    }
+                    marca = marcar();
+                    verificacao.verificar();
+                    registar(Estatisticas.ANALISE_SINTATICA, marca);
+                    countErros = verificacao.getCountErros();
+                    profundidadeEscopos = verificacao.getProfundidadeMaximaEscopos();
+                } else {
+                    Parser parser = novoParser(tabela, saidaErros, tabela.tamanho() * 3 / 5);
+                    marca = marcar();
+                    parser.parse();
+                    registar(Estatisticas.ANALISE_SINTATICA, marca);
+                    countErros = parser.getCountErros();
+                    profundidadeEscopos = parser.getProfundidadeMaximaEscopos();
+                }
+
+                if (estatisticas != null) {
+                    estatisticas.setTokens(tabela.tamanho());
+                }
+            }
+
+            if (estatisticas != null) {
+                estatisticas.descontar(Estatisticas.ANALISE_SINTATICA, Estatisticas.ANALISE_SEMANTICA);
+                estatisticas.setProfundidadeMaximaEscopo(profundidadeEscopos);
+            }
+
+            if (copia != null) {
+                saidaErros.flush();
+                cache.guardar(chave, countErros, copia.getBytes());
+            }
+            if (countErros == 0 && opcoes.precisaIR()) {
+                gerarOuAvisar(saidaErros);
+                if (chaveExecutavel != null && naoSuportado == null) {
+                    try {
+                        cache.guardarExecutavel(chaveExecutavel, Files.readAllBytes(Paths.get(opcoes.getFicheiroSaida())));
+                    } catch (IOException e) {
+                        // Fica só sem o executável em cache
+                    }
+                }
+            }
+            return countErros;
+        } finally {
+            tempoNanos = System.nanoTime() - inicio;
+        }
+    }
+
+    private Parser novoParser(FonteDeTokens tokens, PrintStream saidaErros, int nosPrevistos) {
+        Parser parser = new Parser(tokens);
+        parser.setSaidaErros(saidaErros);
+        parser.setEstatisticas(estatisticas);
+        if (opcoes.precisaArvore()) {
+            arvore = new ArvoreSintatica(nosPrevistos);
+            parser.setArvore(arvore);
+        }
+        return parser;
+    }
+
+    // Os analisadores sobre um buffer leem o ficheiro todo no construtor; o Analex lê-o à medida que analisa
+    private boolean leituraSeparada() {
+        return opcoes.isAutomato() || opcoes.isAnaliseParalela() || opcoes.isMapearFicheiro();
+    }
+
+    // --ast, --ir, --run e --asm precisam da árvore, da IR ou do assembly: só o executável sai da cache
+    private boolean soExecutavel() {
+        return opcoes.getFicheiroSaida() != null && !opcoes.isArvore() && !opcoes.isImprimirIR()
+                && !opcoes.isInterpretar() && !opcoes.isManterAssembly();
+    }
+
+    // Opções que mudam o código gerado, para a chave do executável em cache
+    private String perfilCodigo() {
+        if (!opcoes.isOtimizar()) {
+            return "no-opt";
+        }
+        return opcoes.getPassagens() != null ? "passes=" + String.join(",", opcoes.getPassagens()) : "padrao";
+    }
+
+    // Escreve o executável guardado no ficheiro de saída; false se não houver ou não se puder escrever
+    private boolean reporExecutavel(byte[] executavel) {
+        if (executavel == null) {
+            return false;
+        }
+        try {
+            Files.write(Paths.get(opcoes.getFicheiroSaida()), executavel);
+        } catch (IOException e) {
+            return false;
+        }
+        new File(opcoes.getFicheiroSaida()).setExecutable(true);
+        return true;
+    }
+
+    /**
+     * Gera o código; uma construção válida que o gerador ainda não traduz, ou
+     * uma falha do as/ld (ferramentas em falta, sistema que não é Linux
+     * x86-64), fica como aviso, sem executável nem bytecode, e não conta como
+     * erro. Um executável de uma compilação anterior é apagado para não
+     * parecer o deste ficheiro.
+     */
+    private void gerarOuAvisar(PrintStream saidaErros) {
+        try {
+            gerar();
+        } catch (ConstrucaoNaoSuportada | IOException e) {
+            naoSuportado = e.getMessage();
+            programaBytecode = null;
+            saidaErros.println("[Warning] " + naoSuportado + "; código não gerado");
+            if (opcoes.getFicheiroSaida() != null) {
+                new File(opcoes.getFicheiroSaida()).delete();
+            }
+        }
+    }
+
+    // Representação intermédia e, com ficheiro de saída, o executável
+    private void gerar() throws IOException {
+        Estatisticas.Marca marca = marcar();
+        programaIR = new ConstrutorIR(arvore, Charset.defaultCharset()).construir();
+        registar(Estatisticas.GERACAO_IR, marca);
+
+        if (opcoes.isOtimizar()) {
+            GestorPassagens gestor = opcoes.getPassagens() != null
+                    ? GestorPassagens.de(opcoes.getPassagens()) : GestorPassagens.padrao();
+            marca = marcar();
+            gestor.executar(programaIR);
+            registar(Estatisticas.OTIMIZACAO, marca);
+            if (estatisticas != null) {
+                for (GestorPassagens.Resultado resultado : gestor.getResultados()) {
+                    estatisticas.adicionarPassagem(resultado.getNome(), resultado.getNanos(), resultado.getAlteracoes());
+                }
+            }
+        }
+
+        if (opcoes.isInterpretar()) {
+            marca = marcar();
+            programaBytecode = new CompiladorBytecode(programaIR).compilar();
+            registar(Estatisticas.BYTECODE, marca);
+        }
+
+        String ficheiroSaida = opcoes.getFicheiroSaida();
+        if (ficheiroSaida == null) {
+            return;
+        }
+        File executavel = new File(ficheiroSaida);
+        File assembly = opcoes.isManterAssembly()
+                ? new File(ficheiroSaida.replaceFirst("(\\.[^./\\\\]*)?$", ".s"))
+                : File.createTempFile("compilador", ".s");
+        try {
+            marca = marcar();
+            try (Writer escritor = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(assembly), StandardCharsets.US_ASCII))) {
+                new GeradorX86().gerar(programaIR, escritor);
+            }
+            registar(Estatisticas.GERACAO_CODIGO, marca);
+
+            marca = marcar();
+            new Ligador().ligar(assembly, executavel);
+            registar(Estatisticas.LIGACAO, marca);
+        } finally {
+            if (!opcoes.isManterAssembly()) {
+                assembly.delete();
+            }
+        }
+    }
+
+    /**
+     * Executa no Interpretador o programa compilado com --run.
+     *
+     * @return o valor devolvido por main
+     * @throws interpretador.ErroExecucao se o programa falhar (acesso
+     * inválido à memória, divisão por zero)
+     */
+    public int interpretar(InputStream entrada, OutputStream saida) throws InterruptedException {
+        if (programaBytecode == null) {
+            throw new IllegalStateException("Sem bytecode: a compilação falhou ou --run não foi pedido");
+        }
+        Estatisticas.Marca marca = marcar();
+        try {
+            return new Interpretador(programaBytecode, entrada, saida).executar();
+        } finally {
+            registar(Estatisticas.EXECUCAO, marca);
+        }
+    }
+
+    // O Analex corre numa thread própria e o Parser consome a janela em simultâneo
+    private Parser analisarEmStreaming(Analex analex, PrintStream saidaErros) throws IOException {
+        JanelaDeTokens janela = analex.abrirJanela(CAPACIDADE_JANELA);
+        Thread produtor = new Thread(() -> janela.produzir(() -> {
+            Estatisticas.Marca marca = marcar();
+            try {
+                return analex.analisarCodigo();
+            } finally {
+                registar(Estatisticas.ANALISE_LEXICA, marca);
+            }
+        }), "analex-" + caminho);
+        produtor.setDaemon(true);
+        produtor.start();
+        try {
+            Parser parser = novoParser(janela, saidaErros, CAPACIDADE_JANELA);
+            Estatisticas.Marca marca = marcar();
+            parser.parse();
+            janela.esperarFim();
+            registar(Estatisticas.ANALISE_SINTATICA, marca);
+            if (estatisticas != null) {
+                estatisticas.setTokens(janela.getTotalTokens());
+            }
+            return parser;
+        } finally {
+            janela.cancelar();
+        }
+    }
+
+    // Com --stats desligado as medições não fazem nada
+    private Estatisticas.Marca marcar() {
+        return estatisticas != null ? estatisticas.marcar() : null;
+    }
+
+    private void registar(String fase, Estatisticas.Marca marca) {
+        if (estatisticas != null) {
+            estatisticas.registar(fase, marca);
+        }
+    }
+
+    /**
+     * Compila o ficheiro guardando os erros em memória (ver getDiagnosticos).
+     * Exceções ficam registadas em getErroFatal em vez de serem lançadas.
+     */
+    public void executarCapturando() {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream saida = new PrintStream(buffer, true);
+        try {
+            executar(saida);
+        } catch (Exception e) {
+            erroFatal = e;
+        }
+        saida.flush();
+        diagnosticos = buffer.toString(Charset.defaultCharset());
+    }
+
+    public String getCaminho() {
+        return caminho;
+    }
+
+    public int getCountErros() {
+        return countErros;
+    }
+
+    public long getTempoNanos() {
+        return tempoNanos;
+    }
+
+    public String getDiagnosticos() {
+        return diagnosticos;
+    }
+
+    public Exception getErroFatal() {
+        return erroFatal;
+    }
+
+    // null quando as estatísticas não foram pedidas
+    public Estatisticas getEstatisticas() {
+        return estatisticas;
+    }
+
+    // null quando a árvore não foi pedida (--ast) nem é precisa para gerar código
+    public ArvoreSintatica getArvore() {
+        return arvore;
+    }
+
+    // null sem ficheiro de saída nem --ir, ou quando houve erros
+    public ProgramaIR getProgramaIR() {
+        return programaIR;
+    }
+
+    // Motivo por que o código não foi gerado (ver gerarOuAvisar); null se foi
+    public String getNaoSuportado() {
+        return naoSuportado;
+    }
+
+    public boolean falhou() {
+        return erroFatal != null || countErros > 0;
+    }
+
+}
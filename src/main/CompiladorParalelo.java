@@ -0,0 +1,110 @@
+package main;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compila vários ficheiros numa só JVM, distribuindo-os por um conjunto
+ * limitado de threads. Os erros de cada ficheiro são capturados em separado
+ * e o relatório é impresso pela ordem em que os ficheiros foram indicados.
+ *
+ * @author itsupport
+ */
+public class CompiladorParalelo {
+
+    private final int trabalhadores;
+    private final OpcoesCompilacao opcoes;
+
+    public CompiladorParalelo(int trabalhadores, OpcoesCompilacao opcoes) {
+        this.trabalhadores = Math.max(1, trabalhadores);
+        this.opcoes = opcoes;
+    }
+
+    // Diretórios são percorridos recursivamente à procura de ficheiros .c
+    public static List<String> expandirFicheiros(List<String> caminhos) throws IOException {
+        List<String> ficheiros = new ArrayList<>();
+        for (String caminho : caminhos) {
+            Path path = Paths.get(caminho);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> arvore = Files.walk(path)) {
+                    ficheiros.addAll(arvore
+                            .filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".c"))
+                            .map(Path::toString)
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                ficheiros.add(caminho);
+            }
+        }
+        return ficheiros;
+    }
+
+    public List<Compilacao> compilar(List<String> ficheiros) throws InterruptedException {
+        List<Compilacao> compilacoes = new ArrayList<>();
+        for (String ficheiro : ficheiros) {
+            compilacoes.add(new Compilacao(ficheiro, opcoes));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(trabalhadores, Math.max(1, ficheiros.size())));
+        try {
+            List<Future<?>> pendentes = new ArrayList<>();
+            for (Compilacao compilacao : compilacoes) {
+                pendentes.add(executor.submit(compilacao::executarCapturando));
+            }
+            for (Future<?> pendente : pendentes) {
+                try {
+                    pendente.get();
+                } catch (ExecutionException e) {
+                    // executarCapturando regista as exceções; aqui só chegam Errors
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return compilacoes;
+    }
+
+    public static void imprimirRelatorio(List<Compilacao> compilacoes, long tempoTotalNanos, PrintStream saida) {
+        int totalErros = 0;
+        int falhados = 0;
+
+        for (Compilacao compilacao : compilacoes) {
+            saida.println("== " + compilacao.getCaminho());
+            saida.print(compilacao.getDiagnosticos());
+            if (compilacao.getErroFatal() != null) {
+                saida.println("Erro fatal: " + compilacao.getErroFatal().getMessage());
+            }
+        }
+
+        saida.println();
+        saida.println("Compilation results...");
+        saida.println("--------");
+        for (Compilacao compilacao : compilacoes) {
+            String estado = compilacao.getErroFatal() != null ? "FATAL"
+                    : compilacao.getCountErros() == 0 ? "OK" : compilacao.getCountErros() + " error(s)";
+            saida.printf("- %s: %s (%.2f ms)%n", compilacao.getCaminho(), estado, compilacao.getTempoNanos() / 1_000_000.0);
+            totalErros += compilacao.getCountErros();
+            if (compilacao.falhou()) {
+                falhados++;
+            }
+        }
+        saida.println("--------");
+        saida.printf("- Files: %d (%d failed)%n", compilacoes.size(), falhados);
+        saida.printf("- Errors: %d%n", totalErros);
+        saida.printf("- Compilation Time: %.2fs%n", tempoTotalNanos / 1_000_000_000.0);
+    }
+
+}
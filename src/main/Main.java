@@ -4,11 +4,15 @@
  */
 package main;
 
-import analyzer.Parser;
-import analyzer.Analex;
-import Tokens.TabelaDeTokens;
-import Tokens.Token;
+import analyzer.AnalexBuffer;
+import analyzer.VerificacaoIncremental;
+import interpretador.ErroExecucao;
+import java.io.File;
 import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  *
@@ -16,49 +20,294 @@ import java.io.IOException;
  */
 public class Main {
 
+    // Intervalo entre verificações da data de modificação no modo --watch
+    private static final long INTERVALO_VIGILANCIA_MS = 100;
+
     /**
      * @param args the command line arguments
      */
     public static void main(String[] args) throws Exception {
-        
-        String caminhoFicheiro = (args.length > 0 && !args[0].isEmpty()) ? args[0] : "codigo.c";
-        String ficheiroSaida   = (args.length > 1 && !args[1].isEmpty()) ? args[1] : "codigo.exe";
 
+        // Opções começam por "--"; os restantes argumentos são posicionais
+        OpcoesCompilacao opcoes = new OpcoesCompilacao();
+        boolean multiplosFicheiros = false;
+        boolean vigiar = false;
+        String diretorioCache = null;
+        long tamanhoMaximoCache = CacheCompilacao.TAMANHO_MAXIMO_PADRAO;
+        int portaServidor = -1;
+        int trabalhadores = Runtime.getRuntime().availableProcessors();
+        List<String> posicionais = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--mmap")) {
+                opcoes.setMapearFicheiro(true);
+            } else if (arg.equals("--dfa")) {
+                opcoes.setAutomato(true);
+            } else if (arg.equals("--parallel-lex")) {
+                opcoes.setAnaliseParalela(true);
+            } else if (arg.equals("--stream")) {
+                opcoes.setStreaming(true);
+            } else if (arg.equals("--stats")) {
+                opcoes.setEstatisticas(true);
+            } else if (arg.equals("--stats=json")) {
+                opcoes.setEstatisticasJson(true);
+            } else if (arg.equals("--ast")) {
+                opcoes.setArvore(true);
+            } else if (arg.equals("--ir")) {
+                opcoes.setImprimirIR(true);
+            } else if (arg.equals("--asm")) {
+                opcoes.setManterAssembly(true);
+            } else if (arg.equals("--run")) {
+                opcoes.setInterpretar(true);
+            } else if (arg.equals("--no-opt")) {
+                opcoes.setOtimizar(false);
+            } else if (arg.startsWith("--passes=")) {
+                opcoes.setPassagens(List.of(arg.substring("--passes=".length()).split(",")));
+            } else if (arg.equals("--parallel-check")) {
+                opcoes.setVerificacaoParalela(true);
+            } else if (arg.equals("--watch")) {
+                vigiar = true;
+            } else if (arg.equals("--cache")) {
+                diretorioCache = CacheCompilacao.diretorioPadrao().toString();
+            } else if (arg.startsWith("--cache=")) {
+                diretorioCache = arg.substring("--cache=".length());
+            } else if (arg.startsWith("--cache-max=")) {
+                tamanhoMaximoCache = Long.parseLong(arg.substring("--cache-max=".length())) * 1024 * 1024;
+            } else if (arg.equals("--multi")) {
+                multiplosFicheiros = true;
+            } else if (arg.equals("--server")) {
+                portaServidor = ServidorCompilacao.PORTA_PADRAO;
+            } else if (arg.startsWith("--server=")) {
+                portaServidor = Integer.parseInt(arg.substring("--server=".length()));
+            } else if (arg.startsWith("--jobs=")) {
+                trabalhadores = Integer.parseInt(arg.substring("--jobs=".length()));
+            } else {
+                posicionais.add(arg);
+            }
+        }
+
+        if (diretorioCache != null) {
+            try {
+                opcoes.setCache(new CacheCompilacao(Paths.get(diretorioCache), tamanhoMaximoCache));
+            } catch (IOException e) {
+                System.err.println("Aviso: cache desativada: " + e.getMessage());
+            }
+        }
+
+        if (portaServidor >= 0) {
+            new ServidorCompilacao(portaServidor, trabalhadores, opcoes.getCache()).executar();
+            return;
+        }
+
+        // Um diretório como argumento também ativa o modo de vários ficheiros
+        for (String posicional : posicionais) {
+            if (new File(posicional).isDirectory()) {
+                multiplosFicheiros = true;
+            }
+        }
+
+        if (multiplosFicheiros) {
+            compilarVarios(posicionais, trabalhadores, opcoes);
+            return;
+        }
+
+        String caminhoFicheiro = (posicionais.size() > 0 && !posicionais.get(0).isEmpty()) ? posicionais.get(0) : "codigo.c";
+        String ficheiroSaida   = (posicionais.size() > 1 && !posicionais.get(1).isEmpty()) ? posicionais.get(1) : "codigo.exe";
+
+        if (opcoes.isInterpretar()) {
+            System.exit(interpretar(caminhoFicheiro, opcoes));
+        }
+
+        if (vigiar) {
+            vigiar(caminhoFicheiro);
+            return;
+        }
+
+        // Só o modo de um ficheiro gera o executável; --multi e o servidor apenas validam
+        opcoes.setFicheiroSaida(ficheiroSaida);
         try {
-            long inicio = System.nanoTime();
+            Compilacao compilacao = new Compilacao(caminhoFicheiro, opcoes);
+            int erros = compilacao.executar(System.err);
+            double tempoCompilacao = compilacao.getTempoNanos() / 1_000_000_000.0;
 
-            Analex analex = new Analex(caminhoFicheiro);
-            TabelaDeTokens tabela = analex.analisarCodigo();
+            boolean gerado = compilacao.getNaoSuportado() == null;
+            imprimirResultado(erros, gerado ? 0 : 1, gerado ? ficheiroSaida : null, tempoCompilacao);
+            imprimirArvores(List.of(compilacao), opcoes);
+            imprimirIR(List.of(compilacao), opcoes);
+            imprimirEstatisticas(List.of(compilacao), opcoes);
 
-            Parser parser = new Parser(tabela);
-            parser.parse();
+        } catch (Exception e) {
+            System.err.println("Erro fatal: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
 
-            long fim = System.nanoTime();
-            double tempoCompilacao = (fim - inicio) / 1_000_000_000.0;
+    /**
+     * Modo --run: compila e executa o programa no interpretador, com a
+     * entrada e a saída do processo. A saída é só a do programa.
+     *
+     * @return código de saída: o valor devolvido por main, 1 se a compilação
+     * falhou, ou o código do sinal que o executável teria recebido
+     */
+    private static int interpretar(String caminhoFicheiro, OpcoesCompilacao opcoes) {
+        try {
+            Compilacao compilacao = new Compilacao(caminhoFicheiro, opcoes);
+            int erros = compilacao.executar(System.err);
+            if (erros > 0) {
+                System.err.println("Compilação falhou. Total de erros: " + erros);
+                return 1;
+            }
+            imprimirArvores(List.of(compilacao), opcoes);
+            imprimirIR(List.of(compilacao), opcoes);
+            if (compilacao.getNaoSuportado() != null) {
+                // O aviso já foi escrito: sem bytecode não há o que executar
+                return 1;
+            }
+            int codigo;
+            try {
+                codigo = compilacao.interpretar(System.in, System.out);
+            } catch (ErroExecucao e) {
+                System.err.println(e.getMessage());
+                codigo = e.getCodigoSaida();
+            }
+            imprimirEstatisticas(List.of(compilacao), opcoes);
+            return codigo;
+        } catch (Exception e) {
+            System.err.println("Erro fatal: " + e.getMessage());
+            e.printStackTrace();
+            return 1;
+        }
+    }
+
+    /**
+     * Modo --watch: volta a verificar o ficheiro sempre que ele muda, só
+     * reanalisando as declarações afetadas pela edição (ver
+     * VerificacaoIncremental). Não gera o executável; termina com Ctrl+C.
+     */
+    private static void vigiar(String caminhoFicheiro) throws InterruptedException {
+        VerificacaoIncremental verificacao = new VerificacaoIncremental();
+        File ficheiro = new File(caminhoFicheiro);
+        long modificado = -1;
+        long tamanho = -1;
+        while (true) {
+            if (ficheiro.lastModified() != modificado || ficheiro.length() != tamanho) {
+                modificado = ficheiro.lastModified();
+                tamanho = ficheiro.length();
+                try {
+                    CharBuffer fonte = AnalexBuffer.lerFonte(caminhoFicheiro);
+                    char[] texto = new char[fonte.remaining()];
+                    fonte.get(texto);
+                    VerificacaoIncremental.Resultado resultado = verificacao.verificar(texto);
+
+                    System.err.print(resultado.getDiagnosticos());
+                    System.err.flush();
+                    System.out.printf("- Erros: %d (%d de %d declarações verificadas, %d relexadas, %.2f ms)%n",
+                            resultado.getErros(), resultado.getReverificadas(), resultado.getUnidades(),
+                            resultado.getRelexadas(), resultado.getTempoNanos() / 1_000_000.0);
+                } catch (IOException e) {
+                    // O editor pode estar a meio de substituir o ficheiro
+                    System.err.println("Erro: " + e.getMessage());
+                }
+            }
+            Thread.sleep(INTERVALO_VIGILANCIA_MS);
+        }
+    }
+
+    // Modo --multi: todos os ficheiros (ou diretórios) posicionais numa só JVM
+    private static void compilarVarios(List<String> caminhos, int trabalhadores, OpcoesCompilacao opcoes) throws Exception {
+        long inicio = System.nanoTime();
+        List<String> ficheiros = CompiladorParalelo.expandirFicheiros(caminhos);
+        if (ficheiros.isEmpty()) {
+            System.err.println("Nenhum ficheiro .c encontrado");
+            return;
+        }
+
+        CompiladorParalelo compilador = new CompiladorParalelo(trabalhadores, opcoes);
+        List<Compilacao> compilacoes = compilador.compilar(ficheiros);
+        CompiladorParalelo.imprimirRelatorio(compilacoes, System.nanoTime() - inicio, System.out);
+        imprimirArvores(compilacoes, opcoes);
+        imprimirIR(compilacoes, opcoes);
+        imprimirEstatisticas(compilacoes, opcoes);
+    }
+
+    // --ast: a árvore tipada de cada ficheiro, depois do resultado
+    private static void imprimirArvores(List<Compilacao> compilacoes, OpcoesCompilacao opcoes) {
+        for (Compilacao compilacao : compilacoes) {
+            if (opcoes.isArvore() && compilacao.getArvore() != null) {
+                System.out.println();
+                System.out.println("AST (" + compilacao.getCaminho() + ")");
+                System.out.println("--------");
+                compilacao.getArvore().imprimir(System.out);
+            }
+        }
+    }
 
-            if (parser.getCountErros() == 0) {
+    // --ir: a representação intermédia de cada ficheiro sem erros
+    private static void imprimirIR(List<Compilacao> compilacoes, OpcoesCompilacao opcoes) {
+        for (Compilacao compilacao : compilacoes) {
+            if (opcoes.isImprimirIR() && compilacao.getProgramaIR() != null) {
+                System.out.println();
+                System.out.println("IR (" + compilacao.getCaminho() + ")");
+                System.out.println("--------");
+                compilacao.getProgramaIR().imprimir(System.out);
+            }
+        }
+    }
+
+    // --stats imprime uma tabela por ficheiro; --stats=json um array JSON numa linha
+    private static void imprimirEstatisticas(List<Compilacao> compilacoes, OpcoesCompilacao opcoes) {
+        if (opcoes.isEstatisticasJson()) {
+            StringBuilder json = new StringBuilder("[");
+            for (Compilacao compilacao : compilacoes) {
+                if (compilacao.getEstatisticas() != null) {
+                    if (json.length() > 1) {
+                        json.append(',');
+                    }
+                    json.append(compilacao.getEstatisticas().toJson());
+                }
+            }
+            System.out.println(json.append(']'));
+        } else if (opcoes.isEstatisticas()) {
+            for (Compilacao compilacao : compilacoes) {
+                if (compilacao.getEstatisticas() != null) {
+                    System.out.println();
+                    compilacao.getEstatisticas().imprimir(System.out);
+                }
+            }
+        }
+    }
+
+    /**
+     * Resumo impresso no fim de uma compilação de um só ficheiro.
+     *
+     * @param avisos avisos escritos pela compilação (ver
+     * Compilacao.getNaoSuportado)
+     * @param ficheiroSaida executável gerado, ou null se não foi gerado
+     */
+    public static void imprimirResultado(int erros, int avisos, String ficheiroSaida, double tempoCompilacao) {
+        if (erros == 0) {
+            System.out.printf(
+                    """
+            Compilation results...
+            --------
+            - Errors: %d
+            - Warnings: %d
+            """,
+                    erros,
+                    avisos
+            );
+            if (ficheiroSaida != null) {
                 System.out.printf(
                         """
-                Compilation results...
-                --------
-                - Errors: %d
-                - Warnings: 0
-                - Output Filename: %s
-                - Output Size: %.2f KiB
-                - Compilation Time: %.2fs
-                """,
-                        parser.getCountErros(),
+            - Output Filename: %s
+            - Output Size: %.2f KiB
+            """,
                         ficheiroSaida,
-                        calcularTamanhoFicheiroKB(ficheiroSaida),
-                        tempoCompilacao
+                        calcularTamanhoFicheiroKB(ficheiroSaida)
                 );
-            } else {
-                System.out.println("Compilação falhou. Total de erros: " + parser.getCountErros());
             }
-
-        } catch (Exception e) {
-            System.err.println("Erro fatal: " + e.getMessage());
-            e.printStackTrace();
+            System.out.printf("- Compilation Time: %.2fs%n", tempoCompilacao);
+        } else {
+            System.out.println("Compilação falhou. Total de erros: " + erros);
         }
     }
 
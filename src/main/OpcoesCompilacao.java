@@ -0,0 +1,158 @@
+package main;
+
+import java.util.List;
+
+/**
+ * Opções da linha de comandos que afetam a forma como cada ficheiro é
+ * compilado.
+ *
+ * @author itsupport
+ */
+public class OpcoesCompilacao {
+
+    private boolean mapearFicheiro;   // --mmap: AnalexBuffer em vez de Analex
+    private boolean automato;         // --dfa: AnalexAutomato, guiado por tabelas, em vez de Analex
+    private boolean analiseParalela;  // --parallel-lex: AnalexParalelo, troços do ficheiro analisados em paralelo
+    private boolean streaming;        // --stream: Parser lê de uma JanelaDeTokens
+    private boolean estatisticas;     // --stats: métricas por fase
+    private boolean estatisticasJson; // --stats=json: as mesmas métricas em JSON
+    private boolean arvore;           // --ast: o Parser constrói a árvore sintática tipada
+    private boolean imprimirIR;       // --ir: imprime a representação intermédia
+    private boolean manterAssembly;   // --asm: guarda o assembly gerado ao lado do executável
+    private String ficheiroSaida;     // Executável a gerar; null só valida o código
+    private boolean otimizar = true;  // --no-opt desliga as passagens de otimização sobre a IR
+    private List<String> passagens;   // --passes=a,b: passagens a correr; null para as padrão
+    private boolean interpretar;      // --run: executa o programa no interpretador em vez de gerar o executável
+    private CacheCompilacao cache;    // --cache: resultados da verificação guardados em disco; null sem cache
+    private boolean verificacaoParalela; // --parallel-check: corpos das funções verificados em paralelo
+
+    public boolean isMapearFicheiro() {
+        return mapearFicheiro;
+    }
+
+    public void setMapearFicheiro(boolean mapearFicheiro) {
+        this.mapearFicheiro = mapearFicheiro;
+    }
+
+    public boolean isAutomato() {
+        return automato;
+    }
+
+    public void setAutomato(boolean automato) {
+        this.automato = automato;
+    }
+
+    public boolean isAnaliseParalela() {
+        return analiseParalela;
+    }
+
+    public void setAnaliseParalela(boolean analiseParalela) {
+        this.analiseParalela = analiseParalela;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public boolean isEstatisticas() {
+        return estatisticas;
+    }
+
+    public void setEstatisticas(boolean estatisticas) {
+        this.estatisticas = estatisticas;
+    }
+
+    public boolean isEstatisticasJson() {
+        return estatisticasJson;
+    }
+
+    public void setEstatisticasJson(boolean estatisticasJson) {
+        this.estatisticasJson = estatisticasJson;
+    }
+
+    public boolean isArvore() {
+        return arvore;
+    }
+
+    public void setArvore(boolean arvore) {
+        this.arvore = arvore;
+    }
+
+    public boolean isImprimirIR() {
+        return imprimirIR;
+    }
+
+    public void setImprimirIR(boolean imprimirIR) {
+        this.imprimirIR = imprimirIR;
+    }
+
+    public boolean isManterAssembly() {
+        return manterAssembly;
+    }
+
+    public void setManterAssembly(boolean manterAssembly) {
+        this.manterAssembly = manterAssembly;
+    }
+
+    public String getFicheiroSaida() {
+        return ficheiroSaida;
+    }
+
+    public void setFicheiroSaida(String ficheiroSaida) {
+        this.ficheiroSaida = ficheiroSaida;
+    }
+
+    public boolean isOtimizar() {
+        return otimizar;
+    }
+
+    public void setOtimizar(boolean otimizar) {
+        this.otimizar = otimizar;
+    }
+
+    public List<String> getPassagens() {
+        return passagens;
+    }
+
+    public void setPassagens(List<String> passagens) {
+        this.passagens = passagens;
+    }
+
+    public boolean isInterpretar() {
+        return interpretar;
+    }
+
+    public void setInterpretar(boolean interpretar) {
+        this.interpretar = interpretar;
+    }
+
+    public CacheCompilacao getCache() {
+        return cache;
+    }
+
+    public void setCache(CacheCompilacao cache) {
+        this.cache = cache;
+    }
+
+    public boolean isVerificacaoParalela() {
+        return verificacaoParalela;
+    }
+
+    public void setVerificacaoParalela(boolean verificacaoParalela) {
+        this.verificacaoParalela = verificacaoParalela;
+    }
+
+    // A árvore é pedida diretamente ou é precisa para gerar a representação intermédia
+    public boolean precisaArvore() {
+        return arvore || precisaIR();
+    }
+
+    public boolean precisaIR() {
+        return imprimirIR || interpretar || ficheiroSaida != null;
+    }
+
+}
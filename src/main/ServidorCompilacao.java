@@ -0,0 +1,154 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Servidor de compilação de longa duração. Escuta apenas em localhost e
+ * compila os ficheiros pedidos pelo {@link ClienteCompilacao}, mantendo as
+ * classes do Analex/Parser carregadas e já otimizadas pelo JIT entre pedidos.
+ * Com --cache, os pedidos partilham a CacheCompilacao do servidor.
+ *
+ * Cada ligação tem uma thread própria que só lê os pedidos e escreve as
+ * respostas; cada CHECK é entregue aos --jobs trabalhadores como uma tarefa,
+ * pelo que clientes ligados mas inativos não ocupam trabalhadores. As
+ * threads das ligações não impedem o servidor de terminar.
+ *
+ * Protocolo (DataInput/DataOutput, vários pedidos por ligação):
+ * <pre>
+ *   pedido   : UTF comando ("CHECK", "PING" ou "SHUTDOWN")
+ *              CHECK: boolean mmap, boolean stream, UTF caminho absoluto
+ *   resposta : CHECK: int erros, long tempo (ns), int n, n bytes de
+ *              diagnósticos, UTF erro fatal ("" se não houve)
+ *              PING/SHUTDOWN: UTF "OK"
+ * </pre>
+ *
+ * @author itsupport
+ */
+public class ServidorCompilacao {
+
+    public static final int PORTA_PADRAO = 7654;
+
+    private final int porta;
+    private final ExecutorService trabalhadores;
+    private final ExecutorService ligacoes;
+    private final CacheCompilacao cache; // null sem --cache
+    private volatile boolean ativo = true;
+    private ServerSocket servidor;
+
+    public ServidorCompilacao(int porta, int trabalhadores, CacheCompilacao cache) {
+        this.porta = porta;
+        this.trabalhadores = Executors.newFixedThreadPool(Math.max(1, trabalhadores));
+        this.ligacoes = Executors.newCachedThreadPool(tarefa -> {
+            Thread thread = new Thread(tarefa, "ligacao-compilacao");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.cache = cache;
+    }
+
+    public void executar() throws IOException {
+        servidor = new ServerSocket(porta, 50, InetAddress.getLoopbackAddress());
+        System.out.println("Servidor de compilação à escuta em " + servidor.getLocalSocketAddress());
+        try {
+            while (ativo) {
+                Socket cliente;
+                try {
+                    cliente = servidor.accept();
+                } catch (SocketException e) {
+                    if (!ativo) {
+                        break; // Fechado por um pedido SHUTDOWN
+                    }
+                    throw e;
+                }
+                ligacoes.execute(() -> atender(cliente));
+            }
+        } finally {
+            ligacoes.shutdown();
+            trabalhadores.shutdown();
+            servidor.close();
+        }
+    }
+
+    private void atender(Socket cliente) {
+        try (Socket socket = cliente;
+                DataInputStream entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (true) {
+                String comando;
+                try {
+                    comando = entrada.readUTF();
+                } catch (EOFException e) {
+                    return; // Cliente fechou a ligação
+                }
+
+                switch (comando) {
+                    case "CHECK":
+                        OpcoesCompilacao opcoes = new OpcoesCompilacao();
+                        opcoes.setMapearFicheiro(entrada.readBoolean());
+                        opcoes.setStreaming(entrada.readBoolean());
+                        opcoes.setCache(cache);
+                        String caminho = entrada.readUTF();
+                        responder(saida, caminho, opcoes);
+                        break;
+                    case "PING":
+                        saida.writeUTF("OK");
+                        break;
+                    case "SHUTDOWN":
+                        saida.writeUTF("OK");
+                        saida.flush();
+                        parar();
+                        return;
+                    default:
+                        throw new IOException("Comando desconhecido: " + comando);
+                }
+                saida.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Erro na ligação: " + e.getMessage());
+        }
+    }
+
+    private void responder(DataOutputStream saida, String caminho, OpcoesCompilacao opcoes) throws IOException {
+        Compilacao compilacao = new Compilacao(caminho, opcoes);
+        try {
+            trabalhadores.submit(compilacao::executarCapturando).get();
+        } catch (RejectedExecutionException e) {
+            throw new IOException("Servidor a terminar", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrompido à espera da compilação");
+        } catch (ExecutionException e) {
+            throw new IOException("Falha na compilação de " + caminho, e.getCause());
+        }
+
+        byte[] diagnosticos = compilacao.getDiagnosticos().getBytes(Charset.defaultCharset());
+        Exception erroFatal = compilacao.getErroFatal();
+
+        saida.writeInt(compilacao.getCountErros());
+        saida.writeLong(compilacao.getTempoNanos());
+        saida.writeInt(diagnosticos.length);
+        saida.write(diagnosticos);
+        saida.writeUTF(erroFatal != null ? String.valueOf(erroFatal.getMessage()) : "");
+    }
+
+    private void parar() throws IOException {
+        ativo = false;
+        servidor.close();
+    }
+
+}
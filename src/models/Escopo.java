@@ -4,67 +4,165 @@
  */
 package models;
 
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Stack;
 
 /**
+ * Tabela de símbolos com escopos encaixados. Cada nome aponta diretamente
+ * para a sua declaração mais interna (uma só consulta ao HashMap) e as
+ * declarações tapadas ficam encadeadas nela. Abrir um escopo só guarda a
+ * posição atual do registo de declarações; fechá-lo desfaz as declarações
+ * feitas desde essa marca. Um bloco sem declarações não aloca nada.
+ *
+ * As declarações globais são numeradas pela ordem em que são aceites. Um
+ * escopo local criado com Escopo(globais, limite) procura por último nessa
+ * tabela global, que só lê, e só vê as declarações com número abaixo do
+ * limite; é assim que cada tarefa de VerificacaoParalela vê o mesmo que o
+ * Parser sequencial veria ao chegar ao corpo da sua função.
  *
  * @author itsupport
  */
 public class Escopo {
 
-    private Stack<HashMap<String, Variavel>> pilhaEscopos = new Stack<>();
+    private static final int CAPACIDADE_INICIAL = 64;
+
+    // Declaração visível de um nome; anterior é a que ela tapa (ou null)
+    private static final class Entrada {
+
+        final String nome;
+        final Variavel variavel;
+        final int nivel;
+        final int ordem;   // Número da declaração global; -1 nos escopos locais
+        final Entrada anterior;
+
+        Entrada(String nome, Variavel variavel, int nivel, int ordem, Entrada anterior) {
+            this.nome = nome;
+            this.variavel = variavel;
+            this.nivel = nivel;
+            this.ordem = ordem;
+            this.anterior = anterior;
+        }
+    }
+
+    private HashMap<String, Entrada> visiveis = new HashMap<>();
+    private Entrada[] registo = new Entrada[CAPACIDADE_INICIAL]; // Declarações por ordem
+    private int tamanhoRegisto;
+    private int[] marcas = new int[CAPACIDADE_INICIAL];          // tamanhoRegisto à entrada de cada escopo
+    private int profundidade;
+
     private HashMap<String, Funcao> funcoes = new HashMap<>();
     private HashMap<String, String> tiposStruct = new HashMap<>();
     private HashMap<String, Struct> definicoesStruct = new HashMap<>();
+    private HashMap<String, Integer> ordemFuncoes = new HashMap<>();
+    private HashMap<String, Integer> ordemStructs = new HashMap<>();
+    private int ordem;            // Declarações globais aceites até agora
+    private final Escopo globais; // Tabela global só de leitura por baixo deste escopo, ou null
+    private final int limite;     // Declarações de globais visíveis: as de ordem < limite
+    private PrintStream saidaErros = System.err;
+    private int profundidadeMaxima;
+
+    public Escopo() {
+        this(null, 0);
+    }
+
+    public Escopo(Escopo globais, int limite) {
+        this.globais = globais;
+        this.limite = limite;
+    }
+
+    public void setSaidaErros(PrintStream saidaErros) {
+        this.saidaErros = saidaErros;
+    }
 
     public void abrirEscopo() {
-        pilhaEscopos.push(new HashMap<>());
+        if (profundidade == marcas.length) {
+            marcas = Arrays.copyOf(marcas, profundidade * 2);
+        }
+        marcas[profundidade++] = tamanhoRegisto;
+        profundidadeMaxima = Math.max(profundidadeMaxima, profundidade);
+    }
+
+    // Maior número de escopos abertos ao mesmo tempo
+    public int getProfundidadeMaxima() {
+        return profundidadeMaxima;
     }
 
     public void fecharEscopo() {
-        if (!pilhaEscopos.isEmpty()) {
-            pilhaEscopos.pop();  // Descarta o escopo mais recente
+        if (profundidade == 0) {
+            return;
+        }
+        // Desfaz as declarações do escopo mais recente, repondo as que tapavam
+        int marca = marcas[--profundidade];
+        while (tamanhoRegisto > marca) {
+            Entrada entrada = registo[--tamanhoRegisto];
+            registo[tamanhoRegisto] = null;
+            if (entrada.anterior != null) {
+                visiveis.put(entrada.nome, entrada.anterior);
+            } else {
+                visiveis.remove(entrada.nome);
+            }
         }
     }
 
     public void adicionarVariavel(String nome, Variavel var) {
-        if (pilhaEscopos.peek().containsKey(nome)) {
+        Entrada atual = visiveis.get(nome);
+        if (atual != null && atual.nivel == profundidade) {
             // Variável já declarada neste escopo
-            System.err.println("Erro Semântico: Variável '" + nome + "' já declarada neste escopo");
-        } else {
-            pilhaEscopos.peek().put(nome, var);
+            saidaErros.println("Erro Semântico: Variável '" + nome + "' já declarada neste escopo");
+            return;
         }
+        Entrada entrada = new Entrada(nome, var, profundidade, profundidade == 1 ? ordem++ : -1, atual);
+        visiveis.put(nome, entrada);
+        if (tamanhoRegisto == registo.length) {
+            registo = Arrays.copyOf(registo, tamanhoRegisto * 2);
+        }
+        registo[tamanhoRegisto++] = entrada;
     }
 
     public Variavel buscarVariavel(String nome) {
-        for (int i = pilhaEscopos.size() - 1; i >= 0; i--) {
-            if (pilhaEscopos.get(i).containsKey(nome)) {
-                return pilhaEscopos.get(i).get(nome);
+        Entrada entrada = visiveis.get(nome);
+        if (entrada == null && globais != null) {
+            entrada = globais.visiveis.get(nome);
+            if (entrada != null && entrada.ordem >= limite) {
+                entrada = null;
             }
         }
-        return null; // Variável não encontrada
+        return entrada != null ? entrada.variavel : null; // null: variável não encontrada
+    }
+
+    public int getProfundidade() {
+        return profundidade;
     }
     
      public void adicionarStruct(String nome, Struct struct) {
         if (definicoesStruct.containsKey(nome)) {
-            System.err.println("Erro Semântico: Struct '" + nome + "' já declarada");
+            saidaErros.println("Erro Semântico: Struct '" + nome + "' já declarada");
         } else {
             definicoesStruct.put(nome, struct);
             tiposStruct.put(nome, "struct " + nome); // Register struct type
+            ordemStructs.put(nome, ordem++);
         }
     }
 
     public Struct buscarStruct(String nome) {
-        return definicoesStruct.get(nome);
+        Struct struct = definicoesStruct.get(nome);
+        if (struct == null && globais != null && visivel(globais.ordemStructs, nome, limite)) {
+            struct = globais.definicoesStruct.get(nome);
+        }
+        return struct;
     }
 
 
     public void adicionarFuncao(String nome, Funcao func) {
         if (funcoes.containsKey(nome)) {
-            System.err.println("Erro Semântico: Função '" + nome + "' já declarada");
+            saidaErros.println("Erro Semântico: Função '" + nome + "' já declarada");
         } else {
             funcoes.put(nome, func);
+            ordemFuncoes.put(nome, ordem++);
         }
     }
 
@@ -81,7 +179,30 @@ public class Escopo {
     }
 
     public Funcao buscarFuncao(String nome) {
-        return funcoes.get(nome);
+        Funcao funcao = funcoes.get(nome);
+        if (funcao == null && globais != null && visivel(globais.ordemFuncoes, nome, limite)) {
+            funcao = globais.funcoes.get(nome);
+        }
+        return funcao;
+    }
+
+    private static boolean visivel(HashMap<String, Integer> ordens, String nome, int limite) {
+        Integer ordem = ordens.get(nome);
+        return ordem != null && ordem < limite;
+    }
+
+    // Número de declarações globais aceites; limite para um Escopo que só deva ver as feitas até aqui
+    public int getOrdem() {
+        return ordem;
+    }
+
+    // Variáveis declaradas no escopo mais interno, por ordem (ex: os parâmetros de uma função)
+    public List<Variavel> getVariaveisEscopoAtual() {
+        List<Variavel> variaveis = new ArrayList<>();
+        for (int i = profundidade > 0 ? marcas[profundidade - 1] : 0; i < tamanhoRegisto; i++) {
+            variaveis.add(registo[i].variavel);
+        }
+        return variaveis;
     }
 
     public void adicionarTipoStruct(String nome, String tipo) {
@@ -92,8 +213,18 @@ public class Escopo {
         return tiposStruct.get(nome);
     }
 
+    // Cópia dos escopos abertos, do global para o mais interno
     public Stack<HashMap<String, Variavel>> getPilhaEscopos() {
-        return pilhaEscopos;
+        Stack<HashMap<String, Variavel>> pilha = new Stack<>();
+        for (int nivel = 0; nivel < profundidade; nivel++) {
+            int fim = nivel + 1 < profundidade ? marcas[nivel + 1] : tamanhoRegisto;
+            HashMap<String, Variavel> escopo = new HashMap<>();
+            for (int i = marcas[nivel]; i < fim; i++) {
+                escopo.put(registo[i].nome, registo[i].variavel);
+            }
+            pilha.push(escopo);
+        }
+        return pilha;
     }
 
     public HashMap<String, Funcao> getFuncoes() {
@@ -14,12 +14,14 @@ import java.util.List;
 public class Funcao {
     String nome;
     String tipoRetorno;
+    Tipo tipoRetornoCanonico;
     List<Parametro> parametros;
     int linhaDeclaracao;
     
     public Funcao(String nome, String tipoRetorno, int linha) {
         this.nome = nome;
         this.tipoRetorno = tipoRetorno;
+        this.tipoRetornoCanonico = Tipo.de(tipoRetorno);
         this.parametros = new ArrayList<>();
         this.linhaDeclaracao = linha;
     }
@@ -32,6 +34,10 @@ public class Funcao {
         return tipoRetorno;
     }
 
+    public Tipo getTipoRetornoCanonico() {
+        return tipoRetornoCanonico;
+    }
+
     public List<Parametro> getParametros() {
         return parametros;
     }
@@ -11,11 +11,13 @@ package models;
 public class Parametro {
     String nome;
     String tipo;
+    Tipo tipoCanonico;
     boolean isPonteiro;
     
     public Parametro(String nome, String tipo, boolean isPonteiro) {
         this.nome = nome;
         this.tipo = tipo;
+        this.tipoCanonico = Tipo.de(tipo);
         this.isPonteiro = isPonteiro;
     }
 
@@ -27,6 +29,10 @@ public class Parametro {
         return tipo;
     }
 
+    public Tipo getTipoCanonico() {
+        return tipoCanonico;
+    }
+
     public boolean isIsPonteiro() {
         return isPonteiro;
     }
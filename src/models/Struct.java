@@ -14,6 +14,7 @@ import java.util.Map;
 public class Struct {
     private String nome;
     private Map<String, String> campos = new HashMap<>(); // Nome do campo -> Tipo
+    private Map<String, Tipo> tiposCampos = new HashMap<>();
 
     public Struct(String nome) {
         this.nome = nome;
@@ -26,6 +27,15 @@ public class Struct {
     public Map<String, String> getCampos() {
         return campos;
     }
+
+    public void adicionarCampo(String nome, String tipo) {
+        campos.put(nome, tipo);
+        tiposCampos.put(nome, Tipo.de(tipo));
+    }
+
+    public Tipo buscarTipoCampo(String nome) {
+        return tiposCampos.get(nome);
+    }
     
     
 
@@ -0,0 +1,233 @@
+package models;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Representação canónica de um tipo da linguagem. Cada texto de tipo
+ * ("int", "char[]", "struct Pessoa*") tem uma única instância, pelo que a
+ * igualdade é por identidade e as propriedades usadas pelas verificações
+ * semânticas são calculadas uma única vez.
+ *
+ * @author itsupport
+ */
+public final class Tipo {
+
+    private static final ConcurrentHashMap<String, Tipo> tipos = new ConcurrentHashMap<>();
+
+    // Códigos dos tipos primitivos usados nas tabelas de compatibilidade
+    private static final int CHAR_ = 0, SHORT_ = 1, INT_ = 2, LONG_ = 3, FLOAT_ = 4, DOUBLE_ = 5, UNSIGNED_INT_ = 6;
+    private static final String[] PRIMITIVOS = {"char", "short", "int", "long", "float", "double", "unsigned int"};
+
+    private static final String[] VALIDOS = {"void", "char", "short", "int", "long", "float", "double", "signed", "unsigned",
+        "unsigned int", "unsigned char", "unsigned short", "unsigned long",
+        "signed int", "signed char", "signed short int", "signed long", "number"};
+
+    // COMPATIVEIS[destino][origem]: atribuições aceites entre tipos diferentes
+    private static final boolean[][] COMPATIVEIS = new boolean[PRIMITIVOS.length][PRIMITIVOS.length];
+    // FORMATO[esperado][recebido]: argumentos aceites por um especificador de printf
+    private static final boolean[][] FORMATO = new boolean[PRIMITIVOS.length][PRIMITIVOS.length];
+
+    static {
+        compativel(COMPATIVEIS, DOUBLE_, FLOAT_, INT_, CHAR_);
+        compativel(COMPATIVEIS, FLOAT_, INT_, CHAR_);
+        compativel(COMPATIVEIS, LONG_, INT_, CHAR_);
+        compativel(COMPATIVEIS, INT_, CHAR_);
+
+        compativel(FORMATO, DOUBLE_, FLOAT_, INT_, CHAR_);
+        compativel(FORMATO, FLOAT_, INT_, CHAR_);
+        compativel(FORMATO, INT_, CHAR_, SHORT_, UNSIGNED_INT_);
+        compativel(FORMATO, UNSIGNED_INT_, INT_, CHAR_, SHORT_);
+    }
+
+    public static final Tipo INT = de("int");
+    public static final Tipo LONG = de("long");
+    public static final Tipo FLOAT = de("float");
+    public static final Tipo DOUBLE = de("double");
+    public static final Tipo CHAR = de("char");
+    public static final Tipo UNSIGNED_INT = de("unsigned int");
+    public static final Tipo BOOL = de("bool");
+    public static final Tipo NUMBER = de("number");
+    public static final Tipo UNKNOWN = de("unknown");
+    public static final Tipo CHAR_PONTEIRO = de("char*");
+    public static final Tipo CHAR_ARRAY = de("char[]");
+
+    // Resultado de determinarTipoResultante por ordem de promoção
+    private static final Tipo[] PROMOCAO = {INT, LONG, FLOAT, DOUBLE};
+
+    private final String nome;
+    private final int primitivo;       // Índice em PRIMITIVOS ou -1
+    private final int promocao;        // 0 int, 1 long, 2 float, 3 double
+    private final boolean numerico;
+    private final boolean valido;      // Válido sem consultar as structs declaradas
+    private final int ponteiros;       // Número de '*' no tipo
+    private final boolean array;       // Contém "[]"
+    private final boolean terminaEmPonteiro;
+    private final boolean terminaEmArray;
+    private final String nomeStruct;   // Para "struct X*" é "X"; null se não for struct
+
+    // Tipos derivados, calculados na primeira utilização
+    private Tipo ponteiroPara;
+    private Tipo semUltimoCaractere;
+    private Tipo semArray;
+    private Tipo baseArray;
+    private Tipo basePonteiro;
+
+    private Tipo(String nome) {
+        this.nome = nome;
+        this.primitivo = indice(PRIMITIVOS, nome);
+        this.numerico = primitivo >= 0 && primitivo <= DOUBLE_;
+        this.promocao = nome.equals("double") ? 3 : nome.equals("float") ? 2 : nome.equals("long") ? 1 : 0;
+        this.terminaEmPonteiro = nome.endsWith("*");
+        this.terminaEmArray = nome.endsWith("[]");
+        this.array = nome.contains("[]");
+
+        int estrelas = 0;
+        for (int i = 0; i < nome.length(); i++) {
+            if (nome.charAt(i) == '*') {
+                estrelas++;
+            }
+        }
+        this.ponteiros = estrelas;
+
+        String base = nome.replaceAll("\\*|\\[\\]", "").trim();
+        if (nome.startsWith("struct ")) {
+            this.nomeStruct = nome.substring(7).replaceAll("\\*|\\[\\]", "").trim();
+            this.valido = false;
+        } else {
+            this.nomeStruct = null;
+            this.valido = indice(VALIDOS, nome) >= 0
+                    || ((terminaEmPonteiro || terminaEmArray) && indice(VALIDOS, base) >= 0);
+        }
+    }
+
+    public static Tipo de(String nome) {
+        Tipo tipo = tipos.get(nome);
+        if (tipo == null) {
+            Tipo novo = new Tipo(nome);
+            tipo = tipos.putIfAbsent(nome, novo);
+            if (tipo == null) {
+                tipo = novo;
+            }
+        }
+        return tipo;
+    }
+
+    private static int indice(String[] nomes, String nome) {
+        for (int i = 0; i < nomes.length; i++) {
+            if (nomes[i].equals(nome)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void compativel(boolean[][] tabela, int destino, int... origens) {
+        for (int origem : origens) {
+            tabela[destino][origem] = true;
+        }
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public int getPonteiros() {
+        return ponteiros;
+    }
+
+    public boolean isArray() {
+        return array;
+    }
+
+    public boolean isStruct() {
+        return nomeStruct != null;
+    }
+
+    public String getNomeStruct() {
+        return nomeStruct;
+    }
+
+    public boolean isNumerico() {
+        return numerico;
+    }
+
+    public boolean terminaEmPonteiro() {
+        return terminaEmPonteiro;
+    }
+
+    public boolean terminaEmArray() {
+        return terminaEmArray;
+    }
+
+    // Válido quando não é struct; para structs depende das declarações do escopo
+    public boolean isValidoSemStruct() {
+        return valido;
+    }
+
+    public boolean aceita(Tipo origem) {
+        return this == origem
+                || (primitivo >= 0 && origem.primitivo >= 0 && COMPATIVEIS[primitivo][origem.primitivo]);
+    }
+
+    // Compatibilidade entre o tipo esperado por um especificador e o argumento
+    public boolean aceitaNoFormato(Tipo recebido) {
+        if (this == recebido) {
+            return true;
+        }
+        if (this == CHAR_PONTEIRO && recebido == CHAR_ARRAY) {
+            return true;
+        }
+        return primitivo >= 0 && recebido.primitivo >= 0 && FORMATO[primitivo][recebido.primitivo];
+    }
+
+    public static Tipo promover(Tipo tipo1, Tipo tipo2) {
+        return PROMOCAO[Math.max(tipo1.promocao, tipo2.promocao)];
+    }
+
+    // "T" -> "T*"
+    public Tipo ponteiroPara() {
+        if (ponteiroPara == null) {
+            ponteiroPara = de(nome + "*");
+        }
+        return ponteiroPara;
+    }
+
+    // Remove o último caractere (o '*' de um ponteiro) e os espaços à volta
+    public Tipo semUltimoCaractere() {
+        if (semUltimoCaractere == null) {
+            semUltimoCaractere = de(nome.substring(0, nome.length() - 1).trim());
+        }
+        return semUltimoCaractere;
+    }
+
+    // "T[]" -> "T"
+    public Tipo semArray() {
+        if (semArray == null) {
+            semArray = de(nome.substring(0, nome.length() - 2).trim());
+        }
+        return semArray;
+    }
+
+    // Tudo antes do primeiro '['; o próprio tipo se não houver
+    public Tipo baseArray() {
+        if (baseArray == null) {
+            int abre = nome.indexOf('[');
+            baseArray = abre >= 0 ? de(nome.substring(0, abre)) : this;
+        }
+        return baseArray;
+    }
+
+    // "T*" -> "T"; unknown se não for ponteiro
+    public Tipo basePonteiro() {
+        if (basePonteiro == null) {
+            basePonteiro = terminaEmPonteiro ? de(nome.substring(0, nome.length() - 1)) : UNKNOWN;
+        }
+        return basePonteiro;
+    }
+
+    @Override
+    public String toString() {
+        return nome;
+    }
+
+}
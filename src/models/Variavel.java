@@ -11,6 +11,7 @@ package models;
 public class Variavel {
     String nome;
     String tipo;
+    Tipo tipoCanonico;
     boolean isPonteiro;
     boolean isArray;
     int linhaDeclaracao;
@@ -18,6 +19,7 @@ public class Variavel {
     public Variavel(String nome, String tipo, boolean isPonteiro, boolean isArray, int linha) {
         this.nome = nome;
         this.tipo = tipo;
+        this.tipoCanonico = Tipo.de(tipo);
         this.isPonteiro = isPonteiro;
         this.isArray = isArray;
         this.linhaDeclaracao = linha;
@@ -31,6 +33,10 @@ public class Variavel {
         return tipo;
     }
 
+    public Tipo getTipoCanonico() {
+        return tipoCanonico;
+    }
+
     public boolean isIsPonteiro() {
         return isPonteiro;
     }
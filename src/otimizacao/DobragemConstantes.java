@@ -0,0 +1,327 @@
+package otimizacao;
+
+import ir.FuncaoIR;
+import ir.Instrucao;
+import ir.OpIR;
+import ir.Operando;
+import ir.TipoIR;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import otimizacao.GrafoFluxo.Bloco;
+
+/**
+ * Propagação e dobragem de constantes: análise para a frente sobre o grafo
+ * de fluxo que descobre os temporários com valor constante em cada ponto,
+ * substitui-os pelo valor, calcula as operações com operandos constantes e
+ * resolve os saltos condicionais cuja condição fica conhecida. Os ramos que
+ * nunca são tomados não contribuem para os blocos seguintes (propagação
+ * condicional), e ficam sem predecessores para a EliminacaoCodigoMorto.
+ *
+ * As contas seguem a semântica do código gerado: inteiros de 32 e 64 bits
+ * com overflow circular, float calculado em precisão simples. Divisões por
+ * zero e conversões fora do intervalo não são dobradas.
+ *
+ * @author itsupport
+ */
+public class DobragemConstantes implements Passagem {
+
+    // Valor de um temporário que não é constante (ou que não se conhece)
+    private static final Operando VARIAVEL = Operando.global("");
+
+    @Override
+    public String getNome() {
+        return "constantes";
+    }
+
+    @Override
+    public int executar(FuncaoIR funcao) {
+        GrafoFluxo grafo = new GrafoFluxo(funcao);
+        List<Bloco> ordem = grafo.ordemReversa();
+        if (ordem.isEmpty()) {
+            return 0;
+        }
+
+        // Estado à entrada de cada bloco; null enquanto o bloco não é alcançado
+        Operando[][] entradas = new Operando[grafo.getBlocos().size()][];
+        entradas[0] = new Operando[funcao.getNumeroTemps()];
+        Arrays.fill(entradas[0], VARIAVEL);
+        boolean mudou = true;
+        while (mudou) {
+            mudou = false;
+            for (Bloco bloco : ordem) {
+                if (entradas[bloco.indice] == null) {
+                    continue;
+                }
+                Operando[] estado = entradas[bloco.indice].clone();
+                for (Instrucao instrucao : grafo.instrucoes(bloco)) {
+                    transferir(instrucao, estado);
+                }
+                for (Bloco sucessor : executaveis(grafo, bloco, estado)) {
+                    if (entradas[sucessor.indice] == null) {
+                        entradas[sucessor.indice] = estado.clone();
+                        mudou = true;
+                    } else {
+                        mudou |= juntar(entradas[sucessor.indice], estado);
+                    }
+                }
+            }
+        }
+
+        int alteracoes = 0;
+        List<Instrucao> resultado = new ArrayList<>(funcao.getInstrucoes().size());
+        for (Bloco bloco : grafo.getBlocos()) {
+            if (entradas[bloco.indice] == null) {
+                resultado.addAll(grafo.instrucoes(bloco));
+                continue;
+            }
+            Operando[] estado = entradas[bloco.indice].clone();
+            for (Instrucao instrucao : grafo.instrucoes(bloco)) {
+                alteracoes += GrafoFluxo.substituirUsos(instrucao, operando -> valor(operando, estado));
+                OpIR op = instrucao.getOp();
+                if (op.isPura() && op != OpIR.MOV) {
+                    Operando constante = avaliar(op, instrucao.getTipo(), instrucao.getA(), instrucao.getB());
+                    if (constante != null && constante.getTipo() == instrucao.getDestino().getTipo()) {
+                        mover(instrucao, constante);
+                        alteracoes++;
+                    } else if (simplificar(instrucao)) {
+                        alteracoes++;
+                    }
+                } else if ((op == OpIR.JNZ || op == OpIR.JZ) && instrucao.getA().isConstante()) {
+                    alteracoes++;
+                    if (naoZero(instrucao.getA()) != (op == OpIR.JNZ)) {
+                        continue; // Nunca salta
+                    }
+                    instrucao.setOp(OpIR.JMP);
+                    instrucao.setTipo(null);
+                    instrucao.setA(null);
+                }
+                transferir(instrucao, estado);
+                resultado.add(instrucao);
+            }
+        }
+        if (alteracoes > 0) {
+            funcao.setInstrucoes(resultado);
+        }
+        return alteracoes;
+    }
+
+    private static void transferir(Instrucao instrucao, Operando[] estado) {
+        Operando destino = instrucao.getDestino();
+        if (destino == null) {
+            return;
+        }
+        Operando constante = null;
+        if (instrucao.getOp() != OpIR.CALL) {
+            Operando b = instrucao.getB() != null ? valor(instrucao.getB(), estado) : null;
+            constante = avaliar(instrucao.getOp(), instrucao.getTipo(), valor(instrucao.getA(), estado), b);
+        }
+        estado[destino.getIndice()] = constante != null && constante.getTipo() == destino.getTipo() ? constante : VARIAVEL;
+    }
+
+    private static Operando valor(Operando operando, Operando[] estado) {
+        if (operando.isTemp() && estado[operando.getIndice()] != VARIAVEL) {
+            return estado[operando.getIndice()];
+        }
+        return operando;
+    }
+
+    // Junta o estado de um predecessor; devolve true se a entrada mudou
+    private static boolean juntar(Operando[] entrada, Operando[] estado) {
+        boolean mudou = false;
+        for (int i = 0; i < entrada.length; i++) {
+            if (entrada[i] != VARIAVEL && !entrada[i].equals(estado[i])) {
+                entrada[i] = VARIAVEL;
+                mudou = true;
+            }
+        }
+        return mudou;
+    }
+
+    // Sucessores que podem ser executados, dado o estado no fim do bloco
+    private static List<Bloco> executaveis(GrafoFluxo grafo, Bloco bloco, Operando[] estado) {
+        List<Instrucao> instrucoes = grafo.instrucoes(bloco);
+        Instrucao ultima = instrucoes.get(instrucoes.size() - 1);
+        if (bloco.sucessores.size() < 2 || (ultima.getOp() != OpIR.JNZ && ultima.getOp() != OpIR.JZ)) {
+            return bloco.sucessores;
+        }
+        Operando condicao = valor(ultima.getA(), estado);
+        if (!condicao.isConstante()) {
+            return bloco.sucessores;
+        }
+        boolean salta = naoZero(condicao) == (ultima.getOp() == OpIR.JNZ);
+        for (Bloco sucessor : bloco.sucessores) {
+            Instrucao primeira = grafo.instrucoes(sucessor).get(0);
+            boolean alvo = primeira.getOp() == OpIR.LABEL && primeira.getRotulo() == ultima.getRotulo();
+            if (alvo == salta) {
+                return List.of(sucessor);
+            }
+        }
+        return bloco.sucessores;
+    }
+
+    private static void mover(Instrucao instrucao, Operando valor) {
+        instrucao.setOp(OpIR.MOV);
+        instrucao.setTipo(instrucao.getDestino().getTipo());
+        instrucao.setA(valor);
+        instrucao.setB(null);
+    }
+
+    // Identidades inteiras: x + 0, x - 0, x * 1, x / 1 e x * 0
+    private static boolean simplificar(Instrucao instrucao) {
+        TipoIR tipo = instrucao.getTipo();
+        if (tipo.isReal() || instrucao.getDestino().getTipo() != tipo) {
+            return false;
+        }
+        Operando a = instrucao.getA();
+        Operando b = instrucao.getB();
+        switch (instrucao.getOp()) {
+            case ADD:
+                if (igual(b, 0)) {
+                    mover(instrucao, a);
+                } else if (igual(a, 0)) {
+                    mover(instrucao, b);
+                } else {
+                    return false;
+                }
+                return true;
+            case SUB:
+            case DIV:
+                if (igual(b, instrucao.getOp() == OpIR.SUB ? 0 : 1)) {
+                    mover(instrucao, a);
+                    return true;
+                }
+                return false;
+            case MUL:
+                if (igual(b, 1)) {
+                    mover(instrucao, a);
+                } else if (igual(a, 1)) {
+                    mover(instrucao, b);
+                } else if (igual(a, 0) || igual(b, 0)) {
+                    mover(instrucao, Operando.inteiro(0, tipo));
+                } else {
+                    return false;
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean igual(Operando operando, long valor) {
+        return operando.getEspecie() == Operando.Especie.INTEIRO && operando.getInteiro() == valor;
+    }
+
+    private static boolean naoZero(Operando constante) {
+        return constante.getEspecie() == Operando.Especie.INTEIRO ? constante.getInteiro() != 0 : constante.getReal() != 0;
+    }
+
+    /**
+     * Valor de uma operação pura sobre os operandos, ou null se algum não for
+     * constante ou o resultado não puder ser calculado em tempo de compilação.
+     */
+    static Operando avaliar(OpIR op, TipoIR tipo, Operando a, Operando b) {
+        if (op == OpIR.LOAD || !a.isConstante() || (b != null && !b.isConstante())) {
+            return null;
+        }
+        if (op == OpIR.MOV || op == OpIR.CVT) {
+            return converter(a, tipo);
+        }
+        if (a.getTipo() != tipo || (b != null && b.getTipo() != tipo)) {
+            return null;
+        }
+        if (tipo.isReal()) {
+            return avaliarReal(op, tipo, a.getReal(), b != null ? b.getReal() : 0);
+        }
+        return avaliarInteiro(op, tipo, a.getInteiro(), b != null ? b.getInteiro() : 0);
+    }
+
+    private static Operando avaliarInteiro(OpIR op, TipoIR tipo, long x, long y) {
+        long minimo = tipo == TipoIR.I64 ? Long.MIN_VALUE : Integer.MIN_VALUE;
+        switch (op) {
+            case ADD:
+                return Operando.inteiro(x + y, tipo);
+            case SUB:
+                return Operando.inteiro(x - y, tipo);
+            case MUL:
+                return Operando.inteiro(x * y, tipo);
+            case DIV:
+                // idiv gera uma exceção nestes casos; fica para o programa
+                return y == 0 || (x == minimo && y == -1) ? null : Operando.inteiro(x / y, tipo);
+            case NEG:
+                return Operando.inteiro(-x, tipo);
+            default:
+                return comparar(op, x < y, x == y, x > y);
+        }
+    }
+
+    private static Operando avaliarReal(OpIR op, TipoIR tipo, double x, double y) {
+        if (op.isComparacao()) {
+            return comparar(op, x < y, x == y, x > y);
+        }
+        double r;
+        if (tipo == TipoIR.F32) {
+            float fx = (float) x;
+            float fy = (float) y;
+            switch (op) {
+                case ADD: r = fx + fy; break;
+                case SUB: r = fx - fy; break;
+                case MUL: r = fx * fy; break;
+                case DIV: r = fx / fy; break;
+                default: r = -fx; break;
+            }
+        } else {
+            switch (op) {
+                case ADD: r = x + y; break;
+                case SUB: r = x - y; break;
+                case MUL: r = x * y; break;
+                case DIV: r = x / y; break;
+                default: r = -x; break;
+            }
+        }
+        return Operando.real(r, tipo);
+    }
+
+    // Resultado I32 de uma comparação; com NaN só != é verdadeiro, como no ucomisd
+    private static Operando comparar(OpIR op, boolean menor, boolean igual, boolean maior) {
+        boolean resultado;
+        switch (op) {
+            case EQ: resultado = igual; break;
+            case NE: resultado = !igual; break;
+            case LT: resultado = menor; break;
+            case LE: resultado = menor || igual; break;
+            case GT: resultado = maior; break;
+            default: resultado = maior || igual; break;
+        }
+        return Operando.inteiro(resultado ? 1 : 0, TipoIR.I32);
+    }
+
+    // Conversão de uma constante para outro tipo de registo, com a semântica de CVT
+    private static Operando converter(Operando constante, TipoIR para) {
+        TipoIR de = constante.getTipo();
+        if (de == para) {
+            return constante;
+        }
+        if (para != para.emRegisto()) {
+            return null;
+        }
+        if (!de.isReal()) {
+            long valor = constante.getInteiro();
+            if (para == TipoIR.F32) {
+                return Operando.real((float) valor, para);
+            }
+            return para == TipoIR.F64 ? Operando.real((double) valor, para) : Operando.inteiro(valor, para);
+        }
+        double valor = constante.getReal();
+        if (para.isReal()) {
+            return Operando.real(para == TipoIR.F32 ? (float) valor : valor, para);
+        }
+        // cvttsd2si devolve o "valor indefinido" fora do intervalo; não se dobra
+        double limite = para == TipoIR.I64 ? 0x1p63 : 0x1p31;
+        if (!(valor > -limite - 1 && valor < limite)) {
+            return null;
+        }
+        return Operando.inteiro((long) valor, para);
+    }
+
+}
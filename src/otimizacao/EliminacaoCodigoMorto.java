@@ -0,0 +1,204 @@
+package otimizacao;
+
+import ir.FuncaoIR;
+import ir.Instrucao;
+import ir.OpIR;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import otimizacao.GrafoFluxo.Bloco;
+
+/**
+ * Eliminação de código morto:
+ * - blocos que não são alcançáveis a partir da entrada;
+ * - operações puras cujo destino nunca é lido (análise de vivacidade dos
+ *   temporários) e cópias de um temporário para ele próprio;
+ * - saltos para a instrução seguinte e rótulos sem nenhum salto para eles,
+ *   o que junta blocos e dá mais espaço à EliminacaoSubexpressoes.
+ *
+ * Uma divisão inteira morta também é removida, mesmo que dividisse por
+ * zero: em C é comportamento indefinido.
+ *
+ * @author itsupport
+ */
+public class EliminacaoCodigoMorto implements Passagem {
+
+    @Override
+    public String getNome() {
+        return "codigo-morto";
+    }
+
+    @Override
+    public int executar(FuncaoIR funcao) {
+        int alteracoes = removerInalcancaveis(funcao);
+        int removidas;
+        do {
+            removidas = removerDefinicoesMortas(funcao);
+            alteracoes += removidas;
+        } while (removidas > 0);
+        return alteracoes + removerSaltos(funcao);
+    }
+
+    private static int removerInalcancaveis(FuncaoIR funcao) {
+        GrafoFluxo grafo = new GrafoFluxo(funcao);
+        List<Bloco> alcancaveis = grafo.ordemReversa();
+        if (alcancaveis.size() == grafo.getBlocos().size()) {
+            return 0;
+        }
+        boolean[] vivo = new boolean[grafo.getBlocos().size()];
+        for (Bloco bloco : alcancaveis) {
+            vivo[bloco.indice] = true;
+        }
+        int alteracoes = 0;
+        List<Instrucao> resultado = new ArrayList<>(funcao.getInstrucoes().size());
+        for (Bloco bloco : grafo.getBlocos()) {
+            if (vivo[bloco.indice]) {
+                resultado.addAll(grafo.instrucoes(bloco));
+            } else {
+                alteracoes += bloco.fim - bloco.inicio;
+            }
+        }
+        funcao.setInstrucoes(resultado);
+        return alteracoes;
+    }
+
+    private static int removerDefinicoesMortas(FuncaoIR funcao) {
+        GrafoFluxo grafo = new GrafoFluxo(funcao);
+        List<Bloco> blocos = grafo.getBlocos();
+        int temps = funcao.getNumeroTemps();
+
+        // Temporários lidos antes de escritos (usos) e escritos (definições) em cada bloco
+        BitSet[] usos = new BitSet[blocos.size()];
+        BitSet[] definicoes = new BitSet[blocos.size()];
+        for (Bloco bloco : blocos) {
+            BitSet uso = new BitSet(temps);
+            BitSet definicao = new BitSet(temps);
+            for (Instrucao instrucao : grafo.instrucoes(bloco)) {
+                GrafoFluxo.usos(instrucao, operando -> {
+                    if (operando.isTemp() && !definicao.get(operando.getIndice())) {
+                        uso.set(operando.getIndice());
+                    }
+                });
+                if (instrucao.getDestino() != null) {
+                    definicao.set(instrucao.getDestino().getIndice());
+                }
+            }
+            usos[bloco.indice] = uso;
+            definicoes[bloco.indice] = definicao;
+        }
+
+        // Vivos à saída de cada bloco: ponto fixo para trás
+        BitSet[] saidas = new BitSet[blocos.size()];
+        BitSet[] entradas = new BitSet[blocos.size()];
+        for (Bloco bloco : blocos) {
+            saidas[bloco.indice] = new BitSet(temps);
+            entradas[bloco.indice] = (BitSet) usos[bloco.indice].clone();
+        }
+        boolean mudou = true;
+        while (mudou) {
+            mudou = false;
+            for (int i = blocos.size() - 1; i >= 0; i--) {
+                Bloco bloco = blocos.get(i);
+                BitSet saida = saidas[i];
+                for (Bloco sucessor : bloco.sucessores) {
+                    saida.or(entradas[sucessor.indice]);
+                }
+                BitSet entrada = (BitSet) saida.clone();
+                entrada.andNot(definicoes[i]);
+                entrada.or(usos[i]);
+                if (!entrada.equals(entradas[i])) {
+                    entradas[i] = entrada;
+                    mudou = true;
+                }
+            }
+        }
+
+        int removidas = 0;
+        List<Instrucao> resultado = new ArrayList<>(funcao.getInstrucoes().size());
+        for (Bloco bloco : blocos) {
+            List<Instrucao> instrucoes = grafo.instrucoes(bloco);
+            BitSet vivos = (BitSet) saidas[bloco.indice].clone();
+            Instrucao[] mantidas = new Instrucao[instrucoes.size()];
+            for (int i = instrucoes.size() - 1; i >= 0; i--) {
+                Instrucao instrucao = instrucoes.get(i);
+                if (morta(instrucao, vivos)) {
+                    removidas++;
+                    continue;
+                }
+                mantidas[i] = instrucao;
+                if (instrucao.getDestino() != null) {
+                    vivos.clear(instrucao.getDestino().getIndice());
+                }
+                GrafoFluxo.usos(instrucao, operando -> {
+                    if (operando.isTemp()) {
+                        vivos.set(operando.getIndice());
+                    }
+                });
+            }
+            for (Instrucao instrucao : mantidas) {
+                if (instrucao != null) {
+                    resultado.add(instrucao);
+                }
+            }
+        }
+        if (removidas > 0) {
+            funcao.setInstrucoes(resultado);
+        }
+        return removidas;
+    }
+
+    private static boolean morta(Instrucao instrucao, BitSet vivos) {
+        if (!instrucao.getOp().isPura()) {
+            return false;
+        }
+        return !vivos.get(instrucao.getDestino().getIndice())
+                || (instrucao.getOp() == OpIR.MOV && instrucao.getA().equals(instrucao.getDestino()));
+    }
+
+    // Saltos para o rótulo que vem logo a seguir e rótulos que ficaram sem saltos
+    private static int removerSaltos(FuncaoIR funcao) {
+        List<Instrucao> instrucoes = funcao.getInstrucoes();
+        int alteracoes = 0;
+        List<Instrucao> semSaltos = new ArrayList<>(instrucoes.size());
+        for (int i = 0; i < instrucoes.size(); i++) {
+            Instrucao instrucao = instrucoes.get(i);
+            if (instrucao.getOp().isSalto() && saltaParaSeguinte(instrucoes, i)) {
+                alteracoes++;
+            } else {
+                semSaltos.add(instrucao);
+            }
+        }
+        Set<Integer> alvos = new HashSet<>();
+        for (Instrucao instrucao : semSaltos) {
+            if (instrucao.getOp().isSalto()) {
+                alvos.add(instrucao.getRotulo());
+            }
+        }
+        List<Instrucao> resultado = new ArrayList<>(semSaltos.size());
+        for (Instrucao instrucao : semSaltos) {
+            if (instrucao.getOp() == OpIR.LABEL && !alvos.contains(instrucao.getRotulo())) {
+                alteracoes++;
+            } else {
+                resultado.add(instrucao);
+            }
+        }
+        if (alteracoes > 0) {
+            funcao.setInstrucoes(resultado);
+        }
+        return alteracoes;
+    }
+
+    // O rótulo do salto está entre as instruções seguintes, antes de qualquer outra instrução
+    private static boolean saltaParaSeguinte(List<Instrucao> instrucoes, int indice) {
+        int rotulo = instrucoes.get(indice).getRotulo();
+        for (int i = indice + 1; i < instrucoes.size() && instrucoes.get(i).getOp() == OpIR.LABEL; i++) {
+            if (instrucoes.get(i).getRotulo() == rotulo) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
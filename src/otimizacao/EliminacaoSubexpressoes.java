@@ -0,0 +1,117 @@
+package otimizacao;
+
+import ir.FuncaoIR;
+import ir.Instrucao;
+import ir.OpIR;
+import ir.Operando;
+import ir.TipoIR;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import otimizacao.GrafoFluxo.Bloco;
+
+/**
+ * Eliminação de subexpressões comuns dentro de cada bloco básico (numeração
+ * de valores local): uma operação pura já calculada no bloco, com os mesmos
+ * operandos, passa a ser uma cópia do temporário que guardou o resultado.
+ * As operações comutativas são comparadas com os operandos ordenados.
+ *
+ * As leituras da memória (LOAD) também são reaproveitadas, até ao próximo
+ * STORE, MEMCPY ou CALL, que podem escrever em qualquer endereço.
+ *
+ * @author itsupport
+ */
+public class EliminacaoSubexpressoes implements Passagem {
+
+    private static final class Expressao {
+
+        final OpIR op;
+        final TipoIR tipo;
+        final Operando a;
+        final Operando b;
+
+        Expressao(OpIR op, TipoIR tipo, Operando a, Operando b) {
+            // a + b e b + a são a mesma expressão
+            if (b != null && comutativa(op) && ordem(a) > ordem(b)) {
+                Operando troca = a;
+                a = b;
+                b = troca;
+            }
+            this.op = op;
+            this.tipo = tipo;
+            this.a = a;
+            this.b = b;
+        }
+
+        boolean usa(Operando temp) {
+            return temp.equals(a) || temp.equals(b);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Expressao)) {
+                return false;
+            }
+            Expressao e = (Expressao) obj;
+            return op == e.op && tipo == e.tipo && a.equals(e.a) && Objects.equals(b, e.b);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(op, tipo, a, b);
+        }
+    }
+
+    @Override
+    public String getNome() {
+        return "subexpressoes";
+    }
+
+    @Override
+    public int executar(FuncaoIR funcao) {
+        GrafoFluxo grafo = new GrafoFluxo(funcao);
+        int alteracoes = 0;
+        Map<Expressao, Operando> calculadas = new HashMap<>();
+        for (Bloco bloco : grafo.getBlocos()) {
+            calculadas.clear();
+            for (Instrucao instrucao : grafo.instrucoes(bloco)) {
+                OpIR op = instrucao.getOp();
+                Operando destino = instrucao.getDestino();
+                if (op == OpIR.STORE || op == OpIR.MEMCPY || op == OpIR.CALL) {
+                    calculadas.keySet().removeIf(expressao -> expressao.op == OpIR.LOAD);
+                }
+                if (destino == null) {
+                    continue;
+                }
+                Expressao expressao = op.isPura() && op != OpIR.MOV
+                        ? new Expressao(op, instrucao.getTipo(), instrucao.getA(), instrucao.getB()) : null;
+                Operando anterior = expressao != null ? calculadas.get(expressao) : null;
+                if (anterior != null && anterior.getTipo() == destino.getTipo()) {
+                    instrucao.setOp(OpIR.MOV);
+                    instrucao.setTipo(destino.getTipo());
+                    instrucao.setA(anterior);
+                    instrucao.setB(null);
+                    alteracoes++;
+                }
+                // O destino muda de valor: esquece o que o lia ou guardava
+                if (!calculadas.isEmpty()) {
+                    calculadas.entrySet().removeIf(e -> e.getValue().equals(destino) || e.getKey().usa(destino));
+                }
+                if (expressao != null && anterior == null && !expressao.usa(destino)) {
+                    calculadas.put(expressao, destino);
+                }
+            }
+        }
+        return alteracoes;
+    }
+
+    private static boolean comutativa(OpIR op) {
+        return op == OpIR.ADD || op == OpIR.MUL || op == OpIR.EQ || op == OpIR.NE;
+    }
+
+    // Ordem arbitrária mas estável entre operandos
+    private static int ordem(Operando operando) {
+        return operando.hashCode();
+    }
+
+}
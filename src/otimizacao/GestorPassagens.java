@@ -0,0 +1,127 @@
+package otimizacao;
+
+import ir.FuncaoIR;
+import ir.ProgramaIR;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Corre uma sequência de passagens sobre cada função do ProgramaIR,
+ * repetindo-a enquanto alguma passagem fizer alterações (até
+ * MAXIMO_ITERACOES), e mede o tempo e o número de alterações de cada
+ * passagem.
+ *
+ * A sequência padrão é constantes, copias, subexpressoes e codigo-morto;
+ * outras passagens podem ser acrescentadas com adicionar ou escolhidas pelo
+ * nome com --passes=.
+ *
+ * @author itsupport
+ */
+public class GestorPassagens {
+
+    public static final int MAXIMO_ITERACOES = 10;
+
+    public static class Resultado {
+
+        private final String nome;
+        private long nanos;
+        private int alteracoes;
+        private int execucoes;
+
+        Resultado(String nome) {
+            this.nome = nome;
+        }
+
+        public String getNome() {
+            return nome;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public int getAlteracoes() {
+            return alteracoes;
+        }
+
+        public int getExecucoes() {
+            return execucoes;
+        }
+    }
+
+    private final List<Passagem> passagens = new ArrayList<>();
+    private final Map<String, Resultado> resultados = new LinkedHashMap<>();
+
+    public static GestorPassagens padrao() {
+        GestorPassagens gestor = new GestorPassagens();
+        for (String nome : nomes()) {
+            gestor.adicionar(criar(nome));
+        }
+        return gestor;
+    }
+
+    // Gestor com as passagens indicadas, pela ordem dada
+    public static GestorPassagens de(List<String> nomes) {
+        GestorPassagens gestor = new GestorPassagens();
+        for (String nome : nomes) {
+            gestor.adicionar(criar(nome));
+        }
+        return gestor;
+    }
+
+    public static List<String> nomes() {
+        return List.of("constantes", "copias", "subexpressoes", "codigo-morto");
+    }
+
+    public static Passagem criar(String nome) {
+        switch (nome) {
+            case "constantes":
+                return new DobragemConstantes();
+            case "copias":
+                return new PropagacaoCopias();
+            case "subexpressoes":
+                return new EliminacaoSubexpressoes();
+            case "codigo-morto":
+                return new EliminacaoCodigoMorto();
+            default:
+                throw new IllegalArgumentException("Passagem desconhecida: '" + nome + "' (disponíveis: " + String.join(", ", nomes()) + ")");
+        }
+    }
+
+    public void adicionar(Passagem passagem) {
+        passagens.add(passagem);
+        resultados.putIfAbsent(passagem.getNome(), new Resultado(passagem.getNome()));
+    }
+
+    public void executar(ProgramaIR programa) {
+        for (FuncaoIR funcao : programa.getFuncoes()) {
+            executar(funcao);
+        }
+    }
+
+    public void executar(FuncaoIR funcao) {
+        for (int iteracao = 0; iteracao < MAXIMO_ITERACOES; iteracao++) {
+            int alteracoes = 0;
+            for (Passagem passagem : passagens) {
+                long inicio = System.nanoTime();
+                int feitas = passagem.executar(funcao);
+                Resultado resultado = resultados.get(passagem.getNome());
+                resultado.nanos += System.nanoTime() - inicio;
+                resultado.alteracoes += feitas;
+                resultado.execucoes++;
+                alteracoes += feitas;
+            }
+            if (alteracoes == 0) {
+                return;
+            }
+        }
+    }
+
+    // Um resultado por nome de passagem, pela ordem em que foram adicionadas
+    public List<Resultado> getResultados() {
+        return new ArrayList<>(resultados.values());
+    }
+
+}
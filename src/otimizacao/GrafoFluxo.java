@@ -0,0 +1,179 @@
+package otimizacao;
+
+import ir.FuncaoIR;
+import ir.Instrucao;
+import ir.OpIR;
+import ir.Operando;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Grafo de fluxo de controlo de uma função: as instruções divididas em
+ * blocos básicos (começam num LABEL ou depois de um salto/RET e terminam no
+ * salto seguinte), com os sucessores e predecessores de cada bloco.
+ *
+ * O grafo é construído sobre a lista de instruções atual da função e deixa
+ * de ser válido quando uma passagem acrescenta ou remove instruções.
+ *
+ * @author itsupport
+ */
+public class GrafoFluxo {
+
+    public static final class Bloco {
+
+        final int indice;
+        final int inicio;
+        final int fim; // exclusivo
+        final List<Bloco> sucessores = new ArrayList<>(2);
+        final List<Bloco> predecessores = new ArrayList<>(2);
+
+        Bloco(int indice, int inicio, int fim) {
+            this.indice = indice;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        public int getIndice() {
+            return indice;
+        }
+
+        public List<Bloco> getSucessores() {
+            return sucessores;
+        }
+
+        public List<Bloco> getPredecessores() {
+            return predecessores;
+        }
+    }
+
+    private final List<Instrucao> instrucoes;
+    private final List<Bloco> blocos = new ArrayList<>();
+
+    public GrafoFluxo(FuncaoIR funcao) {
+        instrucoes = funcao.getInstrucoes();
+        Map<Integer, Bloco> porRotulo = new HashMap<>();
+        int inicio = 0;
+        for (int i = 0; i < instrucoes.size(); i++) {
+            Instrucao instrucao = instrucoes.get(i);
+            boolean fecha = instrucao.getOp().isSalto() || instrucao.getOp() == OpIR.RET || i + 1 == instrucoes.size()
+                    || instrucoes.get(i + 1).getOp() == OpIR.LABEL;
+            if (fecha) {
+                Bloco bloco = new Bloco(blocos.size(), inicio, i + 1);
+                if (instrucoes.get(inicio).getOp() == OpIR.LABEL) {
+                    porRotulo.put(instrucoes.get(inicio).getRotulo(), bloco);
+                }
+                blocos.add(bloco);
+                inicio = i + 1;
+            }
+        }
+        for (Bloco bloco : blocos) {
+            Instrucao ultima = instrucoes.get(bloco.fim - 1);
+            if (ultima.getOp().isSalto()) {
+                ligar(bloco, porRotulo.get(ultima.getRotulo()));
+            }
+            if (ultima.getOp() != OpIR.JMP && ultima.getOp() != OpIR.RET && bloco.indice + 1 < blocos.size()) {
+                ligar(bloco, blocos.get(bloco.indice + 1));
+            }
+        }
+    }
+
+    private static void ligar(Bloco de, Bloco para) {
+        if (para != null && !de.sucessores.contains(para)) {
+            de.sucessores.add(para);
+            para.predecessores.add(de);
+        }
+    }
+
+    public List<Bloco> getBlocos() {
+        return blocos;
+    }
+
+    public List<Instrucao> instrucoes(Bloco bloco) {
+        return instrucoes.subList(bloco.inicio, bloco.fim);
+    }
+
+    // Blocos alcançáveis a partir da entrada em pós-ordem reversa (boa ordem para problemas para a frente)
+    public List<Bloco> ordemReversa() {
+        List<Bloco> ordem = new ArrayList<>(blocos.size());
+        if (blocos.isEmpty()) {
+            return ordem;
+        }
+        boolean[] visitado = new boolean[blocos.size()];
+        // Pilha explícita: {bloco, próximo sucessor a visitar}
+        List<int[]> pilha = new ArrayList<>();
+        pilha.add(new int[]{0, 0});
+        visitado[0] = true;
+        while (!pilha.isEmpty()) {
+            int[] topo = pilha.get(pilha.size() - 1);
+            Bloco bloco = blocos.get(topo[0]);
+            if (topo[1] < bloco.sucessores.size()) {
+                Bloco sucessor = bloco.sucessores.get(topo[1]++);
+                if (!visitado[sucessor.indice]) {
+                    visitado[sucessor.indice] = true;
+                    pilha.add(new int[]{sucessor.indice, 0});
+                }
+            } else {
+                ordem.add(bloco);
+                pilha.remove(pilha.size() - 1);
+            }
+        }
+        Collections.reverse(ordem);
+        return ordem;
+    }
+
+    // === Operandos lidos por uma instrução (o destino nunca é lido) ===
+
+    public static void usos(Instrucao instrucao, Consumer<Operando> acao) {
+        if (instrucao.getA() != null) {
+            acao.accept(instrucao.getA());
+        }
+        if (instrucao.getB() != null) {
+            acao.accept(instrucao.getB());
+        }
+        if (instrucao.getArgumentos() != null) {
+            for (Operando argumento : instrucao.getArgumentos()) {
+                acao.accept(argumento);
+            }
+        }
+    }
+
+    /**
+     * Substitui os operandos lidos pela instrução pelo valor devolvido pela
+     * função (o próprio operando quando não há substituição).
+     *
+     * @return número de operandos substituídos
+     */
+    public static int substituirUsos(Instrucao instrucao, UnaryOperator<Operando> substituicao) {
+        int alteracoes = 0;
+        if (instrucao.getA() != null) {
+            Operando novo = substituicao.apply(instrucao.getA());
+            if (!novo.equals(instrucao.getA())) {
+                instrucao.setA(novo);
+                alteracoes++;
+            }
+        }
+        if (instrucao.getB() != null) {
+            Operando novo = substituicao.apply(instrucao.getB());
+            if (!novo.equals(instrucao.getB())) {
+                instrucao.setB(novo);
+                alteracoes++;
+            }
+        }
+        List<Operando> argumentos = instrucao.getArgumentos();
+        if (argumentos != null) {
+            for (int i = 0; i < argumentos.size(); i++) {                Operando novo = substituicao.apply(argumentos.get(i));
+                if (!novo.equals(argumentos.get(i))) {
+                    argumentos.set(i, novo);
+                    alteracoes++;
+                }
+            }
+        }
+        return alteracoes;
+    }
+
+}
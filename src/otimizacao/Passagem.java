@@ -0,0 +1,25 @@
+package otimizacao;
+
+import ir.FuncaoIR;
+
+/**
+ * Uma passagem de otimização sobre a representação intermédia. Cada passagem
+ * reescreve as instruções de uma função no lugar e devolve o número de
+ * alterações feitas, que o GestorPassagens usa para decidir se volta a
+ * correr a sequência.
+ *
+ * @author itsupport
+ */
+public interface Passagem {
+
+    // Nome usado em --passes= e nas estatísticas
+    String getNome();
+
+    /**
+     * Otimiza a função.
+     *
+     * @return número de alterações (0 quando a função ficou igual)
+     */
+    int executar(FuncaoIR funcao);
+
+}
@@ -0,0 +1,97 @@
+package otimizacao;
+
+import ir.FuncaoIR;
+import ir.Instrucao;
+import ir.OpIR;
+import ir.Operando;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import otimizacao.GrafoFluxo.Bloco;
+
+/**
+ * Propagação de cópias: depois de "t = mov s", onde s é outro temporário ou
+ * um endereço (global, string ou espaço local), os usos de t passam a ler s
+ * diretamente enquanto nenhum dos dois for redefinido. As cópias disponíveis
+ * à entrada de cada bloco são as que chegam por todos os predecessores.
+ *
+ * As cópias de constantes ficam para a DobragemConstantes; as instruções
+ * "t = mov s" que deixam de ser lidas são removidas pela
+ * EliminacaoCodigoMorto.
+ *
+ * @author itsupport
+ */
+public class PropagacaoCopias implements Passagem {
+
+    @Override
+    public String getNome() {
+        return "copias";
+    }
+
+    @Override
+    public int executar(FuncaoIR funcao) {
+        GrafoFluxo grafo = new GrafoFluxo(funcao);
+        List<Bloco> ordem = grafo.ordemReversa();
+        if (ordem.isEmpty()) {
+            return 0;
+        }
+
+        // Cópias disponíveis à entrada de cada bloco (temporário -> origem); null enquanto não é alcançado
+        List<Map<Integer, Operando>> entradas = new ArrayList<>(Collections.nCopies(grafo.getBlocos().size(), null));
+        entradas.set(0, new HashMap<>());
+        boolean mudou = true;
+        while (mudou) {
+            mudou = false;
+            for (Bloco bloco : ordem) {
+                if (entradas.get(bloco.indice) == null) {
+                    continue;
+                }
+                Map<Integer, Operando> copias = new HashMap<>(entradas.get(bloco.indice));
+                for (Instrucao instrucao : grafo.instrucoes(bloco)) {
+                    transferir(instrucao, copias);
+                }
+                for (Bloco sucessor : bloco.sucessores) {
+                    Map<Integer, Operando> entrada = entradas.get(sucessor.indice);
+                    if (entrada == null) {
+                        entradas.set(sucessor.indice, new HashMap<>(copias));
+                        mudou = true;
+                    } else {
+                        mudou |= entrada.entrySet().removeIf(copia -> !copia.getValue().equals(copias.get(copia.getKey())));
+                    }
+                }
+            }
+        }
+
+        int alteracoes = 0;
+        for (Bloco bloco : ordem) {
+            Map<Integer, Operando> copias = entradas.get(bloco.indice);
+            for (Instrucao instrucao : grafo.instrucoes(bloco)) {
+                alteracoes += GrafoFluxo.substituirUsos(instrucao, operando -> {
+                    Operando origem = operando.isTemp() ? copias.get(operando.getIndice()) : null;
+                    return origem != null ? origem : operando;
+                });
+                transferir(instrucao, copias);
+            }
+        }
+        return alteracoes;
+    }
+
+    private static void transferir(Instrucao instrucao, Map<Integer, Operando> copias) {
+        Operando destino = instrucao.getDestino();
+        if (destino == null) {
+            return;
+        }
+        copias.remove(destino.getIndice());
+        if (!copias.isEmpty()) {
+            copias.values().removeIf(destino::equals);
+        }
+        Operando origem = instrucao.getA();
+        if (instrucao.getOp() == OpIR.MOV && !origem.isConstante() && !origem.equals(destino)
+                && origem.getTipo() == destino.getTipo()) {
+            copias.put(destino.getIndice(), origem);
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package utils;
+
+import Tokens.FormatoTokens;
+import Tokens.TabelaDeTokens;
+import analyzer.AnalexBuffer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+
+/**
+ * Grava os tokens de um ficheiro C no formato binário (ver FormatoTokens),
+ * volta a carregá-los e confirma que a tabela carregada é igual à do
+ * Analex, token a token. Mostra os tamanhos e o tempo de cada passo.
+ * Com --listar imprime os tokens de um ficheiro já gravado.
+ *
+ * Uso: ConversorTokens fonte.c [saida.tok]
+ *      ConversorTokens --listar ficheiro.tok
+ *
+ * @author itsupport
+ */
+public class ConversorTokens {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 2 && args[0].equals("--listar")) {
+            FormatoTokens.carregar(Paths.get(args[1])).imprimirTokens();
+            return;
+        }
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Uso: ConversorTokens fonte.c [saida.tok] | --listar ficheiro.tok");
+            System.exit(2);
+        }
+        Path fonte = Paths.get(args[0]);
+        Path destino = Paths.get(args.length > 1 ? args[1] : args[0] + ".tok");
+
+        long inicio = System.nanoTime();
+        TabelaDeTokens original = new AnalexBuffer(fonte.toString()).analisarCodigo();
+        long analise = System.nanoTime() - inicio;
+
+        inicio = System.nanoTime();
+        FormatoTokens.escrever(original, destino);
+        long escrita = System.nanoTime() - inicio;
+
+        inicio = System.nanoTime();
+        TabelaDeTokens carregada = FormatoTokens.carregar(destino);
+        long carregamento = System.nanoTime() - inicio;
+
+        int diferente = primeiraDiferenca(original, carregada);
+        System.out.printf("Tokens: %d%n", original.tamanho());
+        System.out.printf("Fonte: %.1f KiB, binário: %.1f KiB%n",
+                Files.size(fonte) / 1024.0, Files.size(destino) / 1024.0);
+        System.out.printf("Análise léxica: %.3f ms, escrita: %.3f ms, carregamento: %.3f ms%n",
+                analise / 1e6, escrita / 1e6, carregamento / 1e6);
+        if (diferente >= 0) {
+            System.out.println("Ida e volta: diferente no token " + diferente);
+            System.exit(1);
+        }
+        System.out.println("Ida e volta: igual");
+    }
+
+    // Índice do primeiro token com kind, lexema, linha ou coluna diferentes; -1 se forem iguais
+    private static int primeiraDiferenca(TabelaDeTokens a, TabelaDeTokens b) {
+        int n = Math.min(a.tamanho(), b.tamanho());
+        for (int i = 0; i < n; i++) {
+            if (a.kindEm(i) != b.kindEm(i)
+                    || !Objects.equals(a.valorEm(i), b.valorEm(i))
+                    || a.linhaEm(i) != b.linhaEm(i)
+                    || a.colunaEm(i) != b.colunaEm(i)) {
+                return i;
+            }
+        }
+        return a.tamanho() == b.tamanho() ? -1 : n;
+    }
+
+}
@@ -0,0 +1,237 @@
+package utils;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Métricas de uma compilação por fase (leitura, análise léxica, sintática e
+ * semântica): tempo de relógio e bytes alocados pela thread, obtidos do
+ * ThreadMXBean, além do número de tokens e da profundidade máxima de
+ * escopos. Quando o executável é gerado juntam-se as fases de geração da
+ * representação intermédia, da otimização, do assembly e da ligação (as/ld),
+ * e o tempo e o número de alterações de cada passagem de otimização; com
+ * --run, as fases de geração do bytecode e de execução no interpretador.
+ *
+ * O Parser verifica os tipos na mesma passagem em que lê os tokens; a fase
+ * semântica corresponde ao tempo passado nas verificações de expressões e é
+ * descontada da fase sintática. Da mesma forma, a leitura só é uma fase
+ * quando o ficheiro é lido todo antes da análise léxica (--mmap, --dfa,
+ * --parallel-lex): o Analex lê-o à medida que analisa, e aí abri-lo conta
+ * na fase léxica.
+ *
+ * @author itsupport
+ */
+public class Estatisticas {
+
+    // Só aparece quando o ficheiro é lido antes da análise léxica
+    public static final String LEITURA = "leitura";
+    public static final String ANALISE_LEXICA = "lexica";
+    public static final String ANALISE_SINTATICA = "sintatica";
+    public static final String ANALISE_SEMANTICA = "semantica";
+    // Só aparecem quando o executável é gerado
+    public static final String GERACAO_IR = "ir";
+    public static final String OTIMIZACAO = "otimizacao";
+    public static final String GERACAO_CODIGO = "codigo";
+    public static final String LIGACAO = "ligacao";
+    // Só aparecem com --run
+    public static final String BYTECODE = "bytecode";
+    public static final String EXECUCAO = "execucao";
+    // Só aparece com --cache; num acerto é a única fase
+    public static final String CACHE = "cache";
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    public static class Fase {
+
+        private final String nome;
+        private long nanos;
+        private long bytes;
+
+        Fase(String nome) {
+            this.nome = nome;
+        }
+
+        public String getNome() {
+            return nome;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+    }
+
+    // Instante e bytes alocados no início de uma medição
+    public static class Marca {
+
+        private final long nanos;
+        private final long bytes;
+
+        Marca(long nanos, long bytes) {
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+    }
+
+    private final String ficheiro;
+    private final Map<String, Fase> fases = new LinkedHashMap<>();
+    private final Map<String, long[]> passagens = new LinkedHashMap<>(); // {nanos, alterações}
+    private long tokens;
+    private int profundidadeMaximaEscopo;
+
+    // Sem leituraSeparada a fase de leitura não aparece (ver LEITURA)
+    public Estatisticas(String ficheiro, boolean leituraSeparada) {
+        this.ficheiro = ficheiro;
+        if (leituraSeparada) {
+            fases.put(LEITURA, new Fase(LEITURA));
+        }
+        for (String nome : new String[]{ANALISE_LEXICA, ANALISE_SINTATICA, ANALISE_SEMANTICA}) {
+            fases.put(nome, new Fase(nome));
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+        }
+        return null; // JVM sem contagem de alocações: os bytes ficam a 0
+    }
+
+    public static long bytesAlocados() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    public Marca marcar() {
+        return new Marca(System.nanoTime(), bytesAlocados());
+    }
+
+    // Soma à fase o tempo e as alocações desde a marca, na thread atual
+    public synchronized void registar(String fase, Marca marca) {
+        long bytes = bytesAlocados() - marca.bytes;
+        adicionar(fase, System.nanoTime() - marca.nanos, bytes);
+    }
+
+    public synchronized void adicionar(String fase, long nanos, long bytes) {
+        Fase f = fases.computeIfAbsent(fase, Fase::new);
+        f.nanos += nanos;
+        f.bytes += bytes;
+    }
+
+    // Retira de uma fase a parte medida dentro dela por outra (ex: semântica dentro da sintática)
+    public synchronized void descontar(String fase, String parte) {
+        Fase f = fases.get(fase);
+        Fase p = fases.get(parte);
+        f.nanos = Math.max(0, f.nanos - p.nanos);
+        f.bytes = Math.max(0, f.bytes - p.bytes);
+    }
+
+    // Tempo e alterações de uma passagem de otimização (somados se já existir)
+    public synchronized void adicionarPassagem(String nome, long nanos, int alteracoes) {
+        long[] passagem = passagens.computeIfAbsent(nome, n -> new long[2]);
+        passagem[0] += nanos;
+        passagem[1] += alteracoes;
+    }
+
+    public Fase getFase(String nome) {
+        return fases.get(nome);
+    }
+
+    public String getFicheiro() {
+        return ficheiro;
+    }
+
+    public long getTokens() {
+        return tokens;
+    }
+
+    public void setTokens(long tokens) {
+        this.tokens = tokens;
+    }
+
+    public int getProfundidadeMaximaEscopo() {
+        return profundidadeMaximaEscopo;
+    }
+
+    public void setProfundidadeMaximaEscopo(int profundidadeMaximaEscopo) {
+        this.profundidadeMaximaEscopo = profundidadeMaximaEscopo;
+    }
+
+    public void imprimir(PrintStream saida) {
+        saida.println("Phase statistics (" + ficheiro + ")");
+        saida.println("--------");
+        long totalNanos = 0;
+        long totalBytes = 0;
+        for (Fase f : fases.values()) {
+            saida.printf(Locale.ROOT, "- %-10s %10.3f ms %12.1f KiB%n", f.nome, f.nanos / 1_000_000.0, f.bytes / 1024.0);
+            totalNanos += f.nanos;
+            totalBytes += f.bytes;
+        }
+        saida.printf(Locale.ROOT, "- %-10s %10.3f ms %12.1f KiB%n", "total", totalNanos / 1_000_000.0, totalBytes / 1024.0);
+        saida.println("- Tokens: " + tokens);
+        saida.println("- Max scope depth: " + profundidadeMaximaEscopo);
+        for (Map.Entry<String, long[]> passagem : passagens.entrySet()) {
+            saida.printf(Locale.ROOT, "- pass %-14s %10.3f ms %8d changes%n", passagem.getKey(),
+                    passagem.getValue()[0] / 1_000_000.0, passagem.getValue()[1]);
+        }
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"ficheiro\":\"").append(escaparJson(ficheiro)).append('"');
+        json.append(",\"tokens\":").append(tokens);
+        json.append(",\"profundidadeMaximaEscopo\":").append(profundidadeMaximaEscopo);
+        json.append(",\"fases\":{");
+        boolean primeira = true;
+        for (Fase f : fases.values()) {
+            if (!primeira) {
+                json.append(',');
+            }
+            primeira = false;
+            json.append('"').append(f.nome).append("\":{\"nanos\":").append(f.nanos)
+                    .append(",\"bytes\":").append(f.bytes).append('}');
+        }
+        json.append('}');
+        if (!passagens.isEmpty()) {
+            json.append(",\"passagens\":{");
+            primeira = true;
+            for (Map.Entry<String, long[]> passagem : passagens.entrySet()) {
+                if (!primeira) {
+                    json.append(',');
+                }
+                primeira = false;
+                json.append('"').append(passagem.getKey()).append("\":{\"nanos\":").append(passagem.getValue()[0])
+                        .append(",\"alteracoes\":").append(passagem.getValue()[1]).append('}');
+            }
+            json.append('}');
+        }
+        json.append('}');
+        return json.toString();
+    }
+
+    private static String escaparJson(String texto) {
+        StringBuilder sb = new StringBuilder(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+}
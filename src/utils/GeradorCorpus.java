@@ -0,0 +1,355 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Gera código C sintético no subconjunto aceite pelo Parser (structs,
+ * funções, printf/scanf, if/else, switch, for, while, do-while e expressões
+ * aninhadas), para medir o compilador em ficheiros grandes. Com erros > 0
+ * são semeadas falhas conhecidas (tipos incompatíveis, variáveis por
+ * declarar, número de argumentos errado, campos inexistentes, ';' em falta).
+ *
+ * Para a mesma configuração e semente o resultado é sempre o mesmo. Sem
+ * erros, os programas terminam: os ciclos têm um contador próprio (k1, k2)
+ * limitado por uma constante e que o corpo não altera, e só o main chama
+ * funções que também chamam outras (as primeiras FUNCOES_FOLHA não chamam
+ * nenhuma). Lêem valores com scanf, pelo que convém correr com a entrada
+ * redirecionada (ex: < /dev/null).
+ *
+ * Uso: GeradorCorpus [--linhas=N] [--structs=N] [--linhas-funcao=N]
+ *                    [--profundidade=N] [--erros=N] [--semente=N] [saida.c]
+ *
+ * @author itsupport
+ */
+public class GeradorCorpus {
+
+    private static final String[] VARIAVEIS_INT = {"a", "b", "i", "j", "total"};
+    private static final String[] OPERADORES = {"+", "-", "*", "/"};
+    private static final String[] RELACIONAIS = {"<", ">", "<=", ">=", "==", "!="};
+    // Funções que não chamam nenhuma; as seguintes só chamam estas
+    private static final int FUNCOES_FOLHA = 8;
+    // Iterações máximas de cada ciclo (os ciclos aninham até dois níveis)
+    private static final int ITERACOES_MAXIMAS = 5;
+
+    private int linhas = 1000;          // Tamanho aproximado do ficheiro
+    private int structs = 8;            // Structs declaradas no início
+    private int linhasPorFuncao = 60;   // Tamanho aproximado de cada função
+    private int profundidade = 3;       // Profundidade máxima das expressões
+    private int erros = 0;              // Falhas a semear
+    private long semente = 1;
+
+    private Random aleatorio;
+    private StringBuilder sb;
+    private int linhasEmitidas;
+    private int errosSemeados;
+    private int funcoesDeclaradas;
+    private int funcoesChamaveis;       // f0..f(n-1) podem ser chamadas na função atual
+
+    public String gerar() {
+        aleatorio = new Random(semente);
+        sb = new StringBuilder(linhas * 40);
+        linhasEmitidas = 0;
+        errosSemeados = 0;
+        funcoesDeclaradas = 0;
+
+        linha("#include <stdio.h>");
+        linha("#include <stdlib.h>");
+        linha("");
+
+        for (int s = 0; s < structs; s++) {
+            gerarStruct(s);
+        }
+
+        int funcoes = Math.max(1, (linhas - linhasEmitidas) / Math.max(10, linhasPorFuncao));
+        for (int f = 0; f < funcoes - 1; f++) {
+            gerarFuncao(f);
+        }
+        gerarMain();
+        return sb.toString();
+    }
+
+    private void gerarStruct(int indice) {
+        linha("struct S" + indice + " {");
+        linha("    int id;");
+        linha("    float valor;");
+        linha("    double total;");
+        linha("    char nome[32];");
+        linha("};");
+        linha("");
+    }
+
+    private void gerarFuncao(int indice) {
+        funcoesChamaveis = indice < FUNCOES_FOLHA ? 0 : FUNCOES_FOLHA;
+        linha("int f" + indice + "(int a, int b) {");
+        declararLocais();
+        int fim = linhasEmitidas + linhasPorFuncao - 8;
+        while (linhasEmitidas < fim) {
+            comando(1);
+        }
+        linha("    return total;");
+        linha("}");
+        linha("");
+        funcoesDeclaradas++;
+    }
+
+    private void gerarMain() {
+        funcoesChamaveis = funcoesDeclaradas;
+        linha("int main() {");
+        linha("    int a = 1;");
+        linha("    int b = 2;");
+        declararLocais();
+        int fim = Math.max(linhasEmitidas + 4, linhas - 2);
+        while (linhasEmitidas < fim || errosSemeados < erros) {
+            comando(1);
+        }
+        linha("    return 0;");
+        linha("}");
+    }
+
+    private void declararLocais() {
+        linha("    int i = 0;");
+        linha("    int j = 1;");
+        linha("    int total = 0;");
+        linha("    float f = 1.5;");
+        linha("    double d;");
+        linha("    char c = 'x';");
+        linha("    int k1 = 0;");
+        linha("    int k2 = 0;");
+        if (structs > 0) {
+            linha("    struct S" + aleatorio.nextInt(structs) + " s;");
+            linha("    s.id = 0;");
+        }
+    }
+
+    // Um comando completo, possivelmente com blocos aninhados
+    private void comando(int nivel) {
+        String recuo = "    ".repeat(nivel);
+
+        if (errosSemeados < erros && aleatorio.nextInt(Math.max(1, linhas / Math.max(1, erros) / 2)) == 0) {
+            semearErro(recuo);
+            return;
+        }
+
+        int escolha = aleatorio.nextInt(nivel < 3 ? 14 : 8);
+        switch (escolha) {
+            case 0:
+            case 1:
+            case 2:
+                linha(recuo + "total = " + expressaoInt(profundidade) + ";");
+                break;
+            case 3:
+                linha(recuo + "f = f * " + decimal() + " + " + decimal() + ";");
+                break;
+            case 4:
+                linha(recuo + "d = d + " + decimal() + ";");
+                break;
+            case 5:
+                if (structs > 0) {
+                    linha(recuo + "s.id = " + expressaoInt(2) + ";");
+                    linha(recuo + "s.valor = f;");
+                } else {
+                    linha(recuo + "j++;");
+                }
+                break;
+            case 6:
+                if (funcoesChamaveis > 0) {
+                    int f = aleatorio.nextInt(funcoesChamaveis);
+                    linha(recuo + "total = f" + f + "(" + expressaoInt(1) + ", " + expressaoInt(1) + ");");
+                } else {
+                    linha(recuo + "total = i > j ? total : j;");
+                }
+                break;
+            case 7:
+                if (structs > 0 && aleatorio.nextBoolean()) {
+                    // s.nome nunca é escrito: imprimi-lo daria lixo diferente em cada execução
+                    linha(recuo + "printf(\"%d %s %.2f\\n\", s.id, \"s\", f);");
+                } else if (aleatorio.nextBoolean()) {
+                    linha(recuo + "printf(\"%d %f %c\\n\", total, f, c);");
+                } else {
+                    linha(recuo + "scanf(\"%d\", &i);");
+                }
+                break;
+            case 8:
+            case 9:
+                linha(recuo + "if (" + condicao() + ") {");
+                bloco(nivel);
+                if (aleatorio.nextBoolean()) {
+                    linha(recuo + "} else {");
+                    bloco(nivel);
+                }
+                linha(recuo + "}");
+                break;
+            case 10:
+                linha(recuo + "for (" + contador(nivel) + " = 0; " + contador(nivel) + " < " + iteracoes() + "; " + contador(nivel) + "++) {");
+                bloco(nivel);
+                linha(recuo + "}");
+                break;
+            case 11:
+                linha(recuo + contador(nivel) + " = 0;");
+                linha(recuo + "while (" + contador(nivel) + " < " + iteracoes() + ") {");
+                bloco(nivel);
+                linha(recuo + "    " + contador(nivel) + "++;");
+                linha(recuo + "}");
+                break;
+            case 12:
+                linha(recuo + contador(nivel) + " = 0;");
+                linha(recuo + "do {");
+                bloco(nivel);
+                linha(recuo + "    " + contador(nivel) + "++;");
+                linha(recuo + "} while (" + contador(nivel) + " < " + iteracoes() + ");");
+                break;
+            default:
+                linha(recuo + "switch (i) {");
+                int casos = 1 + aleatorio.nextInt(4);
+                for (int k = 0; k < casos; k++) {
+                    linha(recuo + "    case " + k + ":");
+                    comando(nivel + 2);
+                    linha(recuo + "        break;");
+                }
+                linha(recuo + "    default:");
+                comando(nivel + 2);
+                linha(recuo + "}");
+                break;
+        }
+    }
+
+    private void bloco(int nivel) {
+        int comandos = 1 + aleatorio.nextInt(4);
+        for (int k = 0; k < comandos; k++) {
+            comando(nivel + 1);
+        }
+    }
+
+    private void semearErro(String recuo) {
+        errosSemeados++;
+        switch (aleatorio.nextInt(5)) {
+            case 0:
+                linha(recuo + "total = f;"); // int <- float
+                break;
+            case 1:
+                linha(recuo + "total = naoDeclarada" + errosSemeados + ";");
+                break;
+            case 2:
+                if (funcoesDeclaradas > 0) {
+                    linha(recuo + "total = f0(1);"); // Falta um argumento
+                } else {
+                    linha(recuo + "c = d;");
+                }
+                break;
+            case 3:
+                if (structs > 0) {
+                    linha(recuo + "s.inexistente = 1;");
+                } else {
+                    linha(recuo + "f = c;");
+                }
+                break;
+            default:
+                linha(recuo + "total = total + 1"); // ';' em falta
+                linha(recuo + "j++;");
+                break;
+        }
+    }
+
+    private String expressaoInt(int nivel) {
+        if (nivel <= 0 || aleatorio.nextInt(3) == 0) {
+            return aleatorio.nextBoolean()
+                    ? VARIAVEIS_INT[aleatorio.nextInt(VARIAVEIS_INT.length)]
+                    : Integer.toString(1 + aleatorio.nextInt(1000));
+        }
+        String operador = OPERADORES[aleatorio.nextInt(OPERADORES.length)];
+        String direita = operador.equals("/") ? Integer.toString(1 + aleatorio.nextInt(9)) : expressaoInt(nivel - 1);
+        return "(" + expressaoInt(nivel - 1) + " " + operador + " " + direita + ")";
+    }
+
+    private String condicao() {
+        String relacao = VARIAVEIS_INT[aleatorio.nextInt(VARIAVEIS_INT.length)]
+                + " " + RELACIONAIS[aleatorio.nextInt(RELACIONAIS.length)] + " " + expressaoInt(1);
+        if (aleatorio.nextInt(4) == 0) {
+            relacao += (aleatorio.nextBoolean() ? " && " : " || ") + "j < " + aleatorio.nextInt(50);
+        }
+        return relacao;
+    }
+
+    // Contador do ciclo ao nível dado (1 ou 2: no nível 3 já não há ciclos), que nenhum comando altera
+    private String contador(int nivel) {
+        return "k" + nivel;
+    }
+
+    private int iteracoes() {
+        return 1 + aleatorio.nextInt(ITERACOES_MAXIMAS);
+    }
+
+    private String decimal() {
+        return (1 + aleatorio.nextInt(9)) + "." + aleatorio.nextInt(10);
+    }
+
+    private void linha(String texto) {
+        sb.append(texto).append('\n');
+        linhasEmitidas++;
+    }
+
+    public int getErrosSemeados() {
+        return errosSemeados;
+    }
+
+    public void setLinhas(int linhas) {
+        this.linhas = linhas;
+    }
+
+    public void setStructs(int structs) {
+        this.structs = structs;
+    }
+
+    public void setLinhasPorFuncao(int linhasPorFuncao) {
+        this.linhasPorFuncao = linhasPorFuncao;
+    }
+
+    public void setProfundidade(int profundidade) {
+        this.profundidade = profundidade;
+    }
+
+    public void setErros(int erros) {
+        this.erros = erros;
+    }
+
+    public void setSemente(long semente) {
+        this.semente = semente;
+    }
+
+    public static void main(String[] args) throws IOException {
+        GeradorCorpus gerador = new GeradorCorpus();
+        String saida = null;
+        for (String arg : args) {
+            if (arg.startsWith("--linhas=")) {
+                gerador.setLinhas(Integer.parseInt(arg.substring("--linhas=".length())));
+            } else if (arg.startsWith("--structs=")) {
+                gerador.setStructs(Integer.parseInt(arg.substring("--structs=".length())));
+            } else if (arg.startsWith("--linhas-funcao=")) {
+                gerador.setLinhasPorFuncao(Integer.parseInt(arg.substring("--linhas-funcao=".length())));
+            } else if (arg.startsWith("--profundidade=")) {
+                gerador.setProfundidade(Integer.parseInt(arg.substring("--profundidade=".length())));
+            } else if (arg.startsWith("--erros=")) {
+                gerador.setErros(Integer.parseInt(arg.substring("--erros=".length())));
+            } else if (arg.startsWith("--semente=")) {
+                gerador.setSemente(Long.parseLong(arg.substring("--semente=".length())));
+            } else {
+                saida = arg;
+            }
+        }
+
+        String codigo = gerador.gerar();
+        if (saida == null) {
+            System.out.print(codigo);
+        } else {
+            Files.write(Paths.get(saida), codigo.getBytes(Charset.defaultCharset()));
+        }
+        if (gerador.getErrosSemeados() > 0) {
+            System.err.println("Erros semeados: " + gerador.getErrosSemeados());
+        }
+    }
+
+}
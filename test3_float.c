@@ -0,0 +1,15 @@
+// Constantes float dobradas pelo otimizador: a saída tem de ser igual à de --no-opt
+int main() {
+    float f = 0.1;
+    float g = 3.3;
+    float h;
+
+    printf("%.12f\n", f + 0.2);
+    h = f * g + 6.677;
+    printf("%f\n", h);
+    printf("%.12f\n", g * 1.0);
+    h = 1.0 / 3.0;
+    printf("%.12f\n", h * 3.0);
+    printf("%f\n", g / 7);
+    return 0;
+}
@@ -0,0 +1,33 @@
+#include <stdio.h>
+
+int dobro(int x)
+{
+    int y;
+    y = x * 2
+    return y;
+}
+
+int soma(int a, int b)
+{
+    if (a > b)
+    {
+        return a + b
+    }
+    return a - b;
+}
+
+int triplo(int x)
+{
+    int z;
+    z = x * 3;
+    w = z;
+    return z;
+}
+
+int main()
+{
+    int r;
+    r = dobro(2) + soma(3, 4) + triplo(5);
+    printf("%d\n", r);
+    return 0;
+}
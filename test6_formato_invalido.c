@@ -0,0 +1,15 @@
+#include <stdio.h>
+
+int main()
+{
+    int n;
+    float f;
+    n = 7;
+    f = 2.5;
+    printf("%.( %d\n", n);
+    printf("%d %y %f\n", n, f);
+    printf("100%");
+    scanf("%d %q", &n);
+    printf("%5.2f %%\n", f);
+    return 0;
+}